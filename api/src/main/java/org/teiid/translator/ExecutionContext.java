@@ -227,4 +227,12 @@ public interface ExecutionContext {
      * @return the {@link RuntimeMetadata}
      */
     RuntimeMetadata getRuntimeMetadata();
+    
+    /**
+     * Get the connection factory used to obtain the connection for this execution.
+     * Executions that need additional connections, such as for parallel reads, should 
+     * obtain and close them through their {@link ExecutionFactory} using this factory.
+     * @return the connection factory or null if none was used
+     */
+    Object getConnectionFactory();
 }
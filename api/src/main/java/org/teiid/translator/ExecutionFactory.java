@@ -127,6 +127,13 @@ public class ExecutionFactory<F, C> {
 	@SuppressWarnings("unused")
 	public void start() throws TranslatorException {
 	}
+	
+	/**
+	 * Release any resources, such as threads, held by the translator.  Called when the 
+	 * translator instance is no longer in use.
+	 */
+	public void stop() {
+	}
 	    
 	/**
 	 * Defines if the Connector is read-only connector 
@@ -22,10 +22,15 @@
 
 package org.teiid.client;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Externalizable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
 import java.io.ObjectStreamConstants;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -40,6 +45,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.ArrayImpl;
@@ -66,12 +74,24 @@ import org.teiid.jdbc.JDBCPlugin;
  *   uses a safer date/time serialization
  * <li>version 3: starts with 8.6 and adds better repeated string performance
  * <li>version 4: starts with 8.10 and adds the geometry type
+ * <li>version 5: negotiated only for remote results.  Uses delta varint encoding of integral 
+ *   and date/time columns, run length encoding of repeated strings, and deflates the column 
+ *   data when all of the columns are self-contained
  * </ul>
  */
 public class BatchSerializer {
 
 	public static final byte VERSION_GEOMETRY = (byte)4;
+	public static final byte VERSION_COMPRESSED = (byte)5;
     static final byte CURRENT_VERSION = VERSION_GEOMETRY;
+    
+    private static final byte BLOCK_NONE = 0;
+    private static final byte BLOCK_RAW = 1;
+    private static final byte BLOCK_DEFLATED = 2;
+    /**
+     * Blocks smaller than this are not worth the deflater overhead
+     */
+    private static final int MIN_DEFLATE_SIZE = 512;
 
 	private BatchSerializer() {} // Uninstantiable
 
@@ -101,6 +121,89 @@ public class BatchSerializer {
         serializers.put(DataTypeManager.DefaultDataTypes.OBJECT,     	new ColumnSerializer[] {defaultSerializer, new ObjectColumnSerializer((byte)1)});
         serializers.put(DataTypeManager.DefaultDataTypes.VARBINARY,    	new ColumnSerializer[] {new BinaryColumnSerializer(), new BinaryColumnSerializer1()});
     }
+    
+    /**
+     * Overrides used starting with {@link #VERSION_COMPRESSED}
+     */
+    private static final Map<String, ColumnSerializer> compressedSerializers = new HashMap<String, ColumnSerializer>(16);
+    static {
+    	compressedSerializers.put(DataTypeManager.DefaultDataTypes.INTEGER, new DeltaColumnSerializer() {
+    		@Override
+    		protected long toLong(Object obj) {
+    			return ((Integer)obj).intValue();
+    		}
+    		@Override
+    		protected Object fromLong(long value, ObjectInput in) {
+    			return Integer.valueOf((int)value);
+    		}
+		});
+    	compressedSerializers.put(DataTypeManager.DefaultDataTypes.LONG, new DeltaColumnSerializer() {
+    		@Override
+    		protected long toLong(Object obj) {
+    			return ((Long)obj).longValue();
+    		}
+    		@Override
+    		protected Object fromLong(long value, ObjectInput in) {
+    			return Long.valueOf(value);
+    		}
+    	});
+    	compressedSerializers.put(DataTypeManager.DefaultDataTypes.SHORT, new DeltaColumnSerializer() {
+    		@Override
+    		protected long toLong(Object obj) {
+    			return ((Short)obj).shortValue();
+    		}
+    		@Override
+    		protected Object fromLong(long value, ObjectInput in) {
+    			return Short.valueOf((short)value);
+    		}
+    	});
+    	compressedSerializers.put(DataTypeManager.DefaultDataTypes.DATE, new DeltaColumnSerializer() {
+    		@Override
+    		protected long toLong(Object obj) {
+    			return ((java.sql.Date)obj).getTime();
+    		}
+    		@Override
+    		protected Object fromLong(long value, ObjectInput in) {
+    			return new java.sql.Date(value);
+    		}
+    	});
+    	compressedSerializers.put(DataTypeManager.DefaultDataTypes.TIME, new DeltaColumnSerializer() {
+    		@Override
+    		protected long toLong(Object obj) {
+    			return ((Time)obj).getTime();
+    		}
+    		@Override
+    		protected Object fromLong(long value, ObjectInput in) {
+    			return new Time(value);
+    		}
+    	});
+    	compressedSerializers.put(DataTypeManager.DefaultDataTypes.TIMESTAMP, new DeltaColumnSerializer() {
+    		@Override
+    		protected long toLong(Object obj) {
+    			return ((Timestamp)obj).getTime();
+    		}
+    		@Override
+    		protected void writeExtra(ObjectOutput out, Object obj) throws IOException {
+    			//the millis are already part of the time
+    			writeVarLong(out, ((Timestamp)obj).getNanos() % 1000000);
+    		}
+    		@Override
+    		protected Object fromLong(long value, ObjectInput in) throws IOException {
+    			Timestamp ts = new Timestamp(value);
+    			ts.setNanos(ts.getNanos() + (int)readVarLong(in));
+    			return ts;
+    		}
+    	});
+    	compressedSerializers.put(DataTypeManager.DefaultDataTypes.STRING, new StringColumnSerializer5());
+    	//self-contained types that may be written in a deflated block
+    	for (String type : new String[] {DataTypeManager.DefaultDataTypes.BIG_DECIMAL, DataTypeManager.DefaultDataTypes.BIG_INTEGER, 
+    			DataTypeManager.DefaultDataTypes.BOOLEAN, DataTypeManager.DefaultDataTypes.BYTE, DataTypeManager.DefaultDataTypes.CHAR, 
+    			DataTypeManager.DefaultDataTypes.DOUBLE, DataTypeManager.DefaultDataTypes.FLOAT, DataTypeManager.DefaultDataTypes.VARBINARY, 
+    			DataTypeManager.DefaultDataTypes.NULL}) {
+    		ColumnSerializer[] sers = serializers.get(type);
+    		compressedSerializers.put(type, sers[Math.min(VERSION_GEOMETRY, sers.length - 1)]);
+    	}
+    }
 
     private static ColumnSerializer arrayColumnSerializer = new ColumnSerializer() {
 
@@ -318,8 +421,8 @@ public class BatchSerializer {
     }
     
     private static class StringColumnSerializer3 extends StringColumnSerializer1 {
-    	private static final int MAX_INLINE_STRING_LENGTH = 5;
-    	private static final byte REPEATED_STRING = 0;
+    	static final int MAX_INLINE_STRING_LENGTH = 5;
+    	static final byte REPEATED_STRING = 0;
     	@Override
     	protected Object readObject(ObjectInput in, List<Object> cache, byte version)
     			throws IOException, ClassNotFoundException {
@@ -364,6 +467,100 @@ public class BatchSerializer {
     	}
     }
 
+    /**
+     * Extends the repeated string handling with variable length
+     * cache references and run length encoding of consecutive values.
+     */
+    private static class StringColumnSerializer5 extends StringColumnSerializer3 {
+    	private static final byte RUN = 1;
+    	
+    	@Override
+    	public void writeColumn(ObjectOutput out, int col,
+    			List<? extends List<?>> batch, Map<Object, Integer> cache,
+    			byte version) throws IOException {
+    		writeIsNullData(out, col, batch);
+    		Object last = null;
+    		int run = 0;
+    		for (int i = 0; i < batch.size(); i++) {
+    			Object obj = batch.get(i).get(col);
+    			if (obj == null) {
+    				continue;
+    			}
+    			if (obj.equals(last)) {
+    				run++;
+    				continue;
+    			}
+    			if (run > 0) {
+    				out.writeByte(RUN);
+    				writeVarLong(out, run);
+    				run = 0;
+    			}
+    			writeObject(out, obj, cache, version);
+    			last = obj;
+    		}
+    		if (run > 0) {
+    			out.writeByte(RUN);
+    			writeVarLong(out, run);
+    		}
+    	}
+    	
+    	@Override
+    	public void readColumn(ObjectInput in, int col,
+    			List<List<Object>> batch, byte[] isNull, List<Object> cache,
+    			byte version) throws IOException, ClassNotFoundException {
+    		readIsNullData(in, isNull);
+    		Object last = null;
+    		int run = 0;
+    		for (int i = 0; i < batch.size(); i++) {
+    			if (isNullObject(isNull, i)) {
+    				continue;
+    			}
+    			if (run == 0) {
+    				byte b = in.readByte();
+    				if (b == RUN) {
+    					run = (int)readVarLong(in);
+    				} else {
+    					last = readObject(in, b, cache);
+    				}
+    			}
+    			if (run > 0) {
+    				run--;
+    			}
+    			batch.get(i).set(col, last);
+    		}
+    	}
+    	
+    	private Object readObject(ObjectInput in, byte b, List<Object> cache) throws IOException, ClassNotFoundException {
+    		if (b == REPEATED_STRING) {
+    			return cache.get((int)readVarLong(in));
+    		}
+    		String val = null;
+    		if (b == ObjectStreamConstants.TC_STRING) {
+    			val = in.readUTF();
+    		} else {
+    			val = (String) in.readObject();
+    		}
+    		if (val.length() > MAX_INLINE_STRING_LENGTH) {
+    			cache.add(val);
+    		}
+    		return val;
+    	}
+    	
+    	@Override
+    	protected void writeObject(ObjectOutput out, Object obj,
+    			Map<Object, Integer> cache, byte version) throws IOException {
+    		String str = (String)obj;
+    		Integer val = cache.get(str);
+    		if (val != null) {
+    			out.writeByte(REPEATED_STRING);
+    			writeVarLong(out, val);
+    			return;
+    		} 
+    		super.writeObject(out, obj, cache, version);
+    	}
+    	
+    }
+
     private static class NullColumnSerializer1 extends ColumnSerializer {
     	@Override
     	public void writeColumn(ObjectOutput out, int col,
@@ -557,6 +754,76 @@ public class BatchSerializer {
         }
     }
 
+    /**
+     * Writes the zig-zag variable length encoded difference between consecutive 
+     * non-null values, which is typically 1-2 bytes for sorted or clustered data
+     */
+    private static abstract class DeltaColumnSerializer extends ColumnSerializer {
+    	@Override
+    	public void writeColumn(ObjectOutput out, int col,
+    			List<? extends List<?>> batch, Map<Object, Integer> cache,
+    			byte version) throws IOException {
+    		writeIsNullData(out, col, batch);
+    		long last = 0;
+    		for (int i = 0; i < batch.size(); i++) {
+    			Object obj = batch.get(i).get(col);
+    			if (obj != null) {
+    				long value = toLong(obj);
+    				writeVarLong(out, zigZag(value - last));
+    				writeExtra(out, obj);
+    				last = value;
+    			}
+    		}
+    	}
+    	
+    	@Override
+    	public void readColumn(ObjectInput in, int col,
+    			List<List<Object>> batch, byte[] isNull, List<Object> cache,
+    			byte version) throws IOException, ClassNotFoundException {
+    		readIsNullData(in, isNull);
+    		long last = 0;
+    		for (int i = 0; i < batch.size(); i++) {
+    			if (!isNullObject(isNull, i)) {
+    				long delta = readVarLong(in);
+    				last += (delta >>> 1) ^ -(delta & 1);
+    				batch.get(i).set(col, fromLong(last, in));
+    			}
+    		}
+    	}
+    	
+    	protected void writeExtra(ObjectOutput out, Object obj) throws IOException {
+    		
+    	}
+    	
+    	protected abstract long toLong(Object obj);
+    	
+    	protected abstract Object fromLong(long value, ObjectInput in) throws IOException;
+    	
+    	private static long zigZag(long value) {
+    		return (value << 1) ^ (value >> 63);
+    	}
+    }
+    
+    static void writeVarLong(ObjectOutput out, long value) throws IOException {
+    	while ((value & ~0x7FL) != 0) {
+    		out.write((int)((value & 0x7F) | 0x80));
+    		value >>>= 7;
+    	}
+    	out.write((int)value);
+    }
+    
+    static long readVarLong(ObjectInput in) throws IOException {
+    	long result = 0;
+    	for (int shift = 0; shift < 64; shift += 7) {
+    		byte b = in.readByte();
+    		result |= (long)(b & 0x7F) << shift;
+    		if ((b & 0x80) == 0) {
+    			return result;
+    		}
+    	}
+    	throw new IOException("Malformed variable length value"); //$NON-NLS-1$
+    }
+
     private static class IntColumnSerializer extends ColumnSerializer {
         @Override
 		protected void writeObject(ObjectOutput out, Object obj, Map<Object, Integer> cache, byte version) throws IOException {
@@ -826,6 +1093,12 @@ public class BatchSerializer {
     }
 
     private static ColumnSerializer getSerializer(String type, byte version) {
+    	if (version >= VERSION_COMPRESSED) {
+    		ColumnSerializer ser = compressedSerializers.get(type);
+    		if (ser != null) {
+    			return ser;
+    		}
+    	}
     	ColumnSerializer[] sers = serializers.get(type);
     	if (sers == null) {
     		if (DataTypeManager.isArrayType(type)) {
@@ -856,28 +1129,82 @@ public class BatchSerializer {
             if (batch.size() > 0) {
 	            int columns = types.length;
 	            out.writeInt(columns);
-	            Map<Object, Integer> cache = null;
-	            for(int i = 0; i < columns; i++) {
-	            	ColumnSerializer serializer = getSerializer(types[i], version);
-	            	
-	            	if (cache == null && serializer.usesCache(version)) {
-	            		cache = new HashMap<Object, Integer>();
+	            if (version >= VERSION_COMPRESSED) {
+	            	if (!isSelfContained(types)) {
+	            		out.writeByte(BLOCK_NONE);
+	            	} else {
+	            		writeBlock(out, types, batch, version);
+	            		return;
 	            	}
-	                try {
-	                    serializer.writeColumn(out, i, batch, cache, version);
-	                } catch (ClassCastException e) {
-	                    Object obj = null;
-	                    String objectClass = null;
-	                    objectSearch: for (int row = 0; row < batch.size(); row++) {
-	                        obj = batch.get(row).get(i);
-	                        if (obj != null) {
-	                            objectClass = obj.getClass().getName();
-	                            break objectSearch;
-	                        }
-	                    }
-	                     throw new TeiidRuntimeException(JDBCPlugin.Event.TEIID20001, e, JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20001, new Object[] {types[i], new Integer(i), objectClass}));
-	                }
 	            }
+	            writeColumns(out, types, batch, version);
+            }
+        }
+    }
+    
+    /**
+     * Columns that rely upon the object stream (or lob references) cannot be 
+     * written into a separate block 
+     */
+    private static boolean isSelfContained(String[] types) {
+    	for (String type : types) {
+    		if (!compressedSerializers.containsKey(type)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    private static void writeBlock(ObjectOutput out, String[] types, List<? extends List<?>> batch, byte version) throws IOException {
+    	ByteArrayOutputStream baos = new ByteArrayOutputStream(batch.size() * types.length * 4);
+    	ObjectOutputStream oos = new ObjectOutputStream(baos);
+    	writeColumns(oos, types, batch, version);
+    	oos.close();
+    	byte[] bytes = baos.toByteArray();
+    	if (bytes.length >= MIN_DEFLATE_SIZE) {
+	    	ByteArrayOutputStream deflated = new ByteArrayOutputStream(bytes.length/2);
+	    	Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	    	try {
+	    		DeflaterOutputStream dos = new DeflaterOutputStream(deflated, deflater);
+	    		dos.write(bytes);
+	    		dos.close();
+	    	} finally {
+	    		deflater.end();
+	    	}
+	    	if (deflated.size() < bytes.length) {
+	    		out.writeByte(BLOCK_DEFLATED);
+	    		out.writeInt(deflated.size());
+	    		out.write(deflated.toByteArray());
+	    		return;
+	    	}
+    	}
+    	out.writeByte(BLOCK_RAW);
+    	out.writeInt(bytes.length);
+    	out.write(bytes);
+    }
+
+    private static void writeColumns(ObjectOutput out, String[] types, List<? extends List<?>> batch, byte version) throws IOException {
+        int columns = types.length;
+        Map<Object, Integer> cache = null;
+        for(int i = 0; i < columns; i++) {
+        	ColumnSerializer serializer = getSerializer(types[i], version);
+        	
+        	if (cache == null && serializer.usesCache(version)) {
+        		cache = new HashMap<Object, Integer>();
+        	}
+            try {
+                serializer.writeColumn(out, i, batch, cache, version);
+            } catch (ClassCastException e) {
+                Object obj = null;
+                String objectClass = null;
+                objectSearch: for (int row = 0; row < batch.size(); row++) {
+                    obj = batch.get(row).get(i);
+                    if (obj != null) {
+                        objectClass = obj.getClass().getName();
+                        break objectSearch;
+                    }
+                }
+                 throw new TeiidRuntimeException(JDBCPlugin.Event.TEIID20001, e, JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20001, new Object[] {types[i], new Integer(i), objectClass}));
             }
         }
     }
@@ -915,7 +1242,32 @@ public class BatchSerializer {
             batch.add(currentRow, Arrays.asList(new Object[columns]));
         }
         byte[] isNullBuffer = new byte[(extraRows > 0) ? numBytes + 1: numBytes];
-        List<Object> cache = null;
+        if (version >= VERSION_COMPRESSED) {
+        	byte block = in.readByte();
+        	if (block != BLOCK_NONE) {
+        		byte[] bytes = new byte[in.readInt()];
+        		in.readFully(bytes);
+        		InputStream is = new ByteArrayInputStream(bytes);
+        		if (block == BLOCK_DEFLATED) {
+        			is = new InflaterInputStream(is);
+        		}
+        		ObjectInputStream ois = new ObjectInputStream(is);
+        		try {
+        			readColumns(ois, types, columns, batch, isNullBuffer, version);
+        		} finally {
+        			ois.close();
+        		}
+        		return batch;
+        	}
+        }
+        readColumns(in, types, columns, batch, isNullBuffer, version);
+        return batch;
+    }
+
+	private static void readColumns(ObjectInput in, String[] types, int columns,
+			List<List<Object>> batch, byte[] isNullBuffer, byte version)
+			throws IOException, ClassNotFoundException {
+		List<Object> cache = null;
         for (int col = 0; col < columns; col++) {
             ColumnSerializer serializer = getSerializer(types[col], version);
             if (cache == null && serializer.usesCache(version)) {
@@ -923,6 +1275,5 @@ public class BatchSerializer {
         	}
             serializer.readColumn(in, col, batch, isNullBuffer, cache, version);
         }
-        return batch;
-    }
+	}
 }
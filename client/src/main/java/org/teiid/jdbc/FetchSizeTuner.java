@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.jdbc;
+
+import java.util.List;
+
+import org.teiid.core.types.BinaryType;
+
+/**
+ * Sizes the cursor requests of a forward only result set so that the single 
+ * prefetched batch covers the round trip time at the rate the results are consumed.
+ * <br>
+ * The round trip is only observable when the consumer has to wait on the prefetch -
+ * if the prefetch is already complete the current size is sufficient.
+ * The size will not go below the requested fetch size or above what fits two 
+ * batches (the current and the prefetch) within the memory cap. 
+ */
+class FetchSizeTuner {
+	
+	private static final int MAX_GROWTH = 4;
+	
+	private int minFetchSize;
+	private long maxBytes;
+	private int fetchSize;
+	private long rowBytes = 64;
+	
+	private long batchStart;
+	private int batchRows;
+	private long consumeTime = -1;
+	
+	FetchSizeTuner(int fetchSize, long maxBytes) {
+		this.minFetchSize = fetchSize;
+		this.fetchSize = fetchSize;
+		this.maxBytes = maxBytes;
+	}
+	
+	void setMinFetchSize(int minFetchSize) {
+		this.minFetchSize = minFetchSize;
+		this.fetchSize = Math.max(fetchSize, minFetchSize);
+	}
+	
+	int getFetchSize() {
+		return fetchSize;
+	}
+	
+	/**
+	 * Called when the consumer has exhausted the current batch
+	 */
+	void batchRequested() {
+		if (batchStart > 0) {
+			consumeTime = System.nanoTime() - batchStart;
+		}
+	}
+	
+	/**
+	 * Called once the next batch is available
+	 * @param waitTime the nanos spent waiting on the prefetch
+	 * @param rows the row count of the next batch 
+	 */
+	void batchReceived(long waitTime, int rows) {
+		if (waitTime > 0 && consumeTime > 0 && batchRows > 0) {
+			//the prefetch was outstanding for at least the time it took to consume 
+			//the prior batch plus the wait, so size to cover that time at the same rate
+			double target = (double)batchRows * (consumeTime + waitTime) / consumeTime * 1.25;
+			fetchSize = (int)Math.min(target, (long)fetchSize * MAX_GROWTH);
+		}
+		fetchSize = (int)Math.max(minFetchSize, Math.min(fetchSize, maxBytes / (2 * rowBytes)));
+		batchRows = rows;
+		batchStart = System.nanoTime();
+	}
+	
+	void sampleRow(List<?> row) {
+		rowBytes = Math.max(rowBytes, estimateSize(row));
+	}
+	
+	static long estimateSize(List<?> row) {
+		long size = 16;
+		for (Object value : row) {
+			if (value instanceof String) {
+				size += 40 + 2 * ((String)value).length();
+			} else if (value instanceof BinaryType) {
+				size += 32 + ((BinaryType)value).getLength();
+			} else if (value instanceof byte[]) {
+				size += 16 + ((byte[])value).length;
+			} else {
+				size += 24;
+			}
+		}
+		return size;
+	}
+
+}
@@ -89,7 +89,9 @@ public class JDBCURL {
     	        TeiidURL.CONNECTION.ENCRYPT_REQUESTS,
     	        TeiidURL.CONNECTION.LOGIN_TIMEOUT,
     	        DatabaseMetaDataImpl.REPORT_AS_VIEWS,
-    	        ResultSetImpl.DISABLE_FETCH_SIZE));
+    	        ResultSetImpl.DISABLE_FETCH_SIZE,
+    	        ResultSetImpl.ADAPTIVE_FETCH_SIZE,
+    	        ResultSetImpl.ADAPTIVE_FETCH_MAX_BYTES));
     	props.addAll(EXECUTION_PROPERTIES.keySet());
     	Map<String, String> result = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
     	for (String string : props) {
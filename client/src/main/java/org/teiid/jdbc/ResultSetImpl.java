@@ -31,6 +31,7 @@ import java.sql.*;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
@@ -67,6 +68,8 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 	private static final int BEFORE_FIRST_ROW = 0;
 
 	public static final String DISABLE_FETCH_SIZE = "disableResultSetFetchSize"; //$NON-NLS-1$
+	public static final String ADAPTIVE_FETCH_SIZE = "adaptiveFetchSize"; //$NON-NLS-1$
+	public static final String ADAPTIVE_FETCH_MAX_BYTES = "adaptiveFetchMaxBytes"; //$NON-NLS-1$
 
 	// the object which was last read from Results
 	private Object currentValue;
@@ -107,6 +110,12 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 	private static boolean DISABLE_FETCH_SIZE_DEFAULT = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid." + DISABLE_FETCH_SIZE, false); //$NON-NLS-1$
 	
 	private Boolean disableFetchSize;
+	
+	private static boolean ADAPTIVE_FETCH_SIZE_DEFAULT = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid." + ADAPTIVE_FETCH_SIZE, false); //$NON-NLS-1$
+	private static long ADAPTIVE_FETCH_MAX_BYTES_DEFAULT = PropertiesUtils.getLongProperty(System.getProperties(), "org.teiid." + ADAPTIVE_FETCH_MAX_BYTES, 1 << 25); //$NON-NLS-1$
+	
+	private FetchSizeTuner fetchSizeTuner;
+	private long prefetchWait;
 
 	/**
 	 * Constructor.
@@ -147,6 +156,16 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 			logger.finer("Creating ResultSet requestID: " + requestID + " beginRow: " + resultsMsg.getFirstRow() + " resultsColumns: " + resultColumns + " parameters: " + parameters); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 		}
 		this.usePrefetch = cursorType == ResultSet.TYPE_FORWARD_ONLY && !statement.useCallingThread();
+		if (this.usePrefetch) {
+			ConnectionImpl conn = statement.getConnection();
+			Properties props = conn != null ? conn.getConnectionProps() : null;
+			if (props == null) {
+				props = new Properties();
+			}
+			if (PropertiesUtils.getBooleanProperty(props, ADAPTIVE_FETCH_SIZE, ADAPTIVE_FETCH_SIZE_DEFAULT)) {
+				this.fetchSizeTuner = new FetchSizeTuner(this.fetchSize, PropertiesUtils.getLongProperty(props, ADAPTIVE_FETCH_MAX_BYTES, ADAPTIVE_FETCH_MAX_BYTES_DEFAULT));
+			}
+		}
 		this.maxRows = statement.getMaxRows();
 		this.batchResults = new BatchResults(this, getCurrentBatch(resultsMsg), this.cursorType == ResultSet.TYPE_FORWARD_ONLY ? 1 : BatchResults.DEFAULT_SAVED_BATCHES);
 	}
@@ -370,7 +389,17 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
     			//TODO: this is not efficient if the user is skipping around the results
     			//but the server logic at this point basically requires us
     			//to read what we have requested before requesting more (no queuing)
+        		long waitStart = 0;
+        		if (fetchSizeTuner != null) {
+        			fetchSizeTuner.batchRequested();
+        			if (!prefetch.isDone()) {
+        				waitStart = System.nanoTime();
+        			}
+        		}
     			ResultsMessage result = getResults(prefetch);
+    			if (waitStart != 0) {
+    				prefetchWait = System.nanoTime() - waitStart;
+    			}
     			prefetch = null;
     			Batch nextBatch = processBatch(result);
 				return nextBatch;
@@ -412,7 +441,7 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 			logger.finer("requestBatch requestID: " + requestID + " beginRow: " + beginRow ); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		try {
-			results = statement.getDQP().processCursorRequest(requestID, beginRow, fetchSize);
+			results = statement.getDQP().processCursorRequest(requestID, beginRow, fetchSizeTuner != null ? fetchSizeTuner.getFetchSize() : fetchSize);
 		} catch (TeiidProcessingException e) {
 			throw TeiidSQLException.create(e);
 		}
@@ -442,6 +471,10 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 
 	private Batch getCurrentBatch(ResultsMessage currentResultMsg) throws TeiidSQLException {
 		this.updatedPlanDescription = currentResultMsg.getPlanDescription();
+		if (fetchSizeTuner != null) {
+			fetchSizeTuner.batchReceived(prefetchWait, currentResultMsg.getLastRow() - currentResultMsg.getFirstRow() + 1);
+			prefetchWait = 0;
+		}
 		if (usePrefetch && !asynch 
 				&& prefetch == null && currentResultMsg.getLastRow() != currentResultMsg.getFinalRow()) {
 			//fetch before processing the results
@@ -450,6 +483,9 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
 		currentResultMsg.processResults();
 		List<?> lastTuple = null;
 		List<List<?>> resultsList = (List<List<?>>) currentResultMsg.getResultsList();
+		if (fetchSizeTuner != null && !resultsList.isEmpty()) {
+			fetchSizeTuner.sampleRow(resultsList.get(0));
+		}
 		//similar logic to BatchCollector on the server side
 		//this is a catch all in case the server doesn't enforce the max
 		//such as currently the case with cached subset results
@@ -1375,6 +1411,9 @@ public class ResultSetImpl extends WrapperImpl implements TeiidResultSet, BatchF
         		this.fetchSize = rows;
         	}
         }
+        if (fetchSizeTuner != null) {
+        	fetchSizeTuner.setMinFetchSize(this.fetchSize);
+        }
 	}
 
 	public void updateArray(int columnIndex, Array x) throws SQLException {
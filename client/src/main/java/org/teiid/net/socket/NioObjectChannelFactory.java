@@ -0,0 +1,667 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.net.socket;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.teiid.client.util.ResultsFuture;
+import org.teiid.client.util.ResultsReceiver;
+import org.teiid.core.util.AccessibleBufferedInputStream;
+import org.teiid.core.util.PropertiesUtils;
+import org.teiid.jdbc.JDBCPlugin;
+import org.teiid.net.CommunicationException;
+import org.teiid.netty.handler.codec.serialization.ObjectDecoderInputStream;
+import org.teiid.netty.handler.codec.serialization.ObjectEncoderOutputStream;
+
+/**
+ * An {@link ObjectChannelFactory} that multiplexes the socket io of all of its channels 
+ * over a small pool of selector threads.
+ * <br>
+ * Sends are queued and written as the socket allows, so requests may be pipelined 
+ * without waiting on the network.  Received bytes are buffered by the selector thread 
+ * and decoded by whichever thread is waiting on a {@link ResultsFuture}, so no thread 
+ * is blocked on a socket on behalf of an idle connection.
+ * <br>
+ * SSL connections are delegated to the {@link OioOjbectChannelFactory}.
+ */
+public final class NioObjectChannelFactory implements ObjectChannelFactory {
+	
+	private final static int STREAM_BUFFER_SIZE = 1<<15;
+	private final static int DEFAULT_MAX_OBJECT_SIZE = 1 << 25;
+	/**
+	 * The amount of unread input or unsent output allowed per channel before 
+	 * applying back pressure
+	 */
+	private final static int MAX_BUFFERED = 1<<18;
+	/**
+	 * The number of consecutive select failures before the selector thread is shutdown 
+	 */
+	private final static int MAX_SELECT_FAILURES = 10;
+	
+	private static Logger log = Logger.getLogger("org.teiid.client.sockets"); //$NON-NLS-1$
+	
+	static final class SelectorThread extends Thread {
+		private final Selector selector;
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+		private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE);
+		
+		SelectorThread(String name) throws IOException {
+			super(name);
+			setDaemon(true);
+			this.selector = Selector.open();
+		}
+		
+		/**
+		 * Run the task on the selector thread, which is the only thread that
+		 * should modify the registrations 
+		 */
+		void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+		
+		@Override
+		public void run() {
+			int failures = 0;
+			while (true) {
+				try {
+					selector.select();
+					failures = 0;
+				} catch (IOException e) {
+					log.log(Level.WARNING, "Unexpected selector exception", e); //$NON-NLS-1$
+					if (++failures >= MAX_SELECT_FAILURES) {
+						shutdown(e);
+						return;
+					}
+					//back off rather than spin on a persistent failure
+					try {
+						Thread.sleep(Math.min(1000, 10L << failures));
+					} catch (InterruptedException ie) {
+						shutdown(e);
+						return;
+					}
+					continue;
+				}
+				Runnable task = null;
+				while ((task = tasks.poll()) != null) {
+					try {
+						task.run();
+					} catch (RuntimeException e) {
+						log.log(Level.WARNING, "Unexpected selector task exception", e); //$NON-NLS-1$
+					}
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					NioObjectChannel channel = (NioObjectChannel)key.attachment();
+					try {
+						if (key.isReadable()) {
+							channel.readReady(readBuffer);
+						}
+						if (key.isValid() && key.isWritable()) {
+							channel.writeReady();
+						}
+					} catch (CancelledKeyException e) {
+						channel.shutdown(null);
+					} catch (IOException e) {
+						channel.shutdown(e);
+					} catch (RuntimeException e) {
+						log.log(Level.WARNING, "Unexpected channel exception", e); //$NON-NLS-1$
+						channel.shutdown(new IOException(e));
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Fail all of the registered channels and close the selector
+		 */
+		private void shutdown(IOException e) {
+			log.log(Level.SEVERE, "Shutting down selector " + getName()); //$NON-NLS-1$
+			try {
+				for (SelectionKey key : selector.keys()) {
+					((NioObjectChannel)key.attachment()).shutdown(e);
+				}
+			} catch (RuntimeException ex) {
+				//the key set may already be unusable
+			}
+			try {
+				selector.close();
+			} catch (IOException ex) {
+				//ignore
+			}
+		}
+	}
+	
+	/**
+	 * Holds the bytes received by the selector thread until they are read.
+	 */
+	private static final class InboundStream extends InputStream {
+		private byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+		private int position;
+		private int limit;
+		private boolean closed;
+		private IOException failure;
+		private final int soTimeout;
+		private final NioObjectChannel channel;
+		
+		InboundStream(NioObjectChannel channel, int soTimeout) {
+			this.channel = channel;
+			this.soTimeout = soTimeout;
+		}
+		
+		/**
+		 * @return true if more input may be accepted
+		 */
+		synchronized boolean append(ByteBuffer bytes) {
+			int length = bytes.remaining();
+			if (limit + length > buffer.length) {
+				byte[] target = buffer;
+				if (limit - position + length > buffer.length) {
+					target = new byte[Math.max(buffer.length * 2, limit - position + length)];
+				}
+				System.arraycopy(buffer, position, target, 0, limit - position);
+				buffer = target;
+				limit -= position;
+				position = 0;
+			}
+			bytes.get(buffer, limit, length);
+			limit += length;
+			notifyAll();
+			return limit - position < MAX_BUFFERED;
+		}
+		
+		synchronized void close(IOException e) {
+			this.closed = true;
+			this.failure = e;
+			notifyAll();
+		}
+		
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			if (read(b, 0, 1) < 0) {
+				return -1;
+			}
+			return b[0] & 0xff;
+		}
+		
+		@Override
+		public synchronized int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			long end = System.currentTimeMillis() + soTimeout;
+			while (position == limit) {
+				if (failure != null) {
+					throw failure;
+				}
+				if (closed) {
+					return -1;
+				}
+				long wait = 0;
+				if (soTimeout > 0) {
+					wait = end - System.currentTimeMillis();
+					if (wait <= 0) {
+						throw new SocketTimeoutException();
+					}
+				}
+				try {
+					wait(wait);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+			boolean paused = limit - position >= MAX_BUFFERED;
+			int count = Math.min(len, limit - position);
+			System.arraycopy(buffer, position, b, off, count);
+			position += count;
+			if (position == limit) {
+				position = 0;
+				limit = 0;
+				if (buffer.length > STREAM_BUFFER_SIZE) {
+					buffer = new byte[STREAM_BUFFER_SIZE];
+				}
+			}
+			if (paused && limit - position < MAX_BUFFERED) {
+				channel.resumeReading();
+			}
+			return count;
+		}
+		
+		@Override
+		public synchronized int available() throws IOException {
+			return limit - position;
+		}
+	}
+	
+	/**
+	 * Collects the encoded bytes into buffers to be written by the selector thread.
+	 */
+	private static final class OutboundStream extends OutputStream {
+		private ByteBuffer current;
+		private final NioObjectChannel channel;
+		
+		OutboundStream(NioObjectChannel channel) {
+			this.channel = channel;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte)b}, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (current == null) {
+					current = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+				}
+				int count = Math.min(len, current.remaining());
+				current.put(b, off, count);
+				off += count;
+				len -= count;
+				if (!current.hasRemaining()) {
+					flush();
+				}
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			if (current != null && current.position() > 0) {
+				current.flip();
+				ByteBuffer toSend = current;
+				current = null;
+				channel.enqueue(toSend, toSend.remaining());
+			}
+		}
+	}
+	
+	final static class NioObjectChannel implements ObjectChannel {
+		private final SocketChannel channel;
+		private final SelectorThread selectorThread;
+		private volatile SelectionKey key;
+		private final ObjectOutputStream outputStream;
+		private final ObjectInputStream inputStream;
+		private final InboundStream inbound;
+		private final Object readLock = new Object();
+		
+		//guarded by outbound
+		private final ArrayDeque<Object> outbound = new ArrayDeque<Object>();
+		private int outboundBytes;
+		private IOException failure;
+		
+		private NioObjectChannel(SocketChannel channel, SelectorThread selectorThread, int soTimeout, int maxObjectSize) throws IOException {
+			log.fine("creating new NioObjectChannel"); //$NON-NLS-1$
+			this.channel = channel;
+			this.selectorThread = selectorThread;
+			this.inbound = new InboundStream(this, soTimeout);
+			this.outputStream = new ObjectEncoderOutputStream(new DataOutputStream(new OutboundStream(this)), STREAM_BUFFER_SIZE);
+			final ClassLoader cl = this.getClass().getClassLoader();
+			this.inputStream = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(inbound, STREAM_BUFFER_SIZE), cl, maxObjectSize);
+		}
+		
+		void register() {
+			selectorThread.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						key = channel.register(selectorThread.selector, SelectionKey.OP_READ, NioObjectChannel.this);
+					} catch (ClosedChannelException e) {
+						shutdown(e);
+					}
+				}
+			});
+		}
+		
+		void readReady(ByteBuffer readBuffer) throws IOException {
+			readBuffer.clear();
+			int read = channel.read(readBuffer);
+			if (read < 0) {
+				shutdown(null);
+				return;
+			}
+			readBuffer.flip();
+			if (!inbound.append(readBuffer)) {
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			}
+		}
+		
+		void resumeReading() {
+			addInterest(SelectionKey.OP_READ);
+		}
+		
+		/**
+		 * Add the interest on the selector thread.  The key may be cancelled 
+		 * concurrently by a close, which only affects this channel.
+		 */
+		private void addInterest(final int ops) {
+			selectorThread.execute(new Runnable() {
+				@Override
+				public void run() {
+					SelectionKey k = key;
+					if (k == null || !k.isValid()) {
+						return;
+					}
+					try {
+						k.interestOps(k.interestOps() | ops);
+					} catch (CancelledKeyException e) {
+						shutdown(null);
+					}
+				}
+			});
+		}
+		
+		void enqueue(Object toSend, int size) throws IOException {
+			synchronized (outbound) {
+				while (failure == null && size > 0 && outboundBytes > MAX_BUFFERED) {
+					try {
+						outbound.wait();
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					}
+				}
+				if (failure != null) {
+					throw failure;
+				}
+				boolean requestWrite = outbound.isEmpty();
+				outbound.add(toSend);
+				outboundBytes += size;
+				if (!requestWrite) {
+					return;
+				}
+			}
+			addInterest(SelectionKey.OP_WRITE);
+		}
+		
+		@SuppressWarnings("unchecked")
+		void writeReady() throws IOException {
+			List<ResultsReceiver<Void>> completed = new ArrayList<ResultsReceiver<Void>>(2);
+			try {
+				synchronized (outbound) {
+					while (!outbound.isEmpty()) {
+						Object next = outbound.peek();
+						if (next instanceof ByteBuffer) {
+							ByteBuffer bytes = (ByteBuffer)next;
+							outboundBytes -= channel.write(bytes);
+							if (bytes.hasRemaining()) {
+								outbound.notifyAll();
+								return;
+							}
+						} else {
+							completed.add((ResultsReceiver<Void>)next);
+						}
+						outbound.poll();
+					}
+					outbound.notifyAll();
+					key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+				}
+			} finally {
+				for (ResultsReceiver<Void> receiver : completed) {
+					receiver.receiveResults(null);
+				}
+			}
+		}
+		
+		/**
+		 * Close the channel and fail all pending operations
+		 * @param e the cause, or null if closed normally
+		 */
+		@SuppressWarnings("unchecked")
+		void shutdown(IOException e) {
+			if (e != null) {
+				log.log(Level.FINE, "channel failure", e); //$NON-NLS-1$
+			}
+			inbound.close(e);
+			List<ResultsReceiver<Void>> failed = new ArrayList<ResultsReceiver<Void>>();
+			IOException cause = null;
+			synchronized (outbound) {
+				if (failure == null) {
+					failure = e != null ? e : new ClosedChannelException();
+				}
+				cause = failure;
+				for (Object o : outbound) {
+					if (!(o instanceof ByteBuffer)) {
+						failed.add((ResultsReceiver<Void>)o);
+					}
+				}
+				outbound.clear();
+				outboundBytes = 0;
+				outbound.notifyAll();
+			}
+			for (ResultsReceiver<Void> receiver : failed) {
+				receiver.exceptionOccurred(cause);
+			}
+			try {
+				channel.close();
+			} catch (IOException ex) {
+				//ignore
+			}
+		}
+		
+		@Override
+		public void close() {
+			log.finer("closing channel"); //$NON-NLS-1$
+			shutdown(null);
+		}
+
+		@Override
+		public SocketAddress getRemoteAddress() {
+			return channel.socket().getRemoteSocketAddress();
+		}
+		
+		@Override
+		public InetAddress getLocalAddress() {
+			return channel.socket().getLocalAddress();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public Object read() throws IOException, ClassNotFoundException {
+			log.finer("reading message from channel"); //$NON-NLS-1$
+			synchronized (readLock) {
+				try {
+					return inputStream.readObject();
+				} catch (SocketTimeoutException e) {
+					Long timeout = OioOjbectChannelFactory.TIMEOUTS.get();
+					if (timeout != null && timeout < System.currentTimeMillis()) {
+						OioOjbectChannelFactory.TIMEOUTS.set(null);
+						throw new InterruptedIOException(JDBCPlugin.Util.gs(JDBCPlugin.Event.TEIID20035));
+					}
+					throw e;
+		        } catch (IOException e) {
+		            close();
+		            throw e;
+				}
+			}
+		}
+
+		/**
+		 * Queues the message and returns a future that completes once it has been 
+		 * written to the socket.
+		 */
+		@Override
+		public synchronized Future<?> write(Object msg) {
+			log.finer("writing message to channel"); //$NON-NLS-1$
+		    ResultsFuture<Void> result = new ResultsFuture<Void>();
+		    try {
+		        outputStream.writeObject(msg);
+		        outputStream.flush();
+		        enqueue(result.getResultsReceiver(), 0);
+		    } catch (IOException e) {
+		        close();
+		    	result.getResultsReceiver().exceptionOccurred(e);
+		    }
+		    return result;
+		}
+	}
+
+	private Properties props;
+	private int receiveBufferSize = 0;
+	private int sendBufferSize = 0;
+	private boolean conserveBandwidth;
+	private int soTimeout = 1000;
+	private int maxObjectSize = DEFAULT_MAX_OBJECT_SIZE;
+	private int selectorThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+	private SelectorThread[] selectors;
+	private AtomicInteger nextSelector = new AtomicInteger();
+	private volatile OioOjbectChannelFactory sslChannelFactory;
+
+	public NioObjectChannelFactory(Properties props) {
+		this.props = props;
+		PropertiesUtils.setBeanProperties(this, props, "org.teiid.sockets"); //$NON-NLS-1$
+	}
+	
+	@Override
+	public ObjectChannel createObjectChannel(SocketAddress address, boolean ssl) throws IOException,
+			CommunicationException {
+		if (ssl) {
+			if (sslChannelFactory == null) {
+				sslChannelFactory = new OioOjbectChannelFactory(props);
+			}
+			return sslChannelFactory.createObjectChannel(address, ssl);
+		}
+		SocketChannel channel = SocketChannel.open();
+		try {
+			Socket socket = channel.socket();
+			if (receiveBufferSize > 0) {
+				socket.setReceiveBufferSize(receiveBufferSize);
+			}
+			if (sendBufferSize > 0) {
+				socket.setSendBufferSize(sendBufferSize);
+			}
+		    socket.setTcpNoDelay(!conserveBandwidth); // enable Nagle's algorithm to conserve bandwidth
+		    channel.connect(address);
+		    channel.configureBlocking(false);
+		    NioObjectChannel result = new NioObjectChannel(channel, getSelector(), soTimeout, maxObjectSize);
+		    result.register();
+		    return result;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	private synchronized SelectorThread[] getSelectors() throws IOException {
+		if (selectors == null) {
+			SelectorThread[] threads = new SelectorThread[Math.max(1, selectorThreads)];
+			for (int i = 0; i < threads.length; i++) {
+				threads[i] = new SelectorThread("TeiidClientSelector-" + i); //$NON-NLS-1$
+				threads[i].start();
+			}
+			selectors = threads;
+		}
+		return selectors;
+	}
+	
+	private SelectorThread getSelector() throws IOException {
+		SelectorThread[] threads = getSelectors();
+		int index = (nextSelector.getAndIncrement() & Integer.MAX_VALUE) % threads.length;
+		synchronized (this) {
+			if (!threads[index].isAlive()) {
+				//replace a selector that was shutdown
+				threads[index] = new SelectorThread("TeiidClientSelector-" + index); //$NON-NLS-1$
+				threads[index].start();
+			}
+			return threads[index];
+		}
+	}
+	
+	public int getSendBufferSize() {
+		return sendBufferSize;
+	}
+
+	public void setSendBufferSize(int sendBufferSize) {
+		this.sendBufferSize = sendBufferSize;
+	}
+
+	public int getReceiveBufferSize() {
+		return receiveBufferSize;
+	}
+
+	public void setReceiveBufferSize(int receiveBufferSize) {
+		this.receiveBufferSize = receiveBufferSize;
+	}
+
+	public boolean isConserveBandwidth() {
+		return conserveBandwidth;
+	}
+
+	public void setConserveBandwidth(boolean conserveBandwidth) {
+		this.conserveBandwidth = conserveBandwidth;
+	}
+	
+	public void setSoTimeout(int soTimeout) {
+		this.soTimeout = soTimeout;
+	}
+	
+	public void setMaxObjectSize(int maxObjectSize) {
+		this.maxObjectSize = maxObjectSize;
+	}
+	
+	public int getSelectorThreads() {
+		return selectorThreads;
+	}
+	
+	public void setSelectorThreads(int selectorThreads) {
+		this.selectorThreads = selectorThreads;
+	}
+
+	@Override
+	public int getSoTimeout() {
+		return soTimeout;
+	}
+}
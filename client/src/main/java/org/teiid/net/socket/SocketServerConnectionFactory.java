@@ -150,6 +150,8 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 	private int maxCachedInstances=16;
 
 	private boolean disablePing;
+	private boolean compressResults;
+	private boolean nio;
 
 	public static synchronized SocketServerConnectionFactory getInstance() {
 		if (INSTANCE == null) {
@@ -182,9 +184,37 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 		this.disablePing = disable;
 	}
 	
+	/**
+	 * Trade server and client cpu for less bandwidth by using the compressed result 
+	 * serialization.  Set via org.teiid.sockets.compressResults
+	 */
+	public void setCompressResults(boolean compressResults) {
+		this.compressResults = compressResults;
+	}
+	
+	public boolean isCompressResults() {
+		return compressResults;
+	}
+	
+	/**
+	 * Use a {@link NioObjectChannelFactory} so that connections share a small number of
+	 * selector threads.  Set via org.teiid.sockets.nio
+	 */
+	public void setNio(boolean nio) {
+		this.nio = nio;
+	}
+	
+	public boolean isNio() {
+		return nio;
+	}
+	
 	public void initialize(Properties info) {
 		PropertiesUtils.setBeanProperties(this, info, "org.teiid.sockets"); //$NON-NLS-1$
-		this.channelFactory = new OioOjbectChannelFactory(info);
+		if (nio) {
+			this.channelFactory = new NioObjectChannelFactory(info);
+		} else {
+			this.channelFactory = new OioOjbectChannelFactory(info);
+		}
 
 		if (disablePing) {
 			return;
@@ -274,6 +304,7 @@ public class SocketServerConnectionFactory implements ServerConnectionFactory, S
 			}
 		}
 		SocketServerInstanceImpl ssii = new SocketServerInstanceImpl(info, getSynchronousTtl(), this.channelFactory.getSoTimeout());
+		ssii.setCompressResults(this.compressResults);
 		ssii.connect(this.channelFactory);
 		if (useCache) {
 			key.actual = ssii;
@@ -81,6 +81,7 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
     
     private boolean hasReader;
     private int soTimeout;
+    private boolean compressResults;
     
     public SocketServerInstanceImpl(HostInfo info, long synchTimeout, int soTimeout) {
     	if (!info.isResolved()) {
@@ -91,6 +92,13 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
         this.soTimeout = soTimeout;
     }
     
+    /**
+     * Request the compressed result serialization if the server offers it
+     */
+    public void setCompressResults(boolean compressResults) {
+		this.compressResults = compressResults;
+	}
+    
     public synchronized void connect(ObjectChannelFactory channelFactory) throws CommunicationException, IOException {
         this.socketChannel = channelFactory.createObjectChannel(new InetSocketAddress(info.getInetAddress(), info.getPortNumber()), info.isSsl());
         try {
@@ -159,6 +167,7 @@ public class SocketServerInstanceImpl implements SocketServerInstance {
             }*/
             serverVersion = handshake.getVersion();
             handshake.setVersion();
+            handshake.setCompressResults(this.compressResults && handshake.isCompressResults());
             
             byte[] serverPublicKey = handshake.getPublicKey();
             
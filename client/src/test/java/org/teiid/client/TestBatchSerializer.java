@@ -31,6 +31,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.List;
 
@@ -133,6 +134,19 @@ public class TestBatchSerializer {
         helpTestSerialization(sampleBatchTypes, sampleBatchWithNulls(4096), BatchSerializer.CURRENT_VERSION); // A bunch of rows. This should also test large strings
     }
     
+    @Test public void testSerializeCompressed() throws Exception {
+        helpTestSerialization(sampleBatchTypes, sampleBatchWithNulls(1), BatchSerializer.VERSION_COMPRESSED);
+        helpTestSerialization(sampleBatchTypes, sampleBatchWithNulls(833), BatchSerializer.VERSION_COMPRESSED);
+        String[] types = new String[] {DataTypeManager.DefaultDataTypes.INTEGER, DataTypeManager.DefaultDataTypes.STRING, DataTypeManager.DefaultDataTypes.TIMESTAMP};
+        List<?>[] batch = new List[1000];
+        for (int i = 0; i < batch.length; i++) {
+        	Timestamp ts = new Timestamp(i * 1000l);
+        	ts.setNanos(i);
+        	batch[i] = Arrays.asList(i%10==0?null:-i, i%7==0?null:"repeated value " + i/100, ts); //$NON-NLS-1$
+        }
+        helpTestSerialization(types, batch, BatchSerializer.VERSION_COMPRESSED);
+    }
+
     @Test public void testSerializeLargeStrings() throws Exception {
         List<?> row = Arrays.asList(new Object[] {sampleString(66666)});
         helpTestSerialization(new String[] {DataTypeManager.DefaultDataTypes.STRING}, new List[] {row}, BatchSerializer.CURRENT_VERSION);
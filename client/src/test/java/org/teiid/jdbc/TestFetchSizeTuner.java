@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class TestFetchSizeTuner {
+
+	@Test public void testGrowthOnWait() throws Exception {
+		FetchSizeTuner tuner = new FetchSizeTuner(100, 1 << 25);
+		tuner.batchReceived(0, 100);
+		Thread.sleep(10);
+		tuner.batchRequested();
+		tuner.batchReceived(TimeUnit.MILLISECONDS.toNanos(30), 100);
+		int size = tuner.getFetchSize();
+		assertTrue(size > 100);
+		assertTrue(size <= 400);
+		
+		//no wait, no change
+		tuner.batchRequested();
+		tuner.batchReceived(0, size);
+		assertEquals(size, tuner.getFetchSize());
+	}
+	
+	@Test public void testMemoryCap() throws Exception {
+		FetchSizeTuner tuner = new FetchSizeTuner(10, 1 << 20);
+		tuner.batchReceived(0, 10);
+		Thread.sleep(10);
+		tuner.batchRequested();
+		tuner.batchReceived(TimeUnit.MILLISECONDS.toNanos(1000), 10);
+		assertEquals(40, tuner.getFetchSize());
+		
+		char[] chars = new char[100000];
+		tuner.sampleRow(Arrays.asList(new String(chars), 1));
+		tuner.batchReceived(0, 40);
+		assertEquals(10, tuner.getFetchSize());
+	}
+	
+}
@@ -0,0 +1,180 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.net.socket;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.teiid.core.util.AccessibleBufferedInputStream;
+import org.teiid.netty.handler.codec.serialization.ObjectDecoderInputStream;
+import org.teiid.netty.handler.codec.serialization.ObjectEncoderOutputStream;
+
+@SuppressWarnings("nls")
+public class TestNioObjectChannelFactory {
+	
+	/**
+	 * Echo everything read from each accepted socket
+	 */
+	private static Thread startEchoServer(final ServerSocket serverSocket) {
+		Thread t = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						final Socket socket = serverSocket.accept();
+						Thread echo = new Thread() {
+							@Override
+							public void run() {
+								try {
+									ObjectOutputStream out = new ObjectEncoderOutputStream(new DataOutputStream(socket.getOutputStream()), 1 << 15);
+									ObjectInputStream in = new ObjectDecoderInputStream(new AccessibleBufferedInputStream(socket.getInputStream(), 1 << 15), getClass().getClassLoader(), 1 << 25);
+									while (true) {
+										Object o = in.readObject();
+										out.writeObject(o);
+										out.flush();
+									}
+								} catch (Exception e) {
+									//closed
+								}
+							}
+						};
+						echo.setDaemon(true);
+						echo.start();
+					}
+				} catch (Exception e) {
+					//closed
+				}
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+		return t;
+	}
+
+	@Test(timeout=60000) public void testPipelinedRoundTrip() throws Exception {
+		ServerSocket serverSocket = new ServerSocket(0);
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		try {
+			startEchoServer(serverSocket);
+			NioObjectChannelFactory factory = new NioObjectChannelFactory(new Properties());
+			final ObjectChannel channel = factory.createObjectChannel(new InetSocketAddress("localhost", serverSocket.getLocalPort()), false);
+			StringBuilder large = new StringBuilder();
+			for (int i = 0; i < 100000; i++) {
+				large.append(i);
+			}
+			final List<String> messages = new ArrayList<String>();
+			for (int i = 0; i < 500; i++) {
+				messages.add(i%10==0?large.toString():String.valueOf(i));
+			}
+			//read the echoes while writing so that back pressure cannot stall the writes
+			Future<List<Object>> echoes = reader.submit(new Callable<List<Object>>() {
+				@Override
+				public List<Object> call() throws Exception {
+					List<Object> result = new ArrayList<Object>();
+					while (result.size() < messages.size()) {
+						try {
+							result.add(channel.read());
+						} catch (SocketTimeoutException e) {
+							//the test timeout bounds the wait
+						}
+					}
+					return result;
+				}
+			});
+			List<Future<?>> writes = new ArrayList<Future<?>>();
+			for (String message : messages) {
+				writes.add(channel.write(message));
+			}
+			for (Future<?> future : writes) {
+				future.get();
+			}
+			assertEquals(messages, echoes.get());
+			assertTrue(channel.isOpen());
+			channel.close();
+			assertFalse(channel.isOpen());
+		} finally {
+			reader.shutdownNow();
+			serverSocket.close();
+		}
+	}
+	
+	/**
+	 * Closing a channel with pending writes must not affect the other channels of the selector
+	 */
+	@Test(timeout=60000) public void testCloseWithPendingWrites() throws Exception {
+		ServerSocket serverSocket = new ServerSocket(0);
+		try {
+			startEchoServer(serverSocket);
+			Properties p = new Properties();
+			p.setProperty("org.teiid.sockets.selectorThreads", "1");
+			NioObjectChannelFactory factory = new NioObjectChannelFactory(p);
+			InetSocketAddress address = new InetSocketAddress("localhost", serverSocket.getLocalPort());
+			StringBuilder large = new StringBuilder();
+			for (int i = 0; i < 100000; i++) {
+				large.append(i);
+			}
+			for (int i = 0; i < 20; i++) {
+				ObjectChannel channel = factory.createObjectChannel(address, false);
+				channel.write(large.toString());
+				channel.write(large.toString());
+				channel.close();
+			}
+			ObjectChannel channel = factory.createObjectChannel(address, false);
+			channel.write("hello").get();
+			assertEquals("hello", channel.read());
+			channel.close();
+		} finally {
+			serverSocket.close();
+		}
+	}
+	
+	@Test(expected=SocketTimeoutException.class) public void testReadTimeout() throws Exception {
+		ServerSocket serverSocket = new ServerSocket(0);
+		try {
+			startEchoServer(serverSocket);
+			Properties p = new Properties();
+			p.setProperty("org.teiid.sockets.soTimeout", "10");
+			NioObjectChannelFactory factory = new NioObjectChannelFactory(p);
+			ObjectChannel channel = factory.createObjectChannel(new InetSocketAddress("localhost", serverSocket.getLocalPort()), false);
+			channel.read();
+		} finally {
+			serverSocket.close();
+		}
+	}
+
+}
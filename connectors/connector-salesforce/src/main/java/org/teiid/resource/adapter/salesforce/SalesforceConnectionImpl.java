@@ -21,8 +21,13 @@
  */
 package org.teiid.resource.adapter.salesforce;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -45,12 +50,15 @@ import org.teiid.translator.salesforce.execution.DeletedResult;
 import org.teiid.translator.salesforce.execution.UpdatedResult;
 
 import com.sforce.async.AsyncApiException;
+import com.sforce.async.BatchInfo;
 import com.sforce.async.BatchRequest;
 import com.sforce.async.BatchResult;
+import com.sforce.async.BatchStateEnum;
 import com.sforce.async.BulkConnection;
 import com.sforce.async.ContentType;
 import com.sforce.async.JobInfo;
 import com.sforce.async.OperationEnum;
+import com.sforce.async.QueryResultList;
 import com.sforce.soap.partner.*;
 import com.sforce.soap.partner.Error;
 import com.sforce.soap.partner.fault.InvalidFieldFault;
@@ -65,8 +73,13 @@ import com.sforce.ws.ConnectorConfig;
 
 public class SalesforceConnectionImpl extends BasicConnection implements SalesforceConnection {
 	
+	private static final String PK_CHUNKING_HEADER = "Sforce-Enable-PKChunking"; //$NON-NLS-1$
+	
 	private BulkConnection bulkConnection; 
 	private PartnerConnection partnerConnection;
+	private ConnectorConfig config;
+	private BulkConnection pkChunkingConnection;
+	private int pkChunkSize;
 	
 	public SalesforceConnectionImpl(String username, String password, SalesForceManagedConnectionFactory mcf) throws ResourceException {
 		login(username, password, mcf);
@@ -132,6 +145,7 @@ public class SalesforceConnectionImpl extends BasicConnection implements Salesfo
 			// It was provided by SF and should not be changed.
 	        partnerConnection.setCallOptions("RedHat/MetaMatrix/", null); //$NON-NLS-1$
 	        bulkConnection = new BulkConnection(config);
+	        this.config = config;
 			// Test the connection.
 			partnerConnection.getUserInfo();
         } catch (AsyncApiException e) {
@@ -474,4 +488,93 @@ public class SalesforceConnectionImpl extends BasicConnection implements Salesfo
 		}
 	}	
 	
+	@Override
+	public JobInfo createBulkQueryJob(String objectName, String query, int chunkSize) throws ResourceException {
+		try {
+			BulkConnection connection = getQueryConnection(chunkSize);
+			JobInfo job = new JobInfo();
+			job.setObject(objectName);
+			job.setOperation(OperationEnum.query);
+			job.setContentType(ContentType.CSV);
+			job = connection.createJob(job);
+			connection.createBatchFromStream(job, new ByteArrayInputStream(query.getBytes("UTF-8"))); //$NON-NLS-1$
+			return connection.closeJob(job.getId());
+		} catch (AsyncApiException e) {
+			throw new ResourceException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new ResourceException(e);
+		}
+	}
+	
+	/**
+	 * PK chunking is requested with a header that applies to every subsequent request, 
+	 * so a separate {@link BulkConnection} is used to keep it away from insert jobs.
+	 */
+	private synchronized BulkConnection getQueryConnection(int chunkSize) throws AsyncApiException, ResourceException {
+		if (chunkSize <= 0 || this.config == null) {
+			return this.bulkConnection;
+		}
+		if (this.pkChunkingConnection == null || this.pkChunkSize != chunkSize) {
+			BulkConnection connection = new BulkConnection(this.config);
+			try {
+				//the header method is not available in older wsc versions
+				Method addHeader = BulkConnection.class.getMethod("addHeader", String.class, String.class); //$NON-NLS-1$
+				addHeader.invoke(connection, PK_CHUNKING_HEADER, "chunkSize=" + chunkSize); //$NON-NLS-1$
+			} catch (NoSuchMethodException e) {
+				LogManager.logDetail(LogConstants.CTX_CONNECTOR, "PK chunking is not supported by the Salesforce client library, bulk queries will not be chunked"); //$NON-NLS-1$
+				return this.bulkConnection;
+			} catch (IllegalAccessException e) {
+				throw new ResourceException(e);
+			} catch (InvocationTargetException e) {
+				throw new ResourceException(e.getCause());
+			}
+			this.pkChunkingConnection = connection;
+			this.pkChunkSize = chunkSize;
+		}
+		return this.pkChunkingConnection;
+	}
+	
+	@Override
+	public List<BatchInfo> getBulkQueryBatches(JobInfo job) throws ResourceException {
+		try {
+			BatchInfo[] batches = this.bulkConnection.getBatchInfoList(job.getId()).getBatchInfo();
+			List<BatchInfo> result = new ArrayList<BatchInfo>(batches.length);
+			for (BatchInfo batch : batches) {
+				BatchStateEnum state = batch.getState();
+				if (state == BatchStateEnum.Queued || state == BatchStateEnum.InProgress) {
+					throw new DataNotAvailableException(500);
+				}
+				if (state == BatchStateEnum.Failed) {
+					throw new ResourceException(batch.getStateMessage());
+				}
+				//with pk chunking the original batch is not processed and has no results
+				if (state == BatchStateEnum.Completed) {
+					result.add(batch);
+				}
+			}
+			return result;
+		} catch (AsyncApiException e) {
+			throw new ResourceException(e);
+		}
+	}
+	
+	@Override
+	public List<String> getBulkQueryResultIds(JobInfo job, String batchId) throws ResourceException {
+		try {
+			QueryResultList list = this.bulkConnection.getQueryResultList(job.getId(), batchId);
+			return Arrays.asList(list.getResult());
+		} catch (AsyncApiException e) {
+			throw new ResourceException(e);
+		}
+	}
+	
+	@Override
+	public InputStream getBulkQueryResults(JobInfo job, String batchId, String resultId) throws ResourceException {
+		try {
+			return this.bulkConnection.getQueryResultStream(job.getId(), batchId, resultId);
+		} catch (AsyncApiException e) {
+			throw new ResourceException(e);
+		}
+	}
+	
 }
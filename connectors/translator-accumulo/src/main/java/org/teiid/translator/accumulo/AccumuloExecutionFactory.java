@@ -34,6 +34,7 @@ import org.teiid.translator.*;
 @Translator(name="accumulo", description="Accumulo Translator, reads and writes the data to Accumulo Key/Value store")
 public class AccumuloExecutionFactory extends ExecutionFactory<ConnectionFactory, AccumuloConnection> {
 	private int queryThreadsCount = 10;
+	private int maxAggregationGroups = AggregationIterator.DEFAULT_MAX_GROUPS;
 	private Charset encoding = Charset.defaultCharset();
 	
 	public AccumuloExecutionFactory() {
@@ -54,6 +55,15 @@ public class AccumuloExecutionFactory extends ExecutionFactory<ConnectionFactory
 		this.queryThreadsCount = queryThreadsCount;
 	}
 	
+	@TranslatorProperty(display="Max Aggregation Groups", description="Maximum number of groups held by a tablet server before the partial aggregates are returned", advanced=true)
+	public int getMaxAggregationGroups() {
+		return this.maxAggregationGroups;
+	}
+
+	public void setMaxAggregationGroups(int maxAggregationGroups) {
+		this.maxAggregationGroups = maxAggregationGroups;
+	}
+	
 	@Override
 	public ResultSetExecution createResultSetExecution(QueryExpression command,
 			ExecutionContext executionContext, RuntimeMetadata metadata,
@@ -88,6 +98,41 @@ public class AccumuloExecutionFactory extends ExecutionFactory<ConnectionFactory
 	public boolean supportsAggregatesCountStar() {
 		return true;
 	}
+	
+	@Override
+	public boolean supportsAggregatesCount() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsAggregatesSum() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsAggregatesAvg() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsAggregatesMin() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsAggregatesMax() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsGroupBy() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsDependentJoins() {
+		return true;
+	}
 
 	@Override
 	public boolean supportsCompareCriteriaEquals() {
@@ -21,6 +21,7 @@
  */
 package org.teiid.translator.accumulo;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -41,6 +42,8 @@ import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.Text;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.TransformationException;
 import org.teiid.language.Select;
 import org.teiid.language.visitor.SQLStringVisitor;
 import org.teiid.metadata.Column;
@@ -58,6 +61,7 @@ public class AccumuloQueryExecution implements ResultSetExecution {
 	private AccumuloExecutionFactory aef;
 	private AccumuloQueryVisitor visitor;
 	private Entry<Key, Value> prevEntry;
+	private Iterator<Object[]> aggregateResults;
 	
 	public AccumuloQueryExecution(AccumuloExecutionFactory aef, Select command,
 			@SuppressWarnings("unused") ExecutionContext executionContext,
@@ -81,6 +85,10 @@ public class AccumuloQueryExecution implements ResultSetExecution {
 			List<Range> ranges = this.visitor.getRanges();
 			Table scanTable = this.visitor.getScanTable();			
 			List<IteratorSetting> scanIterators = visitor.scanIterators();
+			if (this.visitor.isEmptyResult()) {
+				this.results = null;
+				return;
+			}
 			this.results = runQuery(this.aef, connector, this.connection.getAuthorizations(), ranges, scanTable, scanIterators);
 		} catch (TableNotFoundException e) {
 			// Teiid will not let the query come this far with out validating metadata for given table
@@ -113,6 +121,11 @@ public class AccumuloQueryExecution implements ResultSetExecution {
 		// use batch scanner
 		BatchScanner scanner = connector.createBatchScanner(SQLStringVisitor.getRecordName(scanTable), auths, aef.getQueryThreadsCount());
 		scanner.setRanges(ranges);
+		if (scanIterators != null && !scanIterators.isEmpty()) {
+			for (IteratorSetting it:scanIterators) {
+				scanner.addScanIterator(it);
+			}
+		}
 		return scanner.iterator();
 	}
 	
@@ -143,6 +156,9 @@ public class AccumuloQueryExecution implements ResultSetExecution {
 
 	@Override
 	public List<?> next() throws TranslatorException, DataNotAvailableException {
+		if (this.visitor.getAggregationSetting() != null) {
+			return nextAggregate();
+		}
 		SortedMap<Key, Value> rowItems = readNextRow();
 		boolean rowIdAdded = false;
 		LinkedHashMap<String, byte[]> values = new LinkedHashMap<String, byte[]>();
@@ -171,6 +187,38 @@ public class AccumuloQueryExecution implements ResultSetExecution {
 		return nextRow(values);
 	}	
 	
+	/**
+	 * Each entry holds the partial aggregates of some rows of a tablet or range, which are combined
+	 * before the first row is returned.
+	 */
+	private List<?> nextAggregate() throws TranslatorException {
+		if (this.aggregateResults == null) {
+			try {
+				AggregationIterator.Aggregation aggregation = new AggregationIterator.Aggregation(this.visitor.getAggregationSetting().getOptions());
+				while (this.results != null && this.results.hasNext()) {
+					aggregation.merge(this.results.next().getValue().get());
+				}
+				this.aggregateResults = aggregation.getResults().iterator();
+			} catch (IOException e) {
+				throw new TranslatorException(e);
+			}
+		}
+		if (!this.aggregateResults.hasNext()) {
+			return null;
+		}
+		Object[] values = this.aggregateResults.next();
+		int[] projection = this.visitor.getAggregateProjection();
+		ArrayList<Object> list = new ArrayList<Object>(projection.length);
+		try {
+			for (int i = 0; i < projection.length; i++) {
+				list.add(DataTypeManager.transformValue(values[projection[i]], this.expectedColumnTypes[i]));
+			}
+		} catch (TransformationException e) {
+			throw new TranslatorException(e);
+		}
+		return list;
+	}
+	
 	private Column findMatchingColumn(Text rowCF, Text rowCQ) {
 		String CF = new String(rowCF.getBytes());
 		String CQ = new String(rowCQ.getBytes());
@@ -23,7 +23,9 @@ package org.teiid.translator.accumulo;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Stack;
 
 import org.apache.accumulo.core.client.IteratorSetting;
@@ -51,6 +53,12 @@ public class AccumuloQueryVisitor extends HierarchyVisitor {
 	private int iteratorPriority = 2;
 	private boolean doScanEvaluation = false;
 	private AccumuloExecutionFactory ef;
+	private ArrayList<Column> groupByColumns = new ArrayList<Column>();
+	private ArrayList<String> aggregateFunctions = new ArrayList<String>();
+	private ArrayList<Column> aggregateArguments = new ArrayList<Column>();
+	private IteratorSetting aggregationSetting;
+	private int[] aggregateProjection;
+	private boolean emptyResult = false;
     
 	public AccumuloQueryVisitor(AccumuloExecutionFactory ef) {
 		this.ef = ef;
@@ -76,8 +84,30 @@ public class AccumuloQueryVisitor extends HierarchyVisitor {
 		return this.scanIterators;
 	}
 	
+	/**
+	 * @return the {@link AggregationIterator} setting if the query groups or aggregates, otherwise null
+	 */
+	public IteratorSetting getAggregationSetting() {
+		return this.aggregationSetting;
+	}
+	
+	/**
+	 * @return for each select column the position in the rows returned by the aggregation 
+	 */
+	public int[] getAggregateProjection() {
+		return this.aggregateProjection;
+	}
+	
+	/**
+	 * @return true if the criteria can not match any row
+	 */
+	public boolean isEmptyResult() {
+		return this.emptyResult;
+	}
+	
 	@Override
 	public void visit(Select obj) {
+		replaceDependentCriteria(obj);
     	visitNodes(obj.getFrom());
     	visitNodes(obj.getDerivedColumns());
         visitNode(obj.getWhere());
@@ -93,13 +123,107 @@ public class AccumuloQueryVisitor extends HierarchyVisitor {
         	this.scanIterators.add(it);
         }
         
-        if (this.selectColumns.size() < this.scanTable.getColumns().size()) {
+        if (!this.aggregateFunctions.isEmpty() || !this.groupByColumns.isEmpty()) {
+        	buildAggregation(obj);
+        }
+        else if (this.selectColumns.size() < this.scanTable.getColumns().size()) {
         	HashMap<String, String> options = buildTableMetadata(this.scanTable.getName(), this.selectColumns, this.ef.getEncoding());
         	IteratorSetting it = new IteratorSetting(iteratorPriority++, LimitProjectionIterator.class, options);
         	this.scanIterators.add(it);
         }
     }
 	
+	/**
+	 * The key set of a dependent join is pushed as a comparison against a {@link Parameter}.
+	 * Replace it with an IN predicate of the distinct values, so that the keys are read as exact 
+	 * ranges and the values of other columns are matched by the {@link EvaluatorIterator}
+	 */
+	private void replaceDependentCriteria(Select obj) {
+		if (obj.getDependentValues() == null || obj.getWhere() == null) {
+			return;
+		}
+		List<Condition> conditions = LanguageUtil.separateCriteriaByAnd(obj.getWhere());
+		for (ListIterator<Condition> iter = conditions.listIterator(); iter.hasNext();) {
+			Condition condition = iter.next();
+			if (!(condition instanceof Comparison) || !(((Comparison)condition).getRightExpression() instanceof Parameter)) {
+				continue;
+			}
+			Comparison comparison = (Comparison)condition;
+			Parameter param = (Parameter)comparison.getRightExpression();
+			if (param.getDependentValueId() == null) {
+				continue;
+			}
+			// the pushed values may contain duplicates
+			LinkedHashSet<Object> values = new LinkedHashSet<Object>();
+			for (List<?> tuple : obj.getDependentValues().get(param.getDependentValueId())) {
+				Object value = tuple.get(param.getValueIndex());
+				if (value != null) {
+					values.add(value);
+				}
+			}
+			if (values.isEmpty()) {
+				// nothing can match, there is no need to read the table
+				this.emptyResult = true;
+				iter.remove();
+				continue;
+			}
+			List<Expression> literals = new ArrayList<Expression>(values.size());
+			for (Object value : values) {
+				literals.add(new Literal(value, param.getType()));
+			}
+			iter.set(new In(comparison.getLeftExpression(), literals, false));
+		}
+		obj.setWhere(LanguageUtil.combineCriteria(conditions));
+		obj.setDependentValues(null);
+	}
+	
+	/**
+	 * Group and aggregate on the tablet servers.  The grouping columns come first in the columns 
+	 * read by the {@link AggregationIterator}, followed by any other aggregate arguments.
+	 */
+	private void buildAggregation(Select obj) {
+		List<Column> columns = new ArrayList<Column>(this.groupByColumns);
+		for (Column column : this.aggregateArguments) {
+			if (column != null && !columns.contains(column)) {
+				columns.add(column);
+			}
+		}
+		HashMap<String, String> options = buildTableMetadata(this.scanTable.getName(), columns, this.ef.getEncoding());
+		options.put(AggregationIterator.GROUP_BY_COUNT, String.valueOf(this.groupByColumns.size()));
+		options.put(AggregationIterator.AGGREGATES_COUNT, String.valueOf(this.aggregateFunctions.size()));
+		options.put(AggregationIterator.MAX_GROUPS, String.valueOf(this.ef.getMaxAggregationGroups()));
+		for (int i = 0; i < this.aggregateFunctions.size(); i++) {
+			options.put(AggregationIterator.createAggregateName(AggregationIterator.FUNCTION, i), this.aggregateFunctions.get(i));
+			Column argument = this.aggregateArguments.get(i);
+			if (argument != null) {
+				options.put(AggregationIterator.createAggregateName(AggregationIterator.ARGUMENT, i), String.valueOf(columns.indexOf(argument)));
+			}
+		}
+		this.aggregationSetting = new IteratorSetting(this.iteratorPriority++, AggregationIterator.class, options);
+		this.scanIterators.add(this.aggregationSetting);
+		
+		// aggregates are visited in the select order
+		int aggregate = 0;
+		this.aggregateProjection = new int[obj.getDerivedColumns().size()];
+		for (int i = 0; i < this.aggregateProjection.length; i++) {
+			Expression expr = obj.getDerivedColumns().get(i).getExpression();
+			if (expr instanceof AggregateFunction) {
+				this.aggregateProjection[i] = this.groupByColumns.size() + aggregate++;
+			}
+			else {
+				this.aggregateProjection[i] = this.groupByColumns.indexOf(((ColumnReference)expr).getMetadataObject());
+			}
+		}
+	}
+	
+	@Override
+	public void visit(GroupBy obj) {
+		for (Expression expr : obj.getElements()) {
+			visitNode(expr);
+			this.groupByColumns.add((Column)this.onGoingExpression.pop());
+		}
+	}
+	
 	@Override
 	public void visit(DerivedColumn obj) {
 		this.currentAlias = buildAlias(obj.getAlias());
@@ -225,35 +349,20 @@ public class AccumuloQueryVisitor extends HierarchyVisitor {
 
 	@Override
 	public void visit(AggregateFunction obj) {
+		Column argument = null;
     	if (!obj.getParameters().isEmpty()) {
     		visitNodes(obj.getParameters());
+    		argument = (Column)this.onGoingExpression.pop();
     	}
-
-		if (obj.getName().equals(AggregateFunction.COUNT)) {
-			HashMap<String, String> options = new HashMap<String, String>();
-			options.put(CountStarIterator.ALIAS, this.currentAlias);
-			options.put(CountStarIterator.ENCODING, this.ef.getEncoding());
-			IteratorSetting it = new IteratorSetting(this.iteratorPriority++, CountStarIterator.class, options);
-			
-			// expression expects a column
-			Column c = new Column();
-			c.setName(this.currentAlias);
-			c.setDatatype(SystemMetadata.getInstance().getSystemStore().getDatatypes().get("integer"));//$NON-NLS-1$
-			c.setProperty(AccumuloMetadataProcessor.CF, this.currentAlias);
-			
-			this.scanIterators.add(it);
-			this.onGoingExpression.push(c) ;
-		}
-		else if (obj.getName().equals(AggregateFunction.AVG)) {
-		}
-		else if (obj.getName().equals(AggregateFunction.SUM)) {
-		}
-		else if (obj.getName().equals(AggregateFunction.MIN)) {
-		}
-		else if (obj.getName().equals(AggregateFunction.MAX)) {
-		}
-		else {
-		}
+    	this.aggregateFunctions.add(obj.getName());
+    	this.aggregateArguments.add(argument);
+		
+		// expression expects a column
+		Column c = new Column();
+		c.setName(this.currentAlias);
+		c.setDatatype(SystemMetadata.getInstance().getSystemStore().getDatatypes().get("integer"));//$NON-NLS-1$
+		c.setProperty(AccumuloMetadataProcessor.CF, this.currentAlias);
+		this.onGoingExpression.push(c) ;
     }
 	
     @Override
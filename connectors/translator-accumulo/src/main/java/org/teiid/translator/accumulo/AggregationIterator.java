@@ -0,0 +1,444 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.translator.accumulo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.hadoop.io.Text;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.TransformationException;
+import org.teiid.language.AggregateFunction;
+import org.teiid.query.function.FunctionMethods;
+
+/**
+ * Implements GROUP BY with the aggregate functions COUNT, SUM, AVG, MIN and MAX over Accumulo.
+ *
+ * The rows of each seeked range are grouped and aggregated on the tablet server. The partial
+ * aggregates are returned as an entry once {@link #MAX_GROUPS} groups are held, or at the end of
+ * the range. As a group may then appear in several entries, and a query may span several tablets
+ * or ranges, the partial aggregates are combined on the client with {@link Aggregation}.
+ *
+ * Each returned entry uses the last key of the last row it includes, so that re-seeking after
+ * it does not aggregate any of the rows a second time.
+ */
+public class AggregationIterator extends WrappingIterator {
+	public static final String GROUP_BY_COUNT = "GROUP_BY_COUNT"; //$NON-NLS-1$
+	public static final String AGGREGATES_COUNT = "AGGREGATES_COUNT"; //$NON-NLS-1$
+	public static final String AGGREGATE = "AGGREGATE"; //$NON-NLS-1$
+	public static final String FUNCTION = "FUNCTION"; //$NON-NLS-1$
+	public static final String ARGUMENT = "ARGUMENT"; //$NON-NLS-1$
+	public static final String MAX_GROUPS = "MAX_GROUPS"; //$NON-NLS-1$
+	public static final int DEFAULT_MAX_GROUPS = 10000;
+
+	private Map<String, String> options;
+	private Aggregation aggregation;
+	private int maxGroups = DEFAULT_MAX_GROUPS;
+	private Key topKey;
+	private Value topValue;
+
+	@Override
+	public void init(SortedKeyValueIterator<Key, Value> source,
+			Map<String, String> options, IteratorEnvironment env)
+			throws IOException {
+		super.init(source, options, env);
+		this.options = options;
+		this.aggregation = new Aggregation(options);
+		if (options.get(MAX_GROUPS) != null) {
+			this.maxGroups = Integer.parseInt(options.get(MAX_GROUPS));
+		}
+	}
+
+	@Override
+	public SortedKeyValueIterator<Key, Value> deepCopy(IteratorEnvironment env) {
+		AggregationIterator newInstance;
+		try {
+			newInstance = this.getClass().newInstance();
+			newInstance.options = this.options;
+			newInstance.aggregation = new Aggregation(this.options);
+			newInstance.maxGroups = this.maxGroups;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		newInstance.setSource(getSource().deepCopy(env));
+		newInstance.topKey = this.topKey;
+		newInstance.topValue = this.topValue;
+		return newInstance;
+	}
+
+	@Override
+	public void seek(Range range, Collection<ByteSequence> columnFamilies,
+			boolean inclusive) throws IOException {
+		super.seek(range, columnFamilies, inclusive);
+		aggregateRows();
+	}
+
+	/**
+	 * Aggregate the following rows until the source is exhausted or the maximum number of groups
+	 * is held. Only whole rows are included, so the last key read ends a row.
+	 */
+	private void aggregateRows() throws IOException {
+		this.topKey = null;
+		this.topValue = null;
+		this.aggregation.clear();
+
+		Key lastKey = null;
+		ByteSequence prevRowId = null;
+		while (getSource().hasTop()) {
+			Key key = new Key(getSource().getTopKey());
+			ByteSequence rowId = key.getRowData();
+			if (prevRowId == null || !prevRowId.equals(rowId)) {
+				if (prevRowId != null) {
+					this.aggregation.endRow();
+					if (this.aggregation.getGroupCount() >= this.maxGroups) {
+						prevRowId = null;
+						break;
+					}
+				}
+				this.aggregation.startRow();
+				prevRowId = rowId;
+			}
+			this.aggregation.readColumns(key, getSource().getTopValue());
+			lastKey = key;
+			getSource().next();
+		}
+		if (lastKey != null) {
+			if (prevRowId != null) {
+				this.aggregation.endRow();
+			}
+			this.topKey = lastKey;
+			this.topValue = new Value(this.aggregation.toBytes());
+		}
+	}
+
+	@Override
+	public Value getTopValue() {
+		return this.topValue;
+	}
+
+	@Override
+	public Key getTopKey() {
+		return this.topKey;
+	}
+
+	@Override
+	public boolean hasTop() {
+		return this.topKey != null;
+	}
+
+	@Override
+	public void next() throws IOException {
+		aggregateRows();
+	}
+
+	public static String createAggregateName(String prop, int index) {
+		return AGGREGATE+"."+index+"."+prop;//$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static class ColumnInfo {
+		Text cf;
+		Text cq;
+		boolean valueInCQ;
+		Class<?> type;
+	}
+
+	private static class GroupState {
+		long[] counts;
+		Object[] values;
+
+		GroupState(int size) {
+			this.counts = new long[size];
+			this.values = new Object[size];
+		}
+	}
+
+	/**
+	 * The grouping and aggregation state, which is shared between the iterator computing the
+	 * partial aggregates and the query execution combining them.
+	 *
+	 * The columns are described using the same options as the {@link EvaluatorIterator}, where
+	 * the first {@link AggregationIterator#GROUP_BY_COUNT} columns are the grouping columns.
+	 */
+	static class Aggregation {
+		private static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+		private Charset encoding;
+		private ColumnInfo[] columns;
+		private int groupCount;
+		private String[] functions;
+		private int[] arguments;
+		private Map<List<Object>, GroupState> groups = new LinkedHashMap<List<Object>, GroupState>();
+		private Object[] row;
+		private boolean[] read;
+
+		Aggregation(Map<String, String> options) throws IOException {
+			this.encoding = Charset.forName(options.get(EvaluatorIterator.ENCODING));
+			int columnCount = Integer.parseInt(options.get(EvaluatorIterator.COLUMNS_COUNT));
+			this.columns = new ColumnInfo[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				ColumnInfo column = new ColumnInfo();
+				String cf = options.get(EvaluatorIterator.createColumnName(EvaluatorIterator.CF, i));
+				String cq = options.get(EvaluatorIterator.createColumnName(EvaluatorIterator.CQ, i));
+				String valueIn = options.get(EvaluatorIterator.createColumnName(EvaluatorIterator.VALUE_IN, i));
+				if (cf != null) {
+					column.cf = new Text(cf);
+				}
+				if (cq != null) {
+					column.cq = new Text(cq);
+				}
+				if (valueIn != null) {
+					column.valueInCQ = AccumuloMetadataProcessor.ValueIn.CQ.name().equals(valueIn.substring(1, valueIn.length()-1));
+				}
+				try {
+					column.type = Class.forName(options.get(EvaluatorIterator.createColumnName(EvaluatorIterator.DATA_TYPE, i)));
+				} catch (ClassNotFoundException e) {
+					throw new IOException(e);
+				}
+				this.columns[i] = column;
+			}
+			this.groupCount = Integer.parseInt(options.get(GROUP_BY_COUNT));
+			int aggregateCount = Integer.parseInt(options.get(AGGREGATES_COUNT));
+			this.functions = new String[aggregateCount];
+			this.arguments = new int[aggregateCount];
+			for (int i = 0; i < aggregateCount; i++) {
+				this.functions[i] = options.get(createAggregateName(FUNCTION, i));
+				String argument = options.get(createAggregateName(ARGUMENT, i));
+				this.arguments[i] = argument == null?-1:Integer.parseInt(argument);
+			}
+		}
+
+		void clear() {
+			this.groups.clear();
+		}
+
+		int getGroupCount() {
+			return this.groups.size();
+		}
+
+		void startRow() {
+			this.row = new Object[this.columns.length];
+			this.read = new boolean[this.columns.length];
+		}
+
+		/**
+		 * Read the values of the key into the current row. The latest version of a column comes
+		 * first, so only the first value is used.
+		 */
+		void readColumns(Key key, Value value) {
+			for (int i = 0; i < this.columns.length; i++) {
+				ColumnInfo column = this.columns[i];
+				if (this.read[i]) {
+					continue;
+				}
+				byte[] bytes = null;
+				if (column.cf == null) {
+					bytes = getBytes(key.getRow());
+				}
+				else if (column.cf.equals(key.getColumnFamily()) && (column.cq == null || column.cq.equals(key.getColumnQualifier()))) {
+					bytes = column.valueInCQ?getBytes(key.getColumnQualifier()):value.get();
+				}
+				else {
+					continue;
+				}
+				this.row[i] = AccumuloDataTypeManager.convertFromAccumuloType(bytes, column.type, this.encoding);
+				this.read[i] = true;
+			}
+		}
+
+		private static byte[] getBytes(Text text) {
+			return Arrays.copyOf(text.getBytes(), text.getLength());
+		}
+
+		void endRow() throws IOException {
+			List<Object> group = Arrays.asList(Arrays.copyOf(this.row, this.groupCount));
+			GroupState state = getState(group);
+			for (int i = 0; i < this.functions.length; i++) {
+				if (this.arguments[i] == -1) {
+					state.counts[i]++;
+					continue;
+				}
+				Object value = this.row[this.arguments[i]];
+				if (value != null) {
+					combine(state, i, 1, value);
+				}
+			}
+		}
+
+		private GroupState getState(List<Object> group) {
+			GroupState state = this.groups.get(group);
+			if (state == null) {
+				state = new GroupState(this.functions.length);
+				this.groups.put(group, state);
+			}
+			return state;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void combine(GroupState state, int index, long count, Object value) throws IOException {
+			state.counts[index] += count;
+			String function = this.functions[index];
+			Object current = state.values[index];
+			if (function.equals(AggregateFunction.SUM) || function.equals(AggregateFunction.AVG)) {
+				BigDecimal sum = (BigDecimal)transform(value, BigDecimal.class);
+				state.values[index] = current == null?sum:((BigDecimal)current).add(sum);
+			}
+			else if (function.equals(AggregateFunction.MIN)) {
+				if (current == null || ((Comparable<Object>)value).compareTo(current) < 0) {
+					state.values[index] = value;
+				}
+			}
+			else if (function.equals(AggregateFunction.MAX)) {
+				if (current == null || ((Comparable<Object>)value).compareTo(current) > 0) {
+					state.values[index] = value;
+				}
+			}
+		}
+
+		/**
+		 * Add the partial aggregates created by {@link #toBytes()}
+		 */
+		void merge(byte[] bytes) throws IOException {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				Object[] group = new Object[this.groupCount];
+				for (int j = 0; j < this.groupCount; j++) {
+					group[j] = readValue(in, this.columns[j].type);
+				}
+				GroupState state = getState(Arrays.asList(group));
+				for (int j = 0; j < this.functions.length; j++) {
+					long count = in.readLong();
+					Object value = readValue(in, getValueType(j));
+					if (value == null) {
+						state.counts[j] += count;
+					}
+					else {
+						combine(state, j, count, value);
+					}
+				}
+			}
+		}
+
+		byte[] toBytes() throws IOException {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(baos);
+			out.writeInt(this.groups.size());
+			for (Map.Entry<List<Object>, GroupState> entry : this.groups.entrySet()) {
+				for (Object value : entry.getKey()) {
+					writeValue(out, value);
+				}
+				GroupState state = entry.getValue();
+				for (int i = 0; i < this.functions.length; i++) {
+					out.writeLong(state.counts[i]);
+					writeValue(out, state.values[i]);
+				}
+			}
+			out.close();
+			return baos.toByteArray();
+		}
+
+		private Class<?> getValueType(int index) {
+			String function = this.functions[index];
+			if (function.equals(AggregateFunction.SUM) || function.equals(AggregateFunction.AVG)) {
+				return BigDecimal.class;
+			}
+			if (this.arguments[index] == -1) {
+				return String.class;
+			}
+			return this.columns[this.arguments[index]].type;
+		}
+
+		private static void writeValue(DataOutputStream out, Object value) throws IOException {
+			out.writeBoolean(value != null);
+			if (value != null) {
+				byte[] bytes = ((String)transform(value, String.class)).getBytes(UTF8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		private static Object readValue(DataInputStream in, Class<?> type) throws IOException {
+			if (!in.readBoolean()) {
+				return null;
+			}
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return transform(new String(bytes, UTF8), type);
+		}
+
+		private static Object transform(Object value, Class<?> type) throws IOException {
+			try {
+				return DataTypeManager.transformValue(value, type);
+			} catch (TransformationException e) {
+				throw new IOException(e);
+			}
+		}
+
+		/**
+		 * Get the final rows, each with the grouping values followed by the aggregate values.
+		 * Without a GROUP BY a single row is returned even if there were no rows.
+		 */
+		List<Object[]> getResults() {
+			if (this.groups.isEmpty() && this.groupCount == 0) {
+				getState(new ArrayList<Object>(0));
+			}
+			List<Object[]> results = new ArrayList<Object[]>(this.groups.size());
+			for (Map.Entry<List<Object>, GroupState> entry : this.groups.entrySet()) {
+				Object[] result = new Object[this.groupCount + this.functions.length];
+				for (int i = 0; i < this.groupCount; i++) {
+					result[i] = entry.getKey().get(i);
+				}
+				GroupState state = entry.getValue();
+				for (int i = 0; i < this.functions.length; i++) {
+					Object value = state.values[i];
+					if (this.functions[i].equals(AggregateFunction.COUNT)) {
+						value = state.counts[i];
+					}
+					else if (this.functions[i].equals(AggregateFunction.AVG) && value != null) {
+						value = FunctionMethods.divide((BigDecimal)value, new BigDecimal(state.counts[i]));
+					}
+					result[this.groupCount + i] = value;
+				}
+				results.add(result);
+			}
+			return results;
+		}
+	}
+}
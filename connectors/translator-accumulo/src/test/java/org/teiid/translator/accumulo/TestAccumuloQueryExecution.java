@@ -25,6 +25,9 @@ import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.admin.TimeType;
@@ -38,6 +41,9 @@ import org.teiid.cdk.api.TranslationUtility;
 import org.teiid.core.util.ObjectConverterUtil;
 import org.teiid.core.util.UnitTestUtil;
 import org.teiid.language.Command;
+import org.teiid.language.Comparison;
+import org.teiid.language.Parameter;
+import org.teiid.language.Select;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.translator.Execution;
@@ -213,4 +219,83 @@ public class TestAccumuloQueryExecution {
     	assertEquals(Arrays.asList(new BigDecimal("12.99")), exec.next());
     	assertNull(exec.next());    
     }     
+    
+    @Test
+    public void testGroupByAggregates() throws Exception {
+    	executeCmd("delete from rental");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (1, 3.99, 5)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (2, 5.99, 2)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (3, 11.99, 1)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (4, 12.99, 1)");
+    	
+    	AccumuloQueryExecution exec = (AccumuloQueryExecution)executeCmd("select count(*), customer_id, sum(amount), min(amount), max(amount), avg(amount) from rental group by customer_id");
+    	assertEquals(Arrays.asList(1, 5, new BigDecimal("3.99"), new BigDecimal("3.99"), new BigDecimal("3.99"), new BigDecimal("3.99")), exec.next());
+    	assertEquals(Arrays.asList(1, 2, new BigDecimal("5.99"), new BigDecimal("5.99"), new BigDecimal("5.99"), new BigDecimal("5.99")), exec.next());
+    	assertEquals(Arrays.asList(2, 1, new BigDecimal("24.98"), new BigDecimal("11.99"), new BigDecimal("12.99"), new BigDecimal("12.49")), exec.next());
+    	assertNull(exec.next());
+    }
+    
+    @Test
+    public void testAggregatePartialEntries() throws Exception {
+    	executeCmd("delete from rental");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (1, 3.99, 5)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (2, 5.99, 2)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (3, 11.99, 5)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (4, 12.99, 2)");
+    	
+    	// each group is returned in its own partial entry and combined on the client
+    	translator.setMaxAggregationGroups(1);
+    	try {
+    		AccumuloQueryExecution exec = (AccumuloQueryExecution)executeCmd("select customer_id, count(*), sum(amount) from rental group by customer_id");
+    		assertEquals(Arrays.asList(5, 2, new BigDecimal("15.98")), exec.next());
+    		assertEquals(Arrays.asList(2, 2, new BigDecimal("18.98")), exec.next());
+    		assertNull(exec.next());
+    	} finally {
+    		translator.setMaxAggregationGroups(AggregationIterator.DEFAULT_MAX_GROUPS);
+    	}
+    }
+    
+    @Test
+    public void testAggregateOverRanges() throws Exception {
+    	executeCmd("delete from rental");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (1, 3.99, 5)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (2, 5.99, 2)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (3, 11.99, 1)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (4, 12.99, 1)");
+    	
+    	// each range returns partial aggregates
+    	AccumuloQueryExecution exec = (AccumuloQueryExecution)executeCmd("select count(*), max(amount) from rental where rental_id in (1, 2, 4)");
+    	assertEquals(Arrays.asList(3, new BigDecimal("12.99")), exec.next());
+    	assertNull(exec.next());
+    	
+    	exec = (AccumuloQueryExecution)executeCmd("select count(customer_id), sum(amount) from rental where rental_id = 7");
+    	assertEquals(Arrays.asList(0, null), exec.next());
+    	assertNull(exec.next());
+    	
+    	exec = (AccumuloQueryExecution)executeCmd("select rental_id from rental where rental_id in (1, 2, 4) and amount > 5.00");
+    	assertEquals(new HashSet<List<?>>(Arrays.asList(Arrays.asList(2), Arrays.asList(4))), new HashSet<List<?>>(Arrays.asList(exec.next(), exec.next())));
+    	assertNull(exec.next());
+    }
+    
+    @Test
+    public void testDependentKeySet() throws Exception {
+    	executeCmd("delete from rental");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (1, 3.99, 5)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (2, 5.99, 2)");
+    	executeCmd("insert into rental (rental_id, amount, customer_id) values (3, 11.99, 1)");
+    	
+    	Select select = (Select)this.utility.parseCommand("select rental_id, amount from rental where rental_id = 1");
+    	Parameter param = new Parameter();
+    	param.setType(Integer.class);
+    	param.setValueIndex(0);
+    	param.setDependentValueId("x");
+    	((Comparison)select.getWhere()).setRightExpression(param);
+    	List<List<Integer>> values = Arrays.asList(Arrays.asList(3), Arrays.asList(1), Arrays.asList(3));
+    	select.setDependentValues(Collections.<String, List<? extends List<?>>>singletonMap("x", values));
+    	
+    	AccumuloQueryExecution exec = (AccumuloQueryExecution)this.translator.createExecution(select, Mockito.mock(ExecutionContext.class), this.utility.createRuntimeMetadata(), this.connection);
+    	exec.execute();
+    	assertEquals(new HashSet<List<?>>(Arrays.asList(Arrays.asList(1, new BigDecimal("3.99")), Arrays.asList(3, new BigDecimal("11.99")))), new HashSet<List<?>>(Arrays.asList(exec.next(), exec.next())));
+    	assertNull(exec.next());
+    }
 }
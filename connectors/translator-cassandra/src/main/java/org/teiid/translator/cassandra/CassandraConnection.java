@@ -27,6 +27,7 @@ import javax.resource.cci.Connection;
 
 import com.datastax.driver.core.KeyspaceMetadata;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 
 /**
  * Connection to Cassandra NoSql database.
@@ -38,6 +39,12 @@ public interface CassandraConnection extends Connection{
 	 * */
 	public ResultSet executeQuery(String query);
 	
+	/**
+	 * Executes a CQL query asynchronously.
+	 * @param fetchSize the number of rows to fetch with each page
+	 * */
+	public ResultSetFuture executeQueryAsync(String query, int fetchSize);
+	
 	/**
 	 * Returns metadata about Cassandra keyspace (column families, columns metadata etc.)
 	 * @throws KeyspaceNotDefinedException 
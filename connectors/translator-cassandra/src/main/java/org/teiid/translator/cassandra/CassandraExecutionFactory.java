@@ -46,6 +46,9 @@ public class CassandraExecutionFactory extends ExecutionFactory<ConnectionFactor
 		TEIID22000
 	}
 	
+	private int tokenRangeScans = 1;
+	private int tokenRangeConcurrency = 4;
+	
 	@Override
 	public void start() throws TranslatorException {
 		super.start();
@@ -56,7 +59,7 @@ public class CassandraExecutionFactory extends ExecutionFactory<ConnectionFactor
 	public ResultSetExecution createResultSetExecution(QueryExpression command,
 			ExecutionContext executionContext, RuntimeMetadata metadata,
 			CassandraConnection connection) throws TranslatorException {
-		return new CassandraQueryExecution(command, connection, executionContext);
+		return new CassandraQueryExecution(this, command, connection, executionContext);
 	}
 
 	@Override
@@ -122,4 +125,22 @@ public class CassandraExecutionFactory extends ExecutionFactory<ConnectionFactor
 		return true;
 	}
 	
+	@TranslatorProperty(display="Token Range Scans", description="The number of token ranges that a full table scan is split into.  The ranges are queried concurrently.  Requires the Murmur3 or Random partitioner.  Default 1, which does not split scans.", advanced=true)
+	public int getTokenRangeScans() {
+		return tokenRangeScans;
+	}
+	
+	public void setTokenRangeScans(int tokenRangeScans) {
+		this.tokenRangeScans = tokenRangeScans;
+	}
+	
+	@TranslatorProperty(display="Token Range Concurrency", description="The maximum number of token ranges of a single scan that are queried at the same time.  Default 4.", advanced=true)
+	public int getTokenRangeConcurrency() {
+		return tokenRangeConcurrency;
+	}
+	
+	public void setTokenRangeConcurrency(int tokenRangeConcurrency) {
+		this.tokenRangeConcurrency = tokenRangeConcurrency;
+	}
+	
 }
@@ -27,7 +27,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import javax.resource.ResourceException;
+
+import org.teiid.language.ColumnReference;
 import org.teiid.language.Command;
+import org.teiid.language.DerivedColumn;
+import org.teiid.language.NamedTable;
+import org.teiid.language.Select;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.translator.DataNotAvailableException;
@@ -35,18 +41,32 @@ import org.teiid.translator.ExecutionContext;
 import org.teiid.translator.ResultSetExecution;
 import org.teiid.translator.TranslatorException;
 
+import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.TableMetadata;
 
 public class CassandraQueryExecution implements ResultSetExecution {
+	
+	/**
+	 * The number of rows left in the current page at which the next page is requested
+	 */
+	private static final int PREFETCH_THRESHOLD = 1000;
 
+	private CassandraExecutionFactory executionFactory;
 	private Command query;
 	private CassandraConnection connection;
 	private ResultSet resultSet = null;
 	private ExecutionContext executionContext;
 	protected boolean returnsArray;
+	private TokenRangeResults rangeResults;
 	
 	public CassandraQueryExecution(Command query, CassandraConnection connection, ExecutionContext context){
+		this(null, query, connection, context);
+	}
+	
+	public CassandraQueryExecution(CassandraExecutionFactory executionFactory, Command query, CassandraConnection connection, ExecutionContext context){
+		this.executionFactory = executionFactory;
 		this.query = query;
 		this.connection = connection;
 		this.executionContext = context;
@@ -55,13 +75,17 @@ public class CassandraQueryExecution implements ResultSetExecution {
 	@Override
 	public void close() {
 		LogManager.logDetail(LogConstants.CTX_CONNECTOR, CassandraExecutionFactory.UTIL.getString("close_query")); //$NON-NLS-1$
-		
+		if (rangeResults != null) {
+			rangeResults.close();
+		}
 	}
 
 	@Override
 	public void cancel() throws TranslatorException {
 		LogManager.logDetail(LogConstants.CTX_CONNECTOR, CassandraExecutionFactory.UTIL.getString("cancel_query")); //$NON-NLS-1$
-		
+		if (rangeResults != null) {
+			rangeResults.close();
+		}
 	}
 
 	@Override
@@ -69,8 +93,53 @@ public class CassandraQueryExecution implements ResultSetExecution {
 		CassandraSQLVisitor visitor = new CassandraSQLVisitor();
 		visitor.translateSQL(query);
 		String cql = visitor.getTranslatedSQL();
+		if (isTokenRangeScan()) {
+			executeTokenRanges(cql);
+			return;
+		}
 		execute(cql);
 	}
+	
+	/**
+	 * Only plain projections of a whole table are split, since the token 
+	 * restrictions cannot be combined with other criteria, limits or aggregates.
+	 */
+	private boolean isTokenRangeScan() {
+		if (executionFactory == null || executionFactory.getTokenRangeScans() <= 1 || !(query instanceof Select)) {
+			return false;
+		}
+		Select select = (Select)query;
+		if (select.getWhere() != null || select.getLimit() != null || select.getOrderBy() != null || select.getGroupBy() != null 
+				|| select.getFrom().size() != 1 || !(select.getFrom().get(0) instanceof NamedTable)) {
+			return false;
+		}
+		for (DerivedColumn column : select.getDerivedColumns()) {
+			if (!(column.getExpression() instanceof ColumnReference)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void executeTokenRanges(String cql) throws TranslatorException {
+		NamedTable table = (NamedTable)((Select)query).getFrom().get(0);
+		List<String> partitionKey = new ArrayList<String>();
+		try {
+			TableMetadata tableMetadata = connection.keyspaceInfo().getTable(table.getMetadataObject().getSourceName());
+			if (tableMetadata == null) {
+				execute(cql);
+				return;
+			}
+			for (ColumnMetadata column : tableMetadata.getPartitionKey()) {
+				partitionKey.add(column.getName());
+			}
+		} catch (ResourceException e) {
+			throw new TranslatorException(e);
+		}
+		List<String> queries = TokenRangeResults.getRangeQueries(cql, partitionKey, executionFactory.getTokenRangeScans());
+		rangeResults = new TokenRangeResults(this, connection, executionContext, queries, executionFactory.getTokenRangeConcurrency());
+		rangeResults.start();
+	}
 
 	protected void execute(String cql) throws TranslatorException {
 		LogManager.logDetail(LogConstants.CTX_CONNECTOR, "Source-Query:", cql); //$NON-NLS-1$
@@ -83,6 +152,13 @@ public class CassandraQueryExecution implements ResultSetExecution {
 
 	@Override
 	public List<?> next() throws TranslatorException, DataNotAvailableException {
+		if (rangeResults != null) {
+			return rangeResults.next();
+		}
+		if (resultSet.getAvailableWithoutFetching() == PREFETCH_THRESHOLD && !resultSet.isFullyFetched()) {
+			//fetch the next page in the background
+			resultSet.fetchMoreResults();
+		}
 		return getRow(resultSet.one());
 	}
 	
@@ -92,7 +168,7 @@ public class CassandraQueryExecution implements ResultSetExecution {
 	 * @param row the row returned by the ResultSet
 	 * @return list of values in {@code row}
 	 */
-	private List<Object> getRow(Row row) {
+	List<Object> getRow(Row row) {
 		if(row == null){
 			return null;
 		}
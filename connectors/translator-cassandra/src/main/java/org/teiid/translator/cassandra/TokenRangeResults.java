@@ -0,0 +1,276 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.translator.cassandra;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.translator.DataNotAvailableException;
+import org.teiid.translator.ExecutionContext;
+import org.teiid.translator.TranslatorException;
+
+import com.datastax.driver.core.ResultSet;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Reads a full table scan as a set of token range queries using the asynchronous
+ * driver api.  At most concurrency ranges are queried at a time and the pages of
+ * all ranges are merged into a single row stream in the order that they arrive.
+ * <br>
+ * A range stops fetching pages once the ready pages are full and is resumed by the
+ * consumer as pages are taken.  The fetch size used for new ranges starts at the
+ * engine batch size and is doubled, up to {@link #MAX_FETCH_SIZE}, whenever the
+ * consumer had to wait for rows.
+ */
+class TokenRangeResults {
+
+	static final int MAX_FETCH_SIZE = 5000;
+
+	private static final BigInteger MIN_TOKEN = BigInteger.valueOf(Long.MIN_VALUE);
+	private static final BigInteger TOKEN_SPACE = BigInteger.ONE.shiftLeft(64);
+
+	private static class Range {
+		String cql;
+		ResultSet resultSet;
+
+		Range(String cql) {
+			this.cql = cql;
+		}
+	}
+
+	private CassandraQueryExecution execution;
+	private CassandraConnection connection;
+	private ExecutionContext context;
+	private int concurrency;
+	private int maxPages;
+	private int fetchSize;
+	private boolean starved;
+
+	private LinkedList<Range> pending = new LinkedList<Range>();
+	private LinkedList<Range> paused = new LinkedList<Range>();
+	private LinkedList<List<List<?>>> ready = new LinkedList<List<List<?>>>();
+	private int remaining;
+	private int running;
+	private Throwable failure;
+	private boolean closed;
+
+	private List<List<?>> current;
+	private int index;
+
+	TokenRangeResults(CassandraQueryExecution execution, CassandraConnection connection, ExecutionContext context, List<String> queries, int concurrency) {
+		this.execution = execution;
+		this.connection = connection;
+		this.context = context;
+		this.concurrency = Math.max(1, concurrency);
+		this.maxPages = 2 * this.concurrency;
+		this.fetchSize = Math.min(MAX_FETCH_SIZE, Math.max(1, context.getBatchSize()));
+		for (String cql : queries) {
+			this.pending.add(new Range(cql));
+		}
+		this.remaining = this.pending.size();
+	}
+
+	/**
+	 * Split the token ring into count ranges and restrict the given query to each.
+	 * The first and last ranges are unbounded so that the ranges cover every token
+	 * of the Murmur3 partitioner and also those of the Random partitioner.
+	 * @param cql a query without a where clause
+	 */
+	static List<String> getRangeQueries(String cql, List<String> partitionKey, int count) {
+		StringBuilder token = new StringBuilder("token("); //$NON-NLS-1$
+		for (int i = 0; i < partitionKey.size(); i++) {
+			if (i > 0) {
+				token.append(", "); //$NON-NLS-1$
+			}
+			token.append(quote(partitionKey.get(i)));
+		}
+		token.append(')');
+		List<String> result = new ArrayList<String>(count);
+		BigInteger step = TOKEN_SPACE.divide(BigInteger.valueOf(count));
+		for (int i = 0; i < count; i++) {
+			StringBuilder query = new StringBuilder(cql).append(" WHERE "); //$NON-NLS-1$
+			if (i > 0) {
+				query.append(token).append(" > ").append(MIN_TOKEN.add(step.multiply(BigInteger.valueOf(i)))); //$NON-NLS-1$
+			}
+			if (i > 0 && i < count - 1) {
+				query.append(" AND "); //$NON-NLS-1$
+			}
+			if (i < count - 1) {
+				query.append(token).append(" <= ").append(MIN_TOKEN.add(step.multiply(BigInteger.valueOf(i + 1)))); //$NON-NLS-1$
+			}
+			result.add(query.toString());
+		}
+		return result;
+	}
+
+	private static String quote(String name) {
+		if (name.matches("[a-z][a-z0-9_]*")) { //$NON-NLS-1$
+			return name;
+		}
+		return '"' + name.replace("\"", "\"\"") + '"'; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	synchronized void start() {
+		while (running < concurrency && !pending.isEmpty()) {
+			startRange(pending.removeFirst());
+		}
+	}
+
+	private void startRange(Range range) {
+		if (starved) {
+			starved = false;
+			fetchSize = Math.min(MAX_FETCH_SIZE, fetchSize * 2);
+		}
+		running++;
+		LogManager.logDetail(LogConstants.CTX_CONNECTOR, "Source-Query:", range.cql, "fetch size", fetchSize); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			listen(range, connection.executeQueryAsync(range.cql, fetchSize));
+		} catch (RuntimeException e) {
+			failed(e);
+		}
+	}
+
+	private void listen(final Range range, final ListenableFuture<?> future) {
+		future.addListener(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Object result = future.get();
+					if (range.resultSet == null) {
+						range.resultSet = (ResultSet)result;
+					}
+					received(range);
+				} catch (ExecutionException e) {
+					failed(e.getCause());
+				} catch (Throwable e) {
+					failed(e);
+				}
+			}
+		}, MoreExecutors.sameThreadExecutor());
+	}
+
+	/**
+	 * Take the fetched page of the range, then either fetch the next page,
+	 * pause the range, or start the next range.
+	 */
+	private void received(Range range) {
+		ResultSet rs = range.resultSet;
+		int available = rs.getAvailableWithoutFetching();
+		List<List<?>> page = new ArrayList<List<?>>(available);
+		for (int i = 0; i < available; i++) {
+			page.add(execution.getRow(rs.one()));
+		}
+		boolean notify = false;
+		synchronized (this) {
+			if (closed) {
+				running--;
+				return;
+			}
+			if (!page.isEmpty()) {
+				notify = ready.isEmpty();
+				ready.add(page);
+			}
+			if (rs.isFullyFetched() && rs.getAvailableWithoutFetching() == 0) {
+				running--;
+				remaining--;
+				notify |= remaining == 0;
+				start();
+			} else if (ready.size() < maxPages) {
+				listen(range, rs.fetchMoreResults());
+			} else {
+				paused.add(range);
+			}
+		}
+		if (notify) {
+			context.dataAvailable();
+		}
+	}
+
+	private void failed(Throwable t) {
+		synchronized (this) {
+			running--;
+			if (closed) {
+				LogManager.logDetail(LogConstants.CTX_CONNECTOR, t, "Exception reading a token range after close"); //$NON-NLS-1$
+				return;
+			}
+			if (failure == null) {
+				failure = t;
+			}
+		}
+		context.dataAvailable();
+	}
+
+	synchronized List<?> next() throws TranslatorException, DataNotAvailableException {
+		while (true) {
+			if (current != null && index < current.size()) {
+				List<?> row = current.get(index);
+				current.set(index++, null);
+				return row;
+			}
+			current = null;
+			if (failure != null) {
+				if (failure instanceof TranslatorException) {
+					throw (TranslatorException)failure;
+				}
+				throw new TranslatorException(failure);
+			}
+			if (!ready.isEmpty()) {
+				current = ready.removeFirst();
+				index = 0;
+				resume();
+				continue;
+			}
+			if (remaining == 0) {
+				return null;
+			}
+			starved = true;
+			resume();
+			throw DataNotAvailableException.NO_POLLING;
+		}
+	}
+
+	private void resume() {
+		while (!closed && !paused.isEmpty() && ready.size() < maxPages) {
+			Range range = paused.removeFirst();
+			listen(range, range.resultSet.fetchMoreResults());
+		}
+	}
+
+	/**
+	 * Stop starting new ranges or fetching new pages.  Queries already in flight
+	 * are allowed to finish and their results are discarded.
+	 */
+	synchronized void close() {
+		closed = true;
+		pending.clear();
+		paused.clear();
+		ready.clear();
+		current = null;
+	}
+
+}
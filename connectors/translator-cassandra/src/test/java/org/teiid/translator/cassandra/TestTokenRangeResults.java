@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.translator.cassandra;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.teiid.language.Command;
+import org.teiid.language.QueryExpression;
+import org.teiid.metadata.RuntimeMetadata;
+import org.teiid.translator.ExecutionContext;
+import org.teiid.translator.ResultSetExecution;
+
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.TableMetadata;
+
+@SuppressWarnings("nls")
+public class TestTokenRangeResults {
+
+	@Test public void testRangeQueries() {
+		assertEquals(Arrays.asList("SELECT id FROM Person WHERE token(id) <= 0", "SELECT id FROM Person WHERE token(id) > 0"), 
+				TokenRangeResults.getRangeQueries("SELECT id FROM Person", Arrays.asList("id"), 2));
+		List<String> queries = TokenRangeResults.getRangeQueries("SELECT id FROM Person", Arrays.asList("id", "Name"), 4);
+		assertEquals(4, queries.size());
+		assertEquals("SELECT id FROM Person WHERE token(id, \"Name\") > -4611686018427387904 AND token(id, \"Name\") <= 0", queries.get(1));
+		assertEquals("SELECT id FROM Person WHERE token(id, \"Name\") > 4611686018427387904", queries.get(3));
+	}
+	
+	@Test public void testTokenRangeScan() throws Exception {
+		CassandraExecutionFactory cef = new CassandraExecutionFactory();
+		cef.setTokenRangeScans(3);
+		cef.setTokenRangeConcurrency(2);
+		
+		CassandraConnection connection = Mockito.mock(CassandraConnection.class);
+		KeyspaceMetadata keyspace = Mockito.mock(KeyspaceMetadata.class);
+		TableMetadata table = Mockito.mock(TableMetadata.class);
+		ColumnMetadata column = Mockito.mock(ColumnMetadata.class);
+		Mockito.stub(column.getName()).toReturn("id");
+		Mockito.stub(table.getPartitionKey()).toReturn(Arrays.asList(column));
+		Mockito.stub(keyspace.getTable("Person")).toReturn(table);
+		Mockito.stub(connection.keyspaceInfo()).toReturn(keyspace);
+		final List<String> queries = new ArrayList<String>();
+		Mockito.stub(connection.executeQueryAsync(Mockito.anyString(), Mockito.anyInt())).toAnswer(new Answer<ResultSetFuture>() {
+			@Override
+			public ResultSetFuture answer(InvocationOnMock invocation) throws Throwable {
+				queries.add((String)invocation.getArguments()[0]);
+				return helpFuture(queries.size());
+			}
+		});
+		
+		Command command = new TestTeiidLanguageToCQL().getCommand("select id from Person");
+		ResultSetExecution execution = cef.createResultSetExecution((QueryExpression)command, Mockito.mock(ExecutionContext.class), Mockito.mock(RuntimeMetadata.class), connection);
+		execution.execute();
+		List<Integer> results = new ArrayList<Integer>();
+		List<?> row = null;
+		while ((row = execution.next()) != null) {
+			results.add((Integer)row.get(0));
+		}
+		execution.close();
+		assertEquals(3, queries.size());
+		Collections.sort(results);
+		assertEquals(Arrays.asList(1, 2, 3), results);
+	}
+
+	private ResultSetFuture helpFuture(int value) throws Exception {
+		Row row = Mockito.mock(Row.class);
+		ColumnDefinitions cd = Mockito.mock(ColumnDefinitions.class);
+		Mockito.stub(cd.size()).toReturn(1);
+		Mockito.stub(cd.getType(0)).toReturn(DataType.cint());
+		Mockito.stub(row.getColumnDefinitions()).toReturn(cd);
+		Mockito.stub(row.getInt(0)).toReturn(value);
+		ResultSet rs = Mockito.mock(ResultSet.class);
+		Mockito.stub(rs.getAvailableWithoutFetching()).toReturn(1).toReturn(0);
+		Mockito.stub(rs.isFullyFetched()).toReturn(true);
+		Mockito.stub(rs.one()).toReturn(row);
+		ResultSetFuture future = Mockito.mock(ResultSetFuture.class);
+		Mockito.stub(future.get()).toReturn(rs);
+		Mockito.doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				((Runnable)invocation.getArguments()[0]).run();
+				return null;
+			}
+		}).when(future).addListener(Mockito.any(Runnable.class), Mockito.any(Executor.class));
+		return future;
+	}
+	
+}
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.jdbc;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.TimestampWithTimezone;
+import org.teiid.language.ColumnReference;
+
+/**
+ * Presents rows as tab delimited lines using \N for null and backslash escapes for 
+ * tab, newline, carriage return and backslash characters.  This is the text format
+ * accepted by PostgreSQL COPY and MySQL LOAD DATA.
+ */
+public class DelimitedTextReader extends Reader {
+	
+	private Iterator<? extends List<?>> values;
+	private String trueValue;
+	private String falseValue;
+	private Calendar calendar;
+	private StringBuilder current = new StringBuilder();
+	private int pos;
+	private long rowCount;
+	
+	/**
+	 * @param values
+	 * @param trueValue the text for a true boolean value
+	 * @param falseValue the text for a false boolean value
+	 * @param calendar the database calendar used to represent date/time values
+	 */
+	public DelimitedTextReader(Iterator<? extends List<?>> values, String trueValue, String falseValue, Calendar calendar) {
+		this.values = values;
+		this.trueValue = trueValue;
+		this.falseValue = falseValue;
+		this.calendar = calendar;
+	}
+	
+	/**
+	 * @return true if all of the column types can be represented as text
+	 */
+	public static boolean canFormat(List<ColumnReference> columns) {
+		for (ColumnReference col : columns) {
+			Class<?> type = col.getType();
+			if (type == DataTypeManager.DefaultDataClasses.OBJECT || type == DataTypeManager.DefaultDataClasses.VARBINARY 
+					|| DataTypeManager.isLOB(type) || type.isArray()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int read(char[] cbuf, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		while (pos >= current.length()) {
+			if (!values.hasNext()) {
+				return -1;
+			}
+			current.setLength(0);
+			pos = 0;
+			appendRow(values.next());
+			rowCount++;
+		}
+		int count = Math.min(len, current.length() - pos);
+		current.getChars(pos, pos + count, cbuf, off);
+		pos += count;
+		return count;
+	}
+	
+	private void appendRow(List<?> row) {
+		for (int i = 0; i < row.size(); i++) {
+			if (i > 0) {
+				current.append('\t');
+			}
+			appendValue(row.get(i));
+		}
+		current.append('\n');
+	}
+
+	private void appendValue(Object value) {
+		if (value == null) {
+			current.append("\\N"); //$NON-NLS-1$
+		} else if (value instanceof Boolean) {
+			current.append(((Boolean)value).booleanValue()?trueValue:falseValue);
+		} else if (value instanceof BigDecimal) {
+			current.append(((BigDecimal)value).toPlainString());
+		} else if (value instanceof java.util.Date) {
+			if (calendar != null) {
+				value = TimestampWithTimezone.create((java.util.Date)value, TimeZone.getDefault(), calendar, value.getClass());
+			}
+			current.append(value);
+		} else {
+			String str = value.toString();
+			for (int i = 0; i < str.length(); i++) {
+				char c = str.charAt(i);
+				switch (c) {
+				case '\\':
+					current.append("\\\\"); //$NON-NLS-1$
+					break;
+				case '\t':
+					current.append("\\t"); //$NON-NLS-1$
+					break;
+				case '\n':
+					current.append("\\n"); //$NON-NLS-1$
+					break;
+				case '\r':
+					current.append("\\r"); //$NON-NLS-1$
+					break;
+				default:
+					current.append(c);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return the number of rows read so far
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+	
+	@Override
+	public void close() {
+		
+	}
+
+}
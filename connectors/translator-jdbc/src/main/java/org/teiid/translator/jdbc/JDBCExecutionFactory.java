@@ -23,6 +23,7 @@
 package org.teiid.translator.jdbc;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -37,6 +38,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.sql.DataSource;
@@ -48,6 +51,7 @@ import org.teiid.core.types.BinaryType;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.types.GeometryType;
 import org.teiid.core.types.JDBCSQLTypeInfo;
+import org.teiid.core.util.ExecutorUtils;
 import org.teiid.core.util.MixinProxy;
 import org.teiid.core.util.PropertiesUtils;
 import org.teiid.core.util.ReflectionHelper;
@@ -69,6 +73,7 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
 
 	public static final int DEFAULT_MAX_IN_CRITERIA = 1000;
 	public static final int DEFAULT_MAX_DEPENDENT_PREDICATES = 50;
+	private static final int MAX_READ_AHEAD_THREADS = PropertiesUtils.getIntProperty(System.getProperties(), "org.teiid.translator.jdbc.maxReadAheadThreads", 64); //$NON-NLS-1$
 	
     public enum StructRetrieval {
     	OBJECT,
@@ -115,6 +120,10 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
 	protected SQLDialect dialect; 
 	private boolean enableDependentJoins;
 	private String commentFormat = "/*teiid sessionid:{0}, requestid:{1}.{2}*/ "; //$NON-NLS-1$
+	private int readAheadBatches;
+	private int parallelRangeScans = 1;
+	private ExecutorService readAheadExecutor;
+	private boolean useBulkLoad;
 	
 	private AtomicBoolean initialConnection = new AtomicBoolean(true);
 	
@@ -138,6 +147,15 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
 		}
     }
 	
+	@Override
+	public synchronized void stop() {
+		super.stop();
+		if (this.readAheadExecutor != null) {
+			this.readAheadExecutor.shutdown();
+			this.readAheadExecutor = null;
+		}
+	}
+	
     @TranslatorProperty(display="Database Version", description= "Database Version")
     public String getDatabaseVersion() {
     	return this.version.toString();
@@ -1474,6 +1492,116 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
 	public void setCommentFormat(String commentFormat) {
 		this.commentFormat = commentFormat;
 	}
+	
+	@TranslatorProperty(display="Read Ahead Batches", description="The number of batches that may be read ahead from the source result set by a separate thread while the engine is processing.  0 disables read ahead.  Default 0.", advanced=true)
+	public int getReadAheadBatches() {
+		return readAheadBatches;
+	}
+	
+	public void setReadAheadBatches(int readAheadBatches) {
+		this.readAheadBatches = readAheadBatches;
+	}
+	
+	@TranslatorProperty(display="Parallel Range Scans", description="The number of primary key range queries, each with its own connection, that a read ahead scan of a single table may be split into.  Requires read ahead and a single integral primary key column.  Default 1.", advanced=true)
+	public int getParallelRangeScans() {
+		return parallelRangeScans;
+	}
+	
+	public void setParallelRangeScans(int parallelRangeScans) {
+		this.parallelRangeScans = parallelRangeScans;
+	}
+	
+	@TranslatorProperty(display="Use Bulk Load", description="Use the native bulk load mechanism of the source, if supported, for multi-row inserts such as INSERT INTO ... SELECT.  The load may not be atomic, Oracle commits each batch so a failure can leave some of the rows inserted.  Default false.", advanced=true)
+	public boolean isUseBulkLoad() {
+		return useBulkLoad;
+	}
+	
+	public void setUseBulkLoad(boolean useBulkLoad) {
+		this.useBulkLoad = useBulkLoad;
+	}
+	
+	/**
+	 * Return true if the source has a native bulk load mechanism that can be used through 
+	 * {@link #bulkLoad(Insert, Iterator, ExecutionContext, Connection)}.  It will only be used 
+	 * if {@link #isUseBulkLoad()} is also true.
+	 * @return true if bulk load is supported
+	 */
+	public boolean supportsBulkLoad() {
+		return false;
+	}
+	
+	/**
+	 * Load the values of a multi-row insert into a physical table through the native bulk load 
+	 * mechanism of the source.  The insert will have an {@link ExpressionValueSource} of {@link Parameter}s. 
+	 * @param insert
+	 * @param values
+	 * @param context
+	 * @param connection
+	 * @return the number of rows loaded or -1 if the bulk load cannot be used and the values 
+	 * should be inserted with batched statements instead.  No values may have been consumed if -1 is returned.
+	 * @throws SQLException
+	 * @throws TranslatorException
+	 */
+	public long bulkLoad(Insert insert, Iterator<? extends List<?>> values, ExecutionContext context, Connection connection) throws SQLException, TranslatorException {
+		return -1;
+	}
+	
+	/**
+	 * @param insert
+	 * @return the source name of the table targeted by the insert
+	 */
+	protected String getBulkLoadTable(Insert insert) {
+		SQLConversionVisitor visitor = getSQLConversionVisitor();
+		visitor.append(new NamedTable(insert.getTable().getName(), null, insert.getTable().getMetadataObject()));
+		return visitor.toString();
+	}
+	
+	/**
+	 * @param insert
+	 * @return the comma separated source names of the insert columns
+	 */
+	protected String getBulkLoadColumns(Insert insert) {
+		StringBuilder result = new StringBuilder();
+		for (ColumnReference col : insert.getColumns()) {
+			if (result.length() > 0) {
+				result.append(", "); //$NON-NLS-1$
+			}
+			SQLConversionVisitor visitor = getSQLConversionVisitor();
+			visitor.append(new ColumnReference(null, col.getName(), col.getMetadataObject(), col.getType()));
+			result.append(visitor.toString());
+		}
+		return result.toString();
+	}
+	
+	/**
+	 * Get the driver connection from a pooled connection wrapper, such as those created by 
+	 * the application server, so that driver specific methods may be used.
+	 * @param connection
+	 * @return the driver connection or the connection if it is not a known wrapper
+	 */
+	protected Connection getDriverConnection(Connection connection) {
+		try {
+			Method m = connection.getClass().getMethod("getUnderlyingConnection"); //$NON-NLS-1$
+			return (Connection)m.invoke(connection);
+		} catch (NoSuchMethodException e) {
+			return connection;
+		} catch (Exception e) {
+			LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "Could not obtain the driver connection"); //$NON-NLS-1$
+			return connection;
+		}
+	}
+	
+	/**
+	 * Get the {@link Executor} used to read ahead of the engine.  
+	 * The threads are shared by all executions of this translator.
+	 * @return the executor
+	 */
+	public synchronized Executor getReadAheadExecutor() {
+		if (readAheadExecutor == null) {
+			readAheadExecutor = ExecutorUtils.newFixedThreadPool(MAX_READ_AHEAD_THREADS, "JDBC Read Ahead"); //$NON-NLS-1$
+		}
+		return readAheadExecutor;
+	}
 
 	/**
 	 * @return true if scientific notation should be used for float/double types
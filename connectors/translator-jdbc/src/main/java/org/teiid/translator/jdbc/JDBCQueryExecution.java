@@ -25,22 +25,30 @@
 
 package org.teiid.translator.jdbc;
 
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import javax.sql.DataSource;
+
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.language.*;
 import org.teiid.language.Comparison.Operator;
+import org.teiid.language.visitor.CollectorVisitor;
 import org.teiid.language.visitor.HierarchyVisitor;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
+import org.teiid.metadata.Column;
+import org.teiid.metadata.KeyRecord;
 import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.ExecutionContext;
 import org.teiid.translator.ResultSetExecution;
@@ -75,6 +83,67 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
 			}
 		}
 	}
+	
+	/**
+	 * A read ahead source for either the main result set or a key range
+	 * read with its own connection.
+	 */
+	private class RangeSource extends ReadAheadResults.Source {
+		private Connection sourceConnection;
+		private DataSource dataSource;
+		private TranslatedCommand translatedCommand;
+		private volatile Statement sourceStatement;
+		private ResultSet sourceResults;
+		
+		RangeSource(Statement statement, ResultSet results) {
+			this.sourceStatement = statement;
+			this.sourceResults = results;
+		}
+		
+		RangeSource(Connection connection, DataSource dataSource, TranslatedCommand translatedCommand) {
+			this.sourceConnection = connection;
+			this.dataSource = dataSource;
+			this.translatedCommand = translatedCommand;
+		}
+		
+		@Override
+		ResultSet getResultSet() throws SQLException {
+			if (sourceResults == null) {
+				sourceStatement = createStatement(sourceConnection, translatedCommand);
+				sourceResults = executeQuery(sourceStatement, translatedCommand);
+			}
+			return sourceResults;
+		}
+		
+		@Override
+		void cancel() {
+			Statement s = sourceStatement;
+			if (s != null) {
+				try {
+					s.cancel();
+				} catch (SQLException e) {
+					//not all drivers support cancel
+				}
+			}
+		}
+		
+		@Override
+		void close() {
+			if (sourceConnection == null) {
+				return; //the main result set is closed by the execution
+			}
+			try {
+				if (sourceStatement != null) {
+					sourceStatement.close();
+				}
+			} catch (SQLException e) {
+				LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "Exception closing"); //$NON-NLS-1$
+			} finally {
+				executionFactory.closeConnection(sourceConnection, dataSource);
+				sourceConnection = null;
+			}
+		}
+	}
 
 	private static final String KEY_TABLE_PREFIX = "TEIID_DKJ"; //$//$NON-NLS-1$
     private static final String FULL_TABLE_PREFIX = "TEIID_DJ"; //$//$NON-NLS-1$
@@ -83,6 +152,7 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
 	protected ResultSet results;
     protected Class<?>[] columnDataTypes;
     protected List<NamedTable> tempTables;
+    private ReadAheadResults readAhead;
 
     public JDBCQueryExecution(Command command, Connection connection, ExecutionContext context, JDBCExecutionFactory env) {
         super(command, connection, context, env);
@@ -110,8 +180,18 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
 	        	usingTxn = createFullTempTables(qe, usingTxn);
 	        }
 	
+	        boolean useReadAhead = canReadAhead();
+	        List<TranslatedCommand> ranges = null;
+	        if (useReadAhead) {
+	        	ranges = translateRanges(qe);
+	        }
+	        
 	        // translate command
-	        translatedComm = translateCommand(command);
+	        if (ranges != null) {
+	        	translatedComm = ranges.get(0);
+	        } else {
+	        	translatedComm = translateCommand(command);
+	        }
 	
 	        String sql = translatedComm.getSql();
 	        
@@ -123,6 +203,9 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
                 results = pstatement.executeQuery();
             } 
             addStatementWarnings();
+            if (useReadAhead) {
+            	startReadAhead(ranges);
+            }
             success = true;
         } catch (SQLException e) {
         	if (translatedComm == null) {
@@ -147,6 +230,167 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
         }
     }
 
+    private boolean canReadAhead() {
+    	if (this.executionFactory.getReadAheadBatches() <= 0 || this.tempTables != null || this.context.isTransactional()) {
+    		return false;
+    	}
+    	//lob values may not be valid once the cursor has moved
+    	for (Class<?> type : columnDataTypes) {
+    		if (DataTypeManager.isLOB(type) || type == DataTypeManager.DefaultDataClasses.OBJECT) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+    
+    private void startReadAhead(List<TranslatedCommand> ranges) throws TranslatorException {
+    	List<RangeSource> sources = new ArrayList<RangeSource>();
+    	sources.add(new RangeSource(statement, results));
+    	if (ranges != null) {
+    		DataSource ds = (DataSource)this.context.getConnectionFactory();
+    		try {
+	    		for (int i = 1; i < ranges.size(); i++) {
+	    			sources.add(new RangeSource(this.executionFactory.getConnection(ds, this.context), ds, ranges.get(i)));
+	    		}
+    		} catch (TranslatorException e) {
+    			for (RangeSource source : sources) {
+    				source.close();
+    			}
+    			throw e;
+    		}
+    	}
+    	this.readAhead = new ReadAheadResults(this.executionFactory, this.context, this.columnDataTypes, sources);
+    	this.readAhead.start();
+    }
+    
+    /**
+     * Split a scan of a single table into ranges of its integral primary key using the 
+     * current key bounds.  The first and last ranges are open so that no rows are missed.
+     * The first range also includes null keys, since the key may not be enforced by the source.
+     * @param qe
+     * @return the translated range commands or null if the scan should not be split
+     * @throws SQLException
+     * @throws TranslatorException
+     */
+    protected List<TranslatedCommand> translateRanges(QueryExpression qe) throws SQLException, TranslatorException {
+    	int parallelism = this.executionFactory.getParallelRangeScans();
+    	if (parallelism < 2 || !(qe instanceof Select) || !(this.context.getConnectionFactory() instanceof DataSource)) {
+    		return null;
+    	}
+    	Select select = (Select)qe;
+    	if (select.isDistinct() || select.getGroupBy() != null || select.getHaving() != null || select.getOrderBy() != null 
+    			|| select.getLimit() != null || select.getWith() != null || select.getFrom().size() != 1 
+    			|| !(select.getFrom().get(0) instanceof NamedTable)
+    			|| !CollectorVisitor.collectObjects(AggregateFunction.class, select).isEmpty() 
+    			|| !CollectorVisitor.collectObjects(WindowFunction.class, select).isEmpty()) {
+    		return null;
+    	}
+    	NamedTable table = (NamedTable)select.getFrom().get(0);
+    	if (table.getMetadataObject() == null) {
+    		return null;
+    	}
+    	KeyRecord pk = table.getMetadataObject().getPrimaryKey();
+    	if (pk == null || pk.getColumns().size() != 1) {
+    		return null;
+    	}
+    	Column key = pk.getColumns().get(0);
+    	Class<?> keyType = key.getJavaType();
+    	if (keyType != DataTypeManager.DefaultDataClasses.INTEGER && keyType != DataTypeManager.DefaultDataClasses.LONG 
+    			&& keyType != DataTypeManager.DefaultDataClasses.SHORT) {
+    		return null;
+    	}
+    	
+    	//get the current bounds
+    	List<DerivedColumn> cols = new ArrayList<DerivedColumn>(2);
+    	cols.add(new DerivedColumn(null, new AggregateFunction(AggregateFunction.MIN, false, Arrays.asList(new ColumnReference(table, key.getName(), key, keyType)), keyType)));
+    	cols.add(new DerivedColumn(null, new AggregateFunction(AggregateFunction.MAX, false, Arrays.asList(new ColumnReference(table, key.getName(), key, keyType)), keyType)));
+    	Select bounds = new Select(cols, false, new ArrayList<TableReference>(select.getFrom()), null, null, null, null);
+    	TranslatedCommand boundsCommand = translateCommand(bounds);
+    	long min = 0;
+    	long max = 0;
+    	Statement s = createStatement(this.connection, boundsCommand);
+    	try {
+    		ResultSet rs = executeQuery(s, boundsCommand);
+    		if (!rs.next()) {
+    			return null;
+    		}
+    		min = rs.getLong(1);
+    		if (rs.wasNull()) {
+    			return null;
+    		}
+    		max = rs.getLong(2);
+    	} finally {
+    		s.close();
+    	}
+    	BigInteger width = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min));
+    	if (width.compareTo(BigInteger.valueOf(parallelism)) < 0) {
+    		return null;
+    	}
+    	LogManager.logDetail(LogConstants.CTX_CONNECTOR, "splitting the scan of", table.getName(), "into", parallelism, "key ranges from", min, "to", max); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    	
+    	Condition where = select.getWhere();
+    	List<TranslatedCommand> result = new ArrayList<TranslatedCommand>(parallelism);
+    	try {
+    		Object lower = null;
+	    	for (int i = 0; i < parallelism; i++) {
+	    		Object upper = null;
+	    		Condition range = null;
+	    		if (i < parallelism - 1) {
+	    			long bound = BigInteger.valueOf(min).add(width.multiply(BigInteger.valueOf(i + 1)).divide(BigInteger.valueOf(parallelism))).longValue();
+	    			upper = getKeyValue(bound, keyType);
+	    			range = new Comparison(new ColumnReference(table, key.getName(), key, keyType), new Literal(upper, keyType), Operator.LT);
+	    		}
+	    		if (i == 0) {
+	    			range = new AndOr(range, new IsNull(new ColumnReference(table, key.getName(), key, keyType), false), AndOr.Operator.OR);
+	    		}
+	    		if (lower != null) {
+	    			Condition lowerRange = new Comparison(new ColumnReference(table, key.getName(), key, keyType), new Literal(lower, keyType), Operator.GE);
+	    			range = range == null ? lowerRange : new AndOr(lowerRange, range, AndOr.Operator.AND);
+	    		}
+	    		select.setWhere(where == null ? range : new AndOr(where, range, AndOr.Operator.AND));
+	    		result.add(translateCommand(select));
+	    		lower = upper;
+	    	}
+    	} finally {
+    		select.setWhere(where);
+    	}
+    	return result;
+    }
+
+	private static Object getKeyValue(long value, Class<?> keyType) {
+		if (keyType == DataTypeManager.DefaultDataClasses.INTEGER) {
+			return Integer.valueOf((int)value);
+		}
+		if (keyType == DataTypeManager.DefaultDataClasses.SHORT) {
+			return Short.valueOf((short)value);
+		}
+		return Long.valueOf(value);
+	}
+	
+	private Statement createStatement(Connection conn, TranslatedCommand translatedComm) throws SQLException {
+		if (!translatedComm.isPrepared()) {
+			Statement s = conn.createStatement();
+			setSizeContraints(s);
+			return s;
+		}
+		PreparedStatement ps = conn.prepareStatement(translatedComm.getSql());
+		try {
+			setSizeContraints(ps);
+			bind(ps, translatedComm.getPreparedValues(), null);
+		} catch (SQLException e) {
+			ps.close();
+			throw e;
+		}
+		return ps;
+	}
+	
+	private ResultSet executeQuery(Statement s, TranslatedCommand translatedComm) throws SQLException {
+		if (s instanceof PreparedStatement) {
+			return ((PreparedStatement)s).executeQuery();
+		}
+		return s.executeQuery(translatedComm.getSql());
+	}
+
     /**
      * 
      * @param qe
@@ -334,6 +578,9 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
 
     @Override
     public List<?> next() throws TranslatorException, DataNotAvailableException {
+    	if (readAhead != null) {
+    		return readAhead.next();
+    	}
         try {
             if (results.next()) {
                 // New row for result set
@@ -362,6 +609,10 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
         // first we would need to close the result set here then we can close
         // the statement, using the base class.
     	try {
+    		if (readAhead != null) {
+    			readAhead.close();
+    			readAhead = null;
+    		}
 	        if (results != null) {
 	            try {
 	                results.close();
@@ -397,5 +648,14 @@ public class JDBCQueryExecution extends JDBCBaseExecution implements ResultSetEx
     		super.close();
     	}
     }
+    
+    @Override
+    public void cancel() throws TranslatorException {
+    	ReadAheadResults r = readAhead;
+    	if (r != null) {
+    		r.cancel();
+    	}
+    	super.cancel();
+    }
 
 }
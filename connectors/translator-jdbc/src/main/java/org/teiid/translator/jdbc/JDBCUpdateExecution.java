@@ -74,6 +74,9 @@ public class JDBCUpdateExecution extends JDBCBaseExecution implements UpdateExec
         if (command instanceof BatchedUpdates) {
         	execute(((BatchedUpdates)command));
         } else {
+        	if (command instanceof Insert && bulkLoad((Insert)command)) {
+        		return;
+        	}
             // translate command
             TranslatedCommand translatedComm = translateCommand(command);
 
@@ -81,6 +84,37 @@ public class JDBCUpdateExecution extends JDBCBaseExecution implements UpdateExec
         }
     }
 
+    /**
+     * Use the native bulk load of the source for a multi-row insert into a physical table
+     * @return true if the bulk load was performed
+     */
+    private boolean bulkLoad(Insert insert) throws TranslatorException {
+    	if (!executionFactory.isUseBulkLoad() || !executionFactory.supportsBulkLoad() || insert.getParameterValues() == null
+    			|| insert.getTable().getMetadataObject() == null || context.getCommandContext().isReturnAutoGeneratedKeys()) {
+    		return false;
+    	}
+    	boolean commitType = getAutoCommit(null);
+    	boolean succeeded = false;
+    	try {
+    		if (commitType) {
+    			connection.setAutoCommit(false);
+    		}
+    		long count = executionFactory.bulkLoad(insert, insert.getParameterValues(), context, connection);
+    		succeeded = true;
+    		if (count < 0) {
+    			return false;
+    		}
+    		result = new int[] {(int)Math.min(count, Integer.MAX_VALUE)};
+    		return true;
+    	} catch (SQLException e) {
+    		throw new JDBCExecutionException(JDBCPlugin.Event.TEIID11013, e, insert.toString());
+    	} finally {
+    		if (commitType) {
+    			restoreAutoCommit(!succeeded, null);
+    		}
+    	}
+    }
+
     public int[] execute(BatchedUpdates batchedCommand) throws TranslatorException {
         boolean succeeded = false;
 
@@ -0,0 +1,245 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.translator.DataNotAvailableException;
+import org.teiid.translator.ExecutionContext;
+import org.teiid.translator.TranslatorException;
+
+/**
+ * Reads batches from one or more source {@link ResultSet}s on a separate thread
+ * so that source fetches overlap engine processing.
+ * <br>
+ * Each source is read by at most one task at a time.  A task stops once the ready 
+ * batches are full and is restarted by the consumer as batches are taken, so 
+ * that a slow consumer does not hold a thread.
+ */
+class ReadAheadResults {
+	
+	/**
+	 * A source of rows.  The result set is obtained on the reading thread.
+	 */
+	static abstract class Source {
+		boolean running;
+		boolean done;
+		
+		abstract ResultSet getResultSet() throws SQLException;
+		
+		abstract void cancel();
+		
+		abstract void close();
+	}
+	
+	private JDBCExecutionFactory executionFactory;
+	private ExecutionContext context;
+	private Class<?>[] columnDataTypes;
+	private int batchSize;
+	private int maxBatches;
+	private List<? extends Source> sources;
+	
+	private LinkedList<List<List<?>>> ready = new LinkedList<List<List<?>>>();
+	private int remaining;
+	private int running;
+	private Throwable failure;
+	private boolean closed;
+	
+	private List<List<?>> current;
+	private int index;
+	
+	ReadAheadResults(JDBCExecutionFactory executionFactory, ExecutionContext context, Class<?>[] columnDataTypes, List<? extends Source> sources) {
+		this.executionFactory = executionFactory;
+		this.context = context;
+		this.columnDataTypes = columnDataTypes;
+		this.batchSize = Math.max(1, context.getBatchSize());
+		this.maxBatches = Math.max(1, executionFactory.getReadAheadBatches());
+		this.sources = sources;
+		this.remaining = sources.size();
+	}
+	
+	synchronized void start() {
+		for (Source source : sources) {
+			schedule(source);
+		}
+	}
+	
+	private void schedule(final Source source) {
+		source.running = true;
+		running++;
+		this.executionFactory.getReadAheadExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				read(source);
+			}
+		});
+	}
+	
+	private void read(Source source) {
+		boolean notify = false;
+		Throwable t = null;
+		try {
+			ResultSet rs = source.getResultSet();
+			while (true) {
+				synchronized (this) {
+					if (closed || ready.size() >= maxBatches) {
+						break;
+					}
+				}
+				List<List<?>> batch = new ArrayList<List<?>>(batchSize);
+				while (batch.size() < batchSize && rs.next()) {
+					batch.add(readRow(rs));
+				}
+				boolean end = batch.size() < batchSize;
+				synchronized (this) {
+					if (!batch.isEmpty()) {
+						notify |= ready.isEmpty();
+						ready.add(batch);
+					}
+					source.done = end;
+				}
+				if (notify) {
+					notify = false;
+					context.dataAvailable();
+				}
+				if (end) {
+					break;
+				}
+			}
+		} catch (Throwable e) {
+			t = e;
+		} finally {
+			synchronized (this) {
+				source.running = false;
+				running--;
+				if (t != null) {
+					if (closed) {
+						LogManager.logDetail(LogConstants.CTX_CONNECTOR, t, "Exception reading ahead after close"); //$NON-NLS-1$
+					} else if (failure == null) {
+						failure = t;
+					}
+				}
+				if (source.done) {
+					remaining--;
+				}
+				notify = t != null || source.done;
+				notifyAll();
+			}
+			if (notify) {
+				context.dataAvailable();
+			}
+		}
+	}
+
+	private List<?> readRow(ResultSet rs) throws SQLException {
+		List<Object> vals = new ArrayList<Object>(columnDataTypes.length);
+		for (int i = 0; i < columnDataTypes.length; i++) {
+			// Convert from 0-based to 1-based
+			vals.add(this.executionFactory.retrieveValue(rs, i+1, columnDataTypes[i]));
+		}
+		return vals;
+	}
+	
+	synchronized List<?> next() throws TranslatorException, DataNotAvailableException {
+		while (true) {
+			if (current != null && index < current.size()) {
+				List<?> row = current.get(index);
+				current.set(index++, null);
+				return row;
+			}
+			current = null;
+			if (failure != null) {
+				if (failure instanceof TranslatorException) {
+					throw (TranslatorException)failure;
+				}
+				if (failure instanceof RuntimeException) {
+					throw (RuntimeException)failure;
+				}
+				throw new TranslatorException(failure, JDBCPlugin.Util.getString("JDBCTranslator.Unexpected_exception_translating_results___8", failure.getMessage())); //$NON-NLS-1$
+			}
+			if (!ready.isEmpty()) {
+				current = ready.removeFirst();
+				index = 0;
+				resume();
+				continue;
+			}
+			if (remaining == 0) {
+				return null;
+			}
+			resume();
+			throw DataNotAvailableException.NO_POLLING;
+		}
+	}
+	
+	private void resume() {
+		if (closed || ready.size() >= maxBatches) {
+			return;
+		}
+		for (Source source : sources) {
+			if (!source.running && !source.done) {
+				schedule(source);
+			}
+		}
+	}
+	
+	void cancel() {
+		for (Source source : sources) {
+			source.cancel();
+		}
+	}
+	
+	/**
+	 * Cancel the sources that are being read and wait for the reading tasks 
+	 * to stop before closing them.
+	 */
+	void close() {
+		synchronized (this) {
+			closed = true;
+			ready.clear();
+			current = null;
+			for (Source source : sources) {
+				if (source.running) {
+					source.cancel();
+				}
+			}
+			try {
+				while (running > 0) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (Source source : sources) {
+			source.close();
+		}
+	}
+
+}
@@ -24,6 +24,9 @@ package org.teiid.translator.jdbc.mysql;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
 import java.sql.Blob;
 import java.sql.CallableStatement;
 import java.sql.Connection;
@@ -31,23 +34,29 @@ import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.teiid.core.types.BlobImpl;
 import org.teiid.core.types.GeometryType;
 import org.teiid.core.types.InputStreamFactory;
+import org.teiid.core.util.ReaderInputStream;
 import org.teiid.language.Command;
 import org.teiid.language.DerivedColumn;
 import org.teiid.language.Expression;
 import org.teiid.language.Function;
+import org.teiid.language.Insert;
 import org.teiid.language.QueryExpression;
 import org.teiid.language.SQLConstants;
 import org.teiid.language.Select;
 import org.teiid.language.SetQuery;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
 import org.teiid.metadata.Table;
 import org.teiid.translator.ExecutionContext;
 import org.teiid.translator.MetadataProcessor;
@@ -57,6 +66,7 @@ import org.teiid.translator.TranslatorException;
 import org.teiid.translator.TypeFacility;
 import org.teiid.translator.jdbc.AliasModifier;
 import org.teiid.translator.jdbc.ConvertModifier;
+import org.teiid.translator.jdbc.DelimitedTextReader;
 import org.teiid.translator.jdbc.FunctionModifier;
 import org.teiid.translator.jdbc.JDBCExecutionFactory;
 import org.teiid.translator.jdbc.JDBCMetdataProcessor;
@@ -603,4 +613,47 @@ public class MySQLExecutionFactory extends JDBCExecutionFactory {
 		gatherSelects(sq.getLeftQuery(), allQueries);
 		gatherSelects(sq.getRightQuery(), allQueries);
 	}
+    @Override
+    public boolean supportsBulkLoad() {
+    	return true;
+    }
+    
+    /**
+     * Uses LOAD DATA LOCAL INFILE with the statement's local infile stream.
+     * Requires local infile to be allowed by both the driver and the server.
+     * Note that with LOCAL rows that duplicate existing unique key values are skipped 
+     * with a warning rather than failing the load.
+     */
+    @Override
+    public long bulkLoad(Insert insert, Iterator<? extends List<?>> values,
+    		ExecutionContext context, Connection connection) throws SQLException,
+    		TranslatorException {
+    	if (!DelimitedTextReader.canFormat(insert.getColumns())) {
+    		return -1;
+    	}
+    	Statement s = getDriverConnection(connection).createStatement();
+    	try {
+    		Method m = null;
+	    	try {
+	    		m = s.getClass().getMethod("setLocalInfileInputStream", InputStream.class); //$NON-NLS-1$
+	    	} catch (NoSuchMethodException e) {
+	    		LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "LOAD DATA LOCAL is not available, using batched inserts instead"); //$NON-NLS-1$
+	    		return -1;
+	    	}
+	    	//the default field and line handling matches the delimited text
+	    	String sql = "LOAD DATA LOCAL INFILE 'teiid_bulk_load' INTO TABLE " + getBulkLoadTable(insert) + " CHARACTER SET utf8 (" + getBulkLoadColumns(insert) + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	    	LogManager.logDetail(LogConstants.CTX_CONNECTOR, "Source-specific command:", sql); //$NON-NLS-1$
+	    	try {
+	    		m.invoke(s, new ReaderInputStream(new DelimitedTextReader(values, "1", "0", getDatabaseCalendar()), Charset.forName("UTF-8"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	    	} catch (InvocationTargetException e) {
+	    		throw new TranslatorException(e.getCause());
+	    	} catch (IllegalAccessException e) {
+	    		throw new TranslatorException(e);
+	    	}
+	    	return s.executeUpdate(sql);
+    	} finally {
+    		s.close();
+    	}
+    }
+    
 }
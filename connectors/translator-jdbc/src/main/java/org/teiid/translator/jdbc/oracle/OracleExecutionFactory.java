@@ -35,6 +35,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import org.teiid.GeometryInputSource;
@@ -1056,4 +1057,70 @@ public class OracleExecutionFactory extends JDBCExecutionFactory {
         return null;
     }
     
+    @Override
+    public boolean supportsBulkLoad() {
+    	return getVersion().compareTo(ELEVEN_2) >= 0;
+    }
+    
+    /**
+     * Oracle has no bulk load path through JDBC, so a direct path insert is used with 
+     * the APPEND_VALUES hint.  The table cannot be read or modified again in the same transaction 
+     * until commit, so this is only used outside of a transaction and each batch is committed.
+     * Unlike a batched insert the load is therefore not atomic, a failure leaves the rows of 
+     * the previously committed batches in the table.
+     */
+    @Override
+    public long bulkLoad(Insert insert, Iterator<? extends List<?>> values,
+    		ExecutionContext context, Connection connection) throws SQLException,
+    		TranslatorException {
+    	if (context.isTransactional()) {
+    		return -1;
+    	}
+    	List<ColumnReference> cols = insert.getColumns();
+    	StringBuilder sql = new StringBuilder("INSERT /*+ APPEND_VALUES */ INTO "); //$NON-NLS-1$
+    	sql.append(getBulkLoadTable(insert)).append(" (").append(getBulkLoadColumns(insert)).append(") VALUES ("); //$NON-NLS-1$ //$NON-NLS-2$
+    	for (int i = 0; i < cols.size(); i++) {
+    		if (i > 0) {
+    			sql.append(", "); //$NON-NLS-1$
+    		}
+    		sql.append('?');
+    	}
+    	sql.append(')');
+    	LogManager.logDetail(LogConstants.CTX_CONNECTOR, "Source-specific command:", sql); //$NON-NLS-1$
+    	PreparedStatement ps = connection.prepareStatement(sql.toString());
+    	try {
+	    	long count = 0;
+	    	int batch = 0;
+	    	while (values.hasNext()) {
+	    		List<?> row = values.next();
+	    		for (int i = 0; i < cols.size(); i++) {
+	    			bindValue(ps, row.get(i), cols.get(i).getType(), i + 1);
+	    		}
+	    		ps.addBatch();
+	    		count++;
+	    		if (++batch == getMaxPreparedInsertBatchSize()) {
+	    			executeDirectPathBatch(ps, connection);
+	    			batch = 0;
+	    		}
+	    	}
+	    	if (batch > 0) {
+	    		executeDirectPathBatch(ps, connection);
+	    	}
+	    	return count;
+    	} finally {
+    		ps.close();
+    	}
+    }
+
+    /**
+     * Execute the batch and commit, since the next direct path insert into the 
+     * table would otherwise fail with ORA-12838
+     */
+    private void executeDirectPathBatch(PreparedStatement ps, Connection connection) throws SQLException {
+    	ps.executeBatch();
+    	if (!connection.getAutoCommit()) {
+    		connection.commit();
+    	}
+    }
+    
 }
@@ -24,6 +24,9 @@ package org.teiid.translator.jdbc.postgresql;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -34,6 +37,7 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.teiid.GeometryInputSource;
@@ -811,4 +815,43 @@ public class PostgreSQLExecutionFactory extends JDBCExecutionFactory {
         return null;
     }
     
+    @Override
+    public boolean supportsBulkLoad() {
+    	return true;
+    }
+    
+    /**
+     * Uses COPY FROM STDIN through the driver's CopyManager
+     */
+    @Override
+    public long bulkLoad(Insert insert, Iterator<? extends List<?>> values,
+    		ExecutionContext context, Connection connection) throws SQLException,
+    		TranslatorException {
+    	if (!DelimitedTextReader.canFormat(insert.getColumns())) {
+    		return -1;
+    	}
+    	Connection driverConnection = getDriverConnection(connection);
+    	Object copyManager = null;
+    	Method copyIn = null;
+    	try {
+    		copyManager = driverConnection.getClass().getMethod("getCopyAPI").invoke(driverConnection); //$NON-NLS-1$
+    		copyIn = copyManager.getClass().getMethod("copyIn", String.class, Reader.class); //$NON-NLS-1$
+    	} catch (Exception e) {
+    		LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "COPY is not available, using batched inserts instead"); //$NON-NLS-1$
+    		return -1;
+    	}
+    	String sql = "COPY " + getBulkLoadTable(insert) + " (" + getBulkLoadColumns(insert) + ") FROM STDIN"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    	LogManager.logDetail(LogConstants.CTX_CONNECTOR, "Source-specific command:", sql); //$NON-NLS-1$
+    	try {
+			return (Long)copyIn.invoke(copyManager, sql, new DelimitedTextReader(values, "t", "f", getDatabaseCalendar())); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof SQLException) {
+				throw (SQLException)e.getCause();
+			}
+			throw new TranslatorException(e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new TranslatorException(e);
+		}
+    }
+    
 }
@@ -0,0 +1,220 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.jdbc.sqlserver;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.JDBCSQLTypeInfo;
+import org.teiid.core.types.TransformationException;
+import org.teiid.language.ColumnReference;
+import org.teiid.language.visitor.SQLStringVisitor;
+import org.teiid.metadata.Column;
+
+/**
+ * Presents an iterator of rows as a forward only {@link ResultSet} so that it may 
+ * be used as the source of a bulk copy.  Only the methods needed to read values
+ * and column metadata are supported.
+ */
+class BulkCopyResultSet implements InvocationHandler {
+	
+	private final class MetaDataHandler implements InvocationHandler {
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			String name = method.getName();
+			if (name.equals("getColumnCount")) { //$NON-NLS-1$
+				return columns.size();
+			}
+			if (args == null || args.length != 1 || !(args[0] instanceof Integer)) {
+				return handleObjectMethod(proxy, method, args);
+			}
+			ColumnReference col = columns.get((Integer)args[0] - 1);
+			Column column = col.getMetadataObject();
+			if (name.equals("getColumnName") || name.equals("getColumnLabel")) { //$NON-NLS-1$ //$NON-NLS-2$
+				return getColumnName((Integer)args[0] - 1);
+			}
+			if (name.equals("getColumnType")) { //$NON-NLS-1$
+				return JDBCSQLTypeInfo.getSQLTypeFromRuntimeType(col.getType());
+			}
+			if (name.equals("getColumnTypeName")) { //$NON-NLS-1$
+				return JDBCSQLTypeInfo.getTypeName(JDBCSQLTypeInfo.getSQLTypeFromRuntimeType(col.getType()));
+			}
+			if (name.equals("getColumnClassName")) { //$NON-NLS-1$
+				return col.getType().getName();
+			}
+			if (name.equals("getPrecision")) { //$NON-NLS-1$
+				if (column == null) {
+					return 0;
+				}
+				if (col.getType() == DataTypeManager.DefaultDataClasses.STRING) {
+					return column.getLength();
+				}
+				return column.getPrecision();
+			}
+			if (name.equals("getScale")) { //$NON-NLS-1$
+				return column == null?0:column.getScale();
+			}
+			if (name.equals("isNullable")) { //$NON-NLS-1$
+				return ResultSetMetaData.columnNullableUnknown;
+			}
+			throw new SQLFeatureNotSupportedException(name);
+		}
+	}
+
+	private Iterator<? extends List<?>> values;
+	private List<ColumnReference> columns;
+	private List<?> current;
+	private boolean wasNull;
+	private boolean closed;
+	private long rowCount;
+	
+	BulkCopyResultSet(Iterator<? extends List<?>> values, List<ColumnReference> columns) {
+		this.values = values;
+		this.columns = columns;
+	}
+	
+	ResultSet getResultSet() {
+		return (ResultSet)Proxy.newProxyInstance(BulkCopyResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class}, this);
+	}
+	
+	/**
+	 * @return the unquoted source name of the column
+	 */
+	String getColumnName(int index) {
+		ColumnReference col = columns.get(index);
+		if (col.getMetadataObject() != null) {
+			return SQLStringVisitor.getRecordName(col.getMetadataObject());
+		}
+		return col.getName();
+	}
+	
+	long getRowCount() {
+		return rowCount;
+	}
+	
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args)
+			throws Throwable {
+		String name = method.getName();
+		if (name.equals("next")) { //$NON-NLS-1$
+			if (!closed && values.hasNext()) {
+				current = values.next();
+				rowCount++;
+				return true;
+			}
+			current = null;
+			return false;
+		}
+		if (name.equals("close")) { //$NON-NLS-1$
+			closed = true;
+			return null;
+		}
+		if (name.equals("isClosed")) { //$NON-NLS-1$
+			return closed;
+		}
+		if (name.equals("wasNull")) { //$NON-NLS-1$
+			return wasNull;
+		}
+		if (name.equals("getMetaData")) { //$NON-NLS-1$
+			return Proxy.newProxyInstance(BulkCopyResultSet.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class}, new MetaDataHandler());
+		}
+		if (name.startsWith("get") && args != null && args.length > 0 && args[0] instanceof Integer) { //$NON-NLS-1$
+			if (current == null) {
+				throw new SQLException("No current row"); //$NON-NLS-1$
+			}
+			Object value = current.get((Integer)args[0] - 1);
+			wasNull = value == null;
+			return convert(value, method.getReturnType());
+		}
+		return handleObjectMethod(proxy, method, args);
+	}
+
+	static Object handleObjectMethod(Object proxy, Method method, Object[] args) throws SQLException {
+		String name = method.getName();
+		if (name.equals("hashCode")) { //$NON-NLS-1$
+			return System.identityHashCode(proxy);
+		}
+		if (name.equals("equals")) { //$NON-NLS-1$
+			return proxy == args[0];
+		}
+		if (name.equals("toString")) { //$NON-NLS-1$
+			return BulkCopyResultSet.class.getSimpleName();
+		}
+		if (name.equals("isWrapperFor")) { //$NON-NLS-1$
+			return false;
+		}
+		throw new SQLFeatureNotSupportedException(name);
+	}
+	
+	private static Object convert(Object value, Class<?> type) throws SQLException {
+		if (type.isPrimitive()) {
+			if (type == Boolean.TYPE) {
+				return value == null?Boolean.FALSE:convert(value, Boolean.class);
+			}
+			if (value == null) {
+				value = 0;
+			}
+			type = getWrapperClass(type);
+		} 
+		if (value == null || type.isInstance(value)) {
+			return value;
+		}
+		if (type == String.class) {
+			return value.toString();
+		}
+		try {
+			return DataTypeManager.transformValue(value, type);
+		} catch (TransformationException e) {
+			throw new SQLException(e);
+		}
+	}
+
+	private static Class<?> getWrapperClass(Class<?> type) {
+		if (type == Integer.TYPE) {
+			return Integer.class;
+		}
+		if (type == Long.TYPE) {
+			return Long.class;
+		}
+		if (type == Short.TYPE) {
+			return Short.class;
+		}
+		if (type == Byte.TYPE) {
+			return Byte.class;
+		}
+		if (type == Float.TYPE) {
+			return Float.class;
+		}
+		return Double.class;
+	}
+
+}
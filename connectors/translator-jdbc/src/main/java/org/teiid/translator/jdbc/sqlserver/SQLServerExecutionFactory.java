@@ -24,6 +24,8 @@
  */
 package org.teiid.translator.jdbc.sqlserver;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.ResultSet;
@@ -33,6 +35,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -40,7 +43,10 @@ import org.teiid.core.util.StringUtil;
 import org.teiid.language.AggregateFunction;
 import org.teiid.language.ColumnReference;
 import org.teiid.language.Function;
+import org.teiid.language.Insert;
 import org.teiid.language.LanguageObject;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
 import org.teiid.metadata.Column;
 import org.teiid.metadata.MetadataFactory;
 import org.teiid.metadata.Table;
@@ -434,4 +440,51 @@ public class SQLServerExecutionFactory extends SybaseExecutionFactory {
     	return true;
     }
     
+    @Override
+    public boolean supportsBulkLoad() {
+    	return getVersion().compareTo(TEN_0) >= 0;
+    }
+    
+    /**
+     * Uses the driver's SQLServerBulkCopy with the values presented as a {@link ResultSet}
+     */
+    @Override
+    public long bulkLoad(Insert insert, Iterator<? extends List<?>> values,
+    		ExecutionContext context, Connection connection) throws SQLException,
+    		TranslatorException {
+    	Connection driverConnection = getDriverConnection(connection);
+    	Class<?> bulkCopyClass = null;
+    	Object bulkCopy = null;
+    	try {
+    		bulkCopyClass = Class.forName("com.microsoft.sqlserver.jdbc.SQLServerBulkCopy", true, driverConnection.getClass().getClassLoader()); //$NON-NLS-1$
+    		bulkCopy = bulkCopyClass.getConstructor(Connection.class).newInstance(driverConnection);
+    	} catch (Exception e) {
+    		LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "Bulk copy is not available, using batched inserts instead"); //$NON-NLS-1$
+    		return -1;
+    	}
+    	BulkCopyResultSet rows = new BulkCopyResultSet(values, insert.getColumns());
+    	try {
+    		bulkCopyClass.getMethod("setDestinationTableName", String.class).invoke(bulkCopy, getBulkLoadTable(insert)); //$NON-NLS-1$
+    		Method addColumnMapping = bulkCopyClass.getMethod("addColumnMapping", Integer.TYPE, String.class); //$NON-NLS-1$
+    		for (int i = 0; i < insert.getColumns().size(); i++) {
+    			addColumnMapping.invoke(bulkCopy, i + 1, rows.getColumnName(i));
+    		}
+    		bulkCopyClass.getMethod("writeToServer", ResultSet.class).invoke(bulkCopy, rows.getResultSet()); //$NON-NLS-1$
+    		return rows.getRowCount();
+    	} catch (InvocationTargetException e) {
+    		if (e.getCause() instanceof SQLException) {
+    			throw (SQLException)e.getCause();
+    		}
+    		throw new TranslatorException(e.getCause());
+    	} catch (Exception e) {
+    		throw new TranslatorException(e);
+    	} finally {
+    		try {
+    			bulkCopyClass.getMethod("close").invoke(bulkCopy); //$NON-NLS-1$
+    		} catch (Exception e) {
+    			LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "Exception closing"); //$NON-NLS-1$
+    		}
+    	}
+    }
+    
 }
@@ -0,0 +1,47 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.core.util.ObjectConverterUtil;
+
+@SuppressWarnings("nls")
+public class TestDelimitedTextReader {
+
+	@Test public void testFormat() throws Exception {
+		List<List<?>> rows = Arrays.asList(Arrays.asList(1, "a\tb\\c", true), 
+				Arrays.asList(null, "x\ny", false), 
+				Arrays.asList(new BigDecimal("1E+3"), "", null));
+		DelimitedTextReader reader = new DelimitedTextReader(rows.iterator(), "t", "f", null);
+		String result = ObjectConverterUtil.convertToString(reader);
+		assertEquals("1\ta\\tb\\\\c\tt\n\\N\tx\\ny\tf\n1000\t\t\\N\n", result);
+		assertEquals(3, reader.getRowCount());
+	}
+	
+}
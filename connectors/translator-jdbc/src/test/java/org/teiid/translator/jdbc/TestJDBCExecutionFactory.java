@@ -28,6 +28,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Struct;
 import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
 
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -90,4 +91,14 @@ public class TestJDBCExecutionFactory {
 		Mockito.stub(rs.wasNull()).toReturn(true);
 		assertNull(jef.retrieveValue(rs, 1, TypeFacility.RUNTIME_TYPES.BOOLEAN));
 	}
+	
+	@Test public void testStopReadAheadExecutor() {
+		JDBCExecutionFactory jef = new JDBCExecutionFactory();
+		ExecutorService executor = (ExecutorService)jef.getReadAheadExecutor();
+		jef.stop();
+		assertTrue(executor.isShutdown());
+		//a new executor is created if the translator is used again
+		assertNotSame(executor, jef.getReadAheadExecutor());
+		jef.stop();
+	}
 }
@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.OngoingStubbing;
+import org.teiid.dqp.internal.datamgr.FakeExecutionContextImpl;
+import org.teiid.language.Command;
+import org.teiid.language.QueryExpression;
+import org.teiid.translator.DataNotAvailableException;
+
+@SuppressWarnings("nls")
+public class TestJDBCQueryExecution {
+
+	@Test(timeout=10000) public void testReadAhead() throws Exception {
+		Command command = TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select intkey from bqt1.smalla");
+		Connection connection = Mockito.mock(Connection.class);
+		Statement s = Mockito.mock(Statement.class);
+		PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+		ResultSet rs = Mockito.mock(ResultSet.class);
+		Mockito.stub(rs.next()).toReturn(true).toReturn(true).toReturn(true).toReturn(false);
+		Mockito.stub(rs.getInt(1)).toReturn(1).toReturn(2).toReturn(3);
+		Mockito.stub(s.executeQuery(Mockito.anyString())).toReturn(rs);
+		Mockito.stub(ps.executeQuery()).toReturn(rs);
+		Mockito.stub(connection.createStatement()).toReturn(s);
+		Mockito.stub(connection.prepareStatement(Mockito.anyString())).toReturn(ps);
+		
+		FakeExecutionContextImpl context = new FakeExecutionContextImpl();
+		context.setBatchSize(2);
+		JDBCExecutionFactory ef = new JDBCExecutionFactory();
+		ef.setReadAheadBatches(1);
+		ef.start();
+		JDBCQueryExecution execution = new JDBCQueryExecution(command, connection, context, ef);
+		execution.execute();
+		int rows = 0;
+		while (true) {
+			try {
+				List<?> row = execution.next();
+				if (row == null) {
+					break;
+				}
+				assertEquals(++rows, row.get(0));
+			} catch (DataNotAvailableException e) {
+				Thread.sleep(10);
+			}
+		}
+		assertEquals(3, rows);
+		execution.close();
+		Mockito.verify(rs).close();
+	}
+	
+	private static final String RANGE_DDL = "create foreign table t (id integer primary key, val string);";
+	
+	private static final String[] RANGE_SQL = new String[] {
+		"SELECT t.id FROM t WHERE t.val = 'a' AND (t.id < 30 OR t.id IS NULL)",
+		"SELECT t.id FROM t WHERE t.val = 'a' AND t.id >= 30 AND t.id < 60",
+		"SELECT t.id FROM t WHERE t.val = 'a' AND t.id >= 60",
+	};
+	
+	private JDBCQueryExecution helpCreateRangeExecution(Connection connection, Statement s, DataSource ds, long max) throws Exception {
+		Command command = TranslationHelper.helpTranslate(RANGE_DDL, "select id from t where val = 'a'");
+		ResultSet bounds = Mockito.mock(ResultSet.class);
+		Mockito.stub(bounds.next()).toReturn(true);
+		Mockito.stub(bounds.getLong(1)).toReturn(0l);
+		Mockito.stub(bounds.getLong(2)).toReturn(max);
+		Mockito.stub(s.executeQuery("SELECT MIN(t.id), MAX(t.id) FROM t")).toReturn(bounds);
+		Mockito.stub(connection.createStatement()).toReturn(s);
+		
+		FakeExecutionContextImpl context = new FakeExecutionContextImpl();
+		context.setBatchSize(2);
+		context.setConnectionFactory(ds);
+		JDBCExecutionFactory ef = new JDBCExecutionFactory();
+		ef.setReadAheadBatches(1);
+		ef.setParallelRangeScans(3);
+		ef.start();
+		return new JDBCQueryExecution(command, connection, context, ef);
+	}
+	
+	@Test public void testTranslateRanges() throws Exception {
+		JDBCQueryExecution execution = helpCreateRangeExecution(Mockito.mock(Connection.class), Mockito.mock(Statement.class), Mockito.mock(DataSource.class), 90);
+		List<TranslatedCommand> ranges = execution.translateRanges((QueryExpression)execution.command);
+		assertEquals(RANGE_SQL.length, ranges.size());
+		for (int i = 0; i < RANGE_SQL.length; i++) {
+			assertEquals(RANGE_SQL[i], ranges.get(i).getSql());
+		}
+		//the original criteria is restored
+		assertEquals("SELECT t.id FROM t WHERE t.val = 'a'", execution.translateCommand(execution.command).getSql());
+	}
+	
+	@Test public void testTranslateRangesNarrowKey() throws Exception {
+		//fewer keys than ranges
+		JDBCQueryExecution execution = helpCreateRangeExecution(Mockito.mock(Connection.class), Mockito.mock(Statement.class), Mockito.mock(DataSource.class), 1);
+		assertNull(execution.translateRanges((QueryExpression)execution.command));
+	}
+	
+	@Test(timeout=10000) public void testRangeScan() throws Exception {
+		Statement s = Mockito.mock(Statement.class);
+		Mockito.stub(s.executeQuery(RANGE_SQL[0])).toReturn(helpCreateResults(1, 2));
+		Connection rangeConnection = Mockito.mock(Connection.class);
+		DataSource ds = Mockito.mock(DataSource.class);
+		Mockito.stub(ds.getConnection()).toReturn(rangeConnection);
+		JDBCQueryExecution execution = helpCreateRangeExecution(Mockito.mock(Connection.class), s, ds, 90);
+		Statement rangeStatement = Mockito.mock(Statement.class);
+		Mockito.stub(rangeConnection.createStatement()).toReturn(rangeStatement);
+		Mockito.stub(rangeStatement.executeQuery(RANGE_SQL[1])).toReturn(helpCreateResults(31));
+		Mockito.stub(rangeStatement.executeQuery(RANGE_SQL[2])).toReturn(helpCreateResults(61, 62));
+		
+		execution.execute();
+		List<Integer> actual = new ArrayList<Integer>();
+		while (true) {
+			try {
+				List<?> row = execution.next();
+				if (row == null) {
+					break;
+				}
+				actual.add((Integer)row.get(0));
+			} catch (DataNotAvailableException e) {
+				Thread.sleep(10);
+			}
+		}
+		execution.close();
+		//the ranges are read concurrently, so only the combined rows are deterministic
+		Collections.sort(actual);
+		assertEquals(Arrays.asList(1, 2, 31, 61, 62), actual);
+		Mockito.verify(ds, Mockito.times(2)).getConnection();
+		Mockito.verify(rangeConnection, Mockito.times(2)).close();
+	}
+	
+	private ResultSet helpCreateResults(Integer... values) throws SQLException {
+		ResultSet rs = Mockito.mock(ResultSet.class);
+		OngoingStubbing<Boolean> next = Mockito.when(rs.next());
+		OngoingStubbing<Integer> value = Mockito.when(rs.getInt(1));
+		for (Integer i : values) {
+			next = next.thenReturn(true);
+			value = value.thenReturn(i);
+		}
+		next.thenReturn(false);
+		return rs;
+	}
+	
+}
@@ -28,9 +28,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
@@ -41,6 +43,8 @@ import org.teiid.language.Expression;
 import org.teiid.language.ExpressionValueSource;
 import org.teiid.language.Insert;
 import org.teiid.language.Parameter;
+import org.teiid.translator.ExecutionContext;
+import org.teiid.translator.TranslatorException;
 
 public class TestJDBCUpdateExecution {
 
@@ -127,4 +131,82 @@ public class TestJDBCUpdateExecution {
 		updateExecution.execute();
 		assertArrayEquals(new int[] {1, 1, 1, 1, 1, 1, 1, 1}, updateExecution.getUpdateCounts());
 	}
+
+	private static class BulkLoadExecutionFactory extends JDBCExecutionFactory {
+		long count;
+		List<List<?>> loaded = new ArrayList<List<?>>();
+		
+		@Override
+		public boolean supportsBulkLoad() {
+			return true;
+		}
+		
+		@Override
+		public long bulkLoad(Insert insert, Iterator<? extends List<?>> values,
+				ExecutionContext context, Connection connection) throws SQLException, TranslatorException {
+			if (count < 0) {
+				return count;
+			}
+			while (values.hasNext()) {
+				loaded.add(values.next());
+			}
+			return count;
+		}
+	}
+	
+	@Test public void testBulkLoad() throws Exception {
+		Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey, IntNum) values (1, 2)", Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4)).iterator()); //$NON-NLS-1$
+		Connection connection = Mockito.mock(Connection.class);
+		Mockito.stub(connection.getAutoCommit()).toReturn(true);
+		
+		BulkLoadExecutionFactory config = new BulkLoadExecutionFactory();
+		config.setUseBulkLoad(true);
+		config.count = 2;
+		
+		JDBCUpdateExecution updateExecution = new JDBCUpdateExecution(command, connection, new FakeExecutionContextImpl(), config);
+		updateExecution.execute();
+		assertArrayEquals(new int[] {2}, updateExecution.getUpdateCounts());
+		assertEquals(2, config.loaded.size());
+		Mockito.verify(connection).setAutoCommit(false);
+		Mockito.verify(connection).commit();
+		Mockito.verify(connection).setAutoCommit(true);
+		Mockito.verify(connection, Mockito.never()).prepareStatement(Mockito.anyString());
+	}
+	
+	@Test public void testBulkLoadFallback() throws Exception {
+		Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey, IntNum) values (1, 2)", Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4)).iterator()); //$NON-NLS-1$
+		Connection connection = Mockito.mock(Connection.class);
+		Mockito.stub(connection.getAutoCommit()).toReturn(true);
+		PreparedStatement p = Mockito.mock(PreparedStatement.class);
+		Mockito.stub(p.executeBatch()).toReturn(new int [] {1, 1});
+		Mockito.stub(connection.prepareStatement("INSERT INTO SmallA (IntKey, IntNum) VALUES (?, ?)")).toReturn(p); //$NON-NLS-1$
+		
+		BulkLoadExecutionFactory config = new BulkLoadExecutionFactory();
+		config.setUseBulkLoad(true);
+		config.count = -1;
+		
+		JDBCUpdateExecution updateExecution = new JDBCUpdateExecution(command, connection, new FakeExecutionContextImpl(), config);
+		updateExecution.execute();
+		Mockito.verify(p, Mockito.times(2)).addBatch();
+		assertArrayEquals(new int[] {1, 1}, updateExecution.getUpdateCounts());
+		//the auto commit is restored after the bulk load attempt and then managed for the batch
+		Mockito.verify(connection, Mockito.times(2)).setAutoCommit(false);
+		Mockito.verify(connection, Mockito.times(2)).setAutoCommit(true);
+	}
+	
+	@Test public void testBulkLoadNotEnabled() throws Exception {
+		Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey, IntNum) values (1, 2)", Arrays.asList(Arrays.asList(1, 2)).iterator()); //$NON-NLS-1$
+		Connection connection = Mockito.mock(Connection.class);
+		PreparedStatement p = Mockito.mock(PreparedStatement.class);
+		Mockito.stub(p.executeBatch()).toReturn(new int [] {1});
+		Mockito.stub(connection.prepareStatement("INSERT INTO SmallA (IntKey, IntNum) VALUES (?, ?)")).toReturn(p); //$NON-NLS-1$
+		
+		BulkLoadExecutionFactory config = new BulkLoadExecutionFactory();
+		config.count = 1;
+		
+		JDBCUpdateExecution updateExecution = new JDBCUpdateExecution(command, connection, new FakeExecutionContextImpl(), config);
+		updateExecution.execute();
+		assertTrue(config.loaded.isEmpty());
+		Mockito.verify(p).addBatch();
+	}
 }
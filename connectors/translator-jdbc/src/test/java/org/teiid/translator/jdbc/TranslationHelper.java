@@ -27,6 +27,7 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import javax.xml.stream.XMLStreamException;
@@ -40,6 +41,10 @@ import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidRuntimeException;
 import org.teiid.language.ColumnReference;
 import org.teiid.language.Command;
+import org.teiid.language.Expression;
+import org.teiid.language.ExpressionValueSource;
+import org.teiid.language.Insert;
+import org.teiid.language.Parameter;
 import org.teiid.metadata.FunctionMethod;
 import org.teiid.query.function.metadata.FunctionMetadataReader;
 import org.teiid.query.unittest.RealMetadataFactory;
@@ -132,5 +137,21 @@ public class TranslationHelper {
 		cols.add(new ColumnReference(null, "COL2", RealMetadataFactory.exampleBQTCached().getElementID("BQT1.SMALLA.STRINGKEY"), TypeFacility.RUNTIME_TYPES.STRING));
 		return transaltor.getCreateTempTableSQL("foo", cols, transactional);
 	}
+	
+	/**
+	 * Translate the single row insert into a multi-row insert of the given values
+	 */
+	public static Insert helpTranslateBulkInsert(String sql, Iterator<? extends List<?>> values) {
+		Insert command = (Insert)helpTranslate(BQT_VDB, sql);
+		List<Expression> exprs = ((ExpressionValueSource)command.getValueSource()).getValues();
+		for (int i = 0; i < exprs.size(); i++) {
+			Parameter param = new Parameter();
+			param.setType(exprs.get(i).getType());
+			param.setValueIndex(i);
+			exprs.set(i, param);
+		}
+		command.setParameterValues(values);
+		return command;
+	}
 
 }
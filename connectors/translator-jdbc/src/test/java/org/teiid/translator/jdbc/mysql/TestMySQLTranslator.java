@@ -24,11 +24,21 @@ package org.teiid.translator.jdbc.mysql;
 
 import static org.junit.Assert.*;
 
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.teiid.core.types.BlobType;
 import org.teiid.core.types.GeometryType;
+import org.teiid.core.util.ObjectConverterUtil;
+import org.teiid.dqp.internal.datamgr.FakeExecutionContextImpl;
+import org.teiid.language.Insert;
 import org.teiid.query.function.GeometryUtils;
 import org.teiid.translator.TranslatorException;
 import org.teiid.translator.jdbc.TranslationHelper;
@@ -414,4 +424,23 @@ public class TestMySQLTranslator {
             output, TRANSLATOR);
     }
 
+    public static abstract class LocalInfileStatement implements Statement {
+    	public abstract void setLocalInfileInputStream(InputStream stream);
+    }
+    
+    @Test public void testBulkLoad() throws Exception {
+    	Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey, StringKey) values (1, 'a')", //$NON-NLS-1$
+    			Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(2, null)).iterator()); //$NON-NLS-1$
+    	Connection connection = Mockito.mock(Connection.class);
+    	LocalInfileStatement statement = Mockito.mock(LocalInfileStatement.class);
+    	Mockito.stub(connection.createStatement()).toReturn(statement);
+    	Mockito.stub(statement.executeUpdate("LOAD DATA LOCAL INFILE 'teiid_bulk_load' INTO TABLE SmallA CHARACTER SET utf8 (IntKey, StringKey)")).toReturn(2); //$NON-NLS-1$
+    	
+    	assertEquals(2, TRANSLATOR.bulkLoad(command, command.getParameterValues(), new FakeExecutionContextImpl(), connection));
+    	ArgumentCaptor<InputStream> stream = ArgumentCaptor.forClass(InputStream.class);
+    	Mockito.verify(statement).setLocalInfileInputStream(stream.capture());
+    	assertEquals("1\ta\n2\t\\N\n", ObjectConverterUtil.convertToString(stream.getValue())); //$NON-NLS-1$
+    	Mockito.verify(statement).close();
+    }
+
 }
@@ -47,6 +47,7 @@ import org.teiid.dqp.internal.datamgr.FakeExecutionContextImpl;
 import org.teiid.language.Array;
 import org.teiid.language.Command;
 import org.teiid.language.Comparison;
+import org.teiid.language.Insert;
 import org.teiid.language.Literal;
 import org.teiid.language.Parameter;
 import org.teiid.language.Select;
@@ -1223,4 +1224,37 @@ public class TestOracleTranslator {
         String output = "INSERT INTO COLA_MARKETS (MKT_ID, NAME, SHAPE) SELECT COLA_MARKETS.MKT_ID, COLA_MARKETS.NAME, COLA_MARKETS.SHAPE FROM COLA_MARKETS"; //$NON-NLS-1$
         TranslationHelper.helpTestVisitor(TranslationHelper.BQT_VDB, input, output, TRANSLATOR);
     }
+    
+    @Test public void testBulkLoad() throws Exception {
+        Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey, StringKey) values (1, 'a')", //$NON-NLS-1$
+        		Arrays.asList(Arrays.asList(1, "a"), Arrays.asList(2, "b"), Arrays.asList(3, "c")).iterator()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        OracleExecutionFactory oef = new OracleExecutionFactory();
+        oef.setDatabaseVersion("11.2"); //$NON-NLS-1$
+        oef.setMaxPreparedInsertBatchSize(2);
+        oef.start();
+        assertTrue(oef.supportsBulkLoad());
+        Connection connection = Mockito.mock(Connection.class);
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        Mockito.stub(connection.prepareStatement("INSERT /*+ APPEND_VALUES */ INTO SmallA (IntKey, StringKey) VALUES (?, ?)")).toReturn(ps); //$NON-NLS-1$
+        
+        assertEquals(3, oef.bulkLoad(command, command.getParameterValues(), new FakeExecutionContextImpl(), connection));
+        Mockito.verify(ps, Mockito.times(3)).addBatch();
+        //each direct path batch must be committed before the next
+        Mockito.verify(ps, Mockito.times(2)).executeBatch();
+        Mockito.verify(connection, Mockito.times(2)).commit();
+    }
+    
+    @Test public void testBulkLoadTransactional() throws Exception {
+        Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey, StringKey) values (1, 'a')", //$NON-NLS-1$
+        		Arrays.asList(Arrays.asList(1, "a")).iterator()); //$NON-NLS-1$
+        OracleExecutionFactory oef = new OracleExecutionFactory();
+        oef.setDatabaseVersion("11.2"); //$NON-NLS-1$
+        oef.start();
+        ExecutionContext context = Mockito.mock(ExecutionContext.class);
+        Mockito.stub(context.isTransactional()).toReturn(true);
+        Connection connection = Mockito.mock(Connection.class);
+        
+        assertEquals(-1, oef.bulkLoad(command, command.getParameterValues(), context, connection));
+        Mockito.verifyZeroInteractions(connection);
+    }
 }
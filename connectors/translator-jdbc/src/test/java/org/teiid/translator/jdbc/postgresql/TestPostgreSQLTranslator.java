@@ -24,8 +24,17 @@ package org.teiid.translator.jdbc.postgresql;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.Arrays;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.teiid.core.util.ObjectConverterUtil;
+import org.teiid.dqp.internal.datamgr.FakeExecutionContextImpl;
+import org.teiid.language.Insert;
 import org.teiid.translator.SourceSystemFunctions;
 import org.teiid.translator.TranslatorException;
 import org.teiid.translator.jdbc.TranslationHelper;
@@ -597,5 +606,41 @@ public class TestPostgreSQLTranslator {
             input, 
             output);
     }
+    
+    public static abstract class CopyConnection implements Connection {
+    	public abstract CopyManager getCopyAPI();
+    }
+    
+    public static class CopyManager {
+    	String sql;
+    	String data;
+    	
+    	public long copyIn(String sql, Reader reader) throws IOException {
+    		this.sql = sql;
+    		this.data = ObjectConverterUtil.convertToString(reader);
+    		return data.split("\n").length;
+    	}
+    }
+    
+    @Test public void testBulkLoad() throws Exception {
+    	Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey, StringKey, BooleanValue) values (1, 'a', true)", 
+    			Arrays.asList(Arrays.asList(1, "a\tb", true), Arrays.asList(2, null, false)).iterator());
+    	CopyManager copyManager = new CopyManager();
+    	CopyConnection connection = Mockito.mock(CopyConnection.class);
+    	Mockito.stub(connection.getCopyAPI()).toReturn(copyManager);
+    	
+    	assertEquals(2, TRANSLATOR.bulkLoad(command, command.getParameterValues(), new FakeExecutionContextImpl(), connection));
+    	assertEquals("COPY SmallA (IntKey, StringKey, BooleanValue) FROM STDIN", copyManager.sql);
+    	assertEquals("1\ta\\tb\tt\n2\t\\N\tf\n", copyManager.data);
+    }
+    
+    @Test public void testBulkLoadWithoutCopy() throws Exception {
+    	Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey) values (1)", 
+    			Arrays.asList(Arrays.asList(1)).iterator());
+    	Connection connection = Mockito.mock(Connection.class);
+    	
+    	assertEquals(-1, TRANSLATOR.bulkLoad(command, command.getParameterValues(), new FakeExecutionContextImpl(), connection));
+    	assertTrue(command.getParameterValues().hasNext());
+    }
     
 }
@@ -24,15 +24,20 @@ package org.teiid.translator.jdbc.sqlserver;
 
 import static org.junit.Assert.*;
 
+import java.sql.Connection;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.Mockito;
 import org.teiid.cdk.CommandBuilder;
 import org.teiid.cdk.api.TranslationUtility;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.dqp.internal.datamgr.FakeExecutionContextImpl;
 import org.teiid.language.Command;
+import org.teiid.language.Insert;
 import org.teiid.metadata.Column;
 import org.teiid.metadata.MetadataStore;
 import org.teiid.metadata.Schema;
@@ -270,5 +275,13 @@ public class TestSqlServerConversionVisitor {
     	assertFalse(trans.supportsConvert(TypeFacility.RUNTIME_CODES.OBJECT, TypeFacility.RUNTIME_CODES.CLOB));
     	assertTrue(trans.supportsConvert(TypeFacility.RUNTIME_CODES.TIMESTAMP, TypeFacility.RUNTIME_CODES.TIME));
     }
+    
+    @Test public void testBulkLoadWithoutBulkCopy() throws Exception {
+    	Insert command = TranslationHelper.helpTranslateBulkInsert("insert into BQT1.SmallA (IntKey) values (1)", Arrays.asList(Arrays.asList(1)).iterator()); //$NON-NLS-1$
+    	Connection connection = Mockito.mock(Connection.class);
+    	
+    	assertEquals(-1, trans.bulkLoad(command, command.getParameterValues(), new FakeExecutionContextImpl(), connection));
+    	assertTrue(command.getParameterValues().hasNext());
+    }
        
 }
@@ -57,6 +57,14 @@ public class MergePlanner {
         this.mergeProcessing.add(node);
     }
     
+    public void addNode(LookupNode node) {
+        this.mergeProcessing.add(node);
+    }
+    
+    public void addNode(NotNullNode node) {
+        this.mergeProcessing.add(node);
+    }
+    
     public void addNode(ProjectionNode node, String alias) {
         for (ProcessingNode pn: this.mergeProcessing) {
             if (pn instanceof ProjectionNode) {
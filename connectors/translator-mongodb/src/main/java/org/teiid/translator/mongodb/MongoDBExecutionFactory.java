@@ -55,6 +55,7 @@ public class MongoDBExecutionFactory extends ExecutionFactory<ConnectionFactory,
 	private static final String MONGO = "mongo"; //$NON-NLS-1$
 	public static final Version TWO_4 = Version.getVersion("2.4"); //$NON-NLS-1$
     public static final Version TWO_6 = Version.getVersion("2.6"); //$NON-NLS-1$
+    public static final Version THREE_2 = Version.getVersion("3.2"); //$NON-NLS-1$
     
     public static final String FUNC_GEO_WITHIN = "geoWithin"; //$NON-NLS-1$
 	public static final String FUNC_GEO_INTERSECTS = "geoIntersects"; //$NON-NLS-1$
@@ -69,6 +70,7 @@ public class MongoDBExecutionFactory extends ExecutionFactory<ConnectionFactory,
 	protected Map<String, FunctionModifier> functionModifiers = new TreeMap<String, FunctionModifier>(String.CASE_INSENSITIVE_ORDER);
 	private Version version = TWO_4;
 	private boolean useDisk = true;
+	private int cursorBatchSize = 0;
 	private boolean supportsAggregatesCount = true;
 	
 	public MongoDBExecutionFactory() {
@@ -215,6 +217,15 @@ public class MongoDBExecutionFactory extends ExecutionFactory<ConnectionFactory,
         this.useDisk = useDisk;
     }
     
+    @TranslatorProperty(display="Cursor Batch Size", description="Number of documents returned in each batch of an aggregation cursor, 0 uses the engine batch size",advanced=true)
+    public int getCursorBatchSize() {
+        return this.cursorBatchSize;
+    }
+
+    public void setCursorBatchSize(int cursorBatchSize) {
+        this.cursorBatchSize = cursorBatchSize;
+    }
+    
     /**
      * Sets the database version.  See also {@link #getVersion()}
      * @param version
@@ -604,7 +615,11 @@ public class MongoDBExecutionFactory extends ExecutionFactory<ConnectionFactory,
 	}
 	
 	public AggregationOptions getOptions(int batchSize) {
-	    if (this.version.equals(TWO_6)) {
+	    if (this.cursorBatchSize > 0) {
+	        batchSize = this.cursorBatchSize;
+	    }
+	    // from 2.6 results are streamed through a cursor rather than returned as a single document
+	    if (this.version.compareTo(TWO_6) >= 0) {
             return AggregationOptions.builder().batchSize(batchSize).outputMode(AggregationOptions.OutputMode.CURSOR)
                     .allowDiskUse(useDisk()).build();
 	    }
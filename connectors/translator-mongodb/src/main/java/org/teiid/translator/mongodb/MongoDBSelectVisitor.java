@@ -65,6 +65,7 @@ public class MongoDBSelectVisitor extends HierarchyVisitor {
 	protected MergePlanner mergePlanner = new MergePlanner();
 	protected ArrayList<Condition> pendingConditions = new ArrayList<Condition>();
 	protected LinkedList<MongoDocument> joinedDocuments = new LinkedList<MongoDocument>();
+	protected HashSet<MongoDocument> lookupDocuments = new HashSet<MongoDocument>();
 	private boolean processingDerivedColumn = false;
 
 	public MongoDBSelectVisitor(MongoDBExecutionFactory executionFactory, RuntimeMetadata metadata) {
@@ -232,8 +233,12 @@ public class MongoDBSelectVisitor extends HierarchyVisitor {
         String columnName = obj.getMetadataObject().getName();
         String documentFieldName = obj.getMetadataObject().getName();
 
+        // column is on a collection joined through $lookup
+        if (this.lookupDocuments.contains(columnDocument)) {
+            documentFieldName = columnDocument.getDocumentName() + "." + columnDocument.getColumnName(columnName); //$NON-NLS-1$
+        }
         // column is on the same collection
-        if (columnDocument.equals(targetDocument)) {
+        else if (columnDocument.equals(targetDocument)) {
             documentFieldName = columnDocument.getColumnName(columnName);
         }
         else if (targetDocument.embeds(columnDocument)){
@@ -400,17 +405,17 @@ public class MongoDBSelectVisitor extends HierarchyVisitor {
 			if (obj.getLeftItem() instanceof Join) {
 				append(obj.getLeftItem());
 				Table right = ((NamedTable)obj.getRightItem()).getMetadataObject();
-				processJoin(this.mongoDoc, new MongoDocument(right, this.metadata), obj.getCondition(), obj.getJoinType());
+				processJoin(this.mongoDoc, new MongoDocument(right, this.metadata), obj.getCondition(), obj.getJoinType(), false);
 			}
 			else if (obj.getRightItem() instanceof Join) {
 				Table left = ((NamedTable)obj.getLeftItem()).getMetadataObject();
 				append(obj.getRightItem());
-				processJoin(this.mongoDoc, new MongoDocument(left, this.metadata), obj.getCondition(), obj.getJoinType());
+				processJoin(this.mongoDoc, new MongoDocument(left, this.metadata), obj.getCondition(), obj.getJoinType(), true);
 			}
 			else {
 				Table left = ((NamedTable)obj.getLeftItem()).getMetadataObject();
 				Table right = ((NamedTable)obj.getRightItem()).getMetadataObject();
-				processJoin(new MongoDocument(left, this.metadata), new MongoDocument(right, this.metadata), obj.getCondition(), obj.getJoinType());
+				processJoin(new MongoDocument(left, this.metadata), new MongoDocument(right, this.metadata), obj.getCondition(), obj.getJoinType(), false);
 			}
 		} catch (TranslatorException e) {
 			this.exceptions.add(e);
@@ -435,7 +440,15 @@ public class MongoDBSelectVisitor extends HierarchyVisitor {
 		}
 	}
 
-	private void processJoin(MongoDocument left, MongoDocument right, Condition cond, JoinType joinType) throws TranslatorException {
+	/**
+	 * @param swapped true if the right document is the left side of the join
+	 */
+	private void processJoin(MongoDocument left, MongoDocument right, Condition cond, JoinType joinType, boolean swapped) throws TranslatorException {
+		if (!isRelated(left, right) && canLookup(left, right, cond, joinType, swapped)) {
+			processLookup(left, right, (Comparison)cond, joinType);
+			return;
+		}
+
 		// now adjust for the left/right outer depending upon who is the outer document
 		JoinCriteriaVisitor jcv = new JoinCriteriaVisitor(joinType, left, right, this.mergePlanner);
 		jcv.process(cond);
@@ -454,7 +467,7 @@ public class MongoDBSelectVisitor extends HierarchyVisitor {
 			if (this.mongoDoc != null) {
 				// this is for nested grand kids
 				for (MongoDocument child:this.joinedDocuments) {
-					if (child.contains(right)) {
+					if (!this.lookupDocuments.contains(child) && child.contains(right)) {
 						this.joinedDocuments.add(right);
 						configureUnwind(right);
 						return;
@@ -469,6 +482,90 @@ public class MongoDBSelectVisitor extends HierarchyVisitor {
         }
 	}
 
+	private boolean isRelated(MongoDocument left, MongoDocument right) throws TranslatorException {
+		if (left.contains(right) || right.contains(left)) {
+			return true;
+		}
+		for (MongoDocument child:this.joinedDocuments) {
+			if (!this.lookupDocuments.contains(child) && child.contains(right)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Documents of different collections can be joined with "$lookup" from MongoDB 3.2, when
+	 * the join is an equality on a single column of each side. The right document must be
+	 * the inner side of the join.
+	 * <br>
+	 * "$lookup" matches a missing or null local key with the foreign documents without a key value.
+	 * An inner join removes those documents first, but an outer join must keep them, so it is
+	 * only used when the foreign key can not be null.
+	 */
+	private boolean canLookup(MongoDocument left, MongoDocument right, Condition cond, JoinType joinType, boolean swapped) {
+		if (this.executionFactory.getVersion().compareTo(MongoDBExecutionFactory.THREE_2) < 0) {
+			return false;
+		}
+		if (!joinType.equals(JoinType.INNER_JOIN) && !(joinType.equals(JoinType.LEFT_OUTER_JOIN) && !swapped)) {
+			return false;
+		}
+		if (right.isMerged() || right.equals(left) || right.equals(this.mongoDoc) || this.joinedDocuments.contains(right)) {
+			return false;
+		}
+		if (!(cond instanceof Comparison) || ((Comparison)cond).getOperator() != Comparison.Operator.EQ) {
+			return false;
+		}
+		Comparison comparison = (Comparison)cond;
+		if (!(comparison.getLeftExpression() instanceof ColumnReference) || !(comparison.getRightExpression() instanceof ColumnReference)) {
+			return false;
+		}
+		ColumnReference leftColumn = (ColumnReference)comparison.getLeftExpression();
+		ColumnReference rightColumn = (ColumnReference)comparison.getRightExpression();
+		boolean leftIsInner = isColumnOf(leftColumn, right);
+		if (leftIsInner == isColumnOf(rightColumn, right)) {
+			return false;
+		}
+		if (joinType.equals(JoinType.LEFT_OUTER_JOIN)) {
+			Column foreignColumn = (leftIsInner?leftColumn:rightColumn).getMetadataObject();
+			return foreignColumn.getNullType() == BaseColumn.NullType.No_Nulls || isPartOfPrimaryKey(right.getTable(), getRecordName(foreignColumn));
+		}
+		return true;
+	}
+
+	private boolean isColumnOf(ColumnReference column, MongoDocument document) {
+		return column.getTable().getMetadataObject().getName().equals(document.getTable().getName());
+	}
+
+	private void processLookup(MongoDocument left, MongoDocument right, Comparison cond, JoinType joinType) throws TranslatorException {
+		if (this.mongoDoc == null) {
+			this.mongoDoc = left;
+			configureUnwind(left);
+		}
+		ColumnReference localColumn = (ColumnReference)cond.getLeftExpression();
+		ColumnReference foreignColumn = (ColumnReference)cond.getRightExpression();
+		if (isColumnOf(localColumn, right)) {
+			localColumn = (ColumnReference)cond.getRightExpression();
+			foreignColumn = (ColumnReference)cond.getLeftExpression();
+		}
+		if (getDocument(localColumn.getTable().getMetadataObject()) == null) {
+			throw new TranslatorException(MongoDBPlugin.Util.gs(MongoDBPlugin.Event.TEIID18012, left.getTable().getName(), right.getTable().getName()));
+		}
+		String localField = buildColumnDetail(localColumn).documentFieldName;
+
+		right.setAlias("__LK_"+right.getTable().getName()); //$NON-NLS-1$
+		this.joinedDocuments.add(right);
+		this.lookupDocuments.add(right);
+		String foreignField = right.getColumnName(foreignColumn.getMetadataObject().getName());
+
+		if (joinType.equals(JoinType.INNER_JOIN) && !localField.equals("_id")) { //$NON-NLS-1$
+			this.mergePlanner.addNode(new NotNullNode(right, localField));
+		}
+		this.mergePlanner.addNode(new LookupNode(right, localField, foreignField));
+		// the lookup produces an array of the matching documents
+		this.mergePlanner.addNode(new UnwindNode(right, joinType.equals(JoinType.LEFT_OUTER_JOIN)));
+	}
+
 	@Override
     public void visit(Select obj) {
 
@@ -0,0 +1,48 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.translator.mongodb;
+
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.translator.TranslatorException;
+
+import com.mongodb.BasicDBObject;
+
+/**
+ * Removes the documents where the join key used to "$lookup" a table is missing or null,
+ * since "$lookup" would match them with the foreign documents without a key value.
+ */
+public class NotNullNode extends ProcessingNode {
+    private String field;
+
+    public NotNullNode(MongoDocument document, String field) {
+        super(document);
+        this.field = field;
+    }
+
+    @Override
+    public BasicDBObject getInstruction() throws TranslatorException {
+        BasicDBObject object = new BasicDBObject(this.field, new BasicDBObject("$ne", null)); //$NON-NLS-1$
+        LogManager.logDetail(LogConstants.CTX_CONNECTOR, "{\"$match\": "+object+"}"); //$NON-NLS-1$ //$NON-NLS-2$
+        return new BasicDBObject("$match", object); //$NON-NLS-1$
+    }
+}
@@ -28,13 +28,29 @@ import org.teiid.translator.TranslatorException;
 import com.mongodb.BasicDBObject;
 
 public class UnwindNode extends ProcessingNode {
+    private boolean preserveNullAndEmptyArrays;
     
     public UnwindNode(MongoDocument document) {
         super(document);
     }
     
+    /**
+     * @param preserveNullAndEmptyArrays true to keep the documents without a value, which 
+     * requires MongoDB 3.2
+     */
+    public UnwindNode(MongoDocument document, boolean preserveNullAndEmptyArrays) {
+        super(document);
+        this.preserveNullAndEmptyArrays = preserveNullAndEmptyArrays;
+    }
+    
     @Override
     public BasicDBObject getInstruction() throws TranslatorException {
+        if (this.preserveNullAndEmptyArrays) {
+            BasicDBObject unwind = new BasicDBObject("path", "$"+getDocumentName()); //$NON-NLS-1$ //$NON-NLS-2$
+            unwind.append("preserveNullAndEmptyArrays", true); //$NON-NLS-1$
+            LogManager.logDetail(LogConstants.CTX_CONNECTOR, "{\"$unwind\": "+unwind+"}"); //$NON-NLS-1$ //$NON-NLS-2$
+            return new BasicDBObject("$unwind", unwind); //$NON-NLS-1$
+        }
         LogManager.logDetail(LogConstants.CTX_CONNECTOR, "{\"$unwind\": {$"+getDocumentName()+"}}"); //$NON-NLS-1$ //$NON-NLS-2$
         return new BasicDBObject("$unwind", "$"+getDocumentName()); //$NON-NLS-1$ //$NON-NLS-2$
     }
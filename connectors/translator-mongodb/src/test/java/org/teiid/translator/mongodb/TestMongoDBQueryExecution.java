@@ -1467,4 +1467,73 @@ public class TestMongoDBQueryExecution {
                         new BasicDBObject("$project", result));
         Mockito.verify(dbCollection).aggregate(Mockito.eq(pipeline), Mockito.any(AggregationOptions.class));
     }
+
+    @Test
+    public void testLookupJoin() throws Exception {
+        this.translator.setDatabaseVersion("3.2");
+        String query = "SELECT o.OrderID, c.CompanyName FROM Orders o JOIN Customers c ON o.CustomerID = c.CustomerID";
+
+        DBCollection dbCollection = helpExecute(query, new String[]{"Orders"}, 4);
+
+        BasicDBObject lookup = new BasicDBObject();
+        lookup.append("from", "Customers");
+        lookup.append("localField", "CustomerID");
+        lookup.append("foreignField", "_id");
+        lookup.append("as", "__LK_Customers");
+
+        BasicDBObject result = new BasicDBObject();
+        result.append( "_m0","$_id");
+        result.append( "_m1","$__LK_Customers.CompanyName");
+
+        List<DBObject> pipeline = buildArray(
+                        new BasicDBObject("$match", new BasicDBObject("CustomerID", new BasicDBObject("$ne", null))),
+                        new BasicDBObject("$lookup", lookup),
+                        new BasicDBObject("$unwind", "$__LK_Customers"),
+                        new BasicDBObject("$project", result));
+        Mockito.verify(dbCollection).aggregate(Mockito.eq(pipeline), Mockito.any(AggregationOptions.class));
+    }
+
+    @Test
+    public void testLookupLeftOuterJoin() throws Exception {
+        this.translator.setDatabaseVersion("3.2");
+        String query = "SELECT o.OrderID, c.CompanyName FROM Orders o LEFT OUTER JOIN Customers c ON o.CustomerID = c.CustomerID";
+
+        DBCollection dbCollection = helpExecute(query, new String[]{"Orders"}, 3);
+
+        BasicDBObject lookup = new BasicDBObject();
+        lookup.append("from", "Customers");
+        lookup.append("localField", "CustomerID");
+        lookup.append("foreignField", "_id");
+        lookup.append("as", "__LK_Customers");
+
+        BasicDBObject unwind = new BasicDBObject();
+        unwind.append("path", "$__LK_Customers");
+        unwind.append("preserveNullAndEmptyArrays", true);
+
+        BasicDBObject result = new BasicDBObject();
+        result.append( "_m0","$_id");
+        result.append( "_m1","$__LK_Customers.CompanyName");
+
+        // a null CustomerID can not match a Customers _id, so no null key handling is needed
+        List<DBObject> pipeline = buildArray(
+                        new BasicDBObject("$lookup", lookup),
+                        new BasicDBObject("$unwind", unwind),
+                        new BasicDBObject("$project", result));
+        Mockito.verify(dbCollection).aggregate(Mockito.eq(pipeline), Mockito.any(AggregationOptions.class));
+    }
+
+    @Test(expected=TranslatorException.class)
+    public void testLookupLeftOuterJoinNullableKey() throws Exception {
+        this.translator.setDatabaseVersion("3.2");
+        // a null CustomerID would match the Customers without orders
+        String query = "SELECT c.CompanyName, o.OrderID FROM Customers c LEFT OUTER JOIN Orders o ON c.CustomerID = o.CustomerID";
+        helpExecute(query, new String[]{"Customers"}, 3);
+    }
+
+    @Test(expected=TranslatorException.class)
+    public void testLookupJoinBefore32() throws Exception {
+        this.translator.setDatabaseVersion("3.0");
+        String query = "SELECT o.OrderID, c.CompanyName FROM Orders o JOIN Customers c ON o.CustomerID = c.CustomerID";
+        helpExecute(query, new String[]{"Orders"}, 3);
+    }
 }
@@ -26,9 +26,12 @@ import static org.teiid.translator.TypeFacility.RUNTIME_NAMES.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import javax.resource.cci.ConnectionFactory;
 
+import org.teiid.core.util.ExecutorUtils;
 import org.teiid.language.Argument;
 import org.teiid.language.Call;
 import org.teiid.language.Command;
@@ -62,6 +65,10 @@ public class SalesForceExecutionFactory extends ExecutionFactory<ConnectionFacto
 	private static final String INCLUDES = "includes";//$NON-NLS-1$
 	private boolean auditModelFields = false;
 	private int maxInsertBatchSize = 2048;
+	private int bulkQueryRowThreshold = -1;
+	private int bulkQueryChunkSize = 100000;
+	private int bulkQueryThreads = 4;
+	private ExecutorService bulkQueryExecutor;
 	
 	public SalesForceExecutionFactory() {
 	    // http://jira.jboss.org/jira/browse/JBEDSP-306
@@ -88,12 +95,21 @@ public class SalesForceExecutionFactory extends ExecutionFactory<ConnectionFacto
 		addPushDownFunction(SALESFORCE, EXCLUDES, BOOLEAN, STRING, STRING);
 		LogManager.logTrace(LogConstants.CTX_CONNECTOR, "Salesforce ExecutionFactory Started"); //$NON-NLS-1$
 	}
+	
+	@Override
+	public synchronized void stop() {
+		super.stop();
+		if (this.bulkQueryExecutor != null) {
+			this.bulkQueryExecutor.shutdown();
+			this.bulkQueryExecutor = null;
+		}
+	}
 
 
 	@Override
 	public ResultSetExecution createResultSetExecution(QueryExpression command, ExecutionContext executionContext, RuntimeMetadata metadata, SalesforceConnection connection)
 			throws TranslatorException {
-		return new QueryExecutionImpl(command, connection, metadata, executionContext);
+		return new QueryExecutionImpl(this, command, connection, metadata, executionContext);
 	}
 	
 	@Override
@@ -259,4 +275,46 @@ public class SalesForceExecutionFactory extends ExecutionFactory<ConnectionFacto
     	}
 		this.maxInsertBatchSize = maxInsertBatchSize;
 	}
+    
+    @TranslatorProperty(display="Bulk Query Row Threshold", description="The table cardinality at or above which a query is executed as a Bulk API query job rather than with query/queryMore.  0 uses the Bulk API for all eligible queries.  Default -1, which disables bulk queries.", advanced=true)
+    public int getBulkQueryRowThreshold() {
+		return bulkQueryRowThreshold;
+	}
+    
+    public void setBulkQueryRowThreshold(int bulkQueryRowThreshold) {
+		this.bulkQueryRowThreshold = bulkQueryRowThreshold;
+	}
+    
+    @TranslatorProperty(display="Bulk Query Chunk Size", description="The number of records per batch requested with PK chunking for bulk queries.  0 disables PK chunking.  Default 100000.", advanced=true)
+    public int getBulkQueryChunkSize() {
+		return bulkQueryChunkSize;
+	}
+    
+    public void setBulkQueryChunkSize(int bulkQueryChunkSize) {
+		this.bulkQueryChunkSize = bulkQueryChunkSize;
+	}
+    
+    @TranslatorProperty(display="Bulk Query Threads", description="The number of threads shared by all bulk queries to download result batches in parallel.  Default 4.", advanced=true)
+    public int getBulkQueryThreads() {
+		return bulkQueryThreads;
+	}
+    
+    public void setBulkQueryThreads(int bulkQueryThreads) {
+    	if (bulkQueryThreads < 1) {
+    		throw new AssertionError("Bulk query threads must be greater than 0"); //$NON-NLS-1$
+    	}
+		this.bulkQueryThreads = bulkQueryThreads;
+	}
+    
+	/**
+	 * Get the {@link Executor} used to download bulk query results.  
+	 * The threads are shared by all executions of this translator.
+	 * @return the executor
+	 */
+    public synchronized Executor getBulkQueryExecutor() {
+    	if (bulkQueryExecutor == null) {
+    		bulkQueryExecutor = ExecutorUtils.newFixedThreadPool(bulkQueryThreads, "Salesforce Bulk Query"); //$NON-NLS-1$
+    	}
+    	return bulkQueryExecutor;
+    }
 }
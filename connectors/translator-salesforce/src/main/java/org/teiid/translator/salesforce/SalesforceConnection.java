@@ -21,6 +21,7 @@
  */
 package org.teiid.translator.salesforce;
 
+import java.io.InputStream;
 import java.util.Calendar;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import org.teiid.translator.salesforce.execution.DataPayload;
 import org.teiid.translator.salesforce.execution.DeletedResult;
 import org.teiid.translator.salesforce.execution.UpdatedResult;
 
+import com.sforce.async.BatchInfo;
 import com.sforce.async.BatchResult;
 import com.sforce.async.JobInfo;
 import com.sforce.async.SObject;
@@ -72,5 +74,25 @@ public interface SalesforceConnection extends Connection {
 			throws ResourceException;
 
 	JobInfo createBulkJob(String objectName) throws ResourceException;
+	
+	/**
+	 * Create and close a Bulk API query job for the given SOQL query.
+	 * @param pkChunkSize if greater than 0 the job will request primary key chunking 
+	 * so that the results are split into batches of at most that many records
+	 */
+	JobInfo createBulkQueryJob(String objectName, String query, int pkChunkSize) throws ResourceException;
+	
+	/**
+	 * Get the batches of a bulk query job that have results.  
+	 * @throws org.teiid.translator.DataNotAvailableException if the job is still processing 
+	 */
+	List<BatchInfo> getBulkQueryBatches(JobInfo job) throws ResourceException;
+	
+	List<String> getBulkQueryResultIds(JobInfo job, String batchId) throws ResourceException;
+	
+	/**
+	 * Get the CSV results for the given result id.  The caller is responsible for closing the stream.
+	 */
+	InputStream getBulkQueryResults(JobInfo job, String batchId, String resultId) throws ResourceException;
 
 }
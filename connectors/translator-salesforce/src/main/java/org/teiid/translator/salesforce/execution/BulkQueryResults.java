@@ -0,0 +1,332 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.salesforce.execution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.metadata.Column;
+import org.teiid.translator.DataNotAvailableException;
+import org.teiid.translator.ExecutionContext;
+import org.teiid.translator.TranslatorException;
+import org.teiid.translator.salesforce.SalesForcePlugin;
+import org.teiid.translator.salesforce.SalesforceConnection;
+
+import com.sforce.async.CSVReader;
+import com.sforce.async.JobInfo;
+
+/**
+ * Downloads the CSV results of a Bulk API query job on separate threads, one task
+ * per job batch, so that the batches created by PK chunking are read in parallel.
+ * <br>
+ * A task stops once the ready batches are full and is restarted by the consumer
+ * as batches are taken, so that a slow consumer does not hold a thread.
+ */
+class BulkQueryResults {
+
+	/**
+	 * The body returned instead of a CSV header when a batch has no rows.
+	 */
+	static final String NO_RECORDS = "Records not found for this query"; //$NON-NLS-1$
+
+	private static class Source {
+		String batchId;
+		List<String> resultIds;
+		int resultIndex;
+		InputStream stream;
+		CSVReader reader;
+		int[] columnIndexes;
+		Calendar cal = Calendar.getInstance();
+		boolean running;
+		boolean done;
+
+		Source(String batchId) {
+			this.batchId = batchId;
+		}
+
+		synchronized void closeStream() {
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "Exception closing bulk query results"); //$NON-NLS-1$
+				}
+				stream = null;
+			}
+			reader = null;
+		}
+	}
+
+	private SalesforceConnection connection;
+	private ExecutionContext context;
+	private Executor executor;
+	private JobInfo job;
+	private Column[] columns;
+	private int batchSize;
+	private int maxBatches;
+	private List<Source> sources = new ArrayList<Source>();
+
+	private LinkedList<List<List<?>>> ready = new LinkedList<List<List<?>>>();
+	private int remaining;
+	private int running;
+	private Throwable failure;
+	private boolean closed;
+
+	private List<List<?>> current;
+	private int index;
+
+	BulkQueryResults(SalesforceConnection connection, ExecutionContext context, Executor executor, int maxBatches, JobInfo job, Column[] columns, List<String> batchIds) {
+		this.connection = connection;
+		this.context = context;
+		this.executor = executor;
+		this.job = job;
+		this.columns = columns;
+		this.batchSize = Math.max(1, context.getBatchSize());
+		this.maxBatches = Math.max(1, maxBatches);
+		for (String batchId : batchIds) {
+			this.sources.add(new Source(batchId));
+		}
+		this.remaining = sources.size();
+	}
+
+	synchronized void start() {
+		for (Source source : sources) {
+			schedule(source);
+		}
+	}
+
+	private void schedule(final Source source) {
+		source.running = true;
+		running++;
+		this.executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				read(source);
+			}
+		});
+	}
+
+	private void read(Source source) {
+		boolean notify = false;
+		Throwable t = null;
+		try {
+			while (true) {
+				synchronized (this) {
+					if (closed || ready.size() >= maxBatches) {
+						break;
+					}
+				}
+				List<List<?>> batch = new ArrayList<List<?>>(batchSize);
+				List<String> record = null;
+				while (batch.size() < batchSize && (record = nextRecord(source)) != null) {
+					batch.add(getRow(source, record));
+				}
+				boolean end = record == null;
+				synchronized (this) {
+					if (!batch.isEmpty()) {
+						notify |= ready.isEmpty();
+						ready.add(batch);
+					}
+					source.done = end;
+				}
+				if (notify) {
+					notify = false;
+					context.dataAvailable();
+				}
+				if (end) {
+					break;
+				}
+			}
+		} catch (Throwable e) {
+			t = e;
+		} finally {
+			synchronized (this) {
+				source.running = false;
+				running--;
+				if (t != null) {
+					if (closed) {
+						LogManager.logDetail(LogConstants.CTX_CONNECTOR, t, "Exception reading bulk query results after close"); //$NON-NLS-1$
+					} else if (failure == null) {
+						failure = t;
+					}
+				}
+				if (source.done) {
+					remaining--;
+				}
+				notify = t != null || source.done;
+				notifyAll();
+			}
+			if (notify) {
+				context.dataAvailable();
+			}
+		}
+	}
+
+	/**
+	 * Get the next CSV record of the source, moving through its result ids as needed.
+	 * @return the record or null if the source is exhausted
+	 */
+	private List<String> nextRecord(Source source) throws Exception {
+		while (true) {
+			if (source.reader == null) {
+				if (source.resultIds == null) {
+					source.resultIds = this.connection.getBulkQueryResultIds(this.job, source.batchId);
+				}
+				if (source.resultIndex >= source.resultIds.size()) {
+					return null;
+				}
+				InputStream stream = this.connection.getBulkQueryResults(this.job, source.batchId, source.resultIds.get(source.resultIndex++));
+				synchronized (source) {
+					source.stream = stream;
+					source.reader = new CSVReader(stream);
+				}
+				List<String> header = source.reader.nextRecord();
+				if (header == null || (header.size() == 1 && NO_RECORDS.equals(header.get(0)))) {
+					source.closeStream();
+					continue;
+				}
+				source.columnIndexes = getColumnIndexes(header);
+			}
+			List<String> record = source.reader.nextRecord();
+			if (record != null) {
+				return record;
+			}
+			source.closeStream();
+		}
+	}
+
+	private int[] getColumnIndexes(List<String> header) throws TranslatorException {
+		int[] result = new int[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			result[i] = -1;
+			String name = columns[i].getSourceName();
+			//the select visitor qualifies the fields, which may be echoed in the header
+			String qualifiedName = columns[i].getParent().getSourceName() + '.' + name;
+			for (int j = 0; j < header.size(); j++) {
+				String field = header.get(j);
+				if (name.equalsIgnoreCase(field) || qualifiedName.equalsIgnoreCase(field)) {
+					result[i] = j;
+					break;
+				}
+			}
+			if (result[i] == -1) {
+				throw new TranslatorException(SalesForcePlugin.Util.getString("SalesforceQueryExecutionImpl.missing.field") + columns[i].getSourceName()); //$NON-NLS-1$
+			}
+		}
+		return result;
+	}
+
+	private List<?> getRow(Source source, List<String> record) throws TranslatorException {
+		List<Object> row = new ArrayList<Object>(columns.length);
+		for (int i = 0; i < columns.length; i++) {
+			String value = record.get(source.columnIndexes[i]);
+			Class<?> type = columns[i].getJavaType();
+			//the csv has no distinct null value, so treat empty as null as the soap results do
+			if (value == null || value.isEmpty()) {
+				row.add(null);
+			} else if (type.equals(java.sql.Timestamp.class) || type.equals(java.sql.Time.class)) {
+				row.add(QueryExecutionImpl.parseDateTime(value, type, source.cal));
+			} else {
+				row.add(value);
+			}
+		}
+		return row;
+	}
+
+	synchronized List<?> next() throws TranslatorException, DataNotAvailableException {
+		while (true) {
+			if (current != null && index < current.size()) {
+				List<?> row = current.get(index);
+				current.set(index++, null);
+				return row;
+			}
+			current = null;
+			if (failure != null) {
+				if (failure instanceof TranslatorException) {
+					throw (TranslatorException)failure;
+				}
+				if (failure instanceof RuntimeException) {
+					throw (RuntimeException)failure;
+				}
+				throw new TranslatorException(failure, failure.getMessage());
+			}
+			if (!ready.isEmpty()) {
+				current = ready.removeFirst();
+				index = 0;
+				resume();
+				continue;
+			}
+			if (remaining == 0) {
+				return null;
+			}
+			resume();
+			throw DataNotAvailableException.NO_POLLING;
+		}
+	}
+
+	private void resume() {
+		if (closed || ready.size() >= maxBatches) {
+			return;
+		}
+		for (Source source : sources) {
+			if (!source.running && !source.done) {
+				schedule(source);
+			}
+		}
+	}
+
+	/**
+	 * Stop the reading tasks, closing any open result streams to unblock them,
+	 * and wait for the tasks to finish.
+	 */
+	void close() {
+		synchronized (this) {
+			closed = true;
+			ready.clear();
+			current = null;
+			for (Source source : sources) {
+				if (source.running) {
+					source.closeStream();
+				}
+			}
+			try {
+				while (running > 0) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (Source source : sources) {
+			source.closeStream();
+		}
+	}
+
+}
@@ -56,11 +56,14 @@ import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.ExecutionContext;
 import org.teiid.translator.ResultSetExecution;
 import org.teiid.translator.TranslatorException;
+import org.teiid.translator.salesforce.SalesForceExecutionFactory;
 import org.teiid.translator.salesforce.SalesForcePlugin;
 import org.teiid.translator.salesforce.SalesforceConnection;
 import org.teiid.translator.salesforce.execution.visitors.JoinQueryVisitor;
 import org.teiid.translator.salesforce.execution.visitors.SelectVisitor;
 
+import com.sforce.async.BatchInfo;
+import com.sforce.async.JobInfo;
 import com.sforce.soap.partner.QueryResult;
 import com.sforce.soap.partner.sobject.SObject;
 import com.sforce.ws.bind.XmlObject;
@@ -73,6 +76,8 @@ public class QueryExecutionImpl implements ResultSetExecution {
 
 	private static final Pattern dateTimePattern = Pattern.compile("^(?:(\\d{4}-\\d{2}-\\d{2})T)?(\\d{2}:\\d{2}:\\d{2}(?:.\\d+)?)(.*)"); //$NON-NLS-1$
 	
+	private SalesForceExecutionFactory executionFactory;
+	
 	private SalesforceConnection connection;
 
 	private RuntimeMetadata metadata;
@@ -104,7 +109,16 @@ public class QueryExecutionImpl implements ResultSetExecution {
 	
 	private Calendar cal;
 	
+	private JobInfo bulkJob;
+	
+	private BulkQueryResults bulkResults;
+	
 	public QueryExecutionImpl(QueryExpression command, SalesforceConnection connection, RuntimeMetadata metadata, ExecutionContext context) {
+		this(null, command, connection, metadata, context);
+	}
+	
+	public QueryExecutionImpl(SalesForceExecutionFactory executionFactory, QueryExpression command, SalesforceConnection connection, RuntimeMetadata metadata, ExecutionContext context) {
+		this.executionFactory = executionFactory;
 		this.connection = connection;
 		this.metadata = metadata;
 		this.context = context;
@@ -118,15 +132,30 @@ public class QueryExecutionImpl implements ResultSetExecution {
 
 	public void cancel() throws TranslatorException {
 		LogManager.logDetail(LogConstants.CTX_CONNECTOR, SalesForcePlugin.Util.getString("SalesforceQueryExecutionImpl.cancel"));//$NON-NLS-1$
+		if (this.bulkJob != null && this.bulkResults == null) {
+			try {
+				this.connection.cancelBulkJob(this.bulkJob);
+			} catch (ResourceException e) {
+				throw new TranslatorException(e);
+			}
+		}
 	}
 
 	public void close() {
 		LogManager.logDetail(LogConstants.CTX_CONNECTOR, SalesForcePlugin.Util.getString("SalesforceQueryExecutionImpl.close")); //$NON-NLS-1$
+		if (this.bulkResults != null) {
+			this.bulkResults.close();
+		}
 	}
 
 	@Override
 	public void execute() throws TranslatorException {
 		try {
+			if (this.bulkJob != null) {
+				//reentry after the job was created
+				startBulkResults();
+				return;
+			}
 			LogManager.logDetail(LogConstants.CTX_CONNECTOR, getLogPreamble(), "Incoming Query:", query); //$NON-NLS-1$
 			List<TableReference> from = ((Select)query).getFrom();
 			String finalQuery;
@@ -144,6 +173,12 @@ public class QueryExecutionImpl implements ResultSetExecution {
 							visitor.getTableName(), visitor.getIdInCriteria());
 				} else {
 					finalQuery = visitor.getQuery().trim();
+					if (useBulkQuery()) {
+						LogManager.logDetail(LogConstants.CTX_CONNECTOR,  getLogPreamble(), "Executing Bulk Query:", finalQuery); //$NON-NLS-1$
+						this.bulkJob = connection.createBulkQueryJob(visitor.getTableName(), finalQuery, this.executionFactory.getBulkQueryChunkSize());
+						startBulkResults();
+						return;
+					}
 					LogManager.logDetail(LogConstants.CTX_CONNECTOR,  getLogPreamble(), "Executing Query:", finalQuery); //$NON-NLS-1$
 					results = connection.query(finalQuery, this.context.getBatchSize(), visitor.getQueryAll());
 				}
@@ -153,8 +188,42 @@ public class QueryExecutionImpl implements ResultSetExecution {
 		}
 	}
 	
+	/**
+	 * Use the Bulk API when the estimated row count of the table reaches the threshold.
+	 * The Bulk API cannot return aggregates, limits, or deleted rows.
+	 */
+	private boolean useBulkQuery() {
+		if (this.executionFactory == null || this.executionFactory.getBulkQueryRowThreshold() < 0 || !visitor.canBulkQuery()) {
+			return false;
+		}
+		int threshold = this.executionFactory.getBulkQueryRowThreshold();
+		return threshold == 0 || visitor.getTable().getCardinality() >= threshold;
+	}
+	
+	/**
+	 * Start the download of the bulk query results.  Will throw a {@link DataNotAvailableException}
+	 * until the job has finished.
+	 */
+	private void startBulkResults() throws ResourceException {
+		List<BatchInfo> batches = connection.getBulkQueryBatches(this.bulkJob);
+		List<String> batchIds = new ArrayList<String>(batches.size());
+		for (BatchInfo batch : batches) {
+			batchIds.add(batch.getId());
+		}
+		Column[] columns = new Column[visitor.getSelectSymbolCount()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = ((ColumnReference)visitor.getSelectSymbolMetadata(i)).getMetadataObject();
+		}
+		LogManager.logDetail(LogConstants.CTX_CONNECTOR, getLogPreamble(), "Bulk query job", this.bulkJob.getId(), "completed with", batchIds.size(), "batches"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		this.bulkResults = new BulkQueryResults(connection, context, this.executionFactory.getBulkQueryExecutor(), 2 * this.executionFactory.getBulkQueryThreads(), this.bulkJob, columns, batchIds);
+		this.bulkResults.start();
+	}
+	
 	@Override
 	public List<?> next() throws TranslatorException, DataNotAvailableException {
+		if (this.bulkResults != null) {
+			return this.bulkResults.next();
+		}
 		List<?> result = getRow(results);
 		return result;
 	}
@@ -31,6 +31,7 @@ import java.util.Map;
 import org.teiid.language.*;
 import org.teiid.metadata.Column;
 import org.teiid.metadata.RuntimeMetadata;
+import org.teiid.metadata.Table;
 import org.teiid.translator.TranslatorException;
 import org.teiid.translator.salesforce.Constants;
 import org.teiid.translator.salesforce.SalesForcePlugin;
@@ -223,5 +224,24 @@ public class SelectVisitor extends CriteriaVisitor implements IQueryProvidingVis
 	public boolean canRetrieve() {
 		return objectSupportsRetrieve && hasOnlyIDCriteria() && this.limitClause.length() == 0 && groupByClause.length() == 0;
 	}
+	
+	/**
+	 * @return true if the query is a simple projection of columns that the Bulk API can return as CSV 
+	 */
+	public boolean canBulkQuery() {
+		if (this.limitClause.length() > 0 || this.groupByClause.length() > 0 || this.havingClause.length() > 0 || !Boolean.FALSE.equals(this.queryAll)) {
+			return false;
+		}
+		for (DerivedColumn symbol : this.selectSymbols) {
+			if (!(symbol.getExpression() instanceof ColumnReference)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public Table getTable() {
+		return table;
+	}
 
 }
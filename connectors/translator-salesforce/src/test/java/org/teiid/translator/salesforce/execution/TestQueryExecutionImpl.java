@@ -24,9 +24,14 @@ package org.teiid.translator.salesforce.execution;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
 import java.util.TimeZone;
 
 import org.junit.AfterClass;
@@ -37,10 +42,14 @@ import org.teiid.cdk.api.TranslationUtility;
 import org.teiid.language.Select;
 import org.teiid.metadata.RuntimeMetadata;
 import org.teiid.query.unittest.TimestampUtil;
+import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.ExecutionContext;
+import org.teiid.translator.salesforce.SalesForceExecutionFactory;
 import org.teiid.translator.salesforce.SalesforceConnection;
 import org.teiid.translator.salesforce.execution.visitors.TestVisitors;
 
+import com.sforce.async.BatchInfo;
+import com.sforce.async.JobInfo;
 import com.sforce.soap.partner.QueryResult;
 import com.sforce.soap.partner.sobject.SObject;
 
@@ -71,6 +80,54 @@ public class TestQueryExecutionImpl {
 		assertNull(qei.next());
 	}
 	
+	@Test public void testBulkQuery() throws Exception {
+		Select command = (Select)translationUtility.parseCommand("select Name from Account"); //$NON-NLS-1$
+		SalesForceExecutionFactory ef = new SalesForceExecutionFactory();
+		ef.setBulkQueryRowThreshold(0);
+		SalesforceConnection sfc = Mockito.mock(SalesforceConnection.class);
+		JobInfo job = new JobInfo();
+		job.setId("job");
+		Mockito.stub(sfc.createBulkQueryJob("Account", "SELECT Account.Name FROM Account", 100000)).toReturn(job);
+		BatchInfo first = new BatchInfo();
+		first.setId("1");
+		BatchInfo second = new BatchInfo();
+		second.setId("2");
+		Mockito.when(sfc.getBulkQueryBatches(job)).thenThrow(new DataNotAvailableException(10)).thenReturn(Arrays.asList(first, second));
+		Mockito.stub(sfc.getBulkQueryResultIds(Mockito.eq(job), Mockito.anyString())).toReturn(Arrays.asList("r"));
+		Mockito.stub(sfc.getBulkQueryResults(job, "1", "r")).toReturn(new ByteArrayInputStream("\"Name\"\n\"a\"\n\"\"\n\"b\"\n".getBytes("UTF-8")));
+		Mockito.stub(sfc.getBulkQueryResults(job, "2", "r")).toReturn(new ByteArrayInputStream(BulkQueryResults.NO_RECORDS.getBytes("UTF-8")));
+		QueryExecutionImpl qei = new QueryExecutionImpl(ef, command, sfc, Mockito.mock(RuntimeMetadata.class), Mockito.mock(ExecutionContext.class));
+		try {
+			qei.execute();
+			fail();
+		} catch (DataNotAvailableException e) {
+			//job is still running
+		}
+		qei.execute();
+		List<String> names = new ArrayList<String>();
+		int nulls = 0;
+		while (true) {
+			try {
+				List<?> row = qei.next();
+				if (row == null) {
+					break;
+				}
+				if (row.get(0) == null) {
+					nulls++;
+				} else {
+					names.add((String)row.get(0));
+				}
+			} catch (DataNotAvailableException e) {
+				Thread.sleep(10);
+			}
+		}
+		qei.close();
+		Collections.sort(names);
+		assertEquals(Arrays.asList("a", "b"), names);
+		assertEquals(1, nulls);
+		Mockito.verify(sfc, Mockito.never()).query(Mockito.anyString(), Mockito.anyInt(), Mockito.anyBoolean());
+	}
+	
 	@BeforeClass static public void oneTimeSetup() {
 		TimeZone.setDefault(TimeZone.getTimeZone("GMT-06:00"));
 	}
@@ -39,6 +39,7 @@ import org.teiid.translator.jdbc.FunctionModifier;
 @Translator(name = "solr", description = "A translator for Solr search platform")
 public class SolrExecutionFactory extends ExecutionFactory<ConnectionFactory, SolrConnection> {
 	protected Map<String, FunctionModifier> functionModifiers = new TreeMap<String, FunctionModifier>(String.CASE_INSENSITIVE_ORDER);
+	private boolean useCursorMark = true;
 	
 	public SolrExecutionFactory() {
 		super();
@@ -63,6 +64,15 @@ public class SolrExecutionFactory extends ExecutionFactory<ConnectionFactory, So
 	    return new SolrMetadataProcessor();
 	}
 	
+    @TranslatorProperty(display="Use Cursor Mark", description="Page through results using a cursorMark on the unique key rather than a start offset. Requires Solr 4.7 or later", advanced=true)
+    public boolean isUseCursorMark() {
+    	return this.useCursorMark;
+    }
+    
+    public void setUseCursorMark(boolean useCursorMark) {
+    	this.useCursorMark = useCursorMark;
+    }
+	
     public void registerFunctionModifier(String name, FunctionModifier modifier) {
     	this.functionModifiers.put(name, modifier);
     }
@@ -210,4 +220,29 @@ public class SolrExecutionFactory extends ExecutionFactory<ConnectionFactory, So
     public boolean supportsAggregatesCountStar() {
     	return true;
     }	
+	
+	@Override
+	public boolean supportsAggregatesCount() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsAggregatesSum() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsAggregatesAvg() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsAggregatesMin() {
+		return true;
+	}
+	
+	@Override
+	public boolean supportsAggregatesMax() {
+		return true;
+	}
 }
@@ -22,14 +22,20 @@
 package org.teiid.translator.solr;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrQuery.SortClause;
+import org.apache.solr.client.solrj.response.FieldStatsInfo;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.teiid.language.AggregateFunction;
 import org.teiid.language.Command;
+import org.teiid.language.Limit;
 import org.teiid.language.QueryExpression;
 import org.teiid.logging.LogManager;
 import org.teiid.metadata.RuntimeMetadata;
@@ -39,6 +45,10 @@ import org.teiid.translator.ResultSetExecution;
 import org.teiid.translator.TranslatorException;
 
 public class SolrQueryExecution implements ResultSetExecution {
+	private static final String CURSOR_MARK = "cursorMark"; //$NON-NLS-1$
+	private static final String NEXT_CURSOR_MARK = "nextCursorMark"; //$NON-NLS-1$
+	private static final String CURSOR_MARK_START = "*"; //$NON-NLS-1$
+	
 	private ExecutionContext executionContext;
 	private SolrConnection connection;
 	private SolrSQLHierarchyVistor visitor;
@@ -47,6 +57,9 @@ public class SolrQueryExecution implements ResultSetExecution {
 	private SolrExecutionFactory executionFactory;
 	private int offset = 0;
 	private Long resultSize;
+	private String cursorMark;
+	private boolean lastBatch;
+	private Iterator<List<?>> aggregateItr;
 
 	public SolrQueryExecution(SolrExecutionFactory ef, Command command,
 			ExecutionContext executionContext, RuntimeMetadata metadata,
@@ -64,21 +77,65 @@ public class SolrQueryExecution implements ResultSetExecution {
 
 	@Override
 	public void execute() throws TranslatorException {
+		if (!this.visitor.getExceptions().isEmpty()) {
+			throw this.visitor.getExceptions().get(0);
+		}
 		LogManager.logDetail("Solr Source Query:", this.visitor.getSolrQuery()); //$NON-NLS-1$
+		if (this.visitor.isAggregateInUse()) {
+			this.aggregateItr = executeStatsQuery().iterator();
+			return;
+		}
+		if (this.executionFactory.isUseCursorMark() && !this.visitor.isLimitInUse() 
+				&& !this.visitor.isCountStarInUse() && this.visitor.getUniqueKeyField() != null) {
+			// deep paging with a cursor does not require the server to collect the preceding documents for each page
+			SolrQuery query = this.visitor.getSolrQuery();
+			String key = this.visitor.getUniqueKeyField();
+			boolean sorted = false;
+			for (SortClause clause : query.getSorts()) {
+				sorted |= clause.getItem().equals(key);
+			}
+			if (!sorted) {
+				query.addSort(key, SolrQuery.ORDER.asc);
+			}
+			this.cursorMark = CURSOR_MARK_START;
+		}
 		nextBatch();
 	}
 	
 	public void nextBatch() throws TranslatorException {
+		if (this.lastBatch) {
+			this.resultsItr = null;
+			return;
+		}
 		SolrQuery query = this.visitor.getSolrQuery();
-		if (!this.visitor.isLimitInUse()) {
-			query.setStart(this.offset);
+		if (!this.visitor.isLimitInUse() && !this.visitor.isCountStarInUse()) {
+			if (this.cursorMark != null) {
+				query.set(CURSOR_MARK, this.cursorMark);
+			} else {
+				query.setStart(this.offset);
+			}
 			query.setRows(this.executionContext.getBatchSize());
 		}
 		
-		QueryResponse queryResponse = connection.query(this.visitor.getSolrQuery());
+		QueryResponse queryResponse = connection.query(query);
 		SolrDocumentList docList = queryResponse.getResults();
 		this.resultSize = docList.getNumFound();
 		this.resultsItr = docList.iterator();
+		if (this.cursorMark != null) {
+			Object next = queryResponse.getResponse() == null ? null : queryResponse.getResponse().get(NEXT_CURSOR_MARK);
+			if (next == null) {
+				//the server does not support cursors, continue with offsets
+				this.cursorMark = null;
+				query.remove(CURSOR_MARK);
+			} else if (next.equals(this.cursorMark)) {
+				this.lastBatch = true;
+			} else {
+				this.cursorMark = next.toString();
+			}
+		}
+		if (this.offset + docList.size() >= this.resultSize) {
+			this.lastBatch = true;
+		}
 	}
 
 	/*
@@ -90,6 +147,13 @@ public class SolrQueryExecution implements ResultSetExecution {
 	@Override
 	public List<?> next() throws TranslatorException, DataNotAvailableException {
 
+		if (this.aggregateItr != null) {
+			if (this.aggregateItr.hasNext()) {
+				return this.aggregateItr.next();
+			}
+			return null;
+		}
+		
 		final List<Object> row = new ArrayList<Object>();
 
 		if (this.visitor.isCountStarInUse() && this.resultsItr != null) {
@@ -117,6 +181,48 @@ public class SolrQueryExecution implements ResultSetExecution {
 		return null;
 	}
 	
+	/**
+	 * Answer the aggregate query from the field stats of a single response
+	 */
+	private List<List<?>> executeStatsQuery() throws TranslatorException {
+		Limit limit = this.visitor.getLimit();
+		if (limit != null && (limit.getRowLimit() == 0 || limit.getRowOffset() > 0)) {
+			return Collections.emptyList();
+		}
+		QueryResponse response = this.connection.query(this.visitor.getSolrQuery());
+		Map<String, FieldStatsInfo> stats = response.getFieldStatsInfo();
+		List<AggregateFunction> aggregates = this.visitor.getAggregates();
+		List<Object> row = new ArrayList<Object>(aggregates.size());
+		for (int i = 0; i < aggregates.size(); i++) {
+			AggregateFunction agg = aggregates.get(i);
+			Object value = null;
+			if (agg == null) {
+				//not an aggregate
+			} else if (agg.getParameters().isEmpty()) {
+				value = response.getResults().getNumFound();
+			} else {
+				FieldStatsInfo info = stats == null ? null : stats.get(this.visitor.getFieldNameList().get(i));
+				if (agg.getName().equals(AggregateFunction.COUNT)) {
+					value = info == null || info.getCount() == null ? 0L : info.getCount();
+				} else if (info != null && info.getCount() != null && info.getCount() > 0) {
+					if (agg.getName().equals(AggregateFunction.SUM)) {
+						value = info.getSum();
+					} else if (agg.getName().equals(AggregateFunction.AVG)) {
+						value = info.getMean();
+					} else if (agg.getName().equals(AggregateFunction.MIN)) {
+						value = info.getMin();
+					} else if (agg.getName().equals(AggregateFunction.MAX)) {
+						value = info.getMax();
+					}
+				}
+			}
+			row.add(this.executionFactory.convertFromSolrType(value, this.expectedTypes[i]));
+		}
+		List<List<?>> rows = new ArrayList<List<?>>(1);
+		rows.add(row);
+		return rows;
+	}
+	
 	interface SolrDocumentCallback {
 		void walk(SolrDocument doc);
 	}
@@ -37,9 +37,13 @@ import org.teiid.core.util.StringUtil;
 import org.teiid.language.*;
 import org.teiid.language.SQLConstants.Reserved;
 import org.teiid.language.SQLConstants.Tokens;
+import org.teiid.language.visitor.CollectorVisitor;
 import org.teiid.language.visitor.HierarchyVisitor;
 import org.teiid.metadata.AbstractMetadataRecord;
+import org.teiid.metadata.KeyRecord;
 import org.teiid.metadata.RuntimeMetadata;
+import org.teiid.metadata.Table;
+import org.teiid.translator.TranslatorException;
 import org.teiid.translator.jdbc.FunctionModifier;
 
 public class SolrSQLHierarchyVistor extends HierarchyVisitor {
@@ -59,11 +63,70 @@ public class SolrSQLHierarchyVistor extends HierarchyVisitor {
 	private SolrExecutionFactory ef;
 	private HashMap<String, String> columnAliasMap = new HashMap<String, String>();
 	private boolean countStarInUse;
+	private String uniqueKeyField;
+	
+	// aggregate query state, the aggregates list is parallel to the fieldNameList
+	private boolean aggregateInUse;
+	private List<AggregateFunction> aggregates = new ArrayList<AggregateFunction>();
+	private Limit limit;
+	private List<TranslatorException> exceptions = new ArrayList<TranslatorException>();
 
 	public SolrSQLHierarchyVistor(RuntimeMetadata metadata, SolrExecutionFactory ef) {
 		this.metadata = metadata;
 		this.ef = ef;
 	}
+	
+	@Override
+	public void visit(Select obj) {
+		for (DerivedColumn column : obj.getDerivedColumns()) {
+			this.aggregateInUse |= !CollectorVisitor.collectObjects(AggregateFunction.class, column).isEmpty();
+		}
+		super.visit(obj);
+		if (!this.aggregateInUse) {
+			return;
+		}
+		if (this.aggregates.size() == 1 && this.aggregates.get(0).getParameters().isEmpty()) {
+	        // this is only true for count(*) case, so we need implicit group id clause
+			this.query.setRows(0);
+			this.countStarInUse = true;
+			return;
+		}
+		planAggregate();
+	}
+
+	/**
+	 * Aggregates without a grouping are answered by the stats component.  
+	 * Grouping is not pushed, so the engine aggregates everything else.
+	 */
+	private void planAggregate() {
+		this.query.setRows(0);
+		List<String> statsFields = new ArrayList<String>();
+		for (int i = 0; i < this.aggregates.size(); i++) {
+			AggregateFunction agg = this.aggregates.get(i);
+			String field = this.fieldNameList.get(i);
+			if (agg == null || field == null || statsFields.contains(field)) {
+				continue;
+			}
+			if (!(agg.getParameters().get(0) instanceof ColumnReference)) {
+				//stats are only computed over fields
+				this.exceptions.add(new TranslatorException(SolrPlugin.Event.TEIID20010, SolrPlugin.Util.gs(SolrPlugin.Event.TEIID20010, agg)));
+				continue;
+			}
+			statsFields.add(field);
+			this.query.setGetFieldStatistics(field);
+		}
+	}
+	
+	@Override
+	public void visit(NamedTable obj) {
+		Table table = obj.getMetadataObject();
+		if (table != null) {
+			KeyRecord pk = table.getPrimaryKey();
+			if (pk != null && pk.getColumns().size() == 1) {
+				this.uniqueKeyField = getRecordName(pk.getColumns().get(0));
+			}
+		}
+	}
 
 	@Override
 	public void visit(DerivedColumn obj) {
@@ -74,10 +137,21 @@ public class SolrSQLHierarchyVistor extends HierarchyVisitor {
 			this.columnAliasMap.put(obj.getAlias(), expr);
 		}		
 		
-		query.addField(expr);
+		if (this.aggregateInUse) {
+			if (obj.getExpression() instanceof AggregateFunction) {
+				this.aggregates.add((AggregateFunction)obj.getExpression());
+			} else {
+				if (!CollectorVisitor.collectObjects(AggregateFunction.class, obj.getExpression()).isEmpty()) {
+					this.exceptions.add(new TranslatorException(SolrPlugin.Event.TEIID20010, SolrPlugin.Util.gs(SolrPlugin.Event.TEIID20010, obj.getExpression())));
+				}
+				this.aggregates.add(null);
+			}
+		} else {
+			query.addField(expr);
+		}
 		fieldNameList.add(expr);
 	}
-
+	
 	public static String getColumnName(ColumnReference obj) {
 		String elemShortName = null;
 		AbstractMetadataRecord elementID = obj.getMetadataObject();
@@ -268,11 +342,14 @@ public class SolrSQLHierarchyVistor extends HierarchyVisitor {
     
 	@Override
 	public void visit(Limit obj) {
-		this.limitInUse = true;
-		if (!countStarInUse) {
-			this.query.setRows(obj.getRowLimit());
-			this.query.setStart(obj.getRowOffset());
+		if (this.aggregateInUse) {
+			//applied to the single aggregate row by the execution
+			this.limit = obj;
+			return;
 		}
+		this.limitInUse = true;
+		this.query.setRows(obj.getRowLimit());
+		this.query.setStart(obj.getRowOffset());
 	}
 	
 	@Override
@@ -282,6 +359,10 @@ public class SolrSQLHierarchyVistor extends HierarchyVisitor {
 	
 	@Override
 	public void visit(SortSpecification obj) {
+		if (this.aggregateInUse) {
+			//there is only a single aggregate row
+			return;
+		}
 		visitNode(obj.getExpression());
 		String expr = this.onGoingExpression.pop();
 		this.query.addSort(expr, obj.getOrdering() == SortSpecification.Ordering.ASC?SolrQuery.ORDER.asc:SolrQuery.ORDER.desc);
@@ -308,23 +389,16 @@ public class SolrSQLHierarchyVistor extends HierarchyVisitor {
 		this.onGoingExpression.push(sb.toString());
 	}
 	
+	/**
+	 * Pushes the aggregate argument, or null for count(*).  The function itself 
+	 * is evaluated with the stats component.
+	 */
 	@Override
 	public void visit(AggregateFunction obj) {
-		if (obj.getName().equals(AggregateFunction.COUNT)) {
-	        // this is only true for count(*) case, so we need implicit group id clause
-			this.query.setRows(0);
-			this.countStarInUse = true;
-			this.onGoingExpression.push("1"); //$NON-NLS-1$
-		}
-		else if (obj.getName().equals(AggregateFunction.AVG)) {
-		}
-		else if (obj.getName().equals(AggregateFunction.SUM)) {
-		}
-		else if (obj.getName().equals(AggregateFunction.MIN)) {
-		}
-		else if (obj.getName().equals(AggregateFunction.MAX)) {
-		}
-		else {
+		if (obj.getParameters().isEmpty()) {
+			this.onGoingExpression.push(null);
+		} else {
+			visitNode(obj.getParameters().get(0));
 		}
     }	
 	
@@ -350,4 +424,30 @@ public class SolrSQLHierarchyVistor extends HierarchyVisitor {
 		return countStarInUse;
 	}
 	
+	public boolean isAggregateInUse() {
+		return this.aggregateInUse && !this.countStarInUse;
+	}
+	
+	/**
+	 * @return the aggregate for each select column, or null if the column is not an aggregate
+	 */
+	public List<AggregateFunction> getAggregates() {
+		return this.aggregates;
+	}
+	
+	public Limit getLimit() {
+		return this.limit;
+	}
+	
+	/**
+	 * @return the single column primary key field, which can be used for cursor paging
+	 */
+	public String getUniqueKeyField() {
+		return this.uniqueKeyField;
+	}
+	
+	public List<TranslatorException> getExceptions() {
+		return this.exceptions;
+	}
+	
 }
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.translator.solr;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.FieldStatsInfo;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.teiid.cdk.api.TranslationUtility;
+import org.teiid.core.util.ObjectConverterUtil;
+import org.teiid.core.util.UnitTestUtil;
+import org.teiid.language.QueryExpression;
+import org.teiid.query.metadata.TransformationMetadata;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.translator.ExecutionContext;
+import org.teiid.translator.ResultSetExecution;
+
+@SuppressWarnings("nls")
+public class TestSolrQueryExecution {
+    private SolrExecutionFactory translator;
+    private TranslationUtility utility;
+
+    @Before
+    public void setUp() throws Exception {
+    	this.translator = new SolrExecutionFactory();
+    	this.translator.start();
+
+    	TransformationMetadata metadata = RealMetadataFactory.fromDDL(ObjectConverterUtil.convertFileToString(UnitTestUtil.getTestDataFile("exampleTBL.ddl")), "example", "solr");
+    	this.utility = new TranslationUtility(metadata);
+    }
+
+    private QueryResponse helpResponse(String nextCursorMark, long numFound, String... names) {
+    	SolrDocumentList list = new SolrDocumentList();
+    	for (String name : names) {
+    		SolrDocument doc = new SolrDocument();
+    		doc.addField("name", name);
+    		list.add(doc);
+    	}
+    	list.setNumFound(numFound);
+		QueryResponse response = Mockito.mock(QueryResponse.class);
+		Mockito.stub(response.getResults()).toReturn(list);
+		if (nextCursorMark != null) {
+			NamedList<Object> values = new NamedList<Object>();
+			values.add("nextCursorMark", nextCursorMark);
+			Mockito.stub(response.getResponse()).toReturn(values);
+		}
+		return response;
+    }
+
+    private List<List<?>> helpExecute(String sql, SolrConnection connection) throws Exception {
+		ExecutionContext context = Mockito.mock(ExecutionContext.class);
+		Mockito.stub(context.getBatchSize()).toReturn(2);
+		ResultSetExecution execution = this.translator.createResultSetExecution((QueryExpression)this.utility.parseCommand(sql), context, this.utility.createRuntimeMetadata(), connection);
+		execution.execute();
+		List<List<?>> results = new ArrayList<List<?>>();
+		List<?> row = null;
+		while ((row = execution.next()) != null) {
+			results.add(row);
+		}
+		return results;
+    }
+
+	@Test
+	public void testCursorMark() throws Exception {
+		final List<Object> cursorMarks = new ArrayList<Object>();
+		final QueryResponse[] responses = new QueryResponse[] {helpResponse("x", 3, "a", "b"), helpResponse("y", 3, "c")};
+		SolrConnection connection = Mockito.mock(SolrConnection.class);
+		Mockito.when(connection.query(Mockito.any(SolrQuery.class))).thenAnswer(new Answer<QueryResponse>() {
+			@Override
+			public QueryResponse answer(InvocationOnMock invocation) throws Throwable {
+				SolrQuery query = (SolrQuery)invocation.getArguments()[0];
+				assertNull(query.get("start"));
+				assertEquals("name asc", query.get("sort"));
+				cursorMarks.add(query.get("cursorMark"));
+				return responses[cursorMarks.size() - 1];
+			}
+		});
+
+		List<List<?>> results = helpExecute("select name from example", connection);
+		assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b"), Arrays.asList("c")), results);
+		assertEquals(Arrays.asList("*", "x"), cursorMarks);
+	}
+
+	@Test
+	public void testStatsAggregate() throws Exception {
+		SolrDocumentList list = new SolrDocumentList();
+		list.setNumFound(4);
+		NamedList<Object> price = new NamedList<Object>();
+		price.add("min", 1f);
+		price.add("max", 3f);
+		price.add("count", 3L);
+		QueryResponse response = Mockito.mock(QueryResponse.class);
+		Mockito.stub(response.getResults()).toReturn(list);
+		Mockito.stub(response.getFieldStatsInfo()).toReturn(Collections.singletonMap("price", new FieldStatsInfo(price, "price")));
+		SolrConnection connection = Mockito.mock(SolrConnection.class);
+		Mockito.stub(connection.query(Mockito.any(SolrQuery.class))).toReturn(response);
+
+		List<List<?>> results = helpExecute("select count(*), count(price), max(price) from example", connection);
+		assertEquals(Arrays.asList(Arrays.asList(4, 3, 3f)), results);
+	}
+}
@@ -302,6 +302,25 @@ public class TestTeiidLanguageToSolr {
 				getSolrTranslation("select name,(popularity+1)/2 as x from example order by popularity ASC"));		
 	}
 	
+	@Test
+	public void testAggregateStats() throws Exception {
+		assertEquals("rows=0&stats=true&stats.field=popularity&q=popularity:[1 TO *]",
+				getSolrTranslation("select sum(popularity), count(*) from example where popularity >= 1"));
+	}
+
+	@Test
+	public void testAggregateStatsSameField() throws Exception {
+		assertEquals("rows=0&stats=true&stats.field=price&q=*:*",
+				getSolrTranslation("select min(price), max(price), avg(price) from example"));
+	}
+
+	@Test
+	public void testAggregateOverExpression() throws Exception {
+		SolrSQLHierarchyVistor visitor = new SolrSQLHierarchyVistor(this.utility.createRuntimeMetadata(), this.translator);
+		visitor.visit((Select)getCommand("select sum(popularity + 1) from example"));
+		assertEquals(1, visitor.getExceptions().size());
+	}
+
 	@Before public void setUp() { 
 		TimestampWithTimezone.resetCalendar(TimeZone.getTimeZone("PST")); //$NON-NLS-1$ 
 	}
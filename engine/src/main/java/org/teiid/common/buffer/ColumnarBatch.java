@@ -0,0 +1,424 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.common.buffer;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.teiid.core.types.DataTypeManager;
+
+/**
+ * An immutable batch of rows stored by column.
+ * <br>
+ * Integer, long, double, float and boolean values are held in primitive arrays with a null bitmap
+ * and strings are dictionary encoded.  Other types are held in an object array.
+ * <br>
+ * The batch still satisfies the {@link List} of rows contract.  Each row is a light-weight view
+ * that reads through to the columns, so consumers that only need a few values per row,
+ * or that can work with the {@link Column}s directly, never materialize the full row lists.
+ */
+public final class ColumnarBatch extends AbstractList<List<?>> implements RandomAccess {
+	
+	private static final int ARRAY_OVERHEAD = 16;
+	
+	public static abstract class Column {
+		protected BitSet nulls;
+		
+		public boolean isNull(int row) {
+			return nulls != null && nulls.get(row);
+		}
+		
+		public abstract Object get(int row);
+		
+		abstract long getSizeEstimate();
+		
+		protected long getNullsSize() {
+			if (nulls == null) {
+				return 0;
+			}
+			return ARRAY_OVERHEAD + (nulls.size() >> 3);
+		}
+	}
+	
+	public static final class IntColumn extends Column {
+		private int[] values;
+		
+		public int getInt(int row) {
+			return values[row];
+		}
+		
+		@Override
+		public Object get(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values[row];
+		}
+		
+		@Override
+		long getSizeEstimate() {
+			return ARRAY_OVERHEAD + (values.length << 2) + getNullsSize();
+		}
+	}
+	
+	public static final class LongColumn extends Column {
+		private long[] values;
+		
+		public long getLong(int row) {
+			return values[row];
+		}
+		
+		@Override
+		public Object get(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values[row];
+		}
+		
+		@Override
+		long getSizeEstimate() {
+			return ARRAY_OVERHEAD + (values.length << 3) + getNullsSize();
+		}
+	}
+	
+	public static final class DoubleColumn extends Column {
+		private double[] values;
+		
+		public double getDouble(int row) {
+			return values[row];
+		}
+		
+		@Override
+		public Object get(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values[row];
+		}
+		
+		@Override
+		long getSizeEstimate() {
+			return ARRAY_OVERHEAD + (values.length << 3) + getNullsSize();
+		}
+	}
+	
+	public static final class FloatColumn extends Column {
+		private float[] values;
+		
+		public float getFloat(int row) {
+			return values[row];
+		}
+		
+		@Override
+		public Object get(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values[row];
+		}
+		
+		@Override
+		long getSizeEstimate() {
+			return ARRAY_OVERHEAD + (values.length << 2) + getNullsSize();
+		}
+	}
+	
+	public static final class BooleanColumn extends Column {
+		private BitSet values = new BitSet();
+		
+		public boolean getBoolean(int row) {
+			return values.get(row);
+		}
+		
+		@Override
+		public Object get(int row) {
+			if (isNull(row)) {
+				return null;
+			}
+			return values.get(row);
+		}
+		
+		@Override
+		long getSizeEstimate() {
+			return ARRAY_OVERHEAD + (values.size() >> 3) + getNullsSize();
+		}
+	}
+	
+	/**
+	 * Strings are stored as codes into a dictionary of the distinct values.
+	 * A code of -1 is used for null.
+	 */
+	public static final class StringColumn extends Column {
+		private int[] codes;
+		private String[] dictionary;
+		
+		public int getCode(int row) {
+			return codes[row];
+		}
+		
+		public String[] getDictionary() {
+			return dictionary;
+		}
+		
+		@Override
+		public boolean isNull(int row) {
+			return codes[row] < 0;
+		}
+		
+		@Override
+		public Object get(int row) {
+			int code = codes[row];
+			if (code < 0) {
+				return null;
+			}
+			return dictionary[code];
+		}
+		
+		@Override
+		long getSizeEstimate() {
+			long size = ARRAY_OVERHEAD + (codes.length << 2) + ARRAY_OVERHEAD + (dictionary.length << 3);
+			for (String string : dictionary) {
+				size += 40 + (string.length() << 1);
+			}
+			return size;
+		}
+	}
+	
+	/**
+	 * Holds the values directly.  The size estimate does not include the values themselves.
+	 */
+	public static final class ObjectColumn extends Column {
+		private Object[] values;
+		
+		@Override
+		public boolean isNull(int row) {
+			return values[row] == null;
+		}
+		
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+		
+		@Override
+		long getSizeEstimate() {
+			return ARRAY_OVERHEAD + (values.length << 3);
+		}
+	}
+	
+	private final class Row extends AbstractList<Object> implements RandomAccess {
+		private int index;
+		
+		Row(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		public Object get(int col) {
+			return columns[col].get(index);
+		}
+		
+		@Override
+		public int size() {
+			return columns.length;
+		}
+	}
+	
+	private int rowCount;
+	private Column[] columns;
+	
+	private ColumnarBatch(int rowCount, Column[] columns) {
+		this.rowCount = rowCount;
+		this.columns = columns;
+	}
+	
+	/**
+	 * Create a columnar copy of the given rows
+	 * @param rows
+	 * @param types the column types
+	 */
+	public static ColumnarBatch create(List<? extends List<?>> rows, Class<?>[] types) {
+		int rowCount = rows.size();
+		Column[] columns = new Column[types.length];
+		for (int col = 0; col < types.length; col++) {
+			Column column = null;
+			try {
+				column = createColumn(rows, col, types[col]);
+			} catch (ClassCastException e) {
+				//value does not match the expected type
+			}
+			if (column == null) {
+				ObjectColumn objectColumn = new ObjectColumn();
+				objectColumn.values = new Object[rowCount];
+				for (int row = 0; row < rowCount; row++) {
+					objectColumn.values[row] = rows.get(row).get(col);
+				}
+				column = objectColumn;
+			}
+			columns[col] = column;
+		}
+		return new ColumnarBatch(rowCount, columns);
+	}
+
+	private static Column createColumn(List<? extends List<?>> rows, int col, Class<?> type) {
+		int rowCount = rows.size();
+		Column result = null;
+		if (type == DataTypeManager.DefaultDataClasses.INTEGER) {
+			IntColumn column = new IntColumn();
+			column.values = new int[rowCount];
+			for (int row = 0; row < rowCount; row++) {
+				Integer val = (Integer)rows.get(row).get(col);
+				if (val == null) {
+					column.nulls = setNull(column.nulls, row);
+				} else {
+					column.values[row] = val;
+				}
+			}
+			result = column;
+		} else if (type == DataTypeManager.DefaultDataClasses.LONG) {
+			LongColumn column = new LongColumn();
+			column.values = new long[rowCount];
+			for (int row = 0; row < rowCount; row++) {
+				Long val = (Long)rows.get(row).get(col);
+				if (val == null) {
+					column.nulls = setNull(column.nulls, row);
+				} else {
+					column.values[row] = val;
+				}
+			}
+			result = column;
+		} else if (type == DataTypeManager.DefaultDataClasses.DOUBLE) {
+			DoubleColumn column = new DoubleColumn();
+			column.values = new double[rowCount];
+			for (int row = 0; row < rowCount; row++) {
+				Double val = (Double)rows.get(row).get(col);
+				if (val == null) {
+					column.nulls = setNull(column.nulls, row);
+				} else {
+					column.values[row] = val;
+				}
+			}
+			result = column;
+		} else if (type == DataTypeManager.DefaultDataClasses.FLOAT) {
+			FloatColumn column = new FloatColumn();
+			column.values = new float[rowCount];
+			for (int row = 0; row < rowCount; row++) {
+				Float val = (Float)rows.get(row).get(col);
+				if (val == null) {
+					column.nulls = setNull(column.nulls, row);
+				} else {
+					column.values[row] = val;
+				}
+			}
+			result = column;
+		} else if (type == DataTypeManager.DefaultDataClasses.BOOLEAN) {
+			BooleanColumn column = new BooleanColumn();
+			for (int row = 0; row < rowCount; row++) {
+				Boolean val = (Boolean)rows.get(row).get(col);
+				if (val == null) {
+					column.nulls = setNull(column.nulls, row);
+				} else if (val) {
+					column.values.set(row);
+				}
+			}
+			result = column;
+		} else if (type == DataTypeManager.DefaultDataClasses.STRING) {
+			StringColumn column = new StringColumn();
+			column.codes = new int[rowCount];
+			Map<String, Integer> codes = new HashMap<String, Integer>();
+			List<String> dictionary = new ArrayList<String>();
+			for (int row = 0; row < rowCount; row++) {
+				String val = (String)rows.get(row).get(col);
+				if (val == null) {
+					column.codes[row] = -1;
+					continue;
+				}
+				Integer code = codes.get(val);
+				if (code == null) {
+					code = dictionary.size();
+					codes.put(val, code);
+					dictionary.add(val);
+				}
+				column.codes[row] = code;
+			}
+			column.dictionary = dictionary.toArray(new String[dictionary.size()]);
+			result = column;
+		}
+		return result;
+	}
+	
+	private static BitSet setNull(BitSet nulls, int row) {
+		if (nulls == null) {
+			nulls = new BitSet();
+		}
+		nulls.set(row);
+		return nulls;
+	}
+	
+	@Override
+	public List<?> get(int index) {
+		if (index < 0 || index >= rowCount) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		return new Row(index);
+	}
+	
+	@Override
+	public int size() {
+		return rowCount;
+	}
+	
+	public Column getColumn(int col) {
+		return columns[col];
+	}
+	
+	public int getColumnCount() {
+		return columns.length;
+	}
+	
+	/**
+	 * Get the value without creating a row view
+	 */
+	public Object getValue(int row, int col) {
+		return columns[col].get(row);
+	}
+	
+	/**
+	 * @return the estimated heap size of the batch, not including the values of {@link ObjectColumn}s
+	 */
+	public long getSizeEstimate() {
+		long size = ARRAY_OVERHEAD + (columns.length << 3);
+		for (Column column : columns) {
+			size += 16 + column.getSizeEstimate();
+		}
+		return size;
+	}
+
+}
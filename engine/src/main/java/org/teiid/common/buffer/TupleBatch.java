@@ -74,6 +74,17 @@ public class TupleBatch {
         this.rowOffset = beginRow;
         this.tuples = new ArrayList<List<?>>(listOfTupleLists);
     }
+    
+    /**
+     * Constructor for a read-only batch backed by the columnar tuples
+     * @param beginRow indicates the row of the tuple source which is the
+     * first row contained in this batch
+     * @param columnarBatch
+     */
+    public TupleBatch(int beginRow, ColumnarBatch columnarBatch) {
+        this.rowOffset = beginRow;
+        this.tuples = columnarBatch;
+    }
 
     /**
      * Return the number of the first row of the tuple source that is
@@ -113,6 +124,16 @@ public class TupleBatch {
 		return tuples;
 	}
     
+    /**
+     * @return the columnar form of the tuples or null if the batch is row based
+     */
+    public ColumnarBatch getColumnarBatch() {
+    	if (tuples instanceof ColumnarBatch) {
+    		return (ColumnarBatch)tuples;
+    	}
+    	return null;
+    }
+    
     /**
      * Get all tuples 
      * @return All tuples
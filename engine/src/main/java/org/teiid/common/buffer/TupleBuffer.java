@@ -286,7 +286,11 @@ public class TupleBuffer {
 			Assertion.isNotNull(entry);
 			Long batch = entry.getValue();
 	    	List<List<?>> rows = manager.getBatch(batch, !forwardOnly);
-	    	result = new TupleBatch(entry.getKey(), rows);
+	    	if (rows instanceof ColumnarBatch) {
+	    		result = new TupleBatch(entry.getKey(), (ColumnarBatch)rows);
+	    	} else {
+	    		result = new TupleBatch(entry.getKey(), rows);
+	    	}
 	    	if (isFinal && result.getEndRow() == rowCount) {
 	    		result.setTerminationFlag(true);
 	    	}
@@ -56,6 +56,7 @@ import org.teiid.core.types.DataTypeManager;
 import org.teiid.core.types.DataTypeManager.WeakReferenceHashedValueCache;
 import org.teiid.core.types.Streamable;
 import org.teiid.core.util.Assertion;
+import org.teiid.core.util.PropertiesUtils;
 import org.teiid.dqp.internal.process.DQPConfiguration;
 import org.teiid.dqp.internal.process.RequestWorkItem;
 import org.teiid.logging.LogConstants;
@@ -153,12 +154,15 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		AtomicBoolean prefersMemory = new AtomicBoolean();
 		String[] types;
 		private LobManager lobManager;
+		private Class<?>[] typeClasses;
+		private boolean columnar;
 		private long totalSize;
 		private long rowsSampled;
 
 		private BatchManagerImpl(Long newID, Class<?>[] types) {
 			this.id = newID;
 			this.sizeUtility = new SizeUtility(types);
+			this.typeClasses = types;
 			this.types = new String[types.length];
 			for (int i = 0; i < types.length; i++) {
 				this.types[i] = DataTypeManager.getDataTypeName(types[i]);
@@ -174,6 +178,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			this.lobManager = lobManager;
 		}
 		
+		/**
+		 * Store the batches in a {@link ColumnarBatch}.  Only valid for
+		 * batches that are not modified once added and that do not contain lobs.
+		 */
+		public void setColumnar(boolean columnar) {
+			this.columnar = columnar;
+		}
+		
 		@Override
 		public String[] getTypes() {
 			return types;
@@ -208,6 +220,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 				cache.createCacheGroup(id);
 				cleanup = AutoCleanupUtil.setCleanupReference(this, new Remover(id, prefersMemory));
 			}
+			if (columnar && !(batch instanceof ColumnarBatch)) {
+				batch = ColumnarBatch.create(batch, typeClasses);
+			}
 			CacheEntry old = null;
 			int sizeEstimate = 0;
 			boolean updateEstimates = true;
@@ -254,6 +269,9 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 		public List<? extends List<?>> deserialize(ObjectInput ois)
 				throws IOException, ClassNotFoundException {
 			List<? extends List<?>> batch = BatchSerializer.readBatch(ois, types);
+			if (columnar) {
+				return ColumnarBatch.create(batch, typeClasses);
+			}
 			if (lobManager != null) {
 				for (int i = batch.size() - 1; i >= 0; i--) {
 					try {
@@ -389,6 +407,7 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
     private int maxActivePlans = DQPConfiguration.DEFAULT_MAX_ACTIVE_PLANS; //used as a hint to set the reserveBatchKB
     private boolean useWeakReferences = true;
     private boolean inlineLobs = true;
+    private boolean columnarBatches = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.columnarBatches", false); //$NON-NLS-1$
     private int targetBytesPerRow = TARGET_BYTES_PER_ROW;
     private int maxSoftReferences;
     private int nominalProcessingMemoryMax = maxProcessingBytes;
@@ -509,6 +528,8 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 			FileStore lobStore = createFileStore(newID + "_lobs"); //$NON-NLS-1$
 			lobManager = new LobManager(lobIndexes, lobStore);
 			batchManager.setLobManager(lobManager);
+		} else {
+			batchManager.setColumnar(columnarBatches);
 		}
     	TupleBuffer tupleBuffer = new TupleBuffer(batchManager, String.valueOf(newID), elements, lobManager, getProcessorBatchSize(elements));
         if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
@@ -1258,6 +1279,14 @@ public class BufferManagerImpl implements BufferManager, ReplicatedObject<String
 	public void setInlineLobs(boolean inlineLobs) {
 		this.inlineLobs = inlineLobs;
 	}
+	
+	/**
+	 * Set whether {@link TupleBuffer} batches without lobs are held in a columnar form.
+	 * Primitive values are then stored unboxed and strings are dictionary encoded.
+	 */
+	public void setColumnarBatches(boolean columnarBatches) {
+		this.columnarBatches = columnarBatches;
+	}
 
 	public int getMaxReserveKB() {
 		return (int)maxReserveBytes>>10;
@@ -26,6 +26,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -35,6 +41,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.teiid.common.buffer.FileStore;
 import org.teiid.common.buffer.StorageManager;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.core.util.PropertiesUtils;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.logging.MessageLevel;
@@ -43,12 +50,16 @@ import org.teiid.query.QueryPlugin;
 
 /**
  * Implements file storage that automatically splits large files and limits the number of open files.
+ * <br>
+ * In memory mapped mode the files are accessed through mapped segments rather than positional reads and writes, 
+ * so that access does not require a system call and write back is left to the OS. 
  */
 public class FileStorageManager implements StorageManager {
 	
 	private static final long MB = 1024L * 1024L;
 	public static final int DEFAULT_MAX_OPEN_FILES = 64;
 	public static final long DEFAULT_MAX_BUFFERSPACE = 50L * 1024L * MB;
+	public static final boolean DEFAULT_MEMORY_MAPPED = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.memoryMappedBufferFiles", false); //$NON-NLS-1$
 	private static final String FILE_PREFIX = "b_"; //$NON-NLS-1$
 	
 	private long maxBufferSpace = DEFAULT_MAX_BUFFERSPACE;
@@ -57,6 +68,45 @@ public class FileStorageManager implements StorageManager {
 	
 	private AtomicLong sample = new AtomicLong();
 	
+	static final int SEGMENT_BITS = 26;
+	static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+	private static Object unsafe;
+	private static Method invokeCleaner;
+	
+	static {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe"); //$NON-NLS-1$
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class); //$NON-NLS-1$
+			Field f = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+			f.setAccessible(true);
+			unsafe = f.get(null);
+		} catch (Exception e) {
+			//prior to java 9 the buffer cleaner is used directly
+			invokeCleaner = null;
+		}
+	}
+	
+	/**
+	 * Release the mapping rather than waiting for the buffer to be collected.
+	 * The buffer must not be accessed afterwards.
+	 */
+	static void unmap(MappedByteBuffer buffer) {
+		try {
+			if (invokeCleaner != null) {
+				invokeCleaner.invoke(unsafe, buffer);
+				return;
+			}
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner"); //$NON-NLS-1$
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner); //$NON-NLS-1$
+			}
+		} catch (Exception e) {
+			LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, e, "Could not unmap, the mapping will be released when collected"); //$NON-NLS-1$
+		}
+	}
+	
 	private class FileInfo {
     	private File file;
         private RandomAccessFile fileData;       // may be null if not open
@@ -135,7 +185,7 @@ public class FileStorageManager implements StorageManager {
 	        try {
 	        	RandomAccessFile fileAccess = fileInfo.open();
 	            long newLength = fileOffset + length;
-	            setLength(fileAccess, newLength, false);
+	            resize(fileAccess, newLength, false);
 	            fileAccess.seek(fileOffset);
 	            fileAccess.write(b, offSet, length);
 	        } finally {
@@ -144,51 +194,147 @@ public class FileStorageManager implements StorageManager {
 	    	return length;
 	    }
 
-		private void setLength(RandomAccessFile fileAccess, long newLength, boolean truncate)
-				throws IOException {
-			long currentLength = fileAccess.length();
-			long bytesUsed = newLength - currentLength;
-			if (bytesUsed == 0) {
-				return;
-			}
-			if (bytesUsed < 0) {
-				if (!truncate) {
-					return;
-				}
-			} else if (bytesUsed > MB) {
-				//this is a weak check, concurrent access may push us over the max.  we are just trying to prevent large overage allocations
-				long used = usedBufferSpace.get() + bytesUsed;
-				if (used > maxBufferSpace) {
-					throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
-				}
-			}
-			fileAccess.setLength(newLength);
-			long used = usedBufferSpace.addAndGet(bytesUsed);
-			if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL) && (sample.getAndIncrement() % 100) == 0) {
-				LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "sampling bytes used:", used); //$NON-NLS-1$
-			}
-			if (bytesUsed > 0 && used > maxBufferSpace) {
-				fileAccess.setLength(currentLength);
-				usedBufferSpace.addAndGet(-bytesUsed);
-				throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
+	    @Override
+	    public synchronized void setLength(long length) throws IOException {
+	    	if (fileInfo == null) {
+				fileInfo = new FileInfo(createFile(name));
+	        }
+	    	try {
+	    		resize(fileInfo.open(), length, true);
+	    	} finally {
+	    		fileInfo.close();
+	    	}
+	    }
+		
+	    @Override
+		public synchronized void removeDirect() {
+			usedBufferSpace.addAndGet(-getLength());
+			if (fileInfo != null){
+				fileInfo.delete();
 			}
 		}
 	    
+	}
+
+	/**
+	 * A {@link FileStore} backed by read/write mappings of {@link #SEGMENT_SIZE} segments of the file.
+	 * <br>
+	 * The file capacity grows geometrically ahead of the logical length to limit remapping.  
+	 * Mapped views are not handed out, so that truncation and removal may safely unmap.
+	 */
+	public class MappedDiskStore extends FileStore {
+	    private String name;
+		private FileInfo fileInfo;
+		private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+		private long length;
+		private long capacity;
+	    
+	    public MappedDiskStore(String name) {
+			this.name = name;
+		}
+	    
 	    @Override
-	    public synchronized void setLength(long length) throws IOException {
+	    public synchronized long getLength() {
+	    	return length;
+	    }
+	    
+	    @Override
+	    protected synchronized int readWrite(long fileOffset, byte[] b, int offSet,
+	    		int length, boolean write) throws IOException {
+	    	if (!write) {
+	    		if (fileOffset >= this.length) {
+	    			return -1;
+	    		}
+	    		length = (int)Math.min(length, this.length - fileOffset);
+	    	} else {
+	    		ensureCapacity(fileOffset + length);
+	    	}
+	    	int index = (int)(fileOffset >> SEGMENT_BITS);
+	    	int position = (int)(fileOffset & (SEGMENT_SIZE - 1));
+	    	ByteBuffer view = getSegment(index).duplicate();
+	    	length = Math.min(length, view.capacity() - position);
+	    	view.position(position);
+	    	if (write) {
+	    		view.put(b, offSet, length);
+	    		this.length = Math.max(this.length, fileOffset + length);
+	    	} else {
+	    		view.get(b, offSet, length);
+	    	}
+	    	return length;
+	    }
+	    
+	    private MappedByteBuffer getSegment(int index) throws IOException {
+	    	if (index >= segments.length) {
+	    		segments = Arrays.copyOf(segments, index + 1);
+	    	}
+	    	MappedByteBuffer segment = segments[index];
+	    	long start = (long)index << SEGMENT_BITS;
+	    	int size = (int)Math.min(SEGMENT_SIZE, capacity - start);
+	    	if (segment == null || segment.capacity() < size) {
+	    		if (segment != null) {
+	    			segments[index] = null;
+	    			unmap(segment);
+	    		}
+	    		try {
+	    			segment = fileInfo.open().getChannel().map(MapMode.READ_WRITE, start, size);
+	    		} finally {
+	    			fileInfo.close();
+	    		}
+	    		segments[index] = segment;
+	    	}
+	    	return segment;
+	    }
+	    
+	    private void ensureCapacity(long required) throws IOException {
+	    	if (required <= capacity) {
+	    		return;
+	    	}
 	    	if (fileInfo == null) {
 				fileInfo = new FileInfo(createFile(name));
 	        }
+	    	long newCapacity = Math.max(required, Math.min(2*capacity, capacity + SEGMENT_SIZE));
 	    	try {
-	    		setLength(fileInfo.open(), length, true);
+	    		resize(fileInfo.open(), newCapacity, false);
 	    	} finally {
 	    		fileInfo.close();
 	    	}
+	    	capacity = newCapacity;
+	    }
+	    
+	    /**
+	     * Unmap all segments that cover the given offset or beyond
+	     */
+	    private void unmapFrom(long offset) {
+	    	for (int i = (int)(offset >> SEGMENT_BITS); i < segments.length; i++) {
+	    		if (segments[i] != null) {
+	    			unmap(segments[i]);
+	    			segments[i] = null;
+	    		}
+	    	}
+	    }
+	    
+	    @Override
+	    public synchronized void setLength(long newLength) throws IOException {
+	    	if (newLength >= this.length) {
+	    		ensureCapacity(newLength);
+	    		this.length = newLength;
+	    		return;
+	    	}
+	    	this.length = newLength;
+	    	//truncate so that disk space is returned and a later extension reads as zeros
+	    	unmapFrom(newLength);
+	    	try {
+	    		resize(fileInfo.open(), newLength, true);
+	    	} finally {
+	    		fileInfo.close();
+	    	}
+	    	capacity = newLength;
 	    }
 		
 	    @Override
 		public synchronized void removeDirect() {
-			usedBufferSpace.addAndGet(-getLength());
+	    	usedBufferSpace.addAndGet(-capacity);
+	    	unmapFrom(0);
 			if (fileInfo != null){
 				fileInfo.delete();
 			}
@@ -196,7 +342,38 @@ public class FileStorageManager implements StorageManager {
 	    
 	}
 
+	private void resize(RandomAccessFile fileAccess, long newLength, boolean truncate)
+			throws IOException {
+		long currentLength = fileAccess.length();
+		long bytesUsed = newLength - currentLength;
+		if (bytesUsed == 0) {
+			return;
+		}
+		if (bytesUsed < 0) {
+			if (!truncate) {
+				return;
+			}
+		} else if (bytesUsed > MB) {
+			//this is a weak check, concurrent access may push us over the max.  we are just trying to prevent large overage allocations
+			long used = usedBufferSpace.get() + bytesUsed;
+			if (used > maxBufferSpace) {
+				throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
+			}
+		}
+		fileAccess.setLength(newLength);
+		long used = usedBufferSpace.addAndGet(bytesUsed);
+		if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL) && (sample.getAndIncrement() % 100) == 0) {
+			LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "sampling bytes used:", used); //$NON-NLS-1$
+		}
+		if (bytesUsed > 0 && used > maxBufferSpace) {
+			fileAccess.setLength(currentLength);
+			usedBufferSpace.addAndGet(-bytesUsed);
+			throw new OutOfDiskException(QueryPlugin.Util.getString("FileStoreageManager.space_exhausted", bytesUsed, used, maxBufferSpace)); //$NON-NLS-1$
+		}
+	}
+	    
     // Initialization
+    private boolean memoryMapped = DEFAULT_MEMORY_MAPPED;
     private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
     private String directory;
     private File dirFile;
@@ -264,9 +441,20 @@ public class FileStorageManager implements StorageManager {
     }
     
     public FileStore createFileStore(String name) {
+    	if (memoryMapped) {
+    		return new MappedDiskStore(name);
+    	}
     	return new DiskStore(name);
     }
     
+    public void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+    
+    public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+    
     public String getDirectory() {
 		return directory;
 	}
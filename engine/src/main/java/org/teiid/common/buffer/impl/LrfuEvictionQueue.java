@@ -22,51 +22,183 @@
 
 package org.teiid.common.buffer.impl;
 
+import java.util.AbstractCollection;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.teiid.common.buffer.BaseCacheEntry;
 import org.teiid.common.buffer.CacheKey;
+import org.teiid.core.util.PropertiesUtils;
 
 /**
  * A Concurrent LRFU eviction queue.  Has assumptions that match buffermanager usage.
  * Null values are not allowed.
+ * <br>
+ * Entries are spread by id over several independently ordered shards so that concurrent touches 
+ * contend only within a shard.  The lowest entry is the lowest of the shard heads, so the 
+ * LRFU ordering is preserved across the queue.
  * @param <V>
  */
 public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 	
 	private static final long DEFAULT_HALF_LIFE = 1<<16;
 	private static final long MIN_INTERVAL = 1<<9;
-	//TODO: until Java 7 ConcurrentSkipListMap has a scaling bug in that
-	//the level function limits the effective map size to ~ 2^16
-	//above which it performs comparably under multi-threaded load to a synchronized LinkedHashMap
-	//just with more CPU overhead vs. wait time.
-	protected NavigableMap<CacheKey, V> evictionQueue = new ConcurrentSkipListMap<CacheKey, V>();
+	static final int DEFAULT_SHARDS = Integer.highestOneBit(Math.max(1, PropertiesUtils.getIntProperty(System.getProperties(), "org.teiid.evictionQueueShards", Runtime.getRuntime().availableProcessors()))); //$NON-NLS-1$
+	
+	/**
+	 * A portion of the eviction queue.  
+	 * <br>
+	 * Sharding also keeps each map small, which mitigates the ConcurrentSkipListMap
+	 * scaling bug prior to Java 7 where the level function limits the effective map size to ~ 2^16
+	 */
+	static class Shard<V> {
+		final NavigableMap<CacheKey, V> entries = new ConcurrentSkipListMap<CacheKey, V>();
+		final AtomicInteger size = new AtomicInteger();
+		final AtomicLong touches = new AtomicLong();
+		final AtomicLong evictions = new AtomicLong();
+		
+		@Override
+		public String toString() {
+			return "Size:" + size.get() + " touches:" + touches.get() + " evictions:" + evictions.get(); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+	
+	private final Shard<V>[] shards;
+	private final int mask;
 	protected AtomicLong clock;
 	protected long maxInterval;
 	protected long halfLife;
-	private AtomicInteger size = new AtomicInteger();
+	
+	private Collection<V> evictionQueue = new AbstractCollection<V>() {
+		@Override
+		public Iterator<V> iterator() {
+			return new OrderedIterator();
+		}
+		
+		@Override
+		public int size() {
+			return getSize();
+		}
+		
+		@Override
+		public void clear() {
+			for (Shard<V> shard : shards) {
+				shard.entries.clear();
+				shard.size.set(0);
+			}
+		}
+	};
+	
+	/**
+	 * Merges the weakly consistent shard iterators into ascending order
+	 */
+	private class OrderedIterator implements Iterator<V> {
+		private Iterator<Map.Entry<CacheKey, V>>[] iters;
+		private Map.Entry<CacheKey, V>[] heads;
+		private int last = -1;
+		private CacheKey lastKey;
+		
+		@SuppressWarnings("unchecked")
+		OrderedIterator() {
+			iters = new Iterator[shards.length];
+			heads = new Map.Entry[shards.length];
+			for (int i = 0; i < shards.length; i++) {
+				iters[i] = shards[i].entries.entrySet().iterator();
+				advance(i);
+			}
+		}
+		
+		private void advance(int i) {
+			heads[i] = iters[i].hasNext()?iters[i].next():null;
+		}
+		
+		private int lowest() {
+			int result = -1;
+			for (int i = 0; i < heads.length; i++) {
+				if (heads[i] != null && (result == -1 || heads[i].getKey().compareTo(heads[result].getKey()) < 0)) {
+					result = i;
+				}
+			}
+			return result;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return lowest() != -1;
+		}
+		
+		@Override
+		public V next() {
+			int i = lowest();
+			if (i == -1) {
+				throw new NoSuchElementException();
+			}
+			V result = heads[i].getValue();
+			last = i;
+			lastKey = heads[i].getKey();
+			advance(i);
+			return result;
+		}
+		
+		@Override
+		public void remove() {
+			if (last == -1) {
+				throw new IllegalStateException();
+			}
+			//the shard iterator has already moved past the returned entry
+			if (shards[last].entries.remove(lastKey) != null) {
+				shards[last].size.addAndGet(-1);
+			}
+			last = -1;
+			lastKey = null;
+		}
+	}
 	
 	public LrfuEvictionQueue(AtomicLong clock) {
+		this(clock, DEFAULT_SHARDS);
+	}
+	
+	/**
+	 * @param shardCount rounded down to a power of 2
+	 */
+	@SuppressWarnings("unchecked")
+	public LrfuEvictionQueue(AtomicLong clock, int shardCount) {
 		this.clock = clock;
 		setHalfLife(DEFAULT_HALF_LIFE);
+		shardCount = Integer.highestOneBit(Math.max(1, shardCount));
+		this.shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			this.shards[i] = new Shard<V>();
+		}
+		this.mask = shardCount - 1;
+	}
+	
+	private Shard<V> getShard(CacheKey key) {
+		long id = key.getId();
+		int hash = (int)(id ^ (id >>> 32));
+		hash ^= (hash >>> 16);
+		return shards[hash & mask];
 	}
 
 	public boolean remove(V value) {
-		if (evictionQueue.remove(value.getKey()) != null) {
-			size.addAndGet(-1);
+		Shard<V> shard = getShard(value.getKey());
+		if (shard.entries.remove(value.getKey()) != null) {
+			shard.size.addAndGet(-1);
 			return true;
 		}
 		return false;
 	}
 	
 	public boolean add(V value) {
-		if (evictionQueue.put(value.getKey(), value) == null) {
-			size.addAndGet(1);
+		Shard<V> shard = getShard(value.getKey());
+		if (shard.entries.put(value.getKey(), value) == null) {
+			shard.size.addAndGet(1);
 			return true;
 		}
 		return false;
@@ -77,29 +209,44 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		if (tick - MIN_INTERVAL < value.getKey().getLastAccess()) {
 			return;
 		}
-		evictionQueue.remove(value.getKey());
+		Shard<V> shard = getShard(value.getKey());
+		shard.entries.remove(value.getKey());
 		recordAccess(value);
-		evictionQueue.put(value.getKey(), value);
+		shard.entries.put(value.getKey(), value);
+		shard.touches.incrementAndGet();
 	}
 		
+	/**
+	 * @return a view of the queue in ascending order.  The iteration is weakly consistent.
+	 */
 	public Collection<V> getEvictionQueue() {
-		return evictionQueue.values();
+		return evictionQueue;
 	}
 	
 	public V firstEntry(boolean poll) {
-		Map.Entry<CacheKey, V> entry = null;
-		if (poll) {
-			entry = evictionQueue.pollFirstEntry();
-			if (entry != null) {
-				size.addAndGet(-1);
+		while (true) {
+			Shard<V> lowest = null;
+			Map.Entry<CacheKey, V> entry = null;
+			for (Shard<V> shard : shards) {
+				Map.Entry<CacheKey, V> first = shard.entries.firstEntry();
+				if (first != null && (entry == null || first.getKey().compareTo(entry.getKey()) < 0)) {
+					entry = first;
+					lowest = shard;
+				}
+			}
+			if (entry == null) {
+				return null;
+			}
+			if (!poll) {
+				return entry.getValue();
+			}
+			//only take the entry that was chosen - if it has since moved then choose again
+			if (lowest.entries.remove(entry.getKey(), entry.getValue())) {
+				lowest.size.addAndGet(-1);
+				lowest.evictions.incrementAndGet();
+				return entry.getValue();
 			}
-		} else {
-			entry = evictionQueue.firstEntry();
-		}
-		if (entry != null) {
-			return entry.getValue();
 		}
-		return null;
 	}
 	
 	/**
@@ -112,7 +259,7 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		long orderingValue = key.getOrderingValue();
 		orderingValue = computeNextOrderingValue(currentClock, lastAccess,
 				orderingValue);
-		assert !this.evictionQueue.containsKey(value.getKey());
+		assert !getShard(key).entries.containsKey(key);
 		value.setKey(new CacheKey(key.getId(), currentClock, orderingValue));
 	}
 	
@@ -139,7 +286,22 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 	}
 	
 	public int getSize() {
-		return size.get();
+		int result = 0;
+		for (Shard<V> shard : shards) {
+			result += shard.size.get();
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the per shard size, touch and eviction counts
+	 */
+	public String getShardStats() {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < shards.length; i++) {
+			result.append(i).append(" ").append(shards[i]).append("\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return result.toString();
 	}
 	
 	@Override
@@ -147,12 +309,14 @@ public class LrfuEvictionQueue<V extends BaseCacheEntry> {
 		StringBuilder result = new StringBuilder();
 		result.append("Size:").append(getSize()).append(" "); //$NON-NLS-1$ //$NON-NLS-2$
 		int max = 2000;
-		for (CacheKey e : evictionQueue.keySet()) {
+		for (V v : evictionQueue) {
+			CacheKey e = v.getKey();
 			result.append("(").append(e.getOrderingValue()).append(", ") //$NON-NLS-1$ //$NON-NLS-2$
 					.append(e.getLastAccess()).append(", ").append(e.getId()) //$NON-NLS-1$
 					.append(") "); //$NON-NLS-1$
 			if (--max == 0) {
 				result.append("..."); //$NON-NLS-1$
+				break;
 			}
 		}
 		return result.toString();
@@ -38,6 +38,8 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.teiid.common.buffer.ColumnarBatch;
+import org.teiid.common.buffer.ColumnarBatch.ObjectColumn;
 import org.teiid.core.types.BaseLob;
 import org.teiid.core.types.BinaryType;
 import org.teiid.core.types.DataTypeManager;
@@ -122,6 +124,9 @@ public final class SizeUtility {
 	}
 	
     public long getBatchSize(boolean accountForValueCache, List<? extends List<?>> data) {
+    	if (data instanceof ColumnarBatch) {
+    		return getBatchSize(accountForValueCache, (ColumnarBatch)data);
+    	}
         int colLength = types.length;
         int rowLength = data.size();
     
@@ -146,6 +151,33 @@ public final class SizeUtility {
         return size;
     }
     
+    /**
+     * The primitive and dictionary columns are sized exactly, only the 
+     * values of object columns need to be estimated.
+     */
+    private long getBatchSize(boolean accountForValueCache, ColumnarBatch data) {
+    	long size = data.getSizeEstimate();
+    	int rowLength = data.size();
+    	for (int col = 0; col < types.length; col++) {
+    		if (!(data.getColumn(col) instanceof ObjectColumn)) {
+    			continue;
+    		}
+    		Class<?> type = types[col];
+			if (VARIABLE_SIZE_TYPES.contains(type)) {
+	            int rowsSampled = 0;
+	            int estimatedSize = 0;
+                for (int row = 0; row < rowLength; row=(row*2)+1) {
+                	rowsSampled++;
+                    estimatedSize += getSize(data.getValue(row, col), type, true, accountForValueCache);
+                }
+                size += estimatedSize/(float)rowsSampled * rowLength;
+            } else {
+            	size += getSize(accountForValueCache, type) * rowLength;
+            }
+    	}
+    	return size;
+    }
+    
     static int getSize(boolean isValueCacheEnabled,
 			Class<?> type) {
     	int[] vals = SIZE_ESTIMATES.get(type);
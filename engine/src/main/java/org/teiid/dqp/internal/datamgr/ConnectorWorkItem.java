@@ -298,6 +298,7 @@ public class ConnectorWorkItem implements ConnectorWork {
 		    			}
 		    		}
 			    	if (this.connectionFactory != null) {
+			    		this.securityContext.setConnectionFactory(this.connectionFactory);
 			    		this.connection = this.connector.getConnection(this.connectionFactory, securityContext);
 			    	} 
 			    	if (this.connection == null && this.connector.isSourceRequired()) {
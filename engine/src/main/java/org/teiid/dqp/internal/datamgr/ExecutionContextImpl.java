@@ -67,6 +67,7 @@ public class ExecutionContextImpl implements ExecutionContext {
 	private CommandContext commandContext;
 	private CacheDirective cacheDirective;
 	private RuntimeMetadata runtimeMetadata;
+	private Object connectionFactory;
 	
 	public ExecutionContextImpl(String vdbName, int vdbVersion,  Serializable executionPayload, 
             String originalConnectionID, String connectorName, long requestId, String partId, String execCount) {
@@ -297,5 +298,13 @@ public class ExecutionContextImpl implements ExecutionContext {
 	public RuntimeMetadata getRuntimeMetadata() {
 		return this.runtimeMetadata;
 	}
-
+	
+	@Override
+	public Object getConnectionFactory() {
+		return connectionFactory;
+	}
+	
+	public void setConnectionFactory(Object connectionFactory) {
+		this.connectionFactory = connectionFactory;
+	}
 }
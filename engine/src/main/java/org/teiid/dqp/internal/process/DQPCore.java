@@ -103,6 +103,7 @@ public class DQPCore implements DQP {
     private TempTableDataManager dataTierMgr;
     private SessionAwareCache<PreparedPlan> prepPlanCache;
     private SessionAwareCache<CachedResults> rsCache;
+    private SemanticResultsCache semanticCache;
     private TransactionService transactionService;
     private EventDistributor eventDistributor;
     
@@ -577,6 +578,10 @@ public class DQPCore implements DQP {
 		return rsCache;
 	}
 	
+	SemanticResultsCache getSemanticCache() {
+		return semanticCache;
+	}
+	
 	int getProcessorTimeSlice() {
 		return this.config.getTimeSliceInMilli();
 	}	
@@ -839,6 +844,11 @@ public class DQPCore implements DQP {
 	
 	public void setResultsetCache(SessionAwareCache<CachedResults> cache) {
 		this.rsCache = cache;
+		if (cache != null && SemanticResultsCache.ENABLED) {
+			this.semanticCache = new SemanticResultsCache();
+		} else {
+			this.semanticCache = null;
+		}
 	}
 	
 	public void setPreparedPlanCache(SessionAwareCache<PreparedPlan> cache) {
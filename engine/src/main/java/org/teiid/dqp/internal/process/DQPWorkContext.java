@@ -141,6 +141,7 @@ public class DQPWorkContext implements Serializable {
     private HashMap<String, DataPolicy> policies;
     private boolean useCallingThread;
     private Version clientVersion = Version.SEVEN_4;
+    private boolean compressResults;
     private boolean admin;
     private MetadataFactory metadataFactory;
 
@@ -344,6 +345,24 @@ public class DQPWorkContext implements Serializable {
 		this.clientVersion = clientVersion;
 	}
 	
+	public void setCompressResults(boolean compressResults) {
+		this.compressResults = compressResults;
+	}
+	
+	public boolean isCompressResults() {
+		return compressResults;
+	}
+	
+	/**
+	 * @return the batch serialization version to use for results sent to the client
+	 */
+	public byte getClientSerializationVersion() {
+		if (compressResults) {
+			return BatchSerializer.VERSION_COMPRESSED;
+		}
+		return clientVersion.getClientSerializationVersion();
+	}
+	
 	public void setAdmin(boolean admin) {
 		this.admin = admin;
 	}
@@ -36,6 +36,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.teiid.api.exception.query.QueryParserException;
+import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.client.BatchSerializer;
 import org.teiid.client.RequestMessage;
 import org.teiid.client.RequestMessage.ShowPlan;
@@ -58,6 +60,7 @@ import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.dqp.internal.process.AuthorizationValidator.CommandType;
 import org.teiid.dqp.internal.process.DQPCore.CompletionListener;
+import org.teiid.dqp.internal.process.SemanticResultsCache.Subsumption;
 import org.teiid.dqp.internal.process.SessionAwareCache.CacheID;
 import org.teiid.dqp.internal.process.ThreadReuseExecutor.PrioritizedRunnable;
 import org.teiid.dqp.message.AtomicRequestID;
@@ -79,6 +82,7 @@ import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.BatchCollector;
 import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.processor.QueryProcessor.ExpiredTimeSliceException;
+import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.sql.lang.CacheHint;
 import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.SPParameter;
@@ -88,6 +92,7 @@ import org.teiid.query.sql.symbol.Symbol;
 import org.teiid.query.util.CommandContext;
 import org.teiid.query.util.GeneratedKeysImpl;
 import org.teiid.query.util.Options;
+import org.teiid.vdb.runtime.VDBKey;
 
 /**
  * Compiles results and other information for the client.  There is quite a bit of logic
@@ -187,6 +192,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     private AnalysisRecord analysisRecord;
     private TransactionContext transactionContext;
     TupleBuffer resultsBuffer;
+    private boolean subsumedResults;
     private boolean returnsUpdateCount;
     
     /*
@@ -518,6 +524,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 					
 					CommandContext cc = this.processor.getContext();
 					cc.close();
+				} else if (this.subsumedResults) {
+					rowcount = resultsBuffer.getRowCount();
+					resultsBuffer.remove();
 				}
 	
 				this.resultsBuffer = null;
@@ -615,7 +624,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 							return;
 						}
 						LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Cached result command to be modified, will not use the cached results", cacheId); //$NON-NLS-1$
-					} 
+					} else if (cr == null && processSubsumed(rsCache, pi)) {
+						return;
+					}
 				} else {
 					LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Parameters are not serializable - cache cannot be used for", cacheId); //$NON-NLS-1$
 				}
@@ -763,6 +774,54 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		}
 	}
 
+	/**
+	 * Attempt to answer the request by filtering and projecting a cached result 
+	 * that subsumes it.
+	 * @return true if the results were obtained from the cache
+	 */
+	private boolean processSubsumed(SessionAwareCache<CachedResults> rsCache, ParseInfo pi) throws TeiidComponentException, TeiidProcessingException {
+		SemanticResultsCache semanticCache = dqpCore.getSemanticCache();
+		if (semanticCache == null || semanticCache.isEmpty() || requestMsg.getCommand() != null 
+				|| (requestMsg.getParameterValues() != null && !requestMsg.getParameterValues().isEmpty())) {
+			return false;
+		}
+		request.initMetadata();
+		Command command = null;
+		try {
+			command = QueryParser.getQueryParser().parseCommand(requestMsg.getCommandString(), pi);
+			if (SemanticResultsCache.getQuery(command) == null) {
+				return false;
+			}
+			QueryResolver.resolveCommand(command, request.metadata);
+		} catch (QueryParserException e) {
+			return false; //will be reported by normal processing
+		} catch (QueryResolverException e) {
+			return false; //will be reported by normal processing
+		}
+		VDBKey vdbKey = new VDBKey(this.dqpWorkContext.getVdbName(), this.dqpWorkContext.getVdbVersion());
+		for (String sql : semanticCache.getCandidates(vdbKey, pi.ansiQuotedIdentifiers, command)) {
+			CachedResults cr = rsCache.get(new CacheID(this.dqpWorkContext, pi, sql));
+			if (cr == null || cr.getRowLimit() != 0 || cr.getResults().isLobs()) {
+				continue;
+			}
+			Subsumption subsumption = SemanticResultsCache.subsumes(cr.getCommand(sql, request.metadata, pi), command);
+			if (subsumption == null) {
+				continue;
+			}
+			if (request.validateAccess(requestMsg.getCommands(), command, CommandType.CACHED)) {
+				LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Command to be modified, will not use subsuming cached results", sql); //$NON-NLS-1$
+				return false;
+			}
+			LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Using subsuming result set cached results", sql); //$NON-NLS-1$
+			this.originalCommand = command;
+			this.resultsBuffer = SemanticResultsCache.getResults(cr.getResults(), subsumption, command.getProjectedSymbols(), dqpCore.getBufferManager(), request.context, requestMsg.getRowLimit());
+			this.subsumedResults = true;
+			doneProducingBatches();
+			return true;
+		}
+		return false;
+	}
+	
 	private CacheHint getCacheHint() {
 		if (requestMsg.getCommand() != null) {
 			return ((Command)requestMsg.getCommand()).getCacheHint();
@@ -799,6 +858,11 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			LogManager.logInfo(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30008, originalCommand));
 		}
         dqpCore.getRsCache().put(cid, determinismLevel, cr, originalCommand.getCacheHint() != null?originalCommand.getCacheHint().getTtl():null);
+        SemanticResultsCache semanticCache = dqpCore.getSemanticCache();
+        if (semanticCache != null && cr.getRowLimit() == 0 && requestMsg.getCommand() == null 
+        		&& (requestMsg.getParameterValues() == null || requestMsg.getParameterValues().isEmpty())) {
+        	semanticCache.add(cid.getVDBKey(), Request.createParseInfo(requestMsg).ansiQuotedIdentifiers, originalCommand, requestMsg.getCommandString());
+        }
 	}
 	
 	public SessionAwareCache<CachedResults> getRsCache() {
@@ -994,7 +1058,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
         String[] columnNames = new String[columnSymbols.size()];
         String[] dataTypes = new String[columnSymbols.size()];
 
-        byte clientSerializationVersion = this.dqpWorkContext.getClientVersion().getClientSerializationVersion();
+        byte clientSerializationVersion = this.dqpWorkContext.getClientSerializationVersion();
         for(int i=0; i<columnSymbols.size(); i++) {
             Expression symbol = columnSymbols.get(i);
             columnNames[i] = Symbol.getShortName(Symbol.getOutputName(symbol));
@@ -0,0 +1,566 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.PropertiesUtils;
+import org.teiid.metadata.FunctionMethod.PushDown;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.LanguageVisitor;
+import org.teiid.query.sql.lang.BetweenCriteria;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.Limit;
+import org.teiid.query.sql.lang.MatchCriteria;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.navigator.PreOrderNavigator;
+import org.teiid.query.sql.symbol.AggregateSymbol;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.WindowFunction;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.sql.visitor.AggregateSymbolCollectorVisitor;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
+import org.teiid.query.util.CommandContext;
+import org.teiid.vdb.runtime.VDBKey;
+
+/**
+ * Allows result set cache entries to answer queries that are subsumed by the cached query.
+ * <br>
+ * Cached queries are indexed by their from clause.  A cached entry may be used for a query against
+ * the same from clause when the query criteria implies the cached criteria and the query projection,
+ * remaining criteria, and limit can be computed from the cached columns.  The results are then produced
+ * by filtering and projecting the cached results rather than going back to the sources.
+ * <br>
+ * The index only holds the sql of the cached entries, the entries themselves are still obtained
+ * through the {@link SessionAwareCache} so that scoping and invalidation are unchanged.
+ */
+public class SemanticResultsCache {
+
+	public static final boolean ENABLED = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.semanticResultsCache", true); //$NON-NLS-1$
+	static int MAX_TEMPLATES = PropertiesUtils.getIntProperty(System.getProperties(), "org.teiid.semanticResultsCacheMaxTemplates", 1024); //$NON-NLS-1$
+	static int MAX_ENTRIES_PER_TEMPLATE = 16;
+
+	/**
+	 * Describes how to compute a query from the results of a cached query
+	 */
+	static class Subsumption {
+		Map<Expression, Integer> elementMap = new HashMap<Expression, Integer>();
+		Criteria criteria;
+		List<Expression> projection = new ArrayList<Expression>();
+		int offset;
+		int limit = -1;
+	}
+
+	private Map<List<?>, LinkedHashSet<String>> index = new LinkedHashMap<List<?>, LinkedHashSet<String>>(16, .75f, true) {
+		private static final long serialVersionUID = -1257604417429839449L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<?>, LinkedHashSet<String>> eldest) {
+			return size() > MAX_TEMPLATES;
+		}
+	};
+
+	/**
+	 * Index a cached entry
+	 * @param vdbKey
+	 * @param ansiIdentifiers
+	 * @param command the resolved user command
+	 * @param sql the sql of the cache entry
+	 */
+	public void add(VDBKey vdbKey, boolean ansiIdentifiers, Command command, String sql) {
+		Query query = getQuery(command);
+		if (query == null || query.getLimit() != null) {
+			return;
+		}
+		List<?> key = getKey(vdbKey, ansiIdentifiers, query);
+		synchronized (index) {
+			LinkedHashSet<String> entries = index.get(key);
+			if (entries == null) {
+				entries = new LinkedHashSet<String>();
+				index.put(key, entries);
+			} else {
+				entries.remove(sql);
+			}
+			entries.add(sql);
+			if (entries.size() > MAX_ENTRIES_PER_TEMPLATE) {
+				Iterator<String> iter = entries.iterator();
+				iter.next();
+				iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Get the sql of cached entries that have the same from clause, most recent first.
+	 * @param command the resolved user command
+	 */
+	public List<String> getCandidates(VDBKey vdbKey, boolean ansiIdentifiers, Command command) {
+		Query query = getQuery(command);
+		if (query == null) {
+			return Collections.emptyList();
+		}
+		List<?> key = getKey(vdbKey, ansiIdentifiers, query);
+		synchronized (index) {
+			LinkedHashSet<String> entries = index.get(key);
+			if (entries == null) {
+				return Collections.emptyList();
+			}
+			List<String> result = new ArrayList<String>(entries);
+			Collections.reverse(result);
+			return result;
+		}
+	}
+
+	public boolean isEmpty() {
+		synchronized (index) {
+			return index.isEmpty();
+		}
+	}
+
+	private static List<?> getKey(VDBKey vdbKey, boolean ansiIdentifiers, Query query) {
+		return Arrays.asList(vdbKey, ansiIdentifiers, query.getFrom().toString());
+	}
+
+	/**
+	 * Return the command as a {@link Query} if it is simple enough to participate in subsumption,
+	 * a single select/project/filter over a from clause that can be evaluated by the engine.
+	 */
+	static Query getQuery(Command command) {
+		if (!(command instanceof Query)) {
+			return null;
+		}
+		Query query = (Query)command;
+		if (query.getFrom() == null || query.getInto() != null || query.getWith() != null
+				|| query.getGroupBy() != null || query.getHaving() != null || query.getSelect().isDistinct()
+				|| query.getOption() != null || query.getIsXML() || query.isRowConstructor()) {
+			return null;
+		}
+		List<AggregateSymbol> aggs = new ArrayList<AggregateSymbol>();
+		List<WindowFunction> windowFunctions = new ArrayList<WindowFunction>();
+		AggregateSymbolCollectorVisitor.getAggregates(query.getSelect(), aggs, null, null, windowFunctions, null);
+		if (!aggs.isEmpty() || !windowFunctions.isEmpty() || !ReferenceCollectorVisitor.getReferences(query).isEmpty()) {
+			return null;
+		}
+		if (!isEvaluatable(query.getSelect()) || (query.getCriteria() != null && !isEvaluatable(query.getCriteria()))) {
+			return null;
+		}
+		return query;
+	}
+
+	private static boolean isEvaluatable(LanguageObject obj) {
+		if (!ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(obj).isEmpty()) {
+			return false;
+		}
+		for (Function function : FunctionCollectorVisitor.getFunctions(obj, true)) {
+			if (function.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)
+					|| function.getFunctionDescriptor() == null
+					|| function.getFunctionDescriptor().getPushdown() == PushDown.MUST_PUSHDOWN) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determine if the query results can be computed from the cached results.
+	 * Both commands are expected to be resolved against the same metadata.
+	 * @return the {@link Subsumption} or null if the cached results cannot be used
+	 */
+	static Subsumption subsumes(Command cachedCommand, Command command) {
+		Query cached = getQuery(cachedCommand);
+		Query query = getQuery(command);
+		if (cached == null || query == null || cached.getLimit() != null || !cached.getFrom().equals(query.getFrom())) {
+			return null;
+		}
+		//the cached results are in the cached order, so any other order cannot be satisfied
+		if (query.getOrderBy() != null && !query.getOrderBy().equals(cached.getOrderBy())) {
+			return null;
+		}
+		Subsumption result = new Subsumption();
+		List<Expression> cachedSymbols = cached.getProjectedSymbols();
+		for (int i = 0; i < cachedSymbols.size(); i++) {
+			Expression ex = SymbolMap.getExpression(cachedSymbols.get(i));
+			if (!result.elementMap.containsKey(ex)) {
+				result.elementMap.put(ex, i);
+			}
+		}
+		//each of the cached conjuncts must be implied by the query criteria
+		List<Criteria> cachedConjuncts = Criteria.separateCriteriaByAnd(cached.getCriteria());
+		List<Criteria> conjuncts = Criteria.separateCriteriaByAnd(query.getCriteria());
+		List<Criteria> expanded = expandBetween(conjuncts);
+		for (Criteria cachedConjunct : expandBetween(cachedConjuncts)) {
+			if (conjuncts.contains(cachedConjunct)) {
+				continue;
+			}
+			boolean implied = false;
+			for (Criteria conjunct : expanded) {
+				if (implies(conjunct, cachedConjunct)) {
+					implied = true;
+					break;
+				}
+			}
+			if (!implied) {
+				return null;
+			}
+		}
+		//the remaining conjuncts must be evaluated against the cached columns
+		List<Criteria> residual = new ArrayList<Criteria>(conjuncts);
+		residual.removeAll(cachedConjuncts);
+		for (Criteria crit : residual) {
+			if (!isMapped(crit, result.elementMap) || hasStringComparison(crit)) {
+				return null;
+			}
+		}
+		result.criteria = Criteria.combineCriteria(residual);
+		for (Expression symbol : query.getProjectedSymbols()) {
+			Expression ex = SymbolMap.getExpression(symbol);
+			if (!result.elementMap.containsKey(ex) && !isMapped(ex, result.elementMap)) {
+				return null;
+			}
+			result.projection.add(ex);
+		}
+		Limit limit = query.getLimit();
+		if (limit != null) {
+			Integer offset = getIntValue(limit.getOffset());
+			Integer rowLimit = getIntValue(limit.getRowLimit());
+			if ((limit.getOffset() != null && offset == null) || (limit.getRowLimit() != null && rowLimit == null)) {
+				return null;
+			}
+			if (offset != null) {
+				result.offset = Math.max(0, offset);
+			}
+			if (rowLimit != null) {
+				result.limit = Math.max(0, rowLimit);
+			}
+		}
+		return result;
+	}
+
+	private static Integer getIntValue(Expression ex) {
+		if (ex instanceof Constant && ((Constant)ex).getValue() instanceof Integer) {
+			return (Integer)((Constant)ex).getValue();
+		}
+		return null;
+	}
+
+	private static boolean isMapped(LanguageObject obj, Map<Expression, Integer> elementMap) {
+		for (ElementSymbol es : ElementCollectorVisitor.getElements(obj, true)) {
+			if (!elementMap.containsKey(es)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * String comparisons are left to the source since the source collation 
+	 * or case sensitivity may differ from the engine.
+	 */
+	private static boolean hasStringComparison(Criteria crit) {
+		final boolean[] result = new boolean[1];
+		PreOrderNavigator.doVisit(crit, new LanguageVisitor() {
+			@Override
+			public void visit(MatchCriteria obj) {
+				result[0] = true;
+			}
+			@Override
+			public void visit(CompareCriteria obj) {
+				result[0] |= isString(obj.getLeftExpression()) || isString(obj.getRightExpression());
+			}
+			@Override
+			public void visit(SetCriteria obj) {
+				result[0] |= isString(obj.getExpression());
+			}
+			@Override
+			public void visit(BetweenCriteria obj) {
+				result[0] |= isString(obj.getExpression());
+			}
+		});
+		return result[0];
+	}
+	
+	private static boolean isString(Expression ex) {
+		Class<?> type = ex.getType();
+		return type == DataTypeManager.DefaultDataClasses.STRING || type == DataTypeManager.DefaultDataClasses.CHAR 
+				|| type == DataTypeManager.DefaultDataClasses.CLOB;
+	}
+
+	private static List<Criteria> expandBetween(List<Criteria> conjuncts) {
+		List<Criteria> result = new ArrayList<Criteria>(conjuncts.size());
+		for (Criteria crit : conjuncts) {
+			if (crit instanceof BetweenCriteria && !((BetweenCriteria)crit).isNegated()) {
+				BetweenCriteria between = (BetweenCriteria)crit;
+				result.add(new CompareCriteria(between.getExpression(), CompareCriteria.GE, between.getLowerExpression()));
+				result.add(new CompareCriteria(between.getExpression(), CompareCriteria.LE, between.getUpperExpression()));
+			} else {
+				result.add(crit);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Determine if every row satisfying the conjunct also satisfies the cached conjunct.
+	 * <br>
+	 * Only numeric and date/time comparisons are considered since the source
+	 * collation for string comparisons may differ from the engine.
+	 */
+	static boolean implies(Criteria conjunct, Criteria cachedConjunct) {
+		if (conjunct.equals(cachedConjunct)) {
+			return true;
+		}
+		Expression expr = getExpression(cachedConjunct);
+		if (expr == null || !expr.equals(getExpression(conjunct))) {
+			return false;
+		}
+		Collection<Constant> values = getValues(conjunct);
+		if (values != null) {
+			for (Constant value : values) {
+				if (!satisfies(value, cachedConjunct)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (!(conjunct instanceof CompareCriteria) || !(cachedConjunct instanceof CompareCriteria)) {
+			return false;
+		}
+		CompareCriteria cc = (CompareCriteria)conjunct;
+		CompareCriteria cached = (CompareCriteria)cachedConjunct;
+		int op = getOperator(cc);
+		int cachedOp = getOperator(cached);
+		Integer compare = compare(getConstant(cc), getConstant(cached));
+		if (compare == null) {
+			return false;
+		}
+		switch (cachedOp) {
+		case CompareCriteria.GT:
+			return (op == CompareCriteria.GT && compare >= 0) || (op == CompareCriteria.GE && compare > 0);
+		case CompareCriteria.GE:
+			return (op == CompareCriteria.GT || op == CompareCriteria.GE) && compare >= 0;
+		case CompareCriteria.LT:
+			return (op == CompareCriteria.LT && compare <= 0) || (op == CompareCriteria.LE && compare < 0);
+		case CompareCriteria.LE:
+			return (op == CompareCriteria.LT || op == CompareCriteria.LE) && compare <= 0;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the point values of an equality or in predicate
+	 */
+	private static Collection<Constant> getValues(Criteria crit) {
+		if (crit instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)crit;
+			if (getOperator(cc) == CompareCriteria.EQ) {
+				return Arrays.asList(getConstant(cc));
+			}
+		} else if (crit instanceof SetCriteria) {
+			return getSetValues((SetCriteria)crit);
+		}
+		return null;
+	}
+
+	private static Collection<Constant> getSetValues(SetCriteria crit) {
+		if (crit.isNegated()) {
+			return null;
+		}
+		List<Constant> result = new ArrayList<Constant>(crit.getNumberOfValues());
+		for (Object value : crit.getValues()) {
+			if (!(value instanceof Constant)) {
+				return null;
+			}
+			result.add((Constant)value);
+		}
+		return result;
+	}
+
+	private static boolean satisfies(Constant value, Criteria cachedConjunct) {
+		if (cachedConjunct instanceof SetCriteria) {
+			Collection<Constant> values = getSetValues((SetCriteria)cachedConjunct);
+			if (values == null) {
+				return false;
+			}
+			for (Constant constant : values) {
+				Integer compare = compare(value, constant);
+				if (compare != null && compare == 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+		CompareCriteria cc = (CompareCriteria)cachedConjunct;
+		Integer compare = compare(value, getConstant(cc));
+		if (compare == null) {
+			return false;
+		}
+		switch (getOperator(cc)) {
+		case CompareCriteria.EQ:
+			return compare == 0;
+		case CompareCriteria.NE:
+			return compare != 0;
+		case CompareCriteria.GT:
+			return compare > 0;
+		case CompareCriteria.GE:
+			return compare >= 0;
+		case CompareCriteria.LT:
+			return compare < 0;
+		case CompareCriteria.LE:
+			return compare <= 0;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the non-constant side of a comparison against a constant or null
+	 */
+	private static Expression getExpression(Criteria crit) {
+		if (crit instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)crit;
+			if (cc.getRightExpression() instanceof Constant && !(cc.getLeftExpression() instanceof Constant)) {
+				return cc.getLeftExpression();
+			}
+			if (cc.getLeftExpression() instanceof Constant && !(cc.getRightExpression() instanceof Constant)) {
+				return cc.getRightExpression();
+			}
+		} else if (crit instanceof SetCriteria) {
+			return ((SetCriteria)crit).getExpression();
+		}
+		return null;
+	}
+
+	private static Constant getConstant(CompareCriteria cc) {
+		if (cc.getRightExpression() instanceof Constant) {
+			return (Constant)cc.getRightExpression();
+		}
+		return (Constant)cc.getLeftExpression();
+	}
+
+	/**
+	 * @return the operator as if the constant were on the right
+	 */
+	private static int getOperator(CompareCriteria cc) {
+		if (cc.getRightExpression() instanceof Constant) {
+			return cc.getOperator();
+		}
+		switch (cc.getOperator()) {
+		case CompareCriteria.LT:
+			return CompareCriteria.GT;
+		case CompareCriteria.GT:
+			return CompareCriteria.LT;
+		case CompareCriteria.LE:
+			return CompareCriteria.GE;
+		case CompareCriteria.GE:
+			return CompareCriteria.LE;
+		}
+		return cc.getOperator();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Integer compare(Constant value, Constant other) {
+		Object val = value.getValue();
+		Object otherVal = other.getValue();
+		if (val == null || otherVal == null || val.getClass() != otherVal.getClass()
+				|| !(val instanceof Number || val instanceof java.util.Date) || !(val instanceof Comparable)) {
+			return null;
+		}
+		return ((Comparable<Object>)val).compareTo(otherVal);
+	}
+
+	/**
+	 * Compute the query results by filtering and projecting the cached results
+	 * @param rowLimit the request row limit or 0 if there is none
+	 */
+	static TupleBuffer getResults(TupleBuffer cachedResults, Subsumption subsumption, List<? extends Expression> projectedSymbols,
+			BufferManager bufferManager, CommandContext context, int rowLimit) throws TeiidComponentException, TeiidProcessingException {
+		TupleBuffer result = bufferManager.createTupleBuffer(projectedSymbols, context.getConnectionId(), TupleSourceType.FINAL);
+		Evaluator eval = new Evaluator(subsumption.elementMap, null, context);
+		int limit = subsumption.limit;
+		if (rowLimit > 0 && (limit < 0 || rowLimit < limit)) {
+			limit = rowLimit;
+		}
+		int offset = subsumption.offset;
+		TupleSource ts = cachedResults.createIndexedTupleSource();
+		boolean success = false;
+		try {
+			List<?> tuple = null;
+			while (limit != 0 && (tuple = ts.nextTuple()) != null) {
+				if (subsumption.criteria != null && !eval.evaluate(subsumption.criteria, tuple)) {
+					continue;
+				}
+				if (offset > 0) {
+					offset--;
+					continue;
+				}
+				List<Object> row = new ArrayList<Object>(subsumption.projection.size());
+				for (Expression ex : subsumption.projection) {
+					//the evaluator only uses the element map for elements, so project cached expressions directly
+					Integer index = subsumption.elementMap.get(ex);
+					if (index != null) {
+						row.add(tuple.get(index));
+					} else {
+						row.add(eval.evaluate(ex, tuple));
+					}
+				}
+				result.addTuple(row);
+				limit--;
+			}
+			result.close();
+			success = true;
+		} finally {
+			ts.closeSource();
+			if (!success) {
+				result.remove();
+			}
+		}
+		return result;
+	}
+
+}
@@ -571,6 +571,10 @@ public class QueryPlugin { // extends Plugin {
     	TEIID31157, 
     	TEIID31158, 
     	TEIID31159, 
-    	TEIID31160
+    	TEIID31160, 
+    	TEIID31161,
+    	TEIID31162,
+    	TEIID31163,
+    	TEIID31164
 	}
 }
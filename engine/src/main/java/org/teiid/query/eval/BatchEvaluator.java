@@ -0,0 +1,704 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.teiid.api.exception.query.ExpressionEvaluationException;
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.ColumnarBatch;
+import org.teiid.common.buffer.ColumnarBatch.Column;
+import org.teiid.common.buffer.ColumnarBatch.DoubleColumn;
+import org.teiid.common.buffer.ColumnarBatch.IntColumn;
+import org.teiid.common.buffer.ColumnarBatch.LongColumn;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.metadata.FunctionMethod.PushDown;
+import org.teiid.query.function.FunctionDescriptor;
+import org.teiid.query.function.FunctionLibrary;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.ExpressionCriteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.MatchCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.CaseExpression;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.Reference;
+import org.teiid.query.sql.symbol.SearchedCaseExpression;
+
+/**
+ * Evaluates a {@link Criteria} against a whole batch of tuples at a time.
+ * <br>
+ * The criteria is compiled once into a tree of filters that each narrow a selection vector
+ * of row indexes.  Element references are resolved to column indexes up front, constant 
+ * IN lists are hashed, constant match patterns are translated once, and functions are invoked 
+ * directly against their {@link FunctionDescriptor}.  Comparisons of an element with a 
+ * constant read primitive values directly from a {@link ColumnarBatch}.
+ * <br>
+ * Only criteria that cannot block are supported, see {@link #create(Criteria, Map)}.
+ * Parts without a specialized filter are delegated to the {@link Evaluator} row by row.
+ * <br>
+ * The compiled form holds no execution state, positional references such as prepared 
+ * statement parameters are read once per batch, so it can be reused across executions.
+ */
+public class BatchEvaluator {
+	
+	private abstract static class Operand {
+		
+		int getIndex() {
+			return -1;
+		}
+		
+		/**
+		 * @return true if the value is the same for every row of a batch
+		 */
+		boolean isBatchConstant() {
+			return false;
+		}
+		
+		abstract Object get(Evaluator eval, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+	}
+	
+	private static class ElementOperand extends Operand {
+		private int index;
+		
+		ElementOperand(int index) {
+			this.index = index;
+		}
+		
+		@Override
+		int getIndex() {
+			return index;
+		}
+		
+		@Override
+		Object get(Evaluator eval, List<?> tuple) {
+			return tuple.get(index);
+		}
+	}
+	
+	private static class ConstantOperand extends Operand {
+		private Object value;
+		
+		ConstantOperand(Object value) {
+			this.value = value;
+		}
+		
+		@Override
+		boolean isBatchConstant() {
+			return true;
+		}
+		
+		@Override
+		Object get(Evaluator eval, List<?> tuple) {
+			return value;
+		}
+	}
+	
+	private static class FunctionOperand extends Operand {
+		private FunctionDescriptor fd;
+		private Operand[] args;
+		
+		FunctionOperand(FunctionDescriptor fd, Operand[] args) {
+			this.fd = fd;
+			this.args = args;
+		}
+		
+		@Override
+		Object get(Evaluator eval, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object[] values = null;
+			int start = 0;
+			if (fd.requiresContext()) {
+				values = new Object[args.length + 1];
+				values[0] = eval.context;
+				start = 1;
+			} else {
+				values = new Object[args.length];
+			}
+			for (int i = 0; i < args.length; i++) {
+				values[i + start] = args[i].get(eval, tuple);
+			}
+			return fd.invokeFunction(values, eval.context, null);
+		}
+	}
+	
+	private static class ExpressionOperand extends Operand {
+		private Expression expression;
+		
+		ExpressionOperand(Expression expression) {
+			this.expression = expression;
+		}
+		
+		@Override
+		Object get(Evaluator eval, List<?> tuple) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			return eval.evaluate(expression, tuple);
+		}
+	}
+	
+	/**
+	 * A positional reference, such as a prepared statement parameter
+	 */
+	private static class ReferenceOperand extends ExpressionOperand {
+		
+		ReferenceOperand(Reference reference) {
+			super(reference);
+		}
+		
+		@Override
+		boolean isBatchConstant() {
+			return true;
+		}
+	}
+	
+	/**
+	 * Narrows the selection to the rows for which the criteria is true
+	 */
+	private abstract static class Filter {
+		abstract int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException;
+	}
+	
+	private static class AndFilter extends Filter {
+		private Filter[] filters;
+		
+		AndFilter(Filter[] filters) {
+			this.filters = filters;
+		}
+		
+		@Override
+		int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			for (int i = 0; i < filters.length && count > 0; i++) {
+				count = filters[i].filter(eval, tuples, columnar, selection, count);
+			}
+			return count;
+		}
+	}
+	
+	private static class OrFilter extends Filter {
+		private Filter[] filters;
+		
+		OrFilter(Filter[] filters) {
+			this.filters = filters;
+		}
+		
+		@Override
+		int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			boolean[] accepted = new boolean[tuples.size()];
+			int[] remaining = Arrays.copyOf(selection, count);
+			int remainingCount = count;
+			int[] trial = new int[count];
+			for (int i = 0; i < filters.length && remainingCount > 0; i++) {
+				System.arraycopy(remaining, 0, trial, 0, remainingCount);
+				int matched = filters[i].filter(eval, tuples, columnar, trial, remainingCount);
+				if (matched == 0) {
+					continue;
+				}
+				for (int j = 0; j < matched; j++) {
+					accepted[trial[j]] = true;
+				}
+				int newCount = 0;
+				for (int j = 0; j < remainingCount; j++) {
+					if (!accepted[remaining[j]]) {
+						remaining[newCount++] = remaining[j];
+					}
+				}
+				remainingCount = newCount;
+			}
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				if (accepted[selection[i]]) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+	
+	private static class CompareFilter extends Filter {
+		private CompareCriteria criteria;
+		private Operand left;
+		private Operand right;
+		
+		CompareFilter(CompareCriteria criteria, Operand left, Operand right) {
+			this.criteria = criteria;
+			this.left = left;
+			this.right = right;
+		}
+		
+		@Override
+		int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			Object constant = null;
+			if (right.isBatchConstant()) {
+				constant = right.get(eval, null);
+				if (constant == null) {
+					return 0;
+				}
+				if (columnar != null && left.getIndex() >= 0) {
+					int result = filterPrimitive(columnar.getColumn(left.getIndex()), constant, selection, count);
+					if (result >= 0) {
+						return result;
+					}
+				}
+			}
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				List<?> tuple = tuples.get(selection[i]);
+				Object leftValue = left.get(eval, tuple);
+				if (leftValue == null) {
+					continue;
+				}
+				Object rightValue = constant;
+				if (rightValue == null) {
+					rightValue = right.get(eval, tuple);
+					if (rightValue == null) {
+						continue;
+					}
+				}
+				if (Boolean.TRUE.equals(Evaluator.compare(criteria, leftValue, rightValue))) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+		
+		/**
+		 * @return the number of selected rows or -1 if the column is not supported
+		 */
+		private int filterPrimitive(Column column, Object constant, int[] selection, int count) {
+			int result = 0;
+			int operator = criteria.getOperator();
+			if (column instanceof IntColumn && constant instanceof Integer) {
+				IntColumn intColumn = (IntColumn)column;
+				int value = (Integer)constant;
+				for (int i = 0; i < count; i++) {
+					int row = selection[i];
+					if (!intColumn.isNull(row) && matches(operator, compare(intColumn.getInt(row), value))) {
+						selection[result++] = row;
+					}
+				}
+				return result;
+			} 
+			if (column instanceof LongColumn && constant instanceof Long) {
+				LongColumn longColumn = (LongColumn)column;
+				long value = (Long)constant;
+				for (int i = 0; i < count; i++) {
+					int row = selection[i];
+					if (!longColumn.isNull(row) && matches(operator, compare(longColumn.getLong(row), value))) {
+						selection[result++] = row;
+					}
+				}
+				return result;
+			} 
+			if (column instanceof DoubleColumn && constant instanceof Double) {
+				DoubleColumn doubleColumn = (DoubleColumn)column;
+				double value = (Double)constant;
+				for (int i = 0; i < count; i++) {
+					int row = selection[i];
+					if (!doubleColumn.isNull(row) && matches(operator, Double.compare(doubleColumn.getDouble(row), value))) {
+						selection[result++] = row;
+					}
+				}
+				return result;
+			}
+			return -1;
+		}
+		
+		private static boolean matches(int operator, int compare) {
+			switch (operator) {
+			case CompareCriteria.EQ:
+				return compare == 0;
+			case CompareCriteria.NE:
+				return compare != 0;
+			case CompareCriteria.LT:
+				return compare < 0;
+			case CompareCriteria.LE:
+				return compare <= 0;
+			case CompareCriteria.GT:
+				return compare > 0;
+			case CompareCriteria.GE:
+				return compare >= 0;
+			default:
+				throw new AssertionError();
+			}
+		}
+		
+		private static int compare(int x, int y) {
+			return x < y ? -1 : (x == y ? 0 : 1);
+		}
+		
+		private static int compare(long x, long y) {
+			return x < y ? -1 : (x == y ? 0 : 1);
+		}
+	}
+	
+	private static class InFilter extends Filter {
+		private Operand operand;
+		private Set<Object> values;
+		private boolean hasNull;
+		private boolean negated;
+		
+		InFilter(Operand operand, Set<Object> values, boolean hasNull, boolean negated) {
+			this.operand = operand;
+			this.values = values;
+			this.hasNull = hasNull;
+			this.negated = negated;
+		}
+		
+		@Override
+		int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				Object value = operand.get(eval, tuples.get(selection[i]));
+				boolean match = false;
+				if (value == null) {
+					//unknown unless the list is empty
+					match = values.isEmpty() && !hasNull && negated; 
+				} else if (values.contains(value)) {
+					match = !negated;
+				} else {
+					match = negated && !hasNull;
+				}
+				if (match) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+	
+	private static class IsNullFilter extends Filter {
+		private Operand operand;
+		private boolean negated;
+		
+		IsNullFilter(Operand operand, boolean negated) {
+			this.operand = operand;
+			this.negated = negated;
+		}
+		
+		@Override
+		int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				if ((operand.get(eval, tuples.get(selection[i])) == null) ^ negated) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+	
+	private static class MatchFilter extends Filter {
+		private Operand operand;
+		private Pattern pattern;
+		private boolean negated;
+		
+		MatchFilter(Operand operand, Pattern pattern, boolean negated) {
+			this.operand = operand;
+			this.pattern = pattern;
+			this.negated = negated;
+		}
+		
+		@Override
+		int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				Object value = operand.get(eval, tuples.get(selection[i]));
+				if (value != null && (pattern.matcher((String)value).find() ^ negated)) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+	
+	private static class RowFilter extends Filter {
+		private Criteria criteria;
+		
+		RowFilter(Criteria criteria) {
+			this.criteria = criteria;
+		}
+		
+		@Override
+		int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+			int result = 0;
+			for (int i = 0; i < count; i++) {
+				if (eval.evaluate(criteria, tuples.get(selection[i]))) {
+					selection[result++] = selection[i];
+				}
+			}
+			return result;
+		}
+	}
+	
+	private Map<?, Integer> elements;
+	private Filter filter;
+	
+	private BatchEvaluator(Map<?, Integer> elements) {
+		this.elements = elements;
+	}
+	
+	/**
+	 * Create a batch evaluator for the criteria.  
+	 * <br>
+	 * The result does not hold any execution state and may be shared by copies of the same plan.
+	 * @param criteria
+	 * @param elements the map of expressions to tuple indexes
+	 * @return the evaluator or null if the criteria may require blocking evaluation, 
+	 * such as with subqueries, lookups, or pushdown functions
+	 * @throws ExpressionEvaluationException
+	 */
+	public static BatchEvaluator create(Criteria criteria, Map<?, Integer> elements) throws ExpressionEvaluationException {
+		if (!isSupported(criteria)) {
+			return null;
+		}
+		BatchEvaluator result = new BatchEvaluator(elements);
+		result.filter = result.compile(criteria);
+		result.elements = null;
+		return result;
+	}
+	
+	/**
+	 * Filter the selected rows
+	 * @param eval used for row-wise evaluation and for the current {@link org.teiid.query.util.CommandContext}
+	 * @param tuples
+	 * @param columnar the columnar form of the tuples if available
+	 * @param selection the indexes of the rows to consider, which will be updated in place
+	 * to hold the indexes of rows that satisfy the criteria
+	 * @param count the number of valid entries in the selection
+	 * @return the number of selected rows satisfying the criteria
+	 */
+	public int filter(Evaluator eval, List<? extends List<?>> tuples, ColumnarBatch columnar, int[] selection, int count) throws ExpressionEvaluationException, BlockedException, TeiidComponentException {
+		return filter.filter(eval, tuples, columnar, selection, count);
+	}
+	
+	private Filter compile(Criteria criteria) throws ExpressionEvaluationException {
+		if (criteria instanceof CompoundCriteria) {
+			CompoundCriteria cc = (CompoundCriteria)criteria;
+			List<Filter> filters = new ArrayList<Filter>(cc.getCriteria().size());
+			for (Criteria crit : cc.getCriteria()) {
+				filters.add(compile(crit));
+			}
+			Filter[] array = filters.toArray(new Filter[filters.size()]);
+			if (cc.getOperator() == CompoundCriteria.AND) {
+				return new AndFilter(array);
+			}
+			return new OrFilter(array);
+		}
+		if (criteria instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)criteria;
+			Operand left = compile(cc.getLeftExpression());
+			Operand right = compile(cc.getRightExpression());
+			if (left.isBatchConstant() && !right.isBatchConstant()) {
+				CompareCriteria reversed = new CompareCriteria(cc.getRightExpression(), getReverseOperator(cc.getOperator()), cc.getLeftExpression());
+				return new CompareFilter(reversed, right, left);
+			}
+			return new CompareFilter(cc, left, right);
+		}
+		if (criteria instanceof SetCriteria) {
+			SetCriteria sc = (SetCriteria)criteria;
+			if (sc.isAllConstants() && DataTypeManager.isHashable(sc.getExpression().getType())) {
+				Set<Object> values = new HashSet<Object>();
+				boolean hasNull = false;
+				for (Object value : sc.getValues()) {
+					Object val = ((Constant)value).getValue();
+					if (val == null) {
+						hasNull = true;
+					} else {
+						values.add(val);
+					}
+				}
+				return new InFilter(compile(sc.getExpression()), values, hasNull, sc.isNegated());
+			}
+		}
+		if (criteria instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)criteria;
+			return new IsNullFilter(compile(inc.getExpression()), inc.isNegated());
+		}
+		if (criteria instanceof MatchCriteria) {
+			MatchCriteria mc = (MatchCriteria)criteria;
+			if (mc.getRightExpression() instanceof Constant && mc.getLeftExpression().getType() == DataTypeManager.DefaultDataClasses.STRING) {
+				String pattern = (String)((Constant)mc.getRightExpression()).getValue();
+				if (pattern == null) {
+					//never true
+					return new IsNullFilter(new ConstantOperand(null), true);
+				}
+				return new MatchFilter(compile(mc.getLeftExpression()), Evaluator.getPattern(pattern, mc.getEscapeChar(), mc.getMode()), mc.isNegated());
+			}
+		}
+		return new RowFilter(criteria);
+	}
+	
+	private static int getReverseOperator(int operator) {
+		switch (operator) {
+		case CompareCriteria.LT:
+			return CompareCriteria.GT;
+		case CompareCriteria.LE:
+			return CompareCriteria.GE;
+		case CompareCriteria.GT:
+			return CompareCriteria.LT;
+		case CompareCriteria.GE:
+			return CompareCriteria.LE;
+		default:
+			return operator;
+		}
+	}
+	
+	private Operand compile(Expression expression) {
+		if (expression instanceof ElementSymbol || expression instanceof ExpressionSymbol) {
+			Integer index = elements.get(expression);
+			if (index != null) {
+				return new ElementOperand(index);
+			}
+		}
+		if (expression instanceof Constant) {
+			return new ConstantOperand(((Constant)expression).getValue());
+		}
+		if (isPositionalReference(expression)) {
+			return new ReferenceOperand((Reference)expression);
+		}
+		if (expression instanceof Function) {
+			Function function = (Function)expression;
+			Expression[] args = function.getArgs();
+			Operand[] operands = new Operand[args.length];
+			for (int i = 0; i < args.length; i++) {
+				operands[i] = compile(args[i]);
+			}
+			return new FunctionOperand(function.getFunctionDescriptor(), operands);
+		}
+		return new ExpressionOperand(expression);
+	}
+	
+	/**
+	 * @return true if the criteria is composed only of expressions that 
+	 * can be evaluated without blocking
+	 */
+	static boolean isSupported(Criteria criteria) {
+		if (criteria instanceof CompoundCriteria) {
+			for (Criteria crit : ((CompoundCriteria)criteria).getCriteria()) {
+				if (!isSupported(crit)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (criteria instanceof NotCriteria) {
+			return isSupported(((NotCriteria)criteria).getCriteria());
+		}
+		if (criteria instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)criteria;
+			return isSupported(cc.getLeftExpression()) && isSupported(cc.getRightExpression());
+		}
+		if (criteria instanceof MatchCriteria) {
+			MatchCriteria mc = (MatchCriteria)criteria;
+			return isSupported(mc.getLeftExpression()) && isSupported(mc.getRightExpression());
+		}
+		if (criteria instanceof SetCriteria) {
+			SetCriteria sc = (SetCriteria)criteria;
+			if (!isSupported(sc.getExpression())) {
+				return false;
+			}
+			for (Object value : sc.getValues()) {
+				if (!isSupported((Expression)value)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (criteria instanceof IsNullCriteria) {
+			return isSupported(((IsNullCriteria)criteria).getExpression());
+		}
+		if (criteria instanceof ExpressionCriteria) {
+			return isSupported(((ExpressionCriteria)criteria).getExpression());
+		}
+		return false;
+	}
+	
+	private static boolean isPositionalReference(Expression expression) {
+		if (!(expression instanceof Reference)) {
+			return false;
+		}
+		Reference ref = (Reference)expression;
+		return ref.isPositional() && ref.getExpression() == null;
+	}
+	
+	private static boolean isSupported(Expression expression) {
+		if (expression instanceof ElementSymbol || expression instanceof Constant || isPositionalReference(expression)) {
+			return true;
+		}
+		if (expression instanceof ExpressionSymbol) {
+			return isSupported(((ExpressionSymbol)expression).getExpression());
+		}
+		if (expression instanceof Function) {
+			Function function = (Function)expression;
+			FunctionDescriptor fd = function.getFunctionDescriptor();
+			if (fd == null || fd.getPushdown() == PushDown.MUST_PUSHDOWN || function.getName().equalsIgnoreCase(FunctionLibrary.LOOKUP)) {
+				return false;
+			}
+			for (Expression arg : function.getArgs()) {
+				if (!isSupported(arg)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (expression instanceof CaseExpression) {
+			CaseExpression ce = (CaseExpression)expression;
+			if (!isSupported(ce.getExpression())) {
+				return false;
+			}
+			for (int i = 0; i < ce.getWhenCount(); i++) {
+				if (!isSupported(ce.getWhenExpression(i)) || !isSupported(ce.getThenExpression(i))) {
+					return false;
+				}
+			}
+			return ce.getElseExpression() == null || isSupported(ce.getElseExpression());
+		}
+		if (expression instanceof SearchedCaseExpression) {
+			SearchedCaseExpression sce = (SearchedCaseExpression)expression;
+			for (int i = 0; i < sce.getWhenCount(); i++) {
+				if (!isSupported(sce.getWhenCriteria(i)) || !isSupported(sce.getThenExpression(i))) {
+					return false;
+				}
+			}
+			return sce.getElseExpression() == null || isSupported(sce.getElseExpression());
+		}
+		if (expression instanceof Criteria) {
+			return isSupported((Criteria)expression);
+		}
+		return false;
+	}
+
+}
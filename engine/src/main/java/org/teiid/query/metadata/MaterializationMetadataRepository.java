@@ -51,10 +51,16 @@ public class MaterializationMetadataRepository extends MetadataRepository {
 	public static final String MATVIEW_UPDATABLE = "{http://www.teiid.org/ext/relational/2012}MATVIEW_UPDATABLE"; //$NON-NLS-1$
 	public static final String MATVIEW_PREFER_MEMORY = "{http://www.teiid.org/ext/relational/2012}MATVIEW_PREFER_MEMORY"; //$NON-NLS-1$
 	public static final String MATVIEW_SCOPE = "{http://www.teiid.org/ext/relational/2012}MATVIEW_SCOPE"; //$NON-NLS-1$
+	public static final String MATVIEW_DELTA_COLUMN = "{http://www.teiid.org/ext/relational/2012}MATVIEW_DELTA_COLUMN"; //$NON-NLS-1$
+	public static final String MATVIEW_DELTA_DELETED_COLUMN = "{http://www.teiid.org/ext/relational/2012}MATVIEW_DELTA_DELETED_COLUMN"; //$NON-NLS-1$
+	public static final String MATVIEW_INDEX_TYPE = "{http://www.teiid.org/ext/relational/2012}MATVIEW_INDEX_TYPE"; //$NON-NLS-1$
+	public static final String MATVIEW_PARTITION_EXPRESSION = "{http://www.teiid.org/ext/relational/2012}MATVIEW_PARTITION_EXPRESSION"; //$NON-NLS-1$
+	public static final String MATVIEW_PARTITION_COUNT = "{http://www.teiid.org/ext/relational/2012}MATVIEW_PARTITION_COUNT"; //$NON-NLS-1$
 	
 	public enum LoadStates {NEEDS_LOADING, LOADING, LOADED, FAILED_LOAD};
 	public enum Scope {NONE, VDB, SCHEMA};
 	public enum ErrorAction {THROW_EXCEPTION, IGNORE, WAIT}
+	public enum IndexType {BTREE, HASH, BITMAP};
 	// Status table column names
 	//VDBName, VDBVersion, SchemaName, Name, TargetSchemaName, TargetName, Valid, LoadState, Updated, Cardinality, LoadNumber
 	
@@ -248,9 +248,17 @@ public class PlanToProcessConverter {
                 List joinCrits = (List) node.getProperty(NodeConstants.Info.JOIN_CRITERIA);
                 String depValueSource = (String) node.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE);
                 SortOption leftSort = (SortOption)node.getProperty(NodeConstants.Info.SORT_LEFT);
-                if(stype == JoinStrategyType.MERGE || stype == JoinStrategyType.ENHANCED_SORT) {
+                if(stype == JoinStrategyType.MERGE || stype == JoinStrategyType.ENHANCED_SORT || stype == JoinStrategyType.HASH) {
                 	MergeJoinStrategy mjStrategy = null;
-                	if (stype.equals(JoinStrategyType.ENHANCED_SORT)) { 
+                	if (stype.equals(JoinStrategyType.HASH)) {
+                		HashJoinStrategy hjStrategy = new HashJoinStrategy(leftSort, (SortOption)node.getProperty(NodeConstants.Info.SORT_RIGHT));
+                		float leftCard = getEstimatedCardinality(node.getFirstChild());
+                		float rightCard = getEstimatedCardinality(node.getLastChild());
+                		if (leftCard >= 0 && rightCard >= 0) {
+                			hjStrategy.setParallelism(Exchange.getParallelism(leftCard + rightCard, context.getProcessorBatchSize()));
+                		}
+                		mjStrategy = hjStrategy;
+                	} else if (stype.equals(JoinStrategyType.ENHANCED_SORT)) { 
                 		EnhancedSortMergeJoinStrategy esmjStrategy = new EnhancedSortMergeJoinStrategy(leftSort, (SortOption)node.getProperty(NodeConstants.Info.SORT_RIGHT));
                 		esmjStrategy.setSemiDep(node.hasBooleanProperty(Info.IS_SEMI_DEP));
                 		mjStrategy = esmjStrategy;
@@ -717,6 +725,17 @@ public class PlanToProcessConverter {
         return pnode;
     }
 
+    /**
+     * @return the estimated cardinality or -1 if unknown
+     */
+    private static float getEstimatedCardinality(PlanNode node) {
+    	Number card = (Number) node.getProperty(NodeConstants.Info.EST_CARDINALITY);
+    	if (card == null || card.floatValue() < 0) {
+    		return -1;
+    	}
+    	return card.floatValue();
+    }
+
     private RelationalNode prepareToAdd(PlanNode node,
                                           RelationalNode processNode) {
         // Set the output elements from the plan node
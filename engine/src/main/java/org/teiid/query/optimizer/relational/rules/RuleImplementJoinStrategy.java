@@ -34,6 +34,7 @@ import java.util.Set;
 import org.teiid.api.exception.query.QueryMetadataException;
 import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
@@ -123,9 +124,11 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
              */
             boolean pushLeft = true;
             boolean pushRight = true;
+            float leftCost = NewCalculateCostUtil.UNKNOWN_VALUE;
+            float rightCost = NewCalculateCostUtil.UNKNOWN_VALUE;
             if ((joinType == JoinType.JOIN_INNER || joinType == JoinType.JOIN_LEFT_OUTER) && context != null) {
-            	float leftCost = NewCalculateCostUtil.computeCostForTree(joinNode.getFirstChild(), metadata);
-            	float rightCost = NewCalculateCostUtil.computeCostForTree(joinNode.getLastChild(), metadata);
+            	leftCost = NewCalculateCostUtil.computeCostForTree(joinNode.getFirstChild(), metadata);
+            	rightCost = NewCalculateCostUtil.computeCostForTree(joinNode.getLastChild(), metadata);
             	if (leftCost != NewCalculateCostUtil.UNKNOWN_VALUE && rightCost != NewCalculateCostUtil.UNKNOWN_VALUE 
             			&& (leftCost > context.getProcessorBatchSize() || rightCost > context.getProcessorBatchSize())) {
             		//we use a larger constant here to ensure that we don't unwisely prevent pushdown
@@ -204,13 +207,39 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
 
 			boolean pushedRight = insertSort(joinNode.getLastChild(), rightExpressions, joinNode, metadata, capabilitiesFinder, pushRight);
         	if ((!pushedRight || !pushedLeft) && (joinType == JoinType.JOIN_INNER || (joinType == JoinType.JOIN_LEFT_OUTER && !pushedLeft))) {
-        		joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.ENHANCED_SORT);
+        		if (!pushedRight && !pushedLeft && useHashJoin(joinNode, leftExpressions, rightExpressions, leftCost, rightCost, context)) {
+        			joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.HASH);
+        		} else {
+        			joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.ENHANCED_SORT);
+        		}
         	}
         }
         
         return plan;
     }
 
+    /**
+     * Use a hash join when neither side will be sorted and the estimates indicate that
+     * both sides are too large for a simple in memory sort or index. 
+     */
+    static boolean useHashJoin(PlanNode joinNode, List<Expression> leftExpressions, List<Expression> rightExpressions, 
+    		float leftCost, float rightCost, CommandContext context) {
+    	if (leftCost == NewCalculateCostUtil.UNKNOWN_VALUE || rightCost == NewCalculateCostUtil.UNKNOWN_VALUE 
+    			|| leftCost <= context.getProcessorBatchSize() || rightCost <= context.getProcessorBatchSize()) {
+    		return false;
+    	}
+    	if (joinNode.getProperty(NodeConstants.Info.DEPENDENT_VALUE_SOURCE) != null || joinNode.hasBooleanProperty(Info.IS_SEMI_DEP)) {
+    		return false;
+    	}
+    	for (int i = 0; i < leftExpressions.size(); i++) {
+    		Class<?> type = leftExpressions.get(i).getType();
+    		if (type != rightExpressions.get(i).getType() || !DataTypeManager.isHashable(type)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
     /**
      * Insert a sort node under the merge join node.  If necessary, also insert a project
      * node to handle function evaluation.  
@@ -25,15 +25,17 @@ package org.teiid.query.processor.relational;
 import java.util.List;
 
 import org.teiid.common.buffer.BlockedException;
-import org.teiid.common.buffer.STree;
-import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 
+/**
+ * Streams the first occurrence of each row.  Seen rows are tracked with a {@link HashDistinct}
+ * so that no sort is required.
+ */
 public class DupRemoveNode extends RelationalNode {
 
-	private STree stree = null;
+	private HashDistinct distinct = null;
 	private TupleBatch batch;
 	private int counter;
 	
@@ -43,7 +45,7 @@ public class DupRemoveNode extends RelationalNode {
 
     public void reset() {
         super.reset();
-        stree = null;
+        distinct = null;
         counter = 0;
         batch = null;
     }
@@ -52,7 +54,7 @@ public class DupRemoveNode extends RelationalNode {
     public void open() throws TeiidComponentException, TeiidProcessingException {
     	super.open();
     	
-    	stree = getBufferManager().createSTree(this.getElements(), this.getConnectionID(), this.getElements().size());
+    	distinct = new HashDistinct(getBufferManager(), this.getElements(), this.getConnectionID());
     }
 
 	public TupleBatch nextBatchDirect()
@@ -65,8 +67,7 @@ public class DupRemoveNode extends RelationalNode {
 			List<List<?>> tuples = batch.getTuples();
 			for (;counter < tuples.size(); counter++) {
 				List<?> tuple = tuples.get(counter);
-				List<?> existing = stree.insert(tuple, InsertMode.NEW, -1);
-				if (existing != null) {
+				if (!distinct.add(tuple)) {
 					continue;
 				}
 				this.addBatchRow(tuple);
@@ -84,8 +85,8 @@ public class DupRemoveNode extends RelationalNode {
     }
 
     public void closeDirect() {
-    	if (stree != null) {
-    		stree.remove();
+    	if (distinct != null) {
+    		distinct.remove();
     	}
     }
 
@@ -0,0 +1,243 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.core.util.PropertiesUtils;
+import org.teiid.dqp.internal.process.RequestWorkItem;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+
+/**
+ * Runs independent partitions of an operator's work, such as hash join partitions or sort runs,
+ * on the processing {@link Executor} and gathers the results in task order.
+ * <br>
+ * With a {@link RequestWorkItem} the tasks are only run by the executor and {@link #getResult(int)} 
+ * throws a {@link BlockedException} until the result is available.  The work item is 
+ * notified of more work as each task completes, so the processor thread is never held waiting.
+ * <br>
+ * Without a work item the calling thread also works on the tasks, so only tasks that have already 
+ * been claimed by another thread are waited on.  With a direct or null executor the tasks simply run serially.
+ * <br>
+ * Tasks must only use thread safe resources, such as the BufferManager and their own TupleBuffers.  
+ */
+public final class Exchange<T> {
+	
+	public static final int MAX_PARALLELISM = PropertiesUtils.getIntProperty(System.getProperties(), "org.teiid.maxParallelism", Math.max(1, Runtime.getRuntime().availableProcessors()/2)); //$NON-NLS-1$
+	
+	/**
+	 * The number of batches of estimated input that justify an additional thread
+	 */
+	static final int BATCHES_PER_THREAD = 64;
+	
+	private Executor executor;
+	private int parallelism;
+	private RequestWorkItem workItem;
+	
+	private List<Callable<T>> tasks;
+	private Object[] results;
+	private boolean[] done;
+	private AtomicInteger next = new AtomicInteger();
+	private Throwable failure;
+	private volatile boolean cancelled;
+	
+	public Exchange(Executor executor, int parallelism) {
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Determine the degree of parallelism from a row estimate
+	 * @param rows the estimated row count or a negative value if unknown
+	 * @param batchSize the processor batch size
+	 */
+	public static int getParallelism(float rows, int batchSize) {
+		if (rows < 0 || MAX_PARALLELISM <= 1) {
+			return 1;
+		}
+		float threads = rows / ((float)batchSize * BATCHES_PER_THREAD);
+		return (int)Math.max(1, Math.min(MAX_PARALLELISM, threads));
+	}
+	
+	/**
+	 * Set the work item to notify as results become available.  
+	 * Must be called prior to {@link #start(List)}.
+	 */
+	public void setWorkItem(RequestWorkItem workItem) {
+		this.workItem = workItem;
+	}
+	
+	/**
+	 * Execute the tasks and return their results in task order
+	 */
+	public List<T> execute(List<Callable<T>> toExecute) throws TeiidComponentException, TeiidProcessingException {
+		start(toExecute);
+		List<T> result = new ArrayList<T>(toExecute.size());
+		for (int i = 0; i < toExecute.size(); i++) {
+			result.add(getResult(i));
+		}
+		return result;
+	}
+	
+	/**
+	 * Submit the tasks to the executor.  If no thread could be obtained, the tasks are run by the calling thread.
+	 */
+	public void start(List<Callable<T>> toExecute) {
+		this.tasks = toExecute;
+		this.results = new Object[toExecute.size()];
+		this.done = new boolean[toExecute.size()];
+		//the calling thread only works on the tasks when it would otherwise wait
+		int helpers = 0;
+		if (this.executor != null) {
+			helpers = Math.min(this.parallelism, toExecute.size()) - (this.workItem == null?1:0);
+		}
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Exchange executing", toExecute.size(), "tasks with", helpers, "additional threads"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		int started = 0;
+		for (int i = 0; i < helpers; i++) {
+			try {
+				this.executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						work();
+					}
+				});
+				started++;
+			} catch (RejectedExecutionException e) {
+				break;
+			}
+		}
+		if (started == 0 && this.workItem != null) {
+			work();
+		}
+	}
+	
+	/**
+	 * Get the result of the given task.
+	 * @throws BlockedException if the result is not yet available and there is a work item to notify
+	 */
+	public T getResult(int index) throws BlockedException, TeiidComponentException, TeiidProcessingException {
+		synchronized (this) {
+			if (!this.done[index] && this.failure == null) {
+				if (this.workItem != null) {
+					throw BlockedException.block("Blocking on exchange results"); //$NON-NLS-1$
+				}
+			} else {
+				return checkResult(this.results[index]);
+			}
+		}
+		work();
+		synchronized (this) {
+			while (!this.done[index] && this.failure == null) {
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new TeiidComponentException(e);
+				}
+			}
+			return checkResult(this.results[index]);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private T checkResult(Object result) throws TeiidComponentException, TeiidProcessingException {
+		if (this.failure != null) {
+			if (this.failure instanceof TeiidProcessingException) {
+				throw (TeiidProcessingException)this.failure;
+			}
+			if (this.failure instanceof TeiidComponentException) {
+				throw (TeiidComponentException)this.failure;
+			}
+			if (this.failure instanceof RuntimeException) {
+				throw (RuntimeException)this.failure;
+			}
+			if (this.failure instanceof Error) {
+				throw (Error)this.failure;
+			}
+			throw new TeiidRuntimeException(this.failure);
+		}
+		return (T)result;
+	}
+	
+	/**
+	 * Mark the exchange as cancelled.  Tasks should check {@link #isCancelled()} to skip 
+	 * their work or to release their results.
+	 * @return the results in task order, with null for any task that has not completed
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized List<T> cancel() {
+		this.cancelled = true;
+		List<T> result = new ArrayList<T>(this.results.length);
+		for (Object object : this.results) {
+			result.add((T)object);
+		}
+		return result;
+	}
+	
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	private void work() {
+		while (true) {
+			int index = this.next.getAndIncrement();
+			if (index >= this.tasks.size()) {
+				return;
+			}
+			Object result = null;
+			Throwable t = null;
+			try {
+				result = this.tasks.get(index).call();
+			} catch (Throwable e) {
+				t = e;
+			}
+			synchronized (this) {
+				this.results[index] = result;
+				this.done[index] = true;
+				if (t != null && this.failure == null) {
+					this.failure = t;
+					this.cancelled = true;
+				}
+				this.notifyAll();
+			}
+			if (this.workItem != null) {
+				this.workItem.moreWork();
+			}
+		}
+	}
+
+}
@@ -38,6 +38,7 @@ import org.teiid.api.exception.query.FunctionExecutionException;
 import org.teiid.client.plan.PlanNode;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.STree;
 import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBatch;
@@ -135,6 +136,13 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     private int[] accumulatorStateCount;
     private TupleSource groupSortTupleSource;
     private int[] projection;
+    
+    // Group hash - in memory accumulation in front of the group sort tree
+    private Map<List<?>, List<?>> groupHash;
+    private int groupHashSchemaSize;
+    private int groupHashBatchSize;
+    private int groupHashReserved;
+    private int maxGroupHashRows;
 
     private static final int COLLECTION = 1;
     private static final int SORT = 2;
@@ -467,6 +475,17 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		    		//non-default order needs to update the comparator
 		    		tree.getComparator().setNullOrdering(nullOrdering);
 		    		tree.getComparator().setOrderTypes(sortTypes);
+		    		
+		    		boolean hashable = true;
+		    		for (int i = 0; i < orderBy.size() && hashable; i++) {
+		    			hashable = DataTypeManager.isHashable(schema.get(i).getType());
+		    		}
+		    		if (hashable) {
+		    			//accumulate the groups in memory and only consult the tree once the hash is full
+		    			this.groupHash = new HashMap<List<?>, List<?>>();
+		    			this.groupHashSchemaSize = this.getBufferManager().getSchemaSize(schema);
+		    			this.groupHashBatchSize = this.getBufferManager().getProcessorBatchSize(schema);
+		    		}
 		    				
 		    		this.groupSortTupleSource = this.getGroupSortTupleSource();
 		    		this.phase = GROUP_SORT;
@@ -487,19 +506,31 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
      */
 	private void groupSortPhase() throws TeiidComponentException, TeiidProcessingException {
 		List<?> tuple = null;
+		int size = orderBy.size();
+		if (this.groupHash != null && this.maxGroupHashRows == 0) {
+			reserveGroupHash();
+		}
 		while ((tuple = groupSortTupleSource.nextTuple()) != null) {
-			List<?> current = tree.find(tuple);
+			List<?> current = null;
+			boolean hashed = false;
+			if (this.groupHash != null) {
+				current = this.groupHash.get(tuple.subList(0, size));
+				hashed = current != null;
+			}
+			if (current == null && (this.groupHash == null || tree.getRowCount() > 0)) {
+				current = tree.find(tuple);
+			}
 			
 			boolean update = false;
 			List<Object> accumulated = new ArrayList<Object>();
 			//not all collected expressions are needed for the key
-			for (int i = 0; i < orderBy.size(); i++) {
+			for (int i = 0; i < size; i++) {
 				accumulated.add(tuple.get(i));
 			}
 			if (current != null) {
 				update = true;
 			}
-			int index = orderBy.size();
+			int index = size;
 			for (int i = 0; i < this.groupSortfunctions.length; i++) {
 				AggregateFunction aggregateFunction = this.groupSortfunctions[i];
 				if (update) {
@@ -511,12 +542,65 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 				aggregateFunction.addInput(tuple, getContext());
 				aggregateFunction.getState(accumulated);
 			}
-			tree.insert(accumulated, update?InsertMode.UPDATE:InsertMode.NEW, -1);
+			if (this.groupHash == null) {
+				tree.insert(accumulated, update?InsertMode.UPDATE:InsertMode.NEW, -1);
+			} else if (hashed) {
+				//the existing key instance is retained
+				this.groupHash.put(tuple.subList(0, size), accumulated);
+			} else {
+				if (this.groupHash.size() >= this.maxGroupHashRows && !reserveGroupHash()) {
+					flushGroupHash();
+				}
+				this.groupHash.put(new ArrayList<Object>(accumulated.subList(0, size)), accumulated);
+			}
 		}
 		this.groupSortTupleSource.closeSource();
+		if (this.groupHash != null) {
+			flushGroupHash();
+			releaseGroupHash();
+		}
 		this.groupSortTupleSource = tree.getTupleSource(true);
 		this.phase = GROUP_SORT_OUTPUT;
 	}
+	
+	/**
+	 * Reserve space for another batch of groups in the hash
+	 * @return true if the hash may grow
+	 */
+	private boolean reserveGroupHash() {
+		BufferManager bm = this.getBufferManager();
+		int reserved = 0;
+		if (this.maxGroupHashRows == 0) {
+			//always allow a batch of groups to progress
+			reserved = bm.reserveBuffers(this.groupHashSchemaSize, BufferReserveMode.FORCE);
+			reserved += bm.reserveBuffers(Math.max(0, bm.getMaxProcessingSize() - this.groupHashSchemaSize), BufferReserveMode.NO_WAIT);
+		} else {
+			reserved = bm.reserveBuffers(this.groupHashSchemaSize, BufferReserveMode.NO_WAIT);
+		}
+		this.groupHashReserved += reserved;
+		int maxRows = Math.max(1, this.groupHashReserved/this.groupHashSchemaSize)*this.groupHashBatchSize;
+		boolean grown = maxRows > this.maxGroupHashRows;
+		this.maxGroupHashRows = maxRows;
+		return grown;
+	}
+	
+	/**
+	 * Write the accumulated groups to the tree, which may then be spilled by the buffer manager 
+	 * @throws TeiidComponentException
+	 */
+	private void flushGroupHash() throws TeiidComponentException {
+		for (List<?> accumulated : this.groupHash.values()) {
+			tree.insert(accumulated, InsertMode.UPDATE, -1);
+		}
+		this.groupHash.clear();
+	}
+	
+	private void releaseGroupHash() {
+		this.getBufferManager().releaseBuffers(this.groupHashReserved);
+		this.groupHashReserved = 0;
+		this.maxGroupHashRows = 0;
+		this.groupHash = null;
+	}
 
 	/**
 	 * Walk the tree to produce the results
@@ -674,6 +758,9 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
     		this.tree.remove();
     		this.tree = null;
     	}
+    	if (this.groupHash != null) {
+    		releaseGroupHash();
+    	}
     }
 
 	protected void getNodeString(StringBuffer str) {
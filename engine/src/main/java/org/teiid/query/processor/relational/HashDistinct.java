@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.STree;
+import org.teiid.common.buffer.STree.InsertMode;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * Tracks the distinct rows seen so far without sorting.
+ * <br>
+ * Rows are held in an in memory hash set bounded by buffer reservations.  When 
+ * no more memory can be reserved the set is flushed to an {@link STree}, which the
+ * buffer manager may then spill.  Subsequent rows are checked against both.
+ * <br>
+ * If the schema is not hashable, the {@link STree} is used directly.
+ */
+public class HashDistinct {
+	
+	private BufferManager bufferManager;
+	private List<? extends Expression> schema;
+	private String groupName;
+	
+	private Set<List<?>> seen;
+	private STree tree;
+	private int schemaSize;
+	private int batchSize;
+	private int reserved;
+	private int maxRows;
+	
+	public HashDistinct(BufferManager bufferManager, List<? extends Expression> schema, String groupName) {
+		this.bufferManager = bufferManager;
+		this.schema = schema;
+		this.groupName = groupName;
+		if (canHash(schema)) {
+			this.seen = new HashSet<List<?>>();
+			this.schemaSize = bufferManager.getSchemaSize(schema);
+			this.batchSize = bufferManager.getProcessorBatchSize(schema);
+		}
+	}
+	
+	/**
+	 * @return true if all of the types in the schema have hash/equals consistent with comparison
+	 */
+	public static boolean canHash(List<? extends Expression> schema) {
+		for (Expression ex : schema) {
+			if (!DataTypeManager.isHashable(ex.getType())) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Add the tuple
+	 * @return true if the tuple has not been seen before
+	 * @throws TeiidComponentException
+	 */
+	public boolean add(List<?> tuple) throws TeiidComponentException {
+		if (this.seen == null) {
+			return getTree().insert(tuple, InsertMode.NEW, -1) == null;
+		}
+		if (this.seen.contains(tuple)) {
+			return false;
+		}
+		if (this.tree != null && this.tree.getRowCount() > 0 && this.tree.find(tuple) != null) {
+			return false;
+		}
+		if (this.seen.size() >= this.maxRows && !reserve()) {
+			flush();
+		}
+		this.seen.add(tuple);
+		return true;
+	}
+	
+	/**
+	 * Reserve space for another batch of rows
+	 * @return true if the set may grow
+	 */
+	private boolean reserve() {
+		int amount = 0;
+		if (this.maxRows == 0) {
+			//always allow a batch to progress
+			amount = this.bufferManager.reserveBuffers(this.schemaSize, BufferReserveMode.FORCE);
+			amount += this.bufferManager.reserveBuffers(Math.max(0, this.bufferManager.getMaxProcessingSize() - this.schemaSize), BufferReserveMode.NO_WAIT);
+		} else {
+			amount = this.bufferManager.reserveBuffers(this.schemaSize, BufferReserveMode.NO_WAIT);
+		}
+		this.reserved += amount;
+		int rows = Math.max(1, this.reserved/this.schemaSize)*this.batchSize;
+		boolean grown = rows > this.maxRows;
+		this.maxRows = rows;
+		return grown;
+	}
+	
+	private void flush() throws TeiidComponentException {
+		STree stree = getTree();
+		for (List<?> tuple : this.seen) {
+			stree.insert(tuple, InsertMode.NEW, -1);
+		}
+		this.seen.clear();
+	}
+
+	private STree getTree() {
+		if (this.tree == null) {
+			this.tree = this.bufferManager.createSTree(this.schema, this.groupName, this.schema.size());
+		}
+		return this.tree;
+	}
+	
+	public void remove() {
+		if (this.tree != null) {
+			this.tree.remove();
+			this.tree = null;
+		}
+		if (this.seen != null) {
+			this.seen.clear();
+		}
+		this.bufferManager.releaseBuffers(this.reserved);
+		this.reserved = 0;
+		this.maxRows = 0;
+	}
+
+}
@@ -0,0 +1,602 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.processor.relational;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.processor.relational.SourceState.ImplicitBuffer;
+import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * A hybrid/grace hash join for inner and left outer equi-joins over unsorted inputs.
+ *
+ * The smaller side is built into an in memory hash table and the other side is streamed against it.
+ * If the build side does not fit in the reserved memory, both sides are hash partitioned into
+ * {@link TupleBuffer}s and each partition pair is joined in turn.  Partitions that are still too
+ * large are repartitioned using a different hash up to {@link #MAX_LEVEL} levels.
+ *
+ * With a parallelism greater than 1 and no additional join criteria, the partition pairs are 
+ * joined concurrently through an {@link Exchange} and each result is streamed in partition order as soon as it is available.
+ *
+ * Degrades to the {@link EnhancedSortMergeJoinStrategy} if the join expressions are not hashable.
+ */
+public class HashJoinStrategy extends EnhancedSortMergeJoinStrategy {
+
+	static final int MAX_LEVEL = 3;
+	static final int MAX_PARTITIONS = 64;
+
+	private static class Partition {
+		TupleBuffer build;
+		TupleBuffer probe;
+		int level;
+	}
+
+	private boolean hash;
+	private boolean loaded;
+	private SourceState buildSource;
+	private SourceState probeSource;
+	private int buildReserved;
+
+	//partitioning state
+	private TupleBuffer[] buildPartitions;
+	private TupleBuffer[] probePartitions;
+	private LinkedList<Partition> partitions;
+	private Partition currentPartition;
+	
+	//parallel state
+	private int parallelism = 1;
+	private Exchange<TupleBuffer> exchange;
+	private int outputIndex;
+	private int outputCount;
+	private TupleSource outputTs;
+
+	//probe state
+	private Map<List<?>, List<List<?>>> table;
+	private TupleSource probeTs;
+	private List<?> probeTuple;
+	private List<List<?>> matches;
+	private int matchIndex;
+	private boolean matched;
+
+	public HashJoinStrategy(SortOption sortLeft, SortOption sortRight) {
+		super(sortLeft, sortRight);
+	}
+	
+	/**
+	 * Set the maximum number of threads that may join partitions concurrently
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	@Override
+	public void close() {
+		if (joinNode == null) {
+			return;
+		}
+		try {
+			if (this.partitions != null) {
+				for (Partition partition : this.partitions) {
+					removePartition(partition);
+				}
+			}
+			if (this.currentPartition != null) {
+				removePartition(this.currentPartition);
+			}
+			removePartitions(this.buildPartitions);
+			removePartitions(this.probePartitions);
+			if (this.probeTs != null) {
+				this.probeTs.closeSource();
+			}
+			if (this.outputTs != null) {
+				this.outputTs.closeSource();
+			}
+			if (this.exchange != null) {
+				//outputs not yet streamed are removed here if complete, otherwise by their tasks
+				List<TupleBuffer> completed = this.exchange.cancel();
+				for (int i = this.outputIndex; i < completed.size(); i++) {
+					TupleBuffer output = completed.get(i);
+					if (output != null) {
+						output.remove();
+					}
+				}
+			}
+		} finally {
+			this.exchange = null;
+			this.outputTs = null;
+			this.partitions = null;
+			this.currentPartition = null;
+			this.buildPartitions = null;
+			this.probePartitions = null;
+			this.probeTs = null;
+			this.table = null;
+			this.matches = null;
+			this.probeTuple = null;
+			this.buildReserved = 0;
+			super.close();
+		}
+	}
+
+	private static void removePartition(Partition partition) {
+		partition.build.remove();
+		partition.probe.remove();
+	}
+
+	private static void removePartitions(TupleBuffer[] buffers) {
+		if (buffers == null) {
+			return;
+		}
+		for (TupleBuffer tb : buffers) {
+			if (tb != null) {
+				tb.remove();
+			}
+		}
+	}
+
+	@Override
+	public void initialize(JoinNode joinNode) {
+		super.initialize(joinNode);
+		this.loaded = false;
+		this.hash = false;
+		this.buildSource = null;
+		this.probeSource = null;
+	}
+
+	@Override
+	protected void loadRight() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (!loaded) {
+			this.hash = isHashable();
+			this.loaded = true;
+		}
+		if (!hash) {
+			super.loadRight();
+			return;
+		}
+		if (this.buildSource == null) {
+			if (this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+				this.buildSource = this.rightSource;
+			} else {
+				//determine the smaller side in an incremental fashion
+				long size = joinNode.getBatchSize();
+				while (this.buildSource == null) {
+					if (this.rightSource.rowCountLE(size)) {
+						this.buildSource = this.rightSource;
+					} else if (this.leftSource.rowCountLE(size)) {
+						this.buildSource = this.leftSource;
+					}
+					size *= 2;
+				}
+			}
+			this.probeSource = this.buildSource == this.leftSource?this.rightSource:this.leftSource;
+		}
+		if (this.table != null || this.buildPartitions != null) {
+			return;
+		}
+		TupleBuffer buildBuffer = this.buildSource.getTupleBuffer();
+		long buildSize = estimateSize(buildBuffer);
+		BufferManager bm = this.joinNode.getBufferManager();
+		int toForce = (int)Math.min(buildSize, bm.getMaxProcessingSize());
+		this.buildReserved = bm.reserveBuffers(toForce, BufferReserveMode.FORCE);
+		if (buildSize > this.buildReserved && buildSize < Integer.MAX_VALUE) {
+			this.buildReserved += bm.reserveBuffers((int)buildSize - this.buildReserved, BufferReserveMode.NO_WAIT);
+		}
+		this.buildReserved = Math.max(1, this.buildReserved);
+		this.reserved += this.buildReserved;
+		if (buildSize <= this.buildReserved) {
+			this.table = buildTable(buildBuffer.createIndexedTupleSource(), this.buildSource.getExpressionIndexes());
+			return;
+		}
+		int count = (int)Math.min(MAX_PARTITIONS, buildSize/this.buildReserved + 1);
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "partitioning hash join", this.joinNode.getID(), "into", count); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.buildPartitions = partition(buildBuffer.createIndexedTupleSource(), this.buildSource, count, 0);
+		this.probePartitions = new TupleBuffer[count];
+	}
+
+	private boolean isHashable() {
+		if (this.joinNode.isDependent() || this.sortLeft == SortOption.SORT_DISTINCT || this.sortRight == SortOption.SORT_DISTINCT) {
+			return false;
+		}
+		if (this.joinNode.getJoinType() != JoinType.JOIN_INNER && this.joinNode.getJoinType() != JoinType.JOIN_LEFT_OUTER) {
+			return false;
+		}
+		List<? extends Expression> leftExpressions = this.joinNode.getLeftExpressions();
+		List<? extends Expression> rightExpressions = this.joinNode.getRightExpressions();
+		for (int i = 0; i < leftExpressions.size(); i++) {
+			Class<?> type = leftExpressions.get(i).getType();
+			if (type != rightExpressions.get(i).getType() || !DataTypeManager.isHashable(type)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long estimateSize(TupleBuffer buffer) {
+		int rowSize = buffer.getRowSizeEstimate();
+		if (rowSize <= 0) {
+			BufferManager bm = this.joinNode.getBufferManager();
+			rowSize = Math.max(1, bm.getSchemaSize(buffer.getSchema())/buffer.getBatchSize());
+		}
+		return buffer.getRowCount() * (long)rowSize;
+	}
+
+	private static Map<List<?>, List<List<?>>> buildTable(TupleSource ts, int[] indexes) throws TeiidComponentException, TeiidProcessingException {
+		Map<List<?>, List<List<?>>> result = new HashMap<List<?>, List<List<?>>>();
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			List<?> key = getKey(tuple, indexes);
+			if (key == null) {
+				continue; //null values cannot match
+			}
+			List<List<?>> values = result.get(key);
+			if (values == null) {
+				values = new ArrayList<List<?>>(2);
+				result.put(key, values);
+			}
+			values.add(tuple);
+		}
+		ts.closeSource();
+		return result;
+	}
+
+	private TupleBuffer[] partition(TupleSource ts, SourceState state, int count, int level) throws TeiidComponentException, TeiidProcessingException {
+		TupleBuffer[] result = new TupleBuffer[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = createPartitionBuffer(state);
+		}
+		List<?> tuple = null;
+		int[] indexes = state.getExpressionIndexes();
+		while ((tuple = ts.nextTuple()) != null) {
+			List<?> key = getKey(tuple, indexes);
+			if (key == null) {
+				continue;
+			}
+			result[getPartition(key, count, level)].addTuple(tuple);
+		}
+		ts.closeSource();
+		for (TupleBuffer tb : result) {
+			tb.close();
+		}
+		return result;
+	}
+
+	private TupleBuffer createPartitionBuffer(SourceState state) throws TeiidComponentException {
+		TupleBuffer tb = state.createSourceTupleBuffer();
+		tb.setForwardOnly(true);
+		return tb;
+	}
+
+	/**
+	 * Get the join key or null if any of the key values are null
+	 */
+	private static List<?> getKey(List<?> tuple, int[] indexes) {
+		List<Object> key = new ArrayList<Object>(indexes.length);
+		for (int index : indexes) {
+			Object value = tuple.get(index);
+			if (value == null) {
+				return null;
+			}
+			key.add(value);
+		}
+		return key;
+	}
+
+	static int getPartition(List<?> key, int count, int level) {
+		//remix the hash at each level so that a repartitioning distributes differently
+		int h = key.hashCode() + level * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return (h & Integer.MAX_VALUE) % count;
+	}
+
+	@Override
+	protected void process() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (!hash) {
+			super.process();
+			return;
+		}
+		if (this.buildPartitions == null) {
+			if (this.probeTs == null) {
+				this.probeSource.setImplicitBuffer(ImplicitBuffer.NONE);
+				this.probeTs = this.probeSource.getIterator();
+			}
+			probe();
+			return;
+		}
+		if (this.partitions == null) {
+			//route the probe side to the matching partitions
+			if (this.probeTs == null) {
+				this.probeSource.setImplicitBuffer(ImplicitBuffer.NONE);
+				this.probeTs = this.probeSource.getIterator();
+			}
+			int[] indexes = this.probeSource.getExpressionIndexes();
+			while (true) {
+				List<?> tuple = this.probeTs.nextTuple();
+				if (tuple == null) {
+					break;
+				}
+				List<?> key = getKey(tuple, indexes);
+				if (key == null) {
+					if (this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+						this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+					}
+					continue;
+				}
+				int index = getPartition(key, this.buildPartitions.length, 0);
+				if (this.probePartitions[index] == null) {
+					this.probePartitions[index] = createPartitionBuffer(this.probeSource);
+				}
+				this.probePartitions[index].addTuple(tuple);
+			}
+			this.probeTs = null;
+			this.partitions = new LinkedList<Partition>();
+			for (int i = 0; i < this.buildPartitions.length; i++) {
+				Partition partition = new Partition();
+				partition.build = this.buildPartitions[i];
+				partition.probe = this.probePartitions[i];
+				if (partition.probe == null) {
+					partition.probe = createPartitionBuffer(this.probeSource);
+				}
+				partition.probe.close();
+				this.buildPartitions[i] = null;
+				this.probePartitions[i] = null;
+				this.partitions.add(partition);
+			}
+			if (this.parallelism > 1 && this.joinNode.getJoinCriteria() == null && this.joinNode.getContext().getExecutor() != null) {
+				joinPartitions();
+			}
+		}
+		if (this.exchange != null) {
+			streamOutputs();
+			return;
+		}
+		while (true) {
+			if (this.currentPartition != null) {
+				probe();
+				removePartition(this.currentPartition);
+				this.currentPartition = null;
+			}
+			if (this.partitions.isEmpty()) {
+				return;
+			}
+			Partition partition = this.partitions.removeFirst();
+			if (partition.probe.getRowCount() == 0 
+					|| (partition.build.getRowCount() == 0 && this.joinNode.getJoinType() == JoinType.JOIN_INNER)) {
+				removePartition(partition);
+				continue;
+			}
+			if (partition.build.getRowCount() > 1 && estimateSize(partition.build) > this.buildReserved && partition.level < MAX_LEVEL) {
+				repartition(partition);
+				continue;
+			}
+			this.currentPartition = partition;
+			this.table = buildTable(partition.build.createIndexedTupleSource(true), this.buildSource.getExpressionIndexes());
+			this.probeTs = partition.probe.createIndexedTupleSource(true);
+		}
+	}
+
+	/**
+	 * Repartition as needed, then start joining all of the partition pairs through an {@link Exchange}
+	 */
+	private void joinPartitions() throws TeiidComponentException, TeiidProcessingException {
+		List<Partition> ready = new ArrayList<Partition>();
+		while (!this.partitions.isEmpty()) {
+			Partition partition = this.partitions.removeFirst();
+			if (partition.probe.getRowCount() == 0 
+					|| (partition.build.getRowCount() == 0 && this.joinNode.getJoinType() == JoinType.JOIN_INNER)) {
+				removePartition(partition);
+				continue;
+			}
+			if (partition.build.getRowCount() > 1 && estimateSize(partition.build) > this.buildReserved && partition.level < MAX_LEVEL) {
+				repartition(partition);
+				continue;
+			}
+			ready.add(partition);
+		}
+		//each concurrent hash table needs its own reservation
+		BufferManager bm = this.joinNode.getBufferManager();
+		int additional = bm.reserveBuffers(this.buildReserved * (Math.min(this.parallelism, Math.max(1, ready.size())) - 1), BufferReserveMode.NO_WAIT);
+		this.reserved += additional;
+		int threads = 1 + additional / this.buildReserved;
+		Executor executor = this.joinNode.getContext().getExecutor();
+		final List<Expression> combined = new ArrayList<Expression>(this.leftSource.getSource().getElements());
+		combined.addAll(this.rightSource.getSource().getElements());
+		final int[] buildIndexes = this.buildSource.getExpressionIndexes();
+		final int[] probeIndexes = this.probeSource.getExpressionIndexes();
+		final boolean buildRight = this.buildSource == this.rightSource;
+		final List<?> outerVals = this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER?this.rightSource.getOuterVals():null;
+		final String connectionId = this.joinNode.getConnectionID();
+		final BufferManager bufferManager = this.joinNode.getBufferManager();
+		final Exchange<TupleBuffer> partitionExchange = new Exchange<TupleBuffer>(executor, threads);
+		partitionExchange.setWorkItem(this.joinNode.getContext().getWorkItem());
+		List<Callable<TupleBuffer>> tasks = new ArrayList<Callable<TupleBuffer>>(ready.size());
+		for (final Partition partition : ready) {
+			tasks.add(new Callable<TupleBuffer>() {
+				@Override
+				public TupleBuffer call() throws Exception {
+					if (partitionExchange.isCancelled()) {
+						removePartition(partition);
+						return null;
+					}
+					TupleBuffer output = bufferManager.createTupleBuffer(combined, connectionId, TupleSourceType.PROCESSOR);
+					try {
+						Map<List<?>, List<List<?>>> partitionTable = buildTable(partition.build.createIndexedTupleSource(true), buildIndexes);
+						TupleSource ts = partition.probe.createIndexedTupleSource(true);
+						List<?> tuple = null;
+						while ((tuple = ts.nextTuple()) != null) {
+							List<?> key = getKey(tuple, probeIndexes);
+							List<List<?>> values = key == null?null:partitionTable.get(key);
+							if (values == null) {
+								if (outerVals != null) {
+									output.addTuple(outputTuple(tuple, outerVals));
+								}
+								continue;
+							}
+							for (List<?> buildTuple : values) {
+								output.addTuple(buildRight?outputTuple(tuple, buildTuple):outputTuple(buildTuple, tuple));
+							}
+						}
+						ts.closeSource();
+						output.close();
+						if (partitionExchange.isCancelled()) {
+							output.remove();
+							return null;
+						}
+						return output;
+					} catch (Exception e) {
+						output.remove();
+						throw e;
+					} finally {
+						removePartition(partition);
+					}
+				}
+			});
+		}
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "joining", ready.size(), "hash join partitions for", this.joinNode.getID(), "with parallelism", threads); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		this.exchange = partitionExchange;
+		this.outputIndex = 0;
+		this.outputCount = tasks.size();
+		this.exchange.start(tasks);
+	}
+	
+	private void repartition(Partition partition) throws TeiidComponentException, TeiidProcessingException {
+		int count = (int)Math.min(MAX_PARTITIONS, estimateSize(partition.build)/this.buildReserved + 1);
+		int level = partition.level + 1;
+		try {
+			TupleBuffer[] builds = partition(partition.build.createIndexedTupleSource(true), this.buildSource, count, level);
+			TupleBuffer[] probes = partition(partition.probe.createIndexedTupleSource(true), this.probeSource, count, level);
+			for (int i = 0; i < count; i++) {
+				Partition child = new Partition();
+				child.build = builds[i];
+				child.probe = probes[i];
+				child.level = level;
+				this.partitions.addFirst(child);
+			}
+		} finally {
+			removePartition(partition);
+		}
+	}
+	
+	private void streamOutputs() throws TeiidComponentException, TeiidProcessingException {
+		while (true) {
+			if (this.outputTs == null) {
+				if (this.outputIndex >= this.outputCount) {
+					return;
+				}
+				TupleBuffer output = this.exchange.getResult(this.outputIndex);
+				output.setForwardOnly(true);
+				this.outputTs = output.createIndexedTupleSource(true);
+			}
+			List<?> tuple = this.outputTs.nextTuple();
+			if (tuple == null) {
+				this.outputTs.closeSource();
+				this.outputTs = null;
+				this.exchange.getResult(this.outputIndex++).remove();
+				continue;
+			}
+			this.joinNode.addBatchRow(tuple);
+		}
+	}
+
+	/**
+	 * Stream the probe tuples against the current hash table
+	 */
+	private void probe() throws TeiidComponentException, TeiidProcessingException {
+		int[] indexes = this.probeSource.getExpressionIndexes();
+		while (true) {
+			if (this.probeTuple == null) {
+				this.probeTuple = this.probeTs.nextTuple();
+				if (this.probeTuple == null) {
+					this.probeTs.closeSource();
+					this.probeTs = null;
+					this.table = null;
+					return;
+				}
+				this.matched = false;
+				this.matchIndex = 0;
+				List<?> key = getKey(this.probeTuple, indexes);
+				this.matches = key == null?null:this.table.get(key);
+			}
+			if (this.matches == null || this.matchIndex >= this.matches.size()) {
+				List<?> tuple = this.probeTuple;
+				this.probeTuple = null;
+				if (!this.matched && this.joinNode.getJoinType() == JoinType.JOIN_LEFT_OUTER) {
+					this.joinNode.addBatchRow(outputTuple(tuple, this.rightSource.getOuterVals()));
+				}
+				continue;
+			}
+			List<?> buildTuple = this.matches.get(this.matchIndex++);
+			List outputTuple = null;
+			if (this.buildSource == this.rightSource) {
+				outputTuple = outputTuple(this.probeTuple, buildTuple);
+			} else {
+				outputTuple = outputTuple(buildTuple, this.probeTuple);
+			}
+			if (this.joinNode.matchesCriteria(outputTuple)) {
+				this.matched = true;
+				this.joinNode.addBatchRow(outputTuple);
+			}
+		}
+	}
+
+	@Override
+	public HashJoinStrategy clone() {
+		HashJoinStrategy clone = new HashJoinStrategy(this.sortLeft, this.sortRight);
+		clone.parallelism = this.parallelism;
+		return clone;
+	}
+
+	@Override
+	public String getName() {
+		return "HASH JOIN"; //$NON-NLS-1$
+	}
+
+}
@@ -57,6 +57,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 	public enum JoinStrategyType {    
 	    MERGE,
 	    ENHANCED_SORT,
+	    HASH,
 	    NESTED_LOOP,
 	    NESTED_TABLE
 	}
@@ -28,6 +28,7 @@ import static org.teiid.query.analysis.AnalysisRecord.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.teiid.api.exception.query.QueryProcessingException;
@@ -39,6 +40,7 @@ import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.util.PropertiesUtils;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.processor.RegisterRequestParameter;
@@ -60,6 +62,11 @@ public class ProjectIntoNode extends RelationalNode {
     private static int REQUEST_CREATION = 1;
     private static int RESPONSE_PROCESSING = 2;
     
+    /**
+     * The number of iterator inserts that may be in flight when atomicity is not required
+     */
+    static int MAX_PENDING_INSERTS = Math.max(1, PropertiesUtils.getIntProperty(System.getProperties(), "org.teiid.maxPendingInserts", 4)); //$NON-NLS-1$
+    
     // Initialization state
     private GroupSymbol intoGroup;
     private List intoElements;
@@ -75,10 +82,10 @@ public class ProjectIntoNode extends RelationalNode {
     private boolean sourceDone;
     
     private TupleBuffer buffer;
-    private TupleBuffer last;
+    private LinkedList<TupleBuffer> sent = new LinkedList<TupleBuffer>();
     private TupleBatch currentBatch;
         	
-    private TupleSource tupleSource;
+    private LinkedList<TupleSource> tupleSources = new LinkedList<TupleSource>();
     
     private Criteria constraint;
     private Evaluator eval;
@@ -171,9 +178,11 @@ public class ProjectIntoNode extends RelationalNode {
             		buffer = getBufferManager().createTupleBuffer(intoElements, getConnectionID(), TupleSourceType.PROCESSOR);
             	}
             	
+            	int maxPending = getMaxPendingInserts();
+            	
             	if (sourceDone) {
-            		//if there is a pending request we can't process the last until it is done
-            		checkExitConditions(); 
+            		//if there are too many pending requests we can't process the last until one is done
+            		checkPending(maxPending - 1); 
             	}
             	
             	for (List<?> tuple : currentBatch.getTuples()) {
@@ -181,7 +190,7 @@ public class ProjectIntoNode extends RelationalNode {
             	}
             	
             	try {
-            		checkExitConditions();
+            		checkPending(maxPending - 1);
             	} catch (BlockedException e) {
             		//move to the next batch
                     this.batchRow += batchSize;
@@ -246,37 +255,64 @@ public class ProjectIntoNode extends RelationalNode {
 		// Register insert command against source 
 		registerRequest(insert);
         //remove the old buffer when the insert is complete
-        last = buffer;
+        sent.add(buffer);
         buffer = null;
 	}
+	
+	/**
+	 * Iterator inserts are sent as separate requests only when atomicity is 
+	 * provided by a transaction or is not needed.  Only in the latter case
+	 * do we allow more than one in flight. 
+	 */
+	private int getMaxPendingInserts() {
+		if (getContext().getTransactionContext() != null && getContext().getTransactionContext().isNoTxn()) {
+			return MAX_PENDING_INSERTS;
+		}
+		return 1;
+	}
 
     private void checkExitConditions()  throws TeiidComponentException, BlockedException, TeiidProcessingException {
-    	if (tupleSource != null) {
-	    	Integer count = (Integer)tupleSource.nextTuple().get(0);
+    	checkPending(0);
+    }
+
+    /**
+     * Process the completed requests in order 
+     * @param allowed the number of requests that may remain pending without blocking
+     */
+	private void checkPending(int allowed) throws TeiidComponentException,
+			TeiidProcessingException, BlockedException {
+		while (!tupleSources.isEmpty()) {
+			List<?> tuple = null;
+			try {
+				tuple = tupleSources.getFirst().nextTuple();
+			} catch (BlockedException e) {
+				if (tupleSources.size() <= allowed) {
+					return;
+				}
+				throw e;
+			}
+	    	Integer count = (Integer)tuple.get(0);
 	        insertCount += count.intValue();
 	        closeRequest();
 	        // Mark as processed
 	        tupleSourcesProcessed++; // This should set tupleSourcesProcessed to be the same as requestsRegistered
     	}
         // RESPONSE_PROCESSING: process tuple sources
-        if (tupleSourcesProcessed < requestsRegistered) {
+        if (tupleSourcesProcessed + allowed < requestsRegistered) {
         	throw BlockedException.block(getContext().getRequestId(), "Blocking on insert update count"); //$NON-NLS-1$
         }
-                
-    }
+	}
 
     private void registerRequest(Command command) throws TeiidComponentException, TeiidProcessingException {
-    	tupleSource = getDataManager().registerRequest(getContext(), command, this.modelName, new RegisterRequestParameter(null, getID(), -1));        
+    	tupleSources.add(getDataManager().registerRequest(getContext(), command, this.modelName, new RegisterRequestParameter(null, getID(), -1)));        
     }
     
     private void closeRequest() {
-    	if (this.last != null) {
-    		this.last.remove();
-    		this.last = null;
+    	if (!this.sent.isEmpty()) {
+    		this.sent.removeFirst().remove();
     	}
-        if (this.tupleSource != null) {
-            tupleSource.closeSource();
-            this.tupleSource = null;
+        if (!this.tupleSources.isEmpty()) {
+            tupleSources.removeFirst().closeSource();
         }
     }
     
@@ -336,7 +372,9 @@ public class ProjectIntoNode extends RelationalNode {
     		this.buffer.remove();
     		this.buffer = null;
     	}
-        closeRequest();
+    	while (!this.sent.isEmpty() || !this.tupleSources.isEmpty()) {
+    		closeRequest();
+    	}
 	}
     
     public String getModelName() {
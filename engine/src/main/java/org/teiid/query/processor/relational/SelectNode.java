@@ -36,6 +36,7 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.eval.BatchEvaluator;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.lang.Criteria;
@@ -44,6 +45,16 @@ import org.teiid.query.util.CommandContext;
 
 
 public class SelectNode extends SubqueryAwareRelationalNode {
+	
+	/**
+	 * Holds the compiled form of the criteria.  It is shared by all clones of the node 
+	 * so that executions of a cached plan, such as a {@link org.teiid.dqp.internal.process.PreparedPlan},
+	 * compile the criteria only once. 
+	 */
+	private static class CompiledCriteria {
+		volatile boolean compiled;
+		volatile BatchEvaluator batchEvaluator;
+	}
 
 	private Criteria criteria;
 	private List<Expression> projectedExpressions;
@@ -55,6 +66,12 @@ public class SelectNode extends SubqueryAwareRelationalNode {
     // State if blocked on evaluating a criteria
     private TupleBatch currentBatch;
     private int currentRow = 1;
+    
+    // Batch evaluation state
+    private CompiledCriteria compiledCriteria = new CompiledCriteria();
+    private int[] selection;
+    private int selectionCount;
+    private int selectionIndex;
 
 	protected SelectNode() {
 		super();
@@ -69,9 +86,13 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         
         currentBatch = null;
         currentRow = 1;
+        selection = null;
     }
 
 	public void setCriteria(Criteria criteria) { 
+		if (this.criteria != criteria) {
+			this.compiledCriteria = new CompiledCriteria();
+		}
 		this.criteria = criteria;
 	}
 
@@ -103,15 +124,41 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         if(currentBatch == null) {
         	currentBatch = this.getChildren()[0].nextBatch();
         }
-
-        while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
-    		List<?> tuple = currentBatch.getTuple(currentRow);
-
-            if(getEvaluator(this.elementMap).evaluate(this.criteria, tuple)) {
-                addBatchRow(projectTuple(this.projectionIndexes, tuple));
-            }
-            currentRow++;
-		}
+        
+        if (!compiledCriteria.compiled) {
+        	compiledCriteria.batchEvaluator = BatchEvaluator.create(this.criteria, this.elementMap);
+        	compiledCriteria.compiled = true;
+        }
+        
+        BatchEvaluator batchEvaluator = compiledCriteria.batchEvaluator;
+        if (batchEvaluator != null) {
+        	List<List<?>> tuples = currentBatch.getTuples();
+        	if (selection == null) {
+        		int[] rows = new int[tuples.size()];
+        		for (int i = 0; i < rows.length; i++) {
+        			rows[i] = i;
+				}
+        		selectionCount = batchEvaluator.filter(getEvaluator(this.elementMap), tuples, currentBatch.getColumnarBatch(), rows, rows.length);
+        		selectionIndex = 0;
+        		selection = rows;
+        	}
+        	while (selectionIndex < selectionCount && !isBatchFull()) {
+        		addBatchRow(projectTuple(this.projectionIndexes, tuples.get(selection[selectionIndex++])));
+        	}
+        	if (selectionIndex >= selectionCount) {
+        		currentRow = currentBatch.getEndRow() + 1;
+        		selection = null;
+        	}
+        } else {
+	        while (currentRow <= currentBatch.getEndRow() && !isBatchFull()) {
+	    		List<?> tuple = currentBatch.getTuple(currentRow);
+	
+	            if(getEvaluator(this.elementMap).evaluate(this.criteria, tuple)) {
+	                addBatchRow(projectTuple(this.projectionIndexes, tuple));
+	            }
+	            currentRow++;
+			}
+        }
         
         if (currentRow > currentBatch.getEndRow()) {
 	        if(currentBatch.getTerminationFlag()) {
@@ -140,6 +187,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
 		target.elementMap = elementMap;
 		target.projectionIndexes = projectionIndexes;
 		target.projectedExpressions = projectedExpressions;
+		target.compiledCriteria = compiledCriteria;
 	}
     
     public PlanNode getDescriptionProperties() {   
@@ -23,21 +23,30 @@
 package org.teiid.query.processor.relational;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.teiid.common.buffer.AbstractTupleSource;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
 import org.teiid.core.util.Assertion;
 import org.teiid.core.util.PropertiesUtils;
 import org.teiid.language.SortSpecification.NullOrdering;
@@ -51,6 +60,9 @@ import org.teiid.query.sql.symbol.Expression;
 
 /**
  * Implements several modes of a multi-pass sort.
+ * <br>
+ * When an {@link Executor} and a parallelism greater than 1 are set, large initial runs are sorted 
+ * as concurrent slices and the merge reads ahead the next batch of each sublist on the executor.
  * 
  * TODO: could consider using an index for dup_removal and maintaining a separate output buffer
  * TODO: release the tuple buffer in the last merge pass if sublists will fit in processing batch size
@@ -70,16 +82,23 @@ public class SortUtility {
 	/**
 	 * state holder for the merge algorithm
 	 */
-	private class SortedSublist implements Comparable<SortedSublist> {
+	private static class SortedSublist {
 		List<?> tuple;
 		int index;
-		TupleBufferTupleSource its;
-		int limit = Integer.MAX_VALUE;
+		/** the order in which the current tuple was read, used to break ties */
+		long sequence;
+		TupleSource its;
+		List<?>[] tuples;
+		int position;
 		
-		@Override
-		public int compareTo(SortedSublist o) {
-			//reverse the comparison, so that removal of the lowest is a low cost operation
-			return -comparator.compare(this.tuple, o.tuple);
+		List<?> nextTuple() throws TeiidComponentException, TeiidProcessingException {
+			if (its != null) {
+				return its.nextTuple();
+			}
+			if (position < tuples.length) {
+				return tuples[position++];
+			}
+			return null;
 		}
 		
 		@Override
@@ -87,6 +106,170 @@ public class SortUtility {
 			return index + " " + tuple; //$NON-NLS-1$
 		}
 	}
+	
+	/**
+	 * A tree of losers over the sublists being merged.  Replacing the lowest tuple takes log(k) 
+	 * comparisons along a single path rather than an ordered insert into the list of sublists.
+	 * <br>
+	 * Ties go to the sublist whose current tuple was read first.
+	 */
+	private class LoserTree {
+		private SortedSublist[] leaves;
+		private int[] tree;
+		private long sequence;
+		
+		LoserTree(SortedSublist[] leaves) throws TeiidComponentException, TeiidProcessingException {
+			this.leaves = leaves;
+			this.tree = new int[leaves.length];
+			for (SortedSublist sortedSublist : leaves) {
+				advance(sortedSublist);
+			}
+			this.tree[0] = build(1);
+		}
+		
+		private int build(int node) {
+			if (node >= leaves.length) {
+				return node - leaves.length;
+			}
+			int left = build(2*node);
+			int right = build(2*node + 1);
+			if (less(right, left)) {
+				tree[node] = left;
+				return right;
+			}
+			tree[node] = right;
+			return left;
+		}
+		
+		private boolean less(int i, int j) {
+			SortedSublist a = leaves[i];
+			SortedSublist b = leaves[j];
+			if (a.tuple == null) {
+				return false;
+			}
+			if (b.tuple == null) {
+				return true;
+			}
+			int compare = comparator.compare(a.tuple, b.tuple);
+			if (compare == 0) {
+				return a.sequence < b.sequence;
+			}
+			return compare < 0;
+		}
+		
+		private void advance(SortedSublist sortedSublist) throws TeiidComponentException, TeiidProcessingException {
+			sortedSublist.tuple = sortedSublist.nextTuple();
+			sortedSublist.sequence = sequence++;
+		}
+		
+		/**
+		 * Return the lowest tuple and advance its sublist, or null if all sublists are exhausted
+		 */
+		List<?> next() throws TeiidComponentException, TeiidProcessingException {
+			int winner = tree[0];
+			SortedSublist sortedSublist = leaves[winner];
+			List<?> result = sortedSublist.tuple;
+			if (result == null) {
+				return null;
+			}
+			advance(sortedSublist);
+			for (int node = (winner + leaves.length)/2; node > 0; node/=2) {
+				if (less(tree[node], winner)) {
+					int loser = winner;
+					winner = tree[node];
+					tree[node] = loser;
+				}
+			}
+			tree[0] = winner;
+			return result;
+		}
+	}
+	
+	/**
+	 * Reads ahead the next batch of a sublist on the executor.  The buffer is only accessed by 
+	 * one thread at a time since any pending read is waited on before the next access.
+	 */
+	private class PrefetchingTupleSource extends AbstractTupleSource {
+		private TupleBuffer buffer;
+		private FutureTask<TupleBatch> prefetch;
+		private int prefetchRow;
+		
+		PrefetchingTupleSource(TupleBuffer buffer) {
+			this.buffer = buffer;
+		}
+		
+		@Override
+		protected TupleBatch getBatch(int row) throws TeiidComponentException {
+			TupleBatch result = null;
+			if (prefetch != null) {
+				TupleBatch prefetched = waitForPrefetch();
+				if (prefetchRow == row) {
+					result = prefetched;
+				}
+			}
+			if (result == null) {
+				result = buffer.getBatch(row);
+			}
+			final int next = result.getEndRow() + 1;
+			if (result.getRowCount() > 0 && next <= buffer.getRowCount()) {
+				prefetchRow = next;
+				prefetch = new FutureTask<TupleBatch>(new Callable<TupleBatch>() {
+					@Override
+					public TupleBatch call() throws Exception {
+						return buffer.getBatch(next);
+					}
+				});
+				try {
+					executor.execute(prefetch);
+				} catch (RejectedExecutionException e) {
+					prefetch.run();
+				}
+			}
+			return result;
+		}
+		
+		private TupleBatch waitForPrefetch() throws TeiidComponentException {
+			FutureTask<TupleBatch> pending = prefetch;
+			prefetch = null;
+			//the task may still be queued behind this thread, so run it here if it has not started
+			pending.run();
+			try {
+				return pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TeiidComponentException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof TeiidComponentException) {
+					throw (TeiidComponentException)e.getCause();
+				}
+				throw new TeiidRuntimeException(e.getCause());
+			}
+		}
+		
+		@Override
+		protected int available() {
+			return buffer.getRowCount() - getCurrentIndex() + 1;
+		}
+		
+		@Override
+		protected List<?> finalRow() {
+			return null;
+		}
+		
+		@Override
+		public void closeSource() {
+			super.closeSource();
+			if (prefetch != null) {
+				try {
+					waitForPrefetch();
+				} catch (TeiidComponentException e) {
+					LogManager.logDetail(LogConstants.CTX_DQP, e, "Sort prefetch failed"); //$NON-NLS-1$
+				} catch (TeiidRuntimeException e) {
+					LogManager.logDetail(LogConstants.CTX_DQP, e, "Sort prefetch failed"); //$NON-NLS-1$
+				}
+			}
+		}
+	}
 
 	//constructor state
     private TupleSource source;
@@ -109,6 +292,8 @@ public class SortUtility {
 	private TupleBuffer workingBuffer;
 	private long[] attempts = new long[2];
 	private boolean nonBlocking;
+	private Executor executor;
+	private int parallelism = 1;
 	
 	private static boolean STABLE_SORT = PropertiesUtils.getBooleanProperty(System.getProperties(), "org.teiid.requireStableSort", false); //$NON-NLS-1$
 	
@@ -349,8 +534,13 @@ public class SortUtility {
 		        TupleBuffer sublist = createTupleBuffer();
 		        activeTupleBuffers.add(sublist);
 		        if (this.mode == Mode.SORT) {
-		        	//perform a stable sort
-		    		Collections.sort((List<List<?>>)workingTuples, comparator);
+		        	int threads = Math.min(this.parallelism, workingTuples.size()/(2*this.batchSize));
+		        	if (threads > 1 && this.executor != null) {
+		        		parallelSort((List<List<?>>)workingTuples, threads);
+		        	} else {
+			        	//perform a stable sort
+			    		Collections.sort((List<List<?>>)workingTuples, comparator);
+		        	}
 		        }
 		        for (List<?> list : workingTuples) {
 					sublist.addTuple(list);
@@ -376,6 +566,41 @@ public class SortUtility {
         this.phase = MERGE;
     }
 
+    /**
+     * Sort contiguous slices of the tuples concurrently, then merge them back in place.
+     * Both steps are stable, so the result matches a serial stable sort.
+     */
+    private void parallelSort(final List<List<?>> tuples, int threads) throws TeiidComponentException, TeiidProcessingException {
+    	final int size = tuples.size();
+    	//the comparator lazily initializes, so use it once before concurrent access
+    	comparator.compare(tuples.get(0), tuples.get(1));
+    	List<Callable<List<?>[]>> tasks = new ArrayList<Callable<List<?>[]>>(threads);
+    	for (int i = 0; i < threads; i++) {
+    		final int start = (int)((long)size * i / threads);
+    		final int end = (int)((long)size * (i + 1) / threads);
+    		tasks.add(new Callable<List<?>[]>() {
+    			@Override
+    			public List<?>[] call() throws Exception {
+    				List<?>[] slice = tuples.subList(start, end).toArray(new List<?>[end - start]);
+    				Arrays.sort(slice, comparator);
+    				return slice;
+    			}
+			});
+		}
+    	List<List<?>[]> slices = new Exchange<List<?>[]>(this.executor, threads).execute(tasks);
+    	SortedSublist[] sublists = new SortedSublist[threads];
+    	for (int i = 0; i < threads; i++) {
+    		SortedSublist sortedSublist = new SortedSublist();
+    		sortedSublist.tuples = slices.get(i);
+    		sortedSublist.index = i;
+    		sublists[i] = sortedSublist;
+		}
+    	LoserTree tree = new LoserTree(sublists);
+    	for (int i = 0; i < size; i++) {
+    		tuples.set(i, tree.next());
+    	}
+    }
+
     public void setWorkingBuffer(TupleBuffer workingBuffer) {
 		this.workingBuffer = workingBuffer;
 	}
@@ -422,8 +647,6 @@ public class SortUtility {
         
         try {
         	while(this.activeTupleBuffers.size() > 1) {    		
-	    		ArrayList<SortedSublist> sublists = new ArrayList<SortedSublist>(activeTupleBuffers.size());
-	            
 	            TupleBuffer merged = createTupleBuffer();
 
 	            desiredSpace = activeTupleBuffers.size() * (long)schemaSize;
@@ -436,22 +659,49 @@ public class SortUtility {
             	if (LogManager.isMessageToBeRecorded(org.teiid.logging.LogConstants.CTX_DQP, MessageLevel.TRACE)) {
 	            	LogManager.logTrace(org.teiid.logging.LogConstants.CTX_DQP, "Merging", maxSortIndex, "sublists out of", activeTupleBuffers.size()); //$NON-NLS-1$ //$NON-NLS-2$
 	            }
-	        	// initialize the sublists with the min value
+	            maxSortIndex = Math.min(maxSortIndex, activeTupleBuffers.size());
+	            SortedSublist[] sublists = new SortedSublist[maxSortIndex];
 	            for(int i = 0; i<maxSortIndex; i++) { 
 	             	TupleBuffer activeID = activeTupleBuffers.get(i);
 	             	SortedSublist sortedSublist = new SortedSublist();
-	            	sortedSublist.its = activeID.createIndexedTupleSource();
-	            	sortedSublist.its.setNoBlocking(true);
+	             	if (this.executor != null && this.parallelism > 1) {
+	             		sortedSublist.its = new PrefetchingTupleSource(activeID);
+	             	} else {
+		             	TupleBufferTupleSource its = activeID.createIndexedTupleSource();
+		             	its.setNoBlocking(true);
+		            	sortedSublist.its = its;
+	             	}
 	            	sortedSublist.index = i;
-	            	incrementWorkingTuple(sublists, sortedSublist);
+	            	sublists[i] = sortedSublist;
 	            }
 	            
 	            // iteratively process the lowest tuple
-	            while (sublists.size() > 0) {
-	            	SortedSublist sortedSublist = sublists.remove(sublists.size() - 1);
-	        		merged.addTuple(sortedSublist.tuple);
-	            	incrementWorkingTuple(sublists, sortedSublist);
-	            }                
+	            try {
+		            LoserTree tree = new LoserTree(sublists);
+		            List<?> last = null;
+		            List<?> tuple = null;
+		            while ((tuple = tree.next()) != null) {
+		            	if (last != null) {
+		            		if (mode != Mode.SORT) {
+		            			//remove duplicates
+		            			if (comparator.compare(last, tuple) == 0) {
+		            				continue;
+		            			}
+		            		} else if (comparator.isDistinct()) {
+		            			//the comparison marks the comparator as not distinct on a match
+		            			comparator.compare(last, tuple);
+		            		}
+		            	}
+		        		merged.addTuple(tuple);
+		        		last = tuple;
+		            }
+	            } finally {
+	            	for (SortedSublist sortedSublist : sublists) {
+	            		if (sortedSublist != null) {
+	            			sortedSublist.its.closeSource();
+	            		}
+	            	}
+	            }
 	
 	            // Remove merged sublists
 	            for(int i=0; i<maxSortIndex; i++) {
@@ -473,28 +723,6 @@ public class SortUtility {
         return;
     }
 
-	private void incrementWorkingTuple(ArrayList<SortedSublist> subLists, SortedSublist sortedSublist) throws TeiidComponentException, TeiidProcessingException {
-		while (true) {
-			sortedSublist.tuple = null;
-			if (sortedSublist.limit < sortedSublist.its.getCurrentIndex()) {
-				return; //special case for still reading the output tuplebuffer
-			}
-			sortedSublist.tuple = sortedSublist.its.nextTuple();
-	        if (sortedSublist.tuple == null) {
-	        	return; // done with this sublist
-	        }
-			int index = Collections.binarySearch(subLists, sortedSublist);
-			if (index < 0) {
-				subLists.add(-index - 1, sortedSublist);
-				return;
-			}
-			if (mode == Mode.SORT) {
-				subLists.add(index, sortedSublist);
-				return;
-			} 
-		}
-	} 
-
     public boolean isDistinct() {
     	return this.comparator.isDistinct();
     }
@@ -522,6 +750,14 @@ public class SortUtility {
 		this.nonBlocking = b;
 	}
 	
+	/**
+	 * Allow initial runs to be sorted concurrently and merge reads to be performed ahead on the executor
+	 */
+	public void setParallelism(Executor executor, int parallelism) {
+		this.executor = executor;
+		this.parallelism = Math.max(1, parallelism);
+	}
+	
 	public void setStableSort(boolean stableSort) {
 		this.stableSort = stableSort;
 	}
@@ -32,6 +32,10 @@ import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.function.aggregate.AggregateFunction;
+import org.teiid.query.function.aggregate.Count;
+import org.teiid.query.function.aggregate.Max;
+import org.teiid.query.function.aggregate.Min;
+import org.teiid.query.function.aggregate.Sum;
 import org.teiid.query.processor.relational.SortUtility.Mode;
 import org.teiid.query.sql.lang.OrderByItem;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -54,6 +58,7 @@ public class SortingFilter extends AggregateFunction {
     // Temporary state - should be reset
     private TupleBuffer collectionBuffer;
     private SortUtility sortUtility;
+    private HashDistinct distinct;
 
     /**
      * Constructor for DuplicateFilter.
@@ -98,12 +103,29 @@ public class SortingFilter extends AggregateFunction {
 			sortUtility.remove();
 	        this.sortUtility = null;
 		}
+		if (this.distinct != null) {
+			this.distinct.remove();
+			this.distinct = null;
+		}
+	}
+	
+	/**
+	 * Distinct input to an order insensitive aggregate may be 
+	 * streamed to the proxy rather than sorted.
+	 */
+	private boolean useHashDistinct() {
+		return removeDuplicates && sortItems == null 
+				&& (proxy instanceof Count || proxy instanceof Sum || proxy instanceof Min || proxy instanceof Max)
+				&& HashDistinct.canHash(elements);
 	}
 	
 	@Override
 	public void addInputDirect(List<?> tuple, CommandContext commandContext)
 			throws TeiidComponentException, TeiidProcessingException {
-        if(collectionBuffer == null) {
+		if (distinct == null && collectionBuffer == null && useHashDistinct()) {
+			distinct = new HashDistinct(mgr, elements, groupName);
+		}
+        if(distinct == null && collectionBuffer == null) {
             collectionBuffer = mgr.createTupleBuffer(elements, groupName, TupleSourceType.PROCESSOR);
         }
         List<Object> row = new ArrayList<Object>(argIndexes.length);
@@ -111,7 +133,14 @@ public class SortingFilter extends AggregateFunction {
         for (int i = 0; i < argIndexes.length; i++) {
 			row.add(tuple.get(argIndexes[i]));
 		}
-        if (!this.proxy.filter(row)) {
+        if (this.proxy.filter(row)) {
+        	return;
+        }
+        if (this.distinct != null) {
+        	if (this.distinct.add(row)) {
+        		this.proxy.addInputDirect(row, commandContext);
+        	}
+        } else {
             this.collectionBuffer.addTuple(row);
         }
 	}
@@ -150,6 +179,8 @@ public class SortingFilter extends AggregateFunction {
             }
             
             close();
+        } else if (distinct != null) {
+        	close();
         }
 
         // Return
@@ -101,6 +101,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		private long ttl = -1;
 		private boolean valid;
 		private boolean asynch; //sub state of loading
+		private Object deltaValue; //high water mark of the delta column
 		private Map<RequestID, WeakReference<RequestWorkItem>> waiters = new HashMap<RequestID, WeakReference<RequestWorkItem>>(2);
 		
 		protected MatTableInfo() {}
@@ -170,6 +171,14 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 			this.ttl = ttl;
 		}
 		
+		public synchronized Object getDeltaValue() {
+			return deltaValue;
+		}
+		
+		public synchronized void setDeltaValue(Object deltaValue) {
+			this.deltaValue = deltaValue;
+		}
+		
 		public synchronized long getUpdateTime() {
 			return updateTime;
 		}
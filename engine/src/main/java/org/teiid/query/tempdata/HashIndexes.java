@@ -0,0 +1,484 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.tempdata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * In memory secondary indexes of a {@link TempTable}.
+ * <br>
+ * Each row is assigned a row number.  A hash index maps the index column values to the
+ * row numbers for constant time point lookups.  A bitmap index instead keeps a {@link BitSet}
+ * of row numbers per value, which is intended for low cardinality columns and allows
+ * conditions across bitmap indexes to be combined with AND/OR.
+ * <br>
+ * Clones share state until one of them is modified.
+ */
+class HashIndexes implements Cloneable {
+
+	/**
+	 * The maximum number of value combinations to probe for a multi-column index
+	 */
+	private static final int MAX_PROBES = 1 << 12;
+
+	static class Index {
+		List<ElementSymbol> columns;
+		int[] positions;
+		boolean bitmap;
+		/**
+		 * values to an Integer row number or int[] of count followed by row numbers for hash indexes,
+		 * or values to a BitSet for bitmap indexes
+		 */
+		HashMap<List<?>, Object> entries = new HashMap<List<?>, Object>();
+
+		Index(List<ElementSymbol> columns, int[] positions, boolean bitmap) {
+			this.columns = columns;
+			this.positions = positions;
+			this.bitmap = bitmap;
+		}
+
+		Index copy() {
+			Index copy = new Index(columns, positions, bitmap);
+			copy.entries = new HashMap<List<?>, Object>(entries);
+			for (Map.Entry<List<?>, Object> entry : copy.entries.entrySet()) {
+				Object value = entry.getValue();
+				if (value instanceof BitSet) {
+					entry.setValue(((BitSet)value).clone());
+				} else if (value instanceof int[]) {
+					entry.setValue(((int[])value).clone());
+				}
+			}
+			return copy;
+		}
+
+		List<?> getKey(List<?> tuple) {
+			Object[] key = new Object[positions.length];
+			for (int i = 0; i < positions.length; i++) {
+				key[i] = tuple.get(positions[i]);
+			}
+			return Arrays.asList(key);
+		}
+
+		void add(List<?> key, int row) {
+			Object entry = entries.get(key);
+			if (bitmap) {
+				BitSet bits = (BitSet)entry;
+				if (bits == null) {
+					bits = new BitSet();
+					entries.put(key, bits);
+				}
+				bits.set(row);
+			} else if (entry == null) {
+				entries.put(key, row);
+			} else if (entry instanceof Integer) {
+				entries.put(key, new int[] {2, (Integer)entry, row, 0});
+			} else {
+				int[] rows = (int[])entry;
+				int count = rows[0];
+				if (count + 1 == rows.length) {
+					rows = Arrays.copyOf(rows, rows.length * 2);
+					entries.put(key, rows);
+				}
+				rows[++count] = row;
+				rows[0] = count;
+			}
+		}
+
+		void remove(List<?> key, int row) {
+			Object entry = entries.get(key);
+			if (entry == null) {
+				return;
+			}
+			if (bitmap) {
+				BitSet bits = (BitSet)entry;
+				bits.clear(row);
+				if (bits.isEmpty()) {
+					entries.remove(key);
+				}
+			} else if (entry instanceof Integer) {
+				entries.remove(key);
+			} else {
+				int[] rows = (int[])entry;
+				int count = rows[0];
+				for (int i = 1; i <= count; i++) {
+					if (rows[i] == row) {
+						rows[i] = rows[count];
+						rows[0] = --count;
+						break;
+					}
+				}
+				if (count == 1) {
+					entries.put(key, rows[1]);
+				}
+			}
+		}
+
+		/**
+		 * Add the rows matching the key to the result
+		 * @return the number of rows added
+		 */
+		int getRows(List<?> key, BitSet result) {
+			Object entry = entries.get(key);
+			if (entry == null) {
+				return 0;
+			}
+			if (entry instanceof BitSet) {
+				BitSet bits = (BitSet)entry;
+				result.or(bits);
+				return bits.cardinality();
+			}
+			if (entry instanceof Integer) {
+				result.set((Integer)entry);
+				return 1;
+			}
+			int[] rows = (int[])entry;
+			for (int i = 1; i <= rows[0]; i++) {
+				result.set(rows[i]);
+			}
+			return rows[0];
+		}
+
+		int getRowCount(List<?> key) {
+			Object entry = entries.get(key);
+			if (entry == null) {
+				return 0;
+			}
+			if (entry instanceof BitSet) {
+				return ((BitSet)entry).cardinality();
+			}
+			if (entry instanceof Integer) {
+				return 1;
+			}
+			return ((int[])entry)[0];
+		}
+
+	}
+
+	private int keyLength;
+	private ArrayList<Index> indexes = new ArrayList<Index>(2);
+	private HashMap<List<?>, Integer> rowNumbers = new HashMap<List<?>, Integer>();
+	private ArrayList<List<Object>> rows = new ArrayList<List<Object>>();
+	private BitSet freeRows = new BitSet();
+	private boolean shared;
+
+	HashIndexes(int keyLength) {
+		this.keyLength = keyLength;
+	}
+
+	List<Index> getIndexes() {
+		return indexes;
+	}
+
+	Index getIndex(List<ElementSymbol> columns) {
+		for (Index index : indexes) {
+			if (index.columns.equals(columns)) {
+				return index;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Add an index populated from the given tuples, which are all of the table rows
+	 */
+	void addIndex(List<ElementSymbol> columns, int[] positions, boolean bitmap, TupleSource tuples) throws TeiidComponentException, TeiidProcessingException {
+		copyIfShared();
+		Index index = new Index(columns, positions, bitmap);
+		List<?> tuple = null;
+		while ((tuple = tuples.nextTuple()) != null) {
+			index.add(index.getKey(tuple), getRowNumber(tuple));
+		}
+		indexes.add(index);
+	}
+
+	void insert(List<?> tuple) {
+		copyIfShared();
+		int row = getRowNumber(tuple);
+		for (Index index : indexes) {
+			index.add(index.getKey(tuple), row);
+		}
+	}
+
+	void remove(List<?> tuple) {
+		copyIfShared();
+		Integer row = rowNumbers.remove(tuple.subList(0, keyLength));
+		if (row == null) {
+			return;
+		}
+		rows.set(row, null);
+		freeRows.set(row);
+		for (Index index : indexes) {
+			index.remove(index.getKey(tuple), row);
+		}
+	}
+
+	void clear() {
+		ArrayList<Index> cleared = new ArrayList<Index>(indexes.size());
+		for (Index index : indexes) {
+			cleared.add(new Index(index.columns, index.positions, index.bitmap));
+		}
+		this.indexes = cleared;
+		this.rowNumbers = new HashMap<List<?>, Integer>();
+		this.rows = new ArrayList<List<Object>>();
+		this.freeRows = new BitSet();
+		this.shared = false;
+	}
+
+	private int getRowNumber(List<?> tuple) {
+		List<Object> key = new ArrayList<Object>(tuple.subList(0, keyLength));
+		Integer row = rowNumbers.get(key);
+		if (row != null) {
+			return row;
+		}
+		int next = freeRows.nextSetBit(0);
+		if (next < 0) {
+			next = rows.size();
+			rows.add(key);
+		} else {
+			freeRows.clear(next);
+			rows.set(next, key);
+		}
+		rowNumbers.put(key, next);
+		return next;
+	}
+
+	private void copyIfShared() {
+		if (!shared) {
+			return;
+		}
+		ArrayList<Index> copies = new ArrayList<Index>(indexes.size());
+		for (Index index : indexes) {
+			copies.add(index.copy());
+		}
+		this.indexes = copies;
+		this.rowNumbers = new HashMap<List<?>, Integer>(rowNumbers);
+		this.rows = new ArrayList<List<Object>>(rows);
+		this.freeRows = (BitSet)freeRows.clone();
+		this.shared = false;
+	}
+
+	@Override
+	public HashIndexes clone() {
+		try {
+			HashIndexes clone = (HashIndexes)super.clone();
+			this.shared = true;
+			clone.shared = true;
+			return clone;
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Get the primary key values of the rows that may satisfy the condition using the
+	 * hash and bitmap indexes.  Point conditions on hash indexes are probed directly,
+	 * while the rows from bitmap indexes are intersected across conjuncts and unioned across
+	 * disjuncts.  The condition must still be applied to the resulting rows.
+	 *
+	 * @return the keys, or null if no index applies.
+	 */
+	List<List<Object>> getKeys(Criteria condition) {
+		Map<Expression, Set<Object>> values = new HashMap<Expression, Set<Object>>();
+		BitSet bits = null;
+		for (Criteria crit : Criteria.separateCriteriaByAnd(condition)) {
+			if (crit instanceof CompoundCriteria && ((CompoundCriteria)crit).getOperator() == CompoundCriteria.OR) {
+				BitSet result = getBitmapRows(((CompoundCriteria)crit).getCriteria());
+				if (result != null) {
+					bits = intersect(bits, result);
+				}
+				continue;
+			}
+			Expression ex = getPointExpression(crit);
+			if (ex == null) {
+				continue;
+			}
+			Set<Object> pointValues = getPointValues(crit);
+			Set<Object> existing = values.get(ex);
+			if (existing != null) {
+				existing.retainAll(pointValues);
+			} else {
+				values.put(ex, pointValues);
+			}
+		}
+		Index best = null;
+		long bestCount = Long.MAX_VALUE;
+		for (Index index : indexes) {
+			List<List<Object>> keys = getProbeKeys(index, values);
+			if (keys == null) {
+				continue;
+			}
+			if (index.bitmap) {
+				BitSet result = new BitSet();
+				for (List<Object> key : keys) {
+					index.getRows(key, result);
+				}
+				bits = intersect(bits, result);
+				continue;
+			}
+			long count = 0;
+			for (List<Object> key : keys) {
+				count += index.getRowCount(key);
+			}
+			if (count < bestCount) {
+				best = index;
+				bestCount = count;
+			}
+		}
+		if (best == null && bits == null) {
+			return null;
+		}
+		if (best != null && (bits == null || bestCount < bits.cardinality())) {
+			BitSet result = new BitSet();
+			for (List<Object> key : getProbeKeys(best, values)) {
+				best.getRows(key, result);
+			}
+			bits = intersect(bits, result);
+		}
+		List<List<Object>> result = new ArrayList<List<Object>>(bits.cardinality());
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i+1)) {
+			result.add(rows.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Get the rows for disjuncts that are all point conditions on single column bitmap indexes
+	 */
+	private BitSet getBitmapRows(List<Criteria> disjuncts) {
+		BitSet result = new BitSet();
+		for (Criteria crit : disjuncts) {
+			Expression ex = getPointExpression(crit);
+			if (ex == null) {
+				return null;
+			}
+			Index index = null;
+			for (Index idx : indexes) {
+				if (idx.bitmap && idx.columns.size() == 1 && idx.columns.get(0).equals(ex)) {
+					index = idx;
+					break;
+				}
+			}
+			if (index == null) {
+				return null;
+			}
+			for (Object value : getPointValues(crit)) {
+				index.getRows(Arrays.asList(value), result);
+			}
+		}
+		return result;
+	}
+
+	private static BitSet intersect(BitSet bits, BitSet other) {
+		if (bits == null) {
+			return other;
+		}
+		bits.and(other);
+		return bits;
+	}
+
+	/**
+	 * Get the combinations of values to probe the index with, or null if the index
+	 * does not apply
+	 */
+	private static List<List<Object>> getProbeKeys(Index index, Map<Expression, Set<Object>> values) {
+		List<List<Object>> keys = new ArrayList<List<Object>>();
+		keys.add(new ArrayList<Object>(index.columns.size()));
+		for (ElementSymbol col : index.columns) {
+			Set<Object> colValues = values.get(col);
+			if (colValues == null || (long)keys.size() * colValues.size() > MAX_PROBES && index.columns.size() > 1) {
+				return null;
+			}
+			List<List<Object>> newKeys = new ArrayList<List<Object>>(keys.size() * colValues.size());
+			for (List<Object> key : keys) {
+				for (Object value : colValues) {
+					List<Object> newKey = new ArrayList<Object>(key);
+					newKey.add(value);
+					newKeys.add(newKey);
+				}
+			}
+			keys = newKeys;
+		}
+		return keys;
+	}
+
+	private static Expression getPointExpression(Criteria crit) {
+		if (crit instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)crit;
+			if (cc.getOperator() == CompareCriteria.EQ && cc.getRightExpression() instanceof Constant) {
+				return cc.getLeftExpression();
+			}
+		} else if (crit instanceof SetCriteria) {
+			SetCriteria sc = (SetCriteria)crit;
+			if (sc.isNegated()) {
+				return null;
+			}
+			for (Object value : sc.getValues()) {
+				if (!(value instanceof Constant)) {
+					return null;
+				}
+			}
+			return sc.getExpression();
+		} else if (crit instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)crit;
+			if (!inc.isNegated()) {
+				return inc.getExpression();
+			}
+		}
+		return null;
+	}
+
+	private static Set<Object> getPointValues(Criteria crit) {
+		Set<Object> result = new HashSet<Object>();
+		if (crit instanceof CompareCriteria) {
+			result.add(((Constant)((CompareCriteria)crit).getRightExpression()).getValue());
+		} else if (crit instanceof SetCriteria) {
+			for (Constant constant : (Collection<Constant>)((SetCriteria)crit).getValues()) {
+				result.add(constant.getValue());
+			}
+		} else {
+			result.add(null);
+		}
+		return result;
+	}
+
+}
@@ -60,6 +60,7 @@ import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.metadata.TempMetadataID;
 import org.teiid.query.processor.CollectionTupleSource;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.SortUtility;
 import org.teiid.query.processor.relational.SortUtility.Mode;
@@ -326,6 +327,7 @@ public class TempTable implements Cloneable, SearchableTable {
 	private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 	private boolean updatable = true;
 	private LinkedHashMap<List<ElementSymbol>, TempTable> indexTables;
+	private HashIndexes hashIndexes;
 	
 	private int keyBatchSize;
 	private int leafBatchSize;
@@ -394,6 +396,9 @@ public class TempTable implements Cloneable, SearchableTable {
 				}
 			}
 			clone.tree = tree.clone();
+			if (clone.hashIndexes != null) {
+				clone.hashIndexes = hashIndexes.clone();
+			}
 			clone.activeReaders = new AtomicInteger();
 			return clone;
 		} catch (CloneNotSupportedException e) {
@@ -419,6 +424,36 @@ public class TempTable implements Cloneable, SearchableTable {
 		indexTable.getTree().compact();
 	}
 
+	/**
+	 * Add an in memory hash or bitmap index.  If the table has no primary key or the
+	 * columns cannot be hashed, an ordered index is used instead.
+	 */
+	void addHashIndex(List<ElementSymbol> indexColumns, boolean bitmap) throws TeiidComponentException, TeiidProcessingException {
+		boolean hashable = rowId == null;
+		for (int i = 0; hashable && i < indexColumns.size(); i++) {
+			hashable = DataTypeManager.isHashable(indexColumns.get(i).getType());
+		}
+		if (!hashable) {
+			addIndex(indexColumns, false);
+			return;
+		}
+		if (hashIndexes == null) {
+			hashIndexes = new HashIndexes(tree.getKeyLength());
+		} else if (hashIndexes.getIndex(indexColumns) != null) {
+			return;
+		}
+		int[] positions = new int[indexColumns.size()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = columnMap.get(indexColumns.get(i));
+		}
+		lock.writeLock().lock();
+		try {
+			hashIndexes.addIndex(indexColumns, positions, bitmap, new TupleBrowser(this.tree, null, null, OrderBy.ASC));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
 	private TempTable createIndexTable(List<ElementSymbol> indexColumns,
 			boolean unique) {
 		List<ElementSymbol> allColumns = new ArrayList<ElementSymbol>(indexColumns);
@@ -463,16 +498,46 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 		IndexInfo primary = new IndexInfo(this, projectedCols, condition, orderBy, true);
 		IndexInfo ii = primary;
-		if (indexTables != null && (condition != null || orderBy != null) && ii.valueSet.size() != 1) {
+		if ((indexTables != null || hashIndexes != null) && (condition != null || orderBy != null) && ii.valueSet.size() != 1) {
 			LogManager.logDetail(LogConstants.CTX_DQP, "Considering indexes on table", this, "for query", projectedCols, condition, orderBy); //$NON-NLS-1$ //$NON-NLS-2$
 			int rowCost = this.tree.getRowCount();
 			long bestCost = estimateCost(orderBy, ii, rowCost);
-			for (TempTable table : this.indexTables.values()) {
-				IndexInfo secondary = new IndexInfo(table, projectedCols, condition, orderBy, false);
-				long cost = estimateCost(orderBy, secondary, rowCost);
-				if (cost < bestCost) {
-					ii = secondary;
-					bestCost = cost;
+			if (indexTables != null) {
+				for (TempTable table : this.indexTables.values()) {
+					IndexInfo secondary = new IndexInfo(table, projectedCols, condition, orderBy, false);
+					long cost = estimateCost(orderBy, secondary, rowCost);
+					if (cost < bestCost) {
+						ii = secondary;
+						bestCost = cost;
+					}
+				}
+			}
+			if (hashIndexes != null && condition != null) {
+				List<List<Object>> keys = null;
+				lock.readLock().lock();
+				try {
+					keys = hashIndexes.getKeys(condition);
+				} finally {
+					lock.readLock().unlock();
+				}
+				if (keys != null) {
+					//the keys are exact, so the cost is just the primary lookups
+					IndexInfo hashed = new IndexInfo(this, projectedCols, null, orderBy, true);
+					hashed.valueSet.addAll(keys);
+					if (keys.isEmpty() || estimateCost(orderBy, hashed, rowCost) < bestCost) {
+						LogManager.logDetail(LogConstants.CTX_DQP, "Choose hash index lookup of", keys.size(), "rows"); //$NON-NLS-1$ //$NON-NLS-2$
+						if (keys.isEmpty()) {
+							if (agg) {
+								return new CollectionTupleSource(Arrays.asList(Collections.nCopies(projectedCols.size(), 0)).iterator());
+							}
+							return new CollectionTupleSource(Collections.<List<?>>emptyList().iterator());
+						}
+						if (hashed.ordering == null) {
+							//order by pk to localize lookup costs
+							hashed.sortValueSet(OrderBy.ASC, bm.getOptions().getDefaultNullOrder());
+						}
+						return createTupleSource(projectedCols, condition, orderBy, hashed, agg);
+					}
 				}
 			}
 			LogManager.logDetail(LogConstants.CTX_DQP, "Choose index", ii.table, "covering:", ii.coveredCriteria,"ordering:", ii.ordering); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
@@ -595,6 +660,9 @@ public class TempTable implements Cloneable, SearchableTable {
 	
 	public int truncate(boolean force) {
 		this.tid.getTableData().dataModified(tree.getRowCount());
+		if (hashIndexes != null) {
+			hashIndexes.clear();
+		}
 		return tree.truncate(force);
 	}
 	
@@ -603,6 +671,7 @@ public class TempTable implements Cloneable, SearchableTable {
 		try {
 			tid.getTableData().removed();
 			tree.remove();
+			hashIndexes = null;
 			if (this.indexTables != null) {
 				for (TempTable indexTable : this.indexTables.values()) {
 					indexTable.remove();
@@ -685,7 +754,52 @@ public class TempTable implements Cloneable, SearchableTable {
         tid.getTableData().dataModified(updateCount);
         return CollectionTupleSource.createUpdateCountTupleSource(updateCount);
     }
-	
+
+	/**
+	 * Bulk load tuples that are expected to be sorted by the primary key by appending to the
+	 * tail of the tree rather than searching for each insert position.  Any tuple out of order
+	 * is inserted normally.  Should only be used prior to adding indexes.
+	 * @return the number of rows inserted
+	 */
+	int insertOrdered(TupleSource tuples, List<ElementSymbol> variables) throws TeiidComponentException, TeiidProcessingException {
+		List<ElementSymbol> cols = getColumns();
+		int[] indexes = new int[cols.size()];
+		boolean shouldProject = false;
+		for (int i = 0; i < cols.size(); i++) {
+			indexes[i] = variables.indexOf(cols.get(i));
+			shouldProject |= (indexes[i] != i);
+		}
+		ListNestedSortComparator comparator = tree.getComparator();
+		List<?> last = null;
+		int count = 0;
+		tree.setBatchInsert(true);
+		try {
+			List<?> tuple = null;
+			while ((tuple = tuples.nextTuple()) != null) {
+				if (shouldProject) {
+					tuple = RelationalNode.projectTuple(indexes, tuple);
+				}
+				for (int i = 0; i < notNull.length; i++) {
+					if (tuple.get(notNull[i]) == null) {
+						 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30236, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30236, columns.get(notNull[i])));
+					}
+				}
+				//an equal key is a duplicate and will be detected by the normal insert
+				boolean ordered = last == null || comparator.compare(last, tuple) < 0;
+				insertTuple(tuple, ordered, true);
+				if (ordered) {
+					last = tuple;
+				}
+				count++;
+			}
+		} finally {
+			tree.setBatchInsert(false);
+		}
+		tid.setCardinality(tree.getRowCount());
+		tid.getTableData().dataModified(count);
+		return count;
+	}
+
 	public TupleSource update(Criteria crit, final SetClauseList update) throws TeiidComponentException, ExpressionEvaluationException, TeiidProcessingException {
 		final boolean primaryKeyChangePossible = canChangePrimaryKey(update);
 		final TupleBrowser browser = createTupleBrower(crit, OrderBy.ASC);
@@ -817,6 +931,18 @@ public class TempTable implements Cloneable, SearchableTable {
 					entry.getValue().writeTo(oos);
 				}
 			}
+			if (this.hashIndexes == null) {
+				oos.writeInt(0);
+			} else {
+				oos.writeInt(this.hashIndexes.getIndexes().size());
+				for (HashIndexes.Index index : this.hashIndexes.getIndexes()) {
+					oos.writeBoolean(index.bitmap);
+					oos.writeInt(index.columns.size());
+					for (ElementSymbol es : index.columns) {
+						oos.writeInt(this.columnMap.get(es));
+					}
+				}
+			}
 		} finally {
 			this.lock.readLock().unlock();
 		}
@@ -836,6 +962,22 @@ public class TempTable implements Cloneable, SearchableTable {
 			TempTable tt = this.createIndexTable(indexColumns, unique);
 			tt.readFrom(ois);
 		}
+		numIdx = ois.readInt();
+		for (int i = 0; i < numIdx; i++) {
+			boolean bitmap = ois.readBoolean();
+			int numCols = ois.readInt();
+			ArrayList<ElementSymbol> indexColumns = new ArrayList<ElementSymbol>(numCols);
+			for (int j = 0; j < numCols; j++) {
+				int colIndex = ois.readInt();
+				indexColumns.add(this.columns.get(colIndex));
+			}
+			//the hash indexes are rebuilt from the rows
+			try {
+				addHashIndex(indexColumns, bitmap);
+			} catch (TeiidProcessingException e) {
+				throw new TeiidComponentException(e);
+			}
+		}
 	}
 	
 	List<?> updateTuple(List<?> tuple, boolean remove) throws TeiidComponentException {
@@ -846,6 +988,9 @@ public class TempTable implements Cloneable, SearchableTable {
 				if (result == null) {
 					return null;
 				}
+				if (hashIndexes != null) {
+					hashIndexes.remove(result);
+				}
 				if (indexTables != null) {
 					for (TempTable index : this.indexTables.values()) {
 						tuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), result);
@@ -856,6 +1001,12 @@ public class TempTable implements Cloneable, SearchableTable {
 				return result;
 			} 
 			List<?> result = tree.insert(tuple, InsertMode.UPDATE, -1);
+			if (hashIndexes != null) {
+				if (result != null) {
+					hashIndexes.remove(result);
+				}
+				hashIndexes.insert(tuple);
+			}
 			if (indexTables != null) {
 				for (TempTable index : this.indexTables.values()) {
 					tuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), tuple);
@@ -61,11 +61,14 @@ import org.teiid.dqp.internal.process.TupleSourceCache;
 import org.teiid.events.EventDistributor;
 import org.teiid.language.SQLConstants;
 import org.teiid.language.SQLConstants.Reserved;
+import org.teiid.language.SortSpecification.NullOrdering;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
 import org.teiid.metadata.FunctionMethod.Determinism;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.metadata.MaterializationMetadataRepository;
+import org.teiid.query.metadata.MaterializationMetadataRepository.IndexType;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.metadata.TempMetadataID;
@@ -76,6 +79,9 @@ import org.teiid.query.processor.CollectionTupleSource;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.processor.RegisterRequestParameter;
+import org.teiid.query.processor.relational.Exchange;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.processor.relational.SortUtility;
 import org.teiid.query.resolver.util.ResolverUtil;
 import org.teiid.query.sql.lang.*;
 import org.teiid.query.sql.symbol.Constant;
@@ -703,17 +709,57 @@ public class TempTableDataManager implements ProcessorDataManager {
 	private TupleSource loadGlobalTable(final CommandContext context,
 			final GroupSymbol group, final String tableName, final GlobalTableStore globalStore)
 			throws TeiidComponentException, TeiidProcessingException {
-		LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30013, tableName));
 		final QueryMetadataInterface metadata = context.getMetadata();
 		final List<ElementSymbol> allColumns = ResolverUtil.resolveElementsInGroup(group, metadata); 
+		final MatTableInfo info = globalStore.getMatTableInfo(tableName);
+		Object viewId = null;
+		if (group.getMetadataID() instanceof TempMetadataID) {
+			viewId = ((TempMetadataID)group.getMetadataID()).getOriginalMetadataID();
+		}
+		final int deltaIndex = getDeltaColumnIndex(metadata, viewId, allColumns, MaterializationMetadataRepository.MATVIEW_DELTA_COLUMN);
+		final int deletedIndex = deltaIndex >= 0 ? getDeltaColumnIndex(metadata, viewId, allColumns, MaterializationMetadataRepository.MATVIEW_DELTA_DELETED_COLUMN) : -1;
+		if (deltaIndex >= 0) {
+			TempTable current = globalStore.getTempTable(tableName);
+			Object deltaValue = info.getDeltaValue();
+			if (current != null && deltaValue != null && info.isValid() && current.getPkLength() > 0) {
+				return mergeGlobalTable(context, viewId, current, tableName, globalStore, allColumns, deltaIndex, deletedIndex, deltaValue);
+			}
+		}
+		LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30013, tableName));
 		final TempTable table = globalStore.createMatTable(tableName, group);
 		table.setUpdatable(false);
+		final int partitionCount = table.getPkLength() > 0 ? getPartitionCount(metadata, viewId, allColumns) : 0;
+		String query = null;
+		String remainderQuery = null;
+		String viewName = null;
+		if (partitionCount > 0) {
+			viewName = metadata.getFullName(viewId);
+			String expression = "(" + metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_PARTITION_EXPRESSION, false) + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+			String select = Reserved.SELECT + " * " + Reserved.FROM + ' ' + viewName + ' ' + Reserved.WHERE + ' '; //$NON-NLS-1$
+			String option = ' ' + Reserved.OPTION + ' ' + Reserved.NOCACHE + ' ' + viewName;
+			query = select + expression + " = ?" + option; //$NON-NLS-1$
+			//the rows with a null or out of range expression value are loaded by a final query
+			StringBuilder values = new StringBuilder();
+			for (int i = 0; i < partitionCount; i++) {
+				if (i > 0) {
+					values.append(", "); //$NON-NLS-1$
+				}
+				values.append(i);
+			}
+			remainderQuery = select + expression + ' ' + Reserved.IS + ' ' + Reserved.NULL + ' ' + Reserved.OR + ' ' 
+				+ expression + ' ' + Reserved.NOT + ' ' + Reserved.IN + " (" + values + ")" + option; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		final String partitionQuery = query;
+		final String partitionRemainderQuery = remainderQuery;
+		final String partitionViewName = viewName;
 		return new ProxyTupleSource() {
 			TupleSource insertTupleSource;
+			SortUtility sort;
 			boolean success;
-			QueryProcessor qp;
+			List<QueryProcessor> processors = new ArrayList<QueryProcessor>(partitionCount + 1);
 			boolean closed;
 			boolean errored;
+			Object deltaValue;
 		
 			@Override
 			protected TupleSource createTupleSource() throws TeiidComponentException,
@@ -721,20 +767,96 @@ public class TempTableDataManager implements ProcessorDataManager {
 				int rowCount = -1;
 				try {
 					if (insertTupleSource == null) {
-						String fullName = metadata.getFullName(group.getMetadataID());
-						String transformation = metadata.getVirtualPlan(group.getMetadataID()).getQuery();
-						qp = context.getQueryProcessorFactory().createQueryProcessor(transformation, fullName, context);
-						insertTupleSource = new BatchCollector.BatchProducerTupleSource(qp);
+						if (partitionCount > 0) {
+							LogManager.logDetail(LogConstants.CTX_MATVIEWS, "Loading", tableName, "with", partitionCount, "partition queries"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+							List<TupleSource> sources = new ArrayList<TupleSource>(partitionCount + 1);
+							for (int i = 0; i < partitionCount; i++) {
+								QueryProcessor qp = context.getQueryProcessorFactory().createQueryProcessor(partitionQuery, partitionViewName.toUpperCase(), context, i);
+								processors.add(qp);
+								sources.add(new BatchCollector.BatchProducerTupleSource(qp));
+							}
+							QueryProcessor qp = context.getQueryProcessorFactory().createQueryProcessor(partitionRemainderQuery, partitionViewName.toUpperCase(), context);
+							processors.add(qp);
+							sources.add(new BatchCollector.BatchProducerTupleSource(qp));
+							insertTupleSource = new PartitionedTupleSource(sources);
+						} else {
+							String fullName = metadata.getFullName(group.getMetadataID());
+							String transformation = metadata.getVirtualPlan(group.getMetadataID()).getQuery();
+							QueryProcessor qp = context.getQueryProcessorFactory().createQueryProcessor(transformation, fullName, context);
+							processors.add(qp);
+							insertTupleSource = new BatchCollector.BatchProducerTupleSource(qp);
+						}
+						if (deltaIndex >= 0) {
+							//track the high water mark so that the next refresh can be incremental
+							//and drop the rows flagged as deleted, consistent with a merge
+							final TupleSource source = insertTupleSource;
+							insertTupleSource = new TupleSource() {
+								
+								@Override
+								public List<?> nextTuple() throws TeiidComponentException,
+										TeiidProcessingException {
+									while (true) {
+										List<?> tuple = source.nextTuple();
+										if (tuple == null) {
+											return null;
+										}
+										deltaValue = getMaxValue(deltaValue, tuple.get(deltaIndex));
+										if (deletedIndex < 0 || !Boolean.TRUE.equals(tuple.get(deletedIndex))) {
+											return tuple;
+										}
+									}
+								}
+								
+								@Override
+								public void closeSource() {
+									source.closeSource();
+								}
+							};
+						}
+						if (partitionCount > 0) {
+							//sort the interleaved partition results by the primary key so that the tree can be built in order
+							int pkLength = table.getPkLength();
+							List<ElementSymbol> cols = table.getColumns();
+							int[] sortCols = new int[pkLength];
+							for (int i = 0; i < pkLength; i++) {
+								sortCols[i] = allColumns.indexOf(cols.get(i));
+							}
+							sort = new SortUtility(insertTupleSource, SortUtility.Mode.SORT, bufferManager, context.getConnectionId(), allColumns, 
+									Collections.nCopies(pkLength, OrderBy.ASC), Collections.nCopies(pkLength, NullOrdering.FIRST), sortCols);
+							sort.setParallelism(context.getExecutor(), Exchange.MAX_PARALLELISM);
+						}
+					}
+					if (sort != null) {
+						TupleBuffer sorted = sort.sort();
+						TupleSource ts = sorted.createIndexedTupleSource(true);
+						try {
+							table.insertOrdered(ts, allColumns);
+						} finally {
+							ts.closeSource();
+							sorted.remove();
+						}
+					} else {
+						table.insert(insertTupleSource, allColumns, false, null);
 					}
-					table.insert(insertTupleSource, allColumns, false, null);
 					table.getTree().compact();
 					rowCount = table.getRowCount();
-					Determinism determinism = qp.getContext().getDeterminismLevel();
+					Determinism determinism = Determinism.DETERMINISTIC;
+					for (QueryProcessor qp : processors) {
+						Determinism level = qp.getContext().getDeterminismLevel();
+						if (level.compareTo(determinism) < 0) {
+							determinism = level;
+						}
+					}
 					context.setDeterminismLevel(determinism);
 					//TODO: could pre-process indexes to remove overlap
 					for (Object index : metadata.getIndexesInGroup(group.getMetadataID())) {
 						List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, index);
-						table.addIndex(columns, false);
+						IndexType type = getIndexType(metadata, index);
+						if (type == IndexType.BTREE) {
+							table.addIndex(columns, false);
+						} else {
+							table.addHashIndex(columns, type == IndexType.BITMAP);
+						}
 					}
 					for (Object key : metadata.getUniqueKeysInGroup(group.getMetadataID())) {
 						List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, key);
@@ -747,6 +869,7 @@ public class TempTableDataManager implements ProcessorDataManager {
 					if (determinism.compareTo(Determinism.VDB_DETERMINISTIC) < 0 && (hint == null || hint.getScope() == null || Scope.VDB.compareTo(hint.getScope()) <= 0)) {
 						LogManager.logInfo(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31143, determinism, tableName)); //$NON-NLS-1$
 					}
+					info.setDeltaValue(deltaValue);
 					globalStore.loaded(tableName, table);
 					success = true;
 					LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30014, tableName, rowCount));
@@ -775,6 +898,95 @@ public class TempTableDataManager implements ProcessorDataManager {
 					globalStore.failedLoad(tableName);
 					table.remove();
 				}
+				for (QueryProcessor qp : processors) {
+					qp.closeProcessing();
+				}
+				super.closeSource();
+			}
+		};
+	}
+
+	/**
+	 * Merge the rows changed since the last load into a copy of the current table.
+	 * Readers continue to use the current table until the copy is swapped in.
+	 */
+	private TupleSource mergeGlobalTable(final CommandContext context, Object viewId,
+			final TempTable current, final String tableName, final GlobalTableStore globalStore, 
+			final List<ElementSymbol> allColumns, final int deltaIndex, final int deletedIndex, final Object deltaValue)
+			throws TeiidComponentException, TeiidProcessingException {
+		LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31161, tableName, deltaValue));
+		final QueryMetadataInterface metadata = context.getMetadata();
+		final MatTableInfo info = globalStore.getMatTableInfo(tableName);
+		final String matViewName = metadata.getFullName(viewId);
+		Object deltaColumn = metadata.getElementIDsInGroupID(viewId).get(deltaIndex);
+		//changes at the high water mark are included as they may not all have been seen by the last load
+		final String queryString = Reserved.SELECT + " * " + Reserved.FROM + ' ' + matViewName + ' ' + Reserved.WHERE + ' ' + //$NON-NLS-1$
+			metadata.getFullName(deltaColumn) + " >= ? " + Reserved.OPTION + ' ' + Reserved.NOCACHE + ' ' + matViewName; //$NON-NLS-1$
+		List<ElementSymbol> cols = current.getColumns();
+		final int[] indexes = new int[cols.size()];
+		for (int i = 0; i < cols.size(); i++) {
+			indexes[i] = allColumns.indexOf(cols.get(i));
+		}
+		return new ProxyTupleSource() {
+			TempTable table;
+			QueryProcessor qp;
+			TupleSource ts;
+			Object newDeltaValue = deltaValue;
+			int count;
+			boolean success;
+			boolean closed;
+			boolean errored;
+			
+			@Override
+			protected TupleSource createTupleSource() throws TeiidComponentException,
+					TeiidProcessingException {
+				try {
+					if (qp == null) {
+						table = current.clone();
+						qp = context.getQueryProcessorFactory().createQueryProcessor(queryString, matViewName.toUpperCase(), context, deltaValue);
+						ts = new BatchCollector.BatchProducerTupleSource(qp);
+					}
+					List<?> tuple = null;
+					while ((tuple = ts.nextTuple()) != null) {
+						List<?> row = RelationalNode.projectTuple(indexes, tuple);
+						//remove first so that the index entries for the old values are also removed
+						table.updateTuple(row, true);
+						if (deletedIndex < 0 || !Boolean.TRUE.equals(tuple.get(deletedIndex))) {
+							table.updateTuple(row, false);
+						}
+						newDeltaValue = getMaxValue(newDeltaValue, tuple.get(deltaIndex));
+						count++;
+					}
+					context.setDeterminismLevel(qp.getContext().getDeterminismLevel());
+					info.setDeltaValue(newDeltaValue);
+					globalStore.loaded(tableName, table);
+					success = true;
+					LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31162, tableName, count));
+					return CollectionTupleSource.createUpdateCountTupleSource(count);
+				} catch (BlockedException e) {
+					throw e;
+				} catch (Exception e) {
+					errored = true;
+					LogManager.logError(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30015, tableName));
+					closeSource();
+					rethrow(e);
+					throw new AssertionError();
+				}
+			}
+			
+			@Override
+			public void closeSource() {
+				if (closed) {
+					return;
+				}
+				if (!errored && !success) {
+					LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31153, tableName));
+				}
+				closed = true;
+				if (!success) {
+					//the copy shares pages with the current table, so it is simply discarded
+					globalStore.failedLoad(tableName);
+				}
 				if (qp != null) {
 					qp.closeProcessing();
 				}
@@ -782,6 +994,124 @@ public class TempTableDataManager implements ProcessorDataManager {
 			}
 		};
 	}
+	
+	/**
+	 * Get the number of partition queries to use for the load, or 0 if the view does 
+	 * not declare a partition expression or the table has additional columns.
+	 */
+	private static int getPartitionCount(QueryMetadataInterface metadata, Object viewId, 
+			List<ElementSymbol> allColumns) throws TeiidComponentException {
+		if (viewId == null 
+				|| metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_PARTITION_EXPRESSION, false) == null
+				|| metadata.getElementIDsInGroupID(viewId).size() != allColumns.size()) {
+			return 0;
+		}
+		String count = metadata.getExtensionProperty(viewId, MaterializationMetadataRepository.MATVIEW_PARTITION_COUNT, false);
+		int result = Exchange.MAX_PARALLELISM;
+		if (count != null) {
+			try {
+				result = Integer.parseInt(count.trim());
+			} catch (NumberFormatException e) {
+				LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31164, count, metadata.getFullName(viewId), result));
+			}
+		}
+		return result > 1 ? result : 0;
+	}
+	
+	/**
+	 * Reads from the partition queries in turn.  A blocked partition is skipped so that
+	 * the source queries for all partitions may be executing concurrently.
+	 */
+	private static class PartitionedTupleSource implements TupleSource {
+		
+		private List<TupleSource> sources;
+		private int current;
+		
+		public PartitionedTupleSource(List<TupleSource> sources) {
+			this.sources = sources;
+		}
+		
+		@Override
+		public List<?> nextTuple() throws TeiidComponentException,
+				TeiidProcessingException {
+			int blocked = 0;
+			while (!sources.isEmpty()) {
+				if (current >= sources.size()) {
+					current = 0;
+				}
+				TupleSource source = sources.get(current);
+				try {
+					List<?> tuple = source.nextTuple();
+					if (tuple != null) {
+						return tuple;
+					}
+					source.closeSource();
+					sources.remove(current);
+				} catch (BlockedException e) {
+					if (++blocked >= sources.size()) {
+						throw e;
+					}
+					current++;
+				}
+			}
+			return null;
+		}
+		
+		@Override
+		public void closeSource() {
+			for (TupleSource source : sources) {
+				source.closeSource();
+			}
+			sources.clear();
+		}
+	}
+	
+	/**
+	 * Get the index of the view column named by the given extension property, or -1 
+	 * if the property is not set or the table has additional columns.
+	 */
+	private static int getDeltaColumnIndex(QueryMetadataInterface metadata, Object viewId, 
+			List<ElementSymbol> allColumns, String property) throws TeiidComponentException {
+		if (viewId == null) {
+			return -1;
+		}
+		String columnName = metadata.getExtensionProperty(viewId, property, false);
+		if (columnName == null || metadata.getElementIDsInGroupID(viewId).size() != allColumns.size()) {
+			return -1;
+		}
+		for (int i = 0; i < allColumns.size(); i++) {
+			if (allColumns.get(i).getShortName().equalsIgnoreCase(columnName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static IndexType getIndexType(QueryMetadataInterface metadata, Object index) throws TeiidComponentException {
+		if (index instanceof TempMetadataID) {
+			index = ((TempMetadataID)index).getOriginalMetadataID();
+		}
+		if (index == null) {
+			return IndexType.BTREE;
+		}
+		String type = metadata.getExtensionProperty(index, MaterializationMetadataRepository.MATVIEW_INDEX_TYPE, false);
+		if (type == null) {
+			return IndexType.BTREE;
+		}
+		try {
+			return IndexType.valueOf(type.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31163, type, metadata.getFullName(index)));
+			return IndexType.BTREE;
+		}
+	}
+	
+	private static Object getMaxValue(Object value, Object other) {
+		if (value == null || (other != null && Constant.COMPARATOR.compare(other, value) > 0)) {
+			return other;
+		}
+		return value;
+	}
 
 	public Object lookupCodeValue(CommandContext context, String codeTableName,
 			String returnElementName, String keyElementName, Object keyValue)
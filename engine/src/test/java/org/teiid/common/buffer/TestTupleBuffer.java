@@ -32,6 +32,7 @@ import javax.sql.rowset.serial.SerialClob;
 import org.junit.Test;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.common.buffer.TupleBuffer.TupleBufferTupleSource;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.types.ClobType;
 import org.teiid.core.types.DataTypeManager;
 import org.teiid.query.sql.symbol.ElementSymbol;
@@ -160,4 +161,32 @@ public class TestTupleBuffer {
 		assertNotNull(tb.getLobReference(c.getReferenceStreamId()));
 	}
 	
+	@Test public void testColumnar() throws Exception {
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		ElementSymbol y = new ElementSymbol("y"); //$NON-NLS-1$
+		y.setType(DataTypeManager.DefaultDataClasses.STRING);
+		ElementSymbol z = new ElementSymbol("z"); //$NON-NLS-1$
+		z.setType(DataTypeManager.DefaultDataClasses.DOUBLE);
+		List<ElementSymbol> schema = Arrays.asList(x, y, z);
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setColumnarBatches(true);
+		TupleBuffer tb = bm.createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		tb.setBatchSize(16);
+		for (int i = 0; i < 100; i++) {
+			tb.addTuple(Arrays.asList(i%3==0?null:i, i%5==0?null:String.valueOf(i%4), (double)i));
+		}
+		tb.close();
+		TupleBatch batch = tb.getBatch(17);
+		assertNotNull(batch.getColumnarBatch());
+		assertEquals(17, batch.getBeginRow());
+		assertEquals(Arrays.asList(16, "0", 16.0), batch.getTuple(17)); //$NON-NLS-1$
+		assertEquals(Arrays.asList(17, "1", 17.0), batch.getTuple(18)); //$NON-NLS-1$
+		TupleBufferTupleSource ts = tb.createIndexedTupleSource();
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Arrays.asList(i%3==0?null:i, i%5==0?null:String.valueOf(i%4), (double)i), ts.nextTuple());
+		}
+		assertFalse(ts.hasNext());
+	}
+	
 }
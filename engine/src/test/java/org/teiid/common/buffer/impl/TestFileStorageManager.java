@@ -124,6 +124,39 @@ public class TestFileStorageManager {
         assertEquals(1000, sm.getUsedBufferSpace());
     }
     
+    @Test public void testMemoryMapped() throws Exception {
+    	FileStorageManager sm = getStorageManager(null, null);
+    	sm.setMemoryMapped(true);
+    	FileStore store = sm.createFileStore("0");
+    	assertEquals(-1, store.read(0, new byte[1], 0, 1));
+    	writeBytes(store);
+    	writeBytes(store);
+    	assertEquals(4096, store.getLength());
+    	
+    	//span a segment boundary
+    	long start = FileStorageManager.SEGMENT_SIZE - 1024;
+    	writeBytes(store, start);
+    	assertEquals(start + 2048, store.getLength());
+    	assertTrue(sm.getUsedBufferSpace() >= store.getLength());
+    	
+    	store.setLength(1000);
+    	assertEquals(1000, store.getLength());
+    	assertEquals(1000, sm.getUsedBufferSpace());
+    	assertEquals(-1, store.read(1000, new byte[1], 0, 1));
+    	
+    	//extending after a truncate should read as zeros
+    	store.setLength(3000);
+    	byte[] bytesRead = new byte[2000];
+    	store.readFully(1000, bytesRead, 0, bytesRead.length);
+    	assertArrayEquals(new byte[2000], bytesRead);
+    	
+    	//remap after the truncate
+    	writeBytes(store, start);
+    	
+    	store.remove();
+    	assertEquals(0, sm.getUsedBufferSpace());
+    }
+    
     @Test public void testFlush() throws Exception {
     	FileStorageManager sm = getStorageManager(null, null);
     	FileStore store = sm.createFileStore("0");
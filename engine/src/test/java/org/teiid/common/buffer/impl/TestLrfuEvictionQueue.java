@@ -24,6 +24,9 @@ package org.teiid.common.buffer.impl;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
@@ -50,4 +53,59 @@ public class TestLrfuEvictionQueue {
 		assertTrue(key1.compareTo(key) > 0);
 	}
 	
+	@Test public void testShardedOrdering() {
+		AtomicLong clock = new AtomicLong();
+		LrfuEvictionQueue<BaseCacheEntry> q = new LrfuEvictionQueue<BaseCacheEntry>(clock, 4);
+		for (long i = 0; i < 100; i++) {
+			q.add(new BaseCacheEntry(new CacheKey(i, (i*37)%100, 0)));
+		}
+		assertEquals(100, q.getSize());
+		BaseCacheEntry first = q.firstEntry(false);
+		assertEquals(0, first.getKey().getLastAccess());
+		long last = -1;
+		for (Iterator<BaseCacheEntry> iter = q.getEvictionQueue().iterator(); iter.hasNext();) {
+			long lastAccess = iter.next().getKey().getLastAccess();
+			assertTrue(lastAccess > last);
+			last = lastAccess;
+		}
+		clock.set(1000);
+		q.touch(first);
+		assertEquals(1, q.firstEntry(true).getKey().getLastAccess());
+		assertEquals(99, q.getSize());
+		for (int i = 0; i < 98; i++) {
+			assertNotNull(q.firstEntry(true));
+		}
+		assertSame(first, q.firstEntry(true));
+		assertNull(q.firstEntry(true));
+		assertEquals(0, q.getSize());
+	}
+	
+	@Test public void testIteratorRemove() {
+		LrfuEvictionQueue<BaseCacheEntry> q = new LrfuEvictionQueue<BaseCacheEntry>(new AtomicLong(), 4);
+		for (long i = 0; i < 20; i++) {
+			q.add(new BaseCacheEntry(new CacheKey(i, i, 0)));
+		}
+		List<BaseCacheEntry> removed = new ArrayList<BaseCacheEntry>();
+		int count = 0;
+		for (Iterator<BaseCacheEntry> iter = q.getEvictionQueue().iterator(); iter.hasNext();) {
+			BaseCacheEntry entry = iter.next();
+			if (count++ % 2 == 0) {
+				iter.remove();
+				removed.add(entry);
+			}
+		}
+		assertEquals(20, count);
+		assertEquals(10, q.getSize());
+		for (BaseCacheEntry entry : removed) {
+			assertEquals(0, entry.getKey().getLastAccess() % 2);
+			assertFalse(q.remove(entry));
+		}
+		long expected = 1;
+		for (BaseCacheEntry entry : q.getEvictionQueue()) {
+			assertEquals(expected, entry.getKey().getLastAccess());
+			expected += 2;
+		}
+		assertEquals(21, expected);
+	}
+	
 }
@@ -25,6 +25,7 @@ package org.teiid.dqp.internal.process;
 import static org.junit.Assert.*;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -644,6 +645,36 @@ public class TestDQPCore {
         assertEquals(1, this.core.getRsCache().getCacheHitCount());
     }
     
+    @Test public void testRsCacheSubsumption() throws Exception {
+    	agds.setUseIntCounter(true);
+        String userName = "1"; //$NON-NLS-1$
+        int sessionid = 1; //$NON-NLS-1$
+        RequestMessage reqMsg = exampleRequestMessage("select intkey, stringkey FROM bqt1.smalla where intkey >= 0"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute(userName, sessionid, reqMsg);
+        assertEquals(10, rm.getResultsList().size());
+        int executeCount = agds.getExecuteCount().get();
+
+        reqMsg = exampleRequestMessage("select stringkey FROM bqt1.smalla where intkey > 5"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(4, rm.getResultsList().size());
+        assertEquals(1, this.core.getRsCache().getCacheHitCount());
+
+        reqMsg = exampleRequestMessage("select intkey FROM bqt1.smalla where intkey between 2 and 8 limit 1, 2"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(Arrays.asList(Arrays.asList(3), Arrays.asList(4)), rm.getResultsList());
+        assertEquals(executeCount, agds.getExecuteCount().get());
+
+        //not subsumed
+        reqMsg = exampleRequestMessage("select intkey FROM bqt1.smalla where intkey > -1"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        rm = execute(userName, sessionid, reqMsg);
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(executeCount + 1, agds.getExecuteCount().get());
+    }
+
     @Test public void testLobConcurrency() throws Exception {
     	RequestMessage reqMsg = exampleRequestMessage("select to_bytes(stringkey, 'utf-8') FROM BQT1.SmallA"); 
         reqMsg.setTxnAutoWrapMode(RequestMessage.TXN_WRAP_OFF);
@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+package org.teiid.dqp.internal.process;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.dqp.internal.process.SemanticResultsCache.Subsumption;
+import org.teiid.query.resolver.TestResolver;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+import org.teiid.vdb.runtime.VDBKey;
+
+@SuppressWarnings("nls")
+public class TestSemanticResultsCache {
+	
+	private Subsumption helpSubsumes(String cached, String sql) {
+		Command cachedCommand = TestResolver.helpResolve(cached, RealMetadataFactory.example1Cached());
+		Command command = TestResolver.helpResolve(sql, RealMetadataFactory.example1Cached());
+		return SemanticResultsCache.subsumes(cachedCommand, command);
+	}
+	
+	@Test public void testNarrowerRange() {
+		Subsumption s = helpSubsumes("select e1, e2 from pm1.g1 where e2 > 1", "select e1 from pm1.g1 where e2 >= 5 and e2 <> 7");
+		assertNotNull(s);
+		assertEquals("(pm1.g1.e2 >= 5) AND (pm1.g1.e2 <> 7)", s.criteria.toString());
+		assertEquals(1, s.projection.size());
+	}
+	
+	@Test public void testSameCriteria() {
+		Subsumption s = helpSubsumes("select e1, e2 from pm1.g1 where e2 > 1", "select e2 from pm1.g1 where e2 > 1 limit 5");
+		assertNotNull(s);
+		assertNull(s.criteria);
+		assertEquals(5, s.limit);
+	}
+	
+	@Test public void testBetween() {
+		assertNotNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 between 1 and 10", "select e1 from pm1.g1 where e2 = 3"));
+		assertNotNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 >= 1", "select e1 from pm1.g1 where e2 between 2 and 5"));
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 between 1 and 10", "select e1 from pm1.g1 where e2 < 3"));
+	}
+	
+	@Test public void testInSubset() {
+		assertNotNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 in (1, 2, 3)", "select e1 from pm1.g1 where e2 in (1, 3)"));
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 in (1, 2, 3)", "select e1 from pm1.g1 where e2 = 4"));
+	}
+	
+	@Test public void testWiderRange() {
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 > 1", "select e1 from pm1.g1 where e2 >= 1"));
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 > 1", "select e1 from pm1.g1"));
+	}
+	
+	@Test public void testStringRange() {
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 where e1 > 'a'", "select e1 from pm1.g1 where e1 > 'b'"));
+	}
+	
+	@Test public void testStringResidual() {
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 > 1", "select e1 from pm1.g1 where e2 >= 5 and e1 = 'a'"));
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 > 1", "select e1 from pm1.g1 where e2 >= 5 and e1 like 'a%'"));
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 where e2 > 1", "select e2 from pm1.g1 where e2 >= 5 and e1 in ('a', 'b')"));
+		//the same string criteria is evaluated by the source for the cached entry
+		assertNotNull(helpSubsumes("select e1, e2 from pm1.g1 where e1 = 'a'", "select e1 from pm1.g1 where e1 = 'a' and e2 >= 5"));
+	}
+	
+	@Test public void testMissingColumn() {
+		assertNull(helpSubsumes("select e1 from pm1.g1 where e2 > 1", "select e1 from pm1.g1 where e2 > 1 and e3 = true"));
+		assertNull(helpSubsumes("select e1 from pm1.g1", "select e2 from pm1.g1"));
+	}
+	
+	@Test public void testOrderBy() {
+		assertNotNull(helpSubsumes("select e1, e2 from pm1.g1 order by e2", "select e1 from pm1.g1 where e2 = 1 order by e2"));
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1", "select e1 from pm1.g1 order by e2"));
+	}
+	
+	@Test public void testNotSimple() {
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1", "select e1, max(e2) from pm1.g1 group by e1"));
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1 limit 10", "select e1 from pm1.g1 limit 5"));
+		assertNull(helpSubsumes("select e1, e2 from pm1.g1", "select e1 from pm1.g2"));
+	}
+	
+	@Test public void testResults() throws Exception {
+		Command cachedCommand = TestResolver.helpResolve("select e1, e2 from pm1.g1", RealMetadataFactory.example1Cached());
+		Command command = TestResolver.helpResolve("select e2 + 1 from pm1.g1 where e2 > 1 limit 1, 2", RealMetadataFactory.example1Cached());
+		Subsumption s = SemanticResultsCache.subsumes(cachedCommand, command);
+		
+		BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+		TupleBuffer tb = bm.createTupleBuffer(cachedCommand.getProjectedSymbols(), "x", TupleSourceType.PROCESSOR);
+		for (int i = 0; i < 10; i++) {
+			tb.addTuple(Arrays.asList("a", i));
+		}
+		tb.close();
+		
+		CommandContext cc = new CommandContext();
+		cc.setConnectionID("x");
+		TupleBuffer result = SemanticResultsCache.getResults(tb, s, command.getProjectedSymbols(), bm, cc, 0);
+		assertEquals(2, result.getRowCount());
+		assertEquals(Arrays.asList(4), result.getBatch(1).getTuple(1));
+		assertEquals(Arrays.asList(5), result.getBatch(1).getTuple(2));
+	}
+	
+	@Test public void testCachedFunctionResults() throws Exception {
+		Command cachedCommand = TestResolver.helpResolve("select upper(e1), e2 from pm1.g1", RealMetadataFactory.example1Cached());
+		Command command = TestResolver.helpResolve("select upper(e1) from pm1.g1 where e2 > 1", RealMetadataFactory.example1Cached());
+		Subsumption s = SemanticResultsCache.subsumes(cachedCommand, command);
+		assertNotNull(s);
+		
+		BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
+		TupleBuffer tb = bm.createTupleBuffer(cachedCommand.getProjectedSymbols(), "x", TupleSourceType.PROCESSOR);
+		for (int i = 0; i < 3; i++) {
+			tb.addTuple(Arrays.asList("A" + i, i));
+		}
+		tb.close();
+		
+		CommandContext cc = new CommandContext();
+		cc.setConnectionID("x");
+		TupleBuffer result = SemanticResultsCache.getResults(tb, s, command.getProjectedSymbols(), bm, cc, 0);
+		assertEquals(1, result.getRowCount());
+		assertEquals(Arrays.asList("A2"), result.getBatch(1).getTuple(1));
+	}
+	
+	@Test public void testCandidates() {
+		SemanticResultsCache cache = new SemanticResultsCache();
+		VDBKey key = new VDBKey("x", 1);
+		Command cached = TestResolver.helpResolve("select e1, e2 from pm1.g1 where e2 > 1", RealMetadataFactory.example1Cached());
+		cache.add(key, true, cached, "select e1, e2 from pm1.g1 where e2 > 1");
+		List<String> candidates = cache.getCandidates(key, true, TestResolver.helpResolve("select e1 from pm1.g1", RealMetadataFactory.example1Cached()));
+		assertEquals(Arrays.asList("select e1, e2 from pm1.g1 where e2 > 1"), candidates);
+		assertTrue(cache.getCandidates(key, false, cached).isEmpty());
+		assertTrue(cache.getCandidates(key, true, TestResolver.helpResolve("select e1 from pm1.g2", RealMetadataFactory.example1Cached())).isEmpty());
+	}
+
+}
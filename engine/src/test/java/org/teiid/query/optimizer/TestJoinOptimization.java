@@ -47,16 +47,22 @@ import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
 import org.teiid.query.optimizer.relational.rules.JoinUtil;
 import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.relational.EnhancedSortMergeJoinStrategy;
+import org.teiid.query.processor.relational.HashJoinStrategy;
 import org.teiid.query.processor.relational.JoinNode;
+import org.teiid.query.processor.relational.MergeJoinStrategy;
+import org.teiid.query.processor.relational.NestedLoopJoinStrategy;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.resolver.util.ResolverVisitor;
+import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.JoinType;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
 import org.teiid.translator.ExecutionFactory.SupportedJoinCriteria;
 import org.teiid.translator.SourceSystemFunctions;
 
@@ -1100,4 +1106,61 @@ public class TestJoinOptimization {
 	    assertEquals(JoinType.JOIN_INNER, ((JoinNode)node).getJoinType());
 	 }
     
+	private static final Class<?>[] JOIN_STRATEGY_TYPES = new Class<?>[] {
+		HashJoinStrategy.class,
+		EnhancedSortMergeJoinStrategy.class,
+		MergeJoinStrategy.class,
+		NestedLoopJoinStrategy.class
+	};
+	
+	private ProcessorPlan helpPlanJoinStrategy(String sql, int leftCardinality, int rightCardinality, boolean supportsOrderBy) throws Exception {
+		QueryMetadataInterface metadata = RealMetadataFactory.example1();
+		RealMetadataFactory.setCardinality("pm1.g1", leftCardinality, metadata);
+		RealMetadataFactory.setCardinality("pm2.g1", rightCardinality, metadata);
+		BasicSourceCapabilities caps = TestOptimizer.getTypicalCapabilities();
+		caps.setCapabilitySupport(Capability.QUERY_ORDERBY, supportsOrderBy);
+		//prevent dependent joins
+		caps.setCapabilitySupport(Capability.CRITERIA_IN, false);
+		Command command = TestOptimizer.helpGetCommand(sql, metadata, null);
+		return TestOptimizer.getPlan(command, metadata, new DefaultCapabilitiesFinder(caps), null, true, new CommandContext());
+	}
+	
+	@Test public void testHashJoinLargeInputs() throws Exception {
+		ProcessorPlan plan = helpPlanJoinStrategy("SELECT pm1.g1.e1, pm2.g1.e1 FROM pm1.g1, pm2.g1 WHERE pm1.g1.e2 = pm2.g1.e2", 1000, 1000, false);
+		TestOptimizer.checkNodeTypes(plan, new int[] {1, 1, 1, 0}, JOIN_STRATEGY_TYPES);
+	}
+	
+	/**
+	 * Both estimates must exceed the processor batch size
+	 */
+	@Test public void testHashJoinCostThreshold() throws Exception {
+		int batchSize = new CommandContext().getProcessorBatchSize();
+		ProcessorPlan plan = helpPlanJoinStrategy("SELECT pm1.g1.e1, pm2.g1.e1 FROM pm1.g1, pm2.g1 WHERE pm1.g1.e2 = pm2.g1.e2", batchSize + 1, 1000, false);
+		TestOptimizer.checkNodeTypes(plan, new int[] {1, 1, 1, 0}, JOIN_STRATEGY_TYPES);
+		
+		plan = helpPlanJoinStrategy("SELECT pm1.g1.e1, pm2.g1.e1 FROM pm1.g1, pm2.g1 WHERE pm1.g1.e2 = pm2.g1.e2", batchSize, 1000, false);
+		TestOptimizer.checkNodeTypes(plan, new int[] {0, 1, 1, 0}, JOIN_STRATEGY_TYPES);
+		
+		plan = helpPlanJoinStrategy("SELECT pm1.g1.e1, pm2.g1.e1 FROM pm1.g1, pm2.g1 WHERE pm1.g1.e2 = pm2.g1.e2", 1000, batchSize, false);
+		TestOptimizer.checkNodeTypes(plan, new int[] {0, 1, 1, 0}, JOIN_STRATEGY_TYPES);
+	}
+	
+	@Test public void testHashJoinUnknownCardinality() throws Exception {
+		ProcessorPlan plan = helpPlanJoinStrategy("SELECT pm1.g1.e1, pm2.g1.e1 FROM pm1.g1, pm2.g1 WHERE pm1.g1.e2 = pm2.g1.e2", 1000, -1, false);
+		TestOptimizer.checkNodeTypes(plan, new int[] {0, 1, 1, 0}, JOIN_STRATEGY_TYPES);
+	}
+	
+	/**
+	 * The merge join is still used when both sorts are pushed to the sources
+	 */
+	@Test public void testMergeJoinLargeInputsWithPushedSorts() throws Exception {
+		ProcessorPlan plan = helpPlanJoinStrategy("SELECT pm1.g1.e1, pm2.g1.e1 FROM pm1.g1, pm2.g1 WHERE pm1.g1.e2 = pm2.g1.e2", 1000, 1000, true);
+		TestOptimizer.checkNodeTypes(plan, new int[] {0, 0, 1, 0}, JOIN_STRATEGY_TYPES);
+	}
+	
+	@Test public void testNestedLoopJoinLargeInputs() throws Exception {
+		ProcessorPlan plan = helpPlanJoinStrategy("SELECT pm1.g1.e1, pm2.g1.e1 FROM pm1.g1, pm2.g1 WHERE pm1.g1.e2 < pm2.g1.e2", 1000, 1000, false);
+		TestOptimizer.checkNodeTypes(plan, new int[] {0, 0, 0, 1}, JOIN_STRATEGY_TYPES);
+	}
+    
 }
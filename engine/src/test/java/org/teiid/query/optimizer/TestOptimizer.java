@@ -385,6 +385,9 @@ public class TestOptimizer {
                 if (strategy instanceof EnhancedSortMergeJoinStrategy) {
                     updateCounts(EnhancedSortMergeJoinStrategy.class, counts, types);
                 } 
+                if (strategy instanceof HashJoinStrategy) {
+                    updateCounts(HashJoinStrategy.class, counts, types);
+                } 
             } else if (strategy instanceof NestedTableJoinStrategy) {
             	updateCounts(NestedTableJoinStrategy.class, counts, types);
             }
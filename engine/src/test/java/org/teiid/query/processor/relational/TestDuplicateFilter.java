@@ -40,8 +40,10 @@ import org.teiid.query.sql.symbol.ElementSymbol;
 public class TestDuplicateFilter {
 
     public void helpTestDuplicateFilter(Object[] input, Class<?> dataType, int expected) throws TeiidComponentException, TeiidProcessingException {
-        BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
-        
+        helpTestDuplicateFilter(input, dataType, expected, BufferManagerFactory.getStandaloneBufferManager());
+    }
+    
+    public void helpTestDuplicateFilter(Object[] input, Class<?> dataType, int expected, BufferManager mgr) throws TeiidComponentException, TeiidProcessingException {
         Count count = new Count();
         count.setArgIndexes(new int[] {0});
         SortingFilter filter = new SortingFilter(count, mgr, "test", true); //$NON-NLS-1$
@@ -83,4 +85,19 @@ public class TestDuplicateFilter {
         helpTestDuplicateFilter(input, DataTypeManager.DefaultDataClasses.INTEGER, NUM_OUTPUT);        
     }
     
+    /**
+     * The seen values will not fit in memory and must be flushed
+     */
+    @Test public void testBigSpill() throws Exception {
+        int NUM_VALUES = 10000;
+        int NUM_OUTPUT = 2000;
+        Object[] input = new Object[NUM_VALUES];
+
+        for(int i=0; i<NUM_VALUES; i++) {
+            input[i] = new Integer((i * 7) % NUM_OUTPUT);
+        }
+
+        helpTestDuplicateFilter(input, DataTypeManager.DefaultDataClasses.INTEGER, NUM_OUTPUT, BufferManagerFactory.getTestBufferManager(1, 2));        
+    }
+    
 }
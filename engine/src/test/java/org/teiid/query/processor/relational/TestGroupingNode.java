@@ -420,6 +420,39 @@ public class TestGroupingNode {
         helpProcess(mgr, node, context, expected, null);
     }
 
+    @Test public void testGroupHashSpill() throws Exception {
+        BufferManager mgr = BufferManagerFactory.getTestBufferManager(1, 2);
+
+        GroupingNode node = new GroupingNode(1);
+        List outputElements = new ArrayList();
+        ElementSymbol col1 = new ElementSymbol("col1"); //$NON-NLS-1$
+        col1.setType(Integer.class);
+        ElementSymbol col2 = new ElementSymbol("col2"); //$NON-NLS-1$
+        col2.setType(Integer.class);
+        outputElements.add(col1);
+        outputElements.add(new AggregateSymbol("COUNT", false, col2)); //$NON-NLS-1$
+        outputElements.add(new AggregateSymbol("SUM", false, col2)); //$NON-NLS-1$
+        node.setElements(outputElements);
+        
+        List groupingElements = new ArrayList();
+        groupingElements.add(col1); 
+        node.setOrderBy(new OrderBy(groupingElements).getOrderByItems());
+        CommandContext context = new CommandContext("pid", "test", null, null,  1);               //$NON-NLS-1$ //$NON-NLS-2$
+        
+        int groups = 100;
+        List[] data = new List[groups * 10];
+        for (int i = 0; i < data.length; i++) {
+        	data[i] = Arrays.asList((groups - 1) - i%groups, i%groups);
+        }
+        List[] expected = new List[groups];
+        for (int i = 0; i < groups; i++) {
+        	expected[i] = Arrays.asList(i, 10, Long.valueOf(10*((groups - 1) - i)));
+        }
+        
+        FakeTupleSource dataSource = new FakeTupleSource(Arrays.asList(col1, col2), data);            
+        helpProcess(mgr, node, context, expected, dataSource, null);
+    }
+
 	private GroupingNode getExampleGroupingNode() {
 		GroupingNode node = new GroupingNode(1);
         List outputElements = new ArrayList();
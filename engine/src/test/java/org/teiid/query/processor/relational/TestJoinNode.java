@@ -26,12 +26,17 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManagerFactory;
 import org.teiid.common.buffer.TupleBatch;
@@ -41,6 +46,7 @@ import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.dqp.internal.process.RequestWorkItem;
 import org.teiid.query.function.FunctionDescriptor;
 import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.HardcodedDataManager;
@@ -65,6 +71,9 @@ public class TestJoinNode {
     private static final int FUNCTION_CRITERIA = 2;
     
     private int criteriaType = EQUAL_CRITERIA;
+    private Executor executor;
+    private boolean nullExecutor;
+    private RequestWorkItem workItem;
     
     protected JoinType joinType;
     
@@ -80,6 +89,8 @@ public class TestJoinNode {
     private BlockingFakeRelationalNode rightNode;
     
     private FakeDataManager dataMgr;
+    
+    private boolean ordered = true;
 
     @Before public void setup() {
     	leftTuples = createTuples1();
@@ -253,6 +264,12 @@ public class TestJoinNode {
         BufferManagerImpl mgr = BufferManagerFactory.getTestBufferManager(processingBytes, batchSize);
         mgr.setTargetBytesPerRow(100);
         CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        if (executor != null || nullExecutor) {
+        	context.setExecutor(executor);
+        }
+        if (workItem != null) {
+        	context.setWorkItem(workItem);
+        }
         
         join.addChild(leftNode);
         join.addChild(rightNode);
@@ -273,11 +290,16 @@ public class TestJoinNode {
 		join.open();
         
         int currentRow = 1;
+        List<String> actual = new ArrayList<String>();
         while(true) {
             try {
                 TupleBatch batch = join.nextBatch();
                 for(;currentRow <= batch.getEndRow(); currentRow++) {
                     List tuple = batch.getTuple(currentRow);
+                    if (!ordered) {
+                    	actual.add(tuple.toString());
+                    	continue;
+                    }
                     assertEquals("Rows don't match at " + currentRow, expectedResults[currentRow-1], tuple); //$NON-NLS-1$
                 }
                 if(batch.getTerminationFlag()) {
@@ -288,6 +310,15 @@ public class TestJoinNode {
             }
         }
         assertEquals(expectedResults.length, currentRow - 1);
+        if (!ordered) {
+        	List<String> expectedStrings = new ArrayList<String>();
+        	for (List list : expectedResults) {
+				expectedStrings.add(list.toString());
+			}
+        	Collections.sort(expectedStrings);
+        	Collections.sort(actual);
+        	assertEquals(expectedStrings, actual);
+        }
         join.close();
 	}
     
@@ -726,6 +757,124 @@ public class TestJoinNode {
         helpTestJoinDirect(expected, batchSize, 1);
 	}
 	
+	@Test public void testHashJoin() throws Exception {
+		helpTestHashJoin(100000);
+	}
+	
+	@Test public void testHashJoinPartitioned() throws Exception {
+		this.ordered = false;
+		helpTestHashJoin(1);
+	}
+	
+	@Test public void testHashJoinPartitionedParallel() throws Exception {
+		this.ordered = false;
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			this.executor = pool;
+			helpTestHashJoin(1, 4);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	@Test public void testHashJoinPartitionedParallelNullExecutor() throws Exception {
+		this.ordered = false;
+		this.nullExecutor = true;
+		helpTestHashJoin(1, 4);
+	}
+	
+	@Test public void testHashJoinPartitionedParallelNonBlocking() throws Exception {
+		this.ordered = false;
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			this.executor = pool;
+			this.workItem = Mockito.mock(RequestWorkItem.class);
+			helpTestHashJoin(1, 4);
+			Mockito.verify(this.workItem, Mockito.atLeastOnce()).moreWork();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void helpTestHashJoin(int processingBytes)
+			throws TeiidComponentException, TeiidProcessingException {
+		helpTestHashJoin(processingBytes, 1);
+	}
+
+	private void helpTestHashJoin(int processingBytes, int parallelism)
+			throws TeiidComponentException, TeiidProcessingException {
+		this.joinType = JoinType.JOIN_INNER;
+        int rows = 100;
+        List[] data = new List[rows];
+        for(int i=0; i<rows; i++) { 
+            data[i] = new ArrayList();
+            Integer value = new Integer((i*17) % 47);
+            data[i].add(value);
+        }
+        this.leftTuples = data;
+        this.rightTuples = createTuples2();
+        expected = new List[] {
+           Arrays.asList(new Object[] { 4, 4 }),
+           Arrays.asList(new Object[] { 4, 4 }),
+           Arrays.asList(new Object[] { 7, 7 }),
+           Arrays.asList(new Object[] { 7, 7 }),
+           Arrays.asList(new Object[] { 2, 2 }),
+           Arrays.asList(new Object[] { 2, 2 }),
+           Arrays.asList(new Object[] { 6, 6 }),
+           Arrays.asList(new Object[] { 1, 1 }),  
+           Arrays.asList(new Object[] { 4, 4 }),
+           Arrays.asList(new Object[] { 4, 4 }),
+           Arrays.asList(new Object[] { 7, 7 }),
+           Arrays.asList(new Object[] { 7, 7 }),
+           Arrays.asList(new Object[] { 2, 2 }),
+           Arrays.asList(new Object[] { 2, 2 }),
+           Arrays.asList(new Object[] { 6, 6 }),
+           Arrays.asList(new Object[] { 1, 1 }),
+           Arrays.asList(new Object[] { 4, 4 }),
+           Arrays.asList(new Object[] { 4, 4 }),
+        };
+        helpCreateJoin();               
+        HashJoinStrategy hashJoinStrategy = new HashJoinStrategy(SortOption.SORT, SortOption.SORT);
+        hashJoinStrategy.setParallelism(parallelism);
+        this.joinStrategy = hashJoinStrategy;
+        this.join.setJoinStrategy(joinStrategy);
+        helpTestJoinDirect(expected, 10, processingBytes);
+	}
+	
+	@Test public void testHashJoinLeftOuter() throws Exception {
+		this.joinType = JoinType.JOIN_LEFT_OUTER;
+        int rows = 12;
+        List[] data = new List[rows];
+        for(int i=0; i<rows; i++) { 
+            data[i] = new ArrayList();
+            Integer value = new Integer((i*17) % 45);
+            data[i].add(value);
+        }
+        this.leftTuples = data;
+        this.rightTuples = createTuples2();
+        expected = new List[] {
+           Arrays.asList(new Object[] { 0, null }),
+           Arrays.asList(new Object[] {17, null }),
+           Arrays.asList(new Object[] {34, null }),
+           Arrays.asList(new Object[] { 6, 6 }),
+           Arrays.asList(new Object[] {23, null }),
+           Arrays.asList(new Object[] {40, null }),
+           Arrays.asList(new Object[] {12, null }),
+           Arrays.asList(new Object[] {29, null }),
+           Arrays.asList(new Object[] { 1, 1 }),  
+           Arrays.asList(new Object[] {18, null }),
+           Arrays.asList(new Object[] {35, null }),
+           Arrays.asList(new Object[] { 7, 7 }),
+           Arrays.asList(new Object[] { 7, 7 }),
+        };
+        
+        helpCreateJoin();
+        this.joinStrategy = new HashJoinStrategy(SortOption.SORT, SortOption.SORT);
+        this.join.setJoinStrategy(joinStrategy);
+        
+        helpTestJoinDirect(expected, 10, 100000);
+	}
+	
 	@Test public void testMergeJoinOptimizationLeftOuter() throws Exception {
 		this.joinType = JoinType.JOIN_LEFT_OUTER;
         int rows = 12;
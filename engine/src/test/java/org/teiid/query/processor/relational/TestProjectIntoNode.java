@@ -37,6 +37,7 @@ import org.teiid.common.buffer.TupleBatch;
 import org.teiid.common.buffer.TupleSource;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.dqp.service.TransactionContext;
 import org.teiid.events.EventDistributor;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.processor.FakeTupleSource;
@@ -61,6 +62,10 @@ public class TestProjectIntoNode {
     private static final int NUM_ROWS = 1000;
 
     private void helpTestNextBatch(int tupleBatchSize, Mode mode) throws Exception {
+    	helpTestNextBatch(tupleBatchSize, mode, null);
+    }
+    
+    private FakePDM helpTestNextBatch(int tupleBatchSize, Mode mode, TransactionContext tc) throws Exception {
         
         ProjectIntoNode node = new ProjectIntoNode(2);
         
@@ -79,8 +84,10 @@ public class TestProjectIntoNode {
         node.setModelName("myModel"); //$NON-NLS-1$
         
         CommandContext context = new CommandContext();
+        context.setTransactionContext(tc);
         BufferManager bm = BufferManagerFactory.getTestBufferManager(tupleBatchSize, tupleBatchSize);
-        ProcessorDataManager dataManager = new FakePDM(tupleBatchSize);
+        FakePDM dataManager = new FakePDM(tupleBatchSize);
+        dataManager.blockOnCount = tc != null;
         
         child.initialize(context, bm, dataManager);
         node.initialize(context, bm, dataManager);
@@ -104,6 +111,8 @@ public class TestProjectIntoNode {
         assertEquals(1, columns.length);
         // Should have inserted all rows
         assertEquals(new Integer(NUM_ROWS), columns[0]);
+        assertEquals(0, dataManager.pending);
+        return dataManager;
     }
 
     @Test public void testNextBatch() throws Exception {
@@ -122,9 +131,21 @@ public class TestProjectIntoNode {
         helpTestNextBatch(100, Mode.ITERATOR);
     }
     
+    @Test public void testNextBatch_IteratorPipelined() throws Exception {
+    	TransactionContext tc = new TransactionContext();
+    	tc.setNoTnx(true);
+        FakePDM dataManager = helpTestNextBatch(100, Mode.ITERATOR, tc);
+        assertEquals(3, dataManager.callCount);
+        assertTrue(dataManager.maxPending > 1);
+    }
+    
     private static final class FakePDM implements ProcessorDataManager {
         private int expectedBatchSize;
         private int callCount = 0;
+        private int iteratorRows = 0;
+        private boolean blockOnCount;
+        private int pending;
+        private int maxPending;
         private FakePDM(int expectedBatchSize) {
             this.expectedBatchSize = expectedBatchSize;
         }
@@ -150,7 +171,8 @@ public class TestProjectIntoNode {
             		List tuple = null;
             		int i = 0;
             		while ((tuple = ts.nextTuple()) != null) {
-                		ensureValue2(tuple, 2, ++i);
+                		ensureValue2(tuple, 2, ++iteratorRows);
+                		i++;
             		}
             		batchSize = i;
             	} else {
@@ -166,7 +188,25 @@ public class TestProjectIntoNode {
                 fail("Unexpected command type"); //$NON-NLS-1$
             }
             List counts = Arrays.asList(new Object[] { new Integer(batchSize)});
-            FakeTupleSource fakeTupleSource = new FakeTupleSource(null, new List[] {counts});
+            pending++;
+            maxPending = Math.max(pending, maxPending);
+            FakeTupleSource fakeTupleSource = new FakeTupleSource(null, new List[] {counts}) {
+            	boolean blocked = !blockOnCount;
+            	@Override
+            	public List<?> nextTuple() throws TeiidComponentException {
+            		//simulate a source that has not yet responded
+            		if (!blocked) {
+            			blocked = true;
+            			throw BlockedException.INSTANCE;
+            		}
+            		return super.nextTuple();
+            	}
+            	@Override
+            	public void closeSource() {
+            		pending--;
+            		super.closeSource();
+            	}
+            };
             return fakeTupleSource;
         }
 
@@ -35,6 +35,7 @@ import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.ColumnarBatch;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
@@ -46,11 +47,17 @@ import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
 import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.MatchCriteria;
+import org.teiid.query.sql.lang.NotCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.Reference;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
 
@@ -71,8 +78,16 @@ public class TestSelectNode {
 			RelationalNode child,
 			SelectNode selectNode) throws TeiidComponentException,
 			TeiidProcessingException {
-		BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
         CommandContext context = new CommandContext("pid", "test", null, null, 1);               //$NON-NLS-1$ //$NON-NLS-2$
+        helpTestSelect(elements, criteria, childElements, dataMgr, expected, child, selectNode, context);
+	}
+
+	private void helpTestSelect(List elements, Criteria criteria, List childElements,
+			ProcessorDataManager dataMgr, List[] expected,
+			RelationalNode child,
+			SelectNode selectNode, CommandContext context) throws TeiidComponentException,
+			TeiidProcessingException {
+		BufferManager mgr = BufferManagerFactory.getStandaloneBufferManager();
         
         child.setElements(childElements);
         child.initialize(context, mgr, dataMgr);
@@ -278,4 +293,91 @@ public class TestSelectNode {
         helpTestSelect(elements, crit, data, childElements, dataMgr, expected);
 
     }    
+    /**
+     * The batch evaluation should match row evaluation, including for columnar batches
+     */
+    @Test public void testBatchEvaluation() throws TeiidComponentException, TeiidProcessingException {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.STRING);
+        
+        List<ElementSymbol> elements = Arrays.asList(es1, es2);
+        
+        IsNullCriteria notNull = new IsNullCriteria(es2);
+        notNull.setNegated(true);
+        Criteria crit = new CompoundCriteria(CompoundCriteria.AND, Arrays.asList(
+        		new CompoundCriteria(CompoundCriteria.OR, 
+        				new SetCriteria(es1, Arrays.asList(new Constant(1), new Constant(2))), 
+        				new MatchCriteria(es2, new Constant("1%"))), //$NON-NLS-1$
+        		notNull,
+        		new CompareCriteria(new Constant(10), CompareCriteria.GT, es1),
+        		new NotCriteria(new CompareCriteria(es1, CompareCriteria.EQ, new Constant(3)))));
+        
+        final List[] data = new List[50];
+        for(int i=0; i<data.length; i++) { 
+            data[i] = Arrays.asList(i%7==0?null:(i*51) % 11, i%5==0?null:String.valueOf(i*3));
+        }
+        
+        Evaluator eval = new Evaluator(RelationalNode.createLookupMap(elements), null, null);
+        List<List<?>> expected = new ArrayList<List<?>>();
+        for (List<?> tuple : data) {
+        	if (eval.evaluate(crit, tuple)) {
+        		expected.add(tuple);
+        	}
+        }
+        assertFalse(expected.isEmpty());
+        
+        helpTestSelect(elements, crit, data, elements, null, expected.toArray(new List[expected.size()]));
+        
+        RelationalNode child = new RelationalNode(0) {
+    		
+			@Override
+			public Object clone() {
+				return null;
+			}
+
+			@Override
+			protected TupleBatch nextBatchDirect() throws BlockedException,
+					TeiidComponentException, TeiidProcessingException {
+				TupleBatch batch = new TupleBatch(1, ColumnarBatch.create(Arrays.asList(data), new Class<?>[] {DataTypeManager.DefaultDataClasses.INTEGER, DataTypeManager.DefaultDataClasses.STRING}));
+				batch.setTerminationFlag(true);
+				return batch;
+			}
+    		
+    	};
+    	
+        helpTestSelect(elements, crit, elements, null, expected.toArray(new List[expected.size()]), child);
+    }
+    
+    /**
+     * Clones of the node, as used by cached prepared plans, share the compiled criteria 
+     * and must read the current parameter value
+     */
+    @Test public void testCompiledCriteriaWithReference() throws TeiidComponentException, TeiidProcessingException {
+        ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        
+        List<ElementSymbol> elements = Arrays.asList(es1);
+        
+        Reference ref = new Reference(0);
+        ref.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        Criteria crit = new CompareCriteria(es1, CompareCriteria.GE, ref);
+        
+        List[] data = new List[] {Arrays.asList(1), Arrays.asList(2), Arrays.asList(3), Arrays.asList((Integer)null)};
+        
+        SelectNode selectNode = new SelectNode(3);
+        selectNode.setCriteria(crit);
+        CommandContext context = new CommandContext("pid", "test", null, null, 1); //$NON-NLS-1$ //$NON-NLS-2$
+        context.getVariableContext().setGlobalValue(ref.getContextSymbol(), 2);
+        SelectNode clone = (SelectNode)selectNode.clone();
+        helpTestSelect(elements, crit, elements, null, new List[] {Arrays.asList(2), Arrays.asList(3)}, new FakeRelationalNode(2, data), selectNode, context);
+        
+        clone.setElements(elements);
+        context = new CommandContext("pid", "test", null, null, 1); //$NON-NLS-1$ //$NON-NLS-2$
+        context.getVariableContext().setGlobalValue(ref.getContextSymbol(), 3);
+        helpTestSelect(elements, crit, elements, null, new List[] {Arrays.asList(3)}, new FakeRelationalNode(2, data), clone, context);
+    }
+    
 }
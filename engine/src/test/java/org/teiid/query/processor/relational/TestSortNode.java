@@ -30,6 +30,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 import org.teiid.common.buffer.BlockedException;
@@ -337,4 +339,47 @@ public class TestSortNode {
     	assertNull(ts.nextTuple());
     }
 
+    @Test public void testParallelSort() throws Exception {
+    	ExecutorService executor = Executors.newFixedThreadPool(3);
+    	try {
+    		helpTestParallelSort(BufferManagerFactory.getStandaloneBufferManager(), executor, true);
+    		//force multiple merge passes with read ahead
+    		helpTestParallelSort(BufferManagerFactory.getTestBufferManager(1, 2), executor, false);
+    	} finally {
+    		executor.shutdownNow();
+    	}
+    }
+
+	private void helpTestParallelSort(BufferManager bm, ExecutorService executor, boolean stable) throws Exception {
+		ElementSymbol es1 = new ElementSymbol("e1"); //$NON-NLS-1$
+        es1.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        ElementSymbol es2 = new ElementSymbol("e2"); //$NON-NLS-1$
+        es2.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+        TupleBuffer tsid = bm.createTupleBuffer(Arrays.asList(es1, es2), "test", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+        int rows = 1000;
+        for (int i = 0; i < rows; i++) {
+        	tsid.addTuple(Arrays.asList((i*31)%17, i));
+        }
+    	tsid.close();
+    	SortUtility su = new SortUtility(tsid.createIndexedTupleSource(), Arrays.asList(es1), Arrays.asList(Boolean.TRUE), Mode.SORT, bm, "test", tsid.getSchema()); //$NON-NLS-1$
+    	su.setBatchSize(4);
+    	su.setStableSort(true);
+    	su.setParallelism(executor, 4);
+    	TupleBuffer out = su.sort();
+    	assertEquals(rows, out.getRowCount());
+    	TupleSource ts = out.createIndexedTupleSource();
+    	List<?> last = ts.nextTuple();
+    	for (int i = 1; i < rows; i++) {
+    		List<?> tuple = ts.nextTuple();
+    		int compare = ((Integer)last.get(0)).compareTo((Integer)tuple.get(0));
+    		assertTrue(compare <= 0);
+    		if (stable && compare == 0) {
+    			assertTrue((Integer)last.get(1) < (Integer)tuple.get(1));
+    		}
+    		last = tuple;
+		}
+    	assertNull(ts.nextTuple());
+    	out.remove();
+	}
+
 }
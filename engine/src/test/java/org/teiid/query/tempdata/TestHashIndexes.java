@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.tempdata;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.query.metadata.TempMetadataID;
+import org.teiid.query.processor.CollectionTupleSource;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.CompoundCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+
+@SuppressWarnings("nls")
+public class TestHashIndexes {
+
+	private ElementSymbol id = new ElementSymbol("t.id");
+	private ElementSymbol color = new ElementSymbol("t.color");
+	private ElementSymbol size = new ElementSymbol("t.size");
+	private List<ElementSymbol> columns = Arrays.asList(id, color, size);
+	
+	private TempTable helpCreateTable() throws Exception {
+		id.setType(Integer.class);
+		color.setType(String.class);
+		size.setType(Integer.class);
+		TempMetadataID tid = new TempMetadataID("t", Arrays.asList(new TempMetadataID("id", Integer.class), new TempMetadataID("color", String.class), new TempMetadataID("size", Integer.class)));
+		TempTable table = new TempTable(tid, BufferManagerFactory.getStandaloneBufferManager(), new ArrayList<ElementSymbol>(columns), 1, "1");
+		List<List<?>> tuples = new ArrayList<List<?>>();
+		for (int i = 0; i < 1200; i++) {
+			tuples.add(Arrays.asList(i, i%100 == 99?null:"c" + i%100, i%3));
+		}
+		table.insert(new CollectionTupleSource(tuples.iterator()), columns, false, null);
+		return table;
+	}
+
+	private List<?> helpQuery(TempTable table, Criteria crit) throws Exception {
+		TupleSource ts = table.createTupleSource(Arrays.asList(id), crit, null);
+		List<Object> result = new ArrayList<Object>();
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			result.add(tuple.get(0));
+		}
+		ts.closeSource();
+		return result;
+	}
+	
+	private List<Integer> ids(int... values) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i : values) {
+			for (int j = i; j < 1200; j+=100) {
+				result.add(j);
+			}
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	@Test public void testHashLookup() throws Exception {
+		TempTable table = helpCreateTable();
+		table.addHashIndex(Arrays.asList(color), false);
+		assertEquals(ids(1), helpQuery(table, new CompareCriteria(color, CompareCriteria.EQ, new Constant("c1"))));
+		SetCriteria sc = new SetCriteria(color, Arrays.asList(new Constant("c0"), new Constant("c200")));
+		assertEquals(ids(0), helpQuery(table, sc));
+		assertEquals(Arrays.asList(), helpQuery(table, new CompareCriteria(color, CompareCriteria.EQ, new Constant("c200"))));
+		//the rest of the condition is still applied
+		CompoundCriteria cc = new CompoundCriteria(Arrays.asList(new CompareCriteria(color, CompareCriteria.EQ, new Constant("c1")), new CompareCriteria(id, CompareCriteria.GT, new Constant(1000))));
+		assertEquals(Arrays.asList(1001, 1101), helpQuery(table, cc));
+	}
+
+	@Test public void testBitmapAndOr() throws Exception {
+		TempTable table = helpCreateTable();
+		table.addHashIndex(Arrays.asList(color), true);
+		table.addHashIndex(Arrays.asList(size), true);
+		CompoundCriteria and = new CompoundCriteria(Arrays.asList(new CompareCriteria(color, CompareCriteria.EQ, new Constant("c1")), new CompareCriteria(size, CompareCriteria.EQ, new Constant(0))));
+		assertEquals(Arrays.asList(201, 501, 801, 1101), helpQuery(table, and));
+		CompoundCriteria or = new CompoundCriteria(CompoundCriteria.OR, new CompareCriteria(color, CompareCriteria.EQ, new Constant("c1")), new IsNullCriteria(color));
+		assertEquals(ids(1, 99), helpQuery(table, or));
+		
+		HashIndexes indexes = new HashIndexes(1);
+		indexes.addIndex(Arrays.asList(color), new int[] {1}, true, new CollectionTupleSource(Arrays.asList(Arrays.asList(1, "c1", 1), Arrays.asList(2, "c2", 2)).iterator()));
+		assertNull(indexes.getKeys(new CompareCriteria(size, CompareCriteria.EQ, new Constant(1))));
+		or = new CompoundCriteria(CompoundCriteria.OR, new CompareCriteria(color, CompareCriteria.EQ, new Constant("c2")), new IsNullCriteria(color));
+		assertEquals(Arrays.asList(Arrays.asList(2)), indexes.getKeys(or));
+	}
+
+	@Test public void testUpdateAndClone() throws Exception {
+		TempTable table = helpCreateTable();
+		table.addHashIndex(Arrays.asList(color), false);
+		TempTable clone = table.clone();
+		clone.updateTuple(Arrays.asList(1, "c2", 0), false);
+		clone.updateTuple(Arrays.asList(2, null, 2), true);
+		CompareCriteria crit = new CompareCriteria(color, CompareCriteria.EQ, new Constant("c2"));
+		List<Integer> expected = ids(2);
+		expected.set(0, 1);
+		assertEquals(expected, helpQuery(clone, crit));
+		assertEquals(ids(2), helpQuery(table, crit));
+		assertEquals(ids(1).subList(1, 12), helpQuery(clone, new CompareCriteria(color, CompareCriteria.EQ, new Constant("c1"))));
+	}
+
+}
@@ -99,6 +99,7 @@ class VDBService extends AbstractVDBDeployer implements Service<RuntimeVDB> {
 	private VDBLifeCycleListener restEasyListener;
 	private VDBResources vdbResources;
 	private ContainerLifeCycleListener shutdownListener;
+	private IdentityHashMap<Translator, ExecutionFactory<Object, Object>> executionFactories;
 	
 	public VDBService(VDBMetaData metadata, VDBResources vdbResources, ContainerLifeCycleListener shutdownListener) {
 		this.vdb = metadata;
@@ -269,6 +270,12 @@ class VDBService extends AbstractVDBDeployer implements Service<RuntimeVDB> {
 			this.objectReplicatorInjector.getValue().stop(gts);
 		}		
 		getVDBRepository().removeVDB(this.vdb.getName(), this.vdb.getVersion());
+		if (this.executionFactories != null) {
+			//the translator instances were created for this vdb
+			for (ExecutionFactory<Object, Object> ef : this.executionFactories.values()) {
+				ef.stop();
+			}
+		}
 		getVDBRepository().removeListener(this.vdbListener);
 		getVDBRepository().removeListener(this.restEasyListener);
 		final ServiceController<?> controller = context.getController().getServiceContainer().getService(TeiidServiceNames.vdbFinishedServiceName(vdb.getName(), vdb.getVersion()));
@@ -285,6 +292,7 @@ class VDBService extends AbstractVDBDeployer implements Service<RuntimeVDB> {
 	
 	private void createConnectorManagers(ConnectorManagerRepository cmr, final TranslatorRepository repo, final VDBMetaData deployment) throws StartException {
 		final IdentityHashMap<Translator, ExecutionFactory<Object, Object>> map = new IdentityHashMap<Translator, ExecutionFactory<Object, Object>>();
+		this.executionFactories = map;
 		
 		try {
 			ConnectorManagerRepository.ExecutionFactoryProvider provider = new ConnectorManagerRepository.ExecutionFactoryProvider() {
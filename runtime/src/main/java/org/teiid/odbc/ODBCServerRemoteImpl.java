@@ -619,7 +619,7 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 
 	private void sendCursorResults(final Portal cursor, final int fetchSize) {
 		ResultsFuture<Integer> result = new ResultsFuture<Integer>();
-		this.client.sendResults(null, cursor.rs, cursor.prepared.columnMetadata, result, fetchSize, false);
+		this.client.sendResults(null, cursor.rs, cursor.columnMetadata, result, fetchSize, false);
 		result.addCompletionListener(new ResultsFuture.CompletionListener<Integer>() {
 			public void onCompletion(ResultsFuture<Integer> future) {
 				try {
@@ -816,7 +816,7 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
 			errorOccurred(RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40078, bindName));
 		}
 		else {
-			this.client.sendResultSetDescription(query.prepared.columnMetadata);
+			this.client.sendResultSetDescription(query.columnMetadata);
 		}
 	}
 
@@ -1133,6 +1133,7 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
     		this.name = name;
     		this.prepared = prepared;
     		this.resultColumnFormat = resultColumnformat;
+    		this.columnMetadata = PGUtil.applyResultFormats(prepared.columnMetadata, resultColumnformat);
     		this.stmt = stmt;
     	}
         /**
@@ -1144,6 +1145,11 @@ public class ODBCServerRemoteImpl implements ODBCServerRemote {
          * The format used in the result set columns (if set).
          */
         final int[] resultColumnFormat;
+        
+        /**
+         * The column metadata with the result formats applied
+         */
+        final List<PgColInfo> columnMetadata;
 
         final Prepared prepared;
         
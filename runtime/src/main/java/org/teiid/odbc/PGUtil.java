@@ -22,6 +22,8 @@
 package org.teiid.odbc;
 
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
 
 public class PGUtil {
 
@@ -34,7 +36,7 @@ public class PGUtil {
 	public static final int PG_TYPE_INT2 = 21;
 	public static final int PG_TYPE_INT4 = 23;
 	public static final int PG_TYPE_TEXT = 25;
-    //private static final int PG_TYPE_OID = 26;
+	public static final int PG_TYPE_OID = 26;
 	public static final int PG_TYPE_FLOAT4 = 700;
 	public static final int PG_TYPE_FLOAT8 = 701;
 	public static final int PG_TYPE_UNKNOWN = 705;
@@ -58,6 +60,71 @@ public class PGUtil {
 		public int type;
 		public int precision;
 		public int mod = -1;
+		/**
+		 * The result format code - 0 text, 1 binary
+		 */
+		public short format;
+	}
+	
+	/**
+	 * @return true if values of the type can be sent in the binary format
+	 */
+	public static boolean supportsBinary(int type) {
+		switch (type) {
+		case PG_TYPE_BOOL:
+		case PG_TYPE_INT2:
+		case PG_TYPE_INT4:
+		case PG_TYPE_INT8:
+		case PG_TYPE_FLOAT4:
+		case PG_TYPE_FLOAT8:
+		case PG_TYPE_NUMERIC:
+		case PG_TYPE_DATE:
+		case PG_TYPE_TIME:
+		case PG_TYPE_TIMESTAMP_NO_TMZONE:
+		case PG_TYPE_BYTEA:
+		case PG_TYPE_VARCHAR:
+		case PG_TYPE_BPCHAR:
+		case PG_TYPE_TEXT:
+		case PG_TYPE_TEXTARRAY:
+		case PG_TYPE_OIDARRAY:
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Apply the result format codes from a Bind message.  
+	 * Columns with types that have no binary format are left as text.
+	 * @return the original list if all columns are text 
+	 */
+	public static List<PgColInfo> applyResultFormats(List<PgColInfo> cols, int[] resultColumnFormat) {
+		if (cols == null || resultColumnFormat == null || resultColumnFormat.length == 0) {
+			return cols;
+		}
+		List<PgColInfo> result = null;
+		for (int i = 0; i < cols.size(); i++) {
+			PgColInfo info = cols.get(i);
+			int format = resultColumnFormat.length == 1?resultColumnFormat[0]:(i < resultColumnFormat.length?resultColumnFormat[i]:0);
+			if (format != 1 || !supportsBinary(info.type)) {
+				continue;
+			}
+			if (result == null) {
+				result = new ArrayList<PgColInfo>(cols);
+			}
+			PgColInfo binary = new PgColInfo();
+			binary.name = info.name;
+			binary.reloid = info.reloid;
+			binary.attnum = info.attnum;
+			binary.type = info.type;
+			binary.precision = info.precision;
+			binary.mod = info.mod;
+			binary.format = 1;
+			result.set(i, binary);
+		}
+		if (result == null) {
+			return cols;
+		}
+		return result;
 	}
 		
 	/**
@@ -802,6 +802,9 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
 		this.sessionService.stop();
 		this.transports.clear();
 		dqp.stop();
+		for (ExecutionFactory<?, ?> ef : this.translators.values()) {
+			ef.stop();
+		}
 		eventDistributorFactoryService.stop();
 		config.getCacheFactory().destroy();
 		config.setCacheFactory(null);
@@ -59,6 +59,7 @@ public class BufferServiceImpl implements BufferService, Serializable {
 	private File bufferDir;
 	private boolean useDisk = true;
 	private boolean encryptFiles = false;
+	private boolean memoryMappedFiles = FileStorageManager.DEFAULT_MEMORY_MAPPED;
 	private int processorBatchSize = BufferManager.DEFAULT_PROCESSOR_BATCH_SIZE;
     private int maxOpenFiles = FileStorageManager.DEFAULT_MAX_OPEN_FILES;
     private long maxFileSize = SplittableStorageManager.DEFAULT_MAX_FILESIZE; // 2GB
@@ -106,6 +107,7 @@ public class BufferServiceImpl implements BufferService, Serializable {
                 fsm.setStorageDirectory(bufferDir.getCanonicalPath());
                 fsm.setMaxOpenFiles(maxOpenFiles);
                 fsm.setMaxBufferSpace(maxBufferSpace*MB);
+                fsm.setMemoryMapped(memoryMappedFiles);
                 SplittableStorageManager ssm = new SplittableStorageManager(fsm);
                 ssm.setMaxFileSize(maxFileSize);
                 StorageManager sm = ssm;
@@ -314,4 +316,12 @@ public class BufferServiceImpl implements BufferService, Serializable {
     public void setEncryptFiles(boolean encryptFiles) {
 		this.encryptFiles = encryptFiles;
 	}
+    
+    public boolean isMemoryMappedFiles() {
+		return memoryMappedFiles;
+	}
+    
+    public void setMemoryMappedFiles(boolean memoryMappedFiles) {
+		this.memoryMappedFiles = memoryMappedFiles;
+	}
 }
@@ -29,14 +29,19 @@ import java.io.StreamCorruptedException;
 import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
 import java.nio.charset.Charset;
 import java.security.GeneralSecurityException;
 import java.sql.Array;
 import java.sql.Blob;
+import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Properties;
+import java.util.TimeZone;
 
 import javax.net.ssl.SSLEngine;
 
@@ -183,9 +188,16 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 	}
 
 	public static final String DEFAULT_ENCODING = "UTF8";
+	
+	private static final long MILLIS_PER_DAY = 86400000l;
+	/**
+	 * 2000-01-01 00:00:00 GMT
+	 */
+	private static final long PG_EPOCH_MILLIS = 946684800000l;
 	public static final String CLIENT_ENCODING = "client_encoding";
 
     private ChannelBuffer dataOut;
+    private ChannelBuffer pending;
 	private OutputStreamWriter writer;
 
     private Properties props;    
@@ -390,6 +402,11 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 	public void flush() {
 		this.dataOut = null;
 		this.writer = null;
+		if (this.pending != null) {
+			ChannelBuffer cb = this.pending;
+			this.pending = null;
+			Channels.write(this.ctx, this.message.getFuture(), cb, this.message.getRemoteAddress());
+		}
 		Channels.write(this.ctx.getChannel(), null);
 	}
 
@@ -442,7 +459,12 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 		for (int i = 0; i < cols.size(); i++) {
 			int dataBytesIndex = this.dataOut.writerIndex();
 			writeInt(-1);
-			getContent(rs, cols.get(i), i+1);
+			PgColInfo info = cols.get(i);
+			if (info.format == 1) {
+				getBinaryContent(rs, info, i+1);
+			} else {
+				getContent(rs, info, i+1);
+			}
 			writer.flush();
 			if (!rs.wasNull()) {
 				int bytes = this.dataOut.writerIndex() - dataBytesIndex - 4;
@@ -552,6 +574,201 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 		}
 	}
 	
+	/**
+	 * Write the PostgreSQL binary representation of the value.
+	 * Date/time values use the floating point representation since
+	 * integer_datetimes is reported as off.
+	 */
+	private void getBinaryContent(ResultSet rs, PgColInfo col, int column) throws SQLException, TeiidSQLException, IOException {
+		switch (col.type) {
+			case PG_TYPE_BOOL:
+			{
+				boolean value = rs.getBoolean(column);
+				if (!rs.wasNull()) {
+					write(value?1:0);
+				}
+				break;
+			}
+			case PG_TYPE_INT2:
+			{
+				short value = rs.getShort(column);
+				if (!rs.wasNull()) {
+					writeShort(value);
+				}
+				break;
+			}
+			case PG_TYPE_INT4:
+			{
+				int value = rs.getInt(column);
+				if (!rs.wasNull()) {
+					writeInt(value);
+				}
+				break;
+			}
+			case PG_TYPE_INT8:
+			{
+				long value = rs.getLong(column);
+				if (!rs.wasNull()) {
+					dataOut.writeLong(value);
+				}
+				break;
+			}
+			case PG_TYPE_FLOAT4:
+			{
+				float value = rs.getFloat(column);
+				if (!rs.wasNull()) {
+					writeInt(Float.floatToIntBits(value));
+				}
+				break;
+			}
+			case PG_TYPE_FLOAT8:
+			{
+				double value = rs.getDouble(column);
+				if (!rs.wasNull()) {
+					dataOut.writeLong(Double.doubleToLongBits(value));
+				}
+				break;
+			}
+			case PG_TYPE_NUMERIC:
+			{
+				BigDecimal value = rs.getBigDecimal(column);
+				if (value != null) {
+					writeNumeric(dataOut, value);
+				}
+				break;
+			}
+			case PG_TYPE_DATE:
+			{
+				Date value = rs.getDate(column);
+				if (value != null) {
+					writeInt((int)Math.floor((double)(getLocalMillis(value) - PG_EPOCH_MILLIS) / MILLIS_PER_DAY));
+				}
+				break;
+			}
+			case PG_TYPE_TIME:
+			{
+				Time value = rs.getTime(column);
+				if (value != null) {
+					long millis = getLocalMillis(value) % MILLIS_PER_DAY;
+					if (millis < 0) {
+						millis += MILLIS_PER_DAY;
+					}
+					dataOut.writeLong(Double.doubleToLongBits(millis / 1000d));
+				}
+				break;
+			}
+			case PG_TYPE_TIMESTAMP_NO_TMZONE:
+			{
+				Timestamp value = rs.getTimestamp(column);
+				if (value != null) {
+					long seconds = Math.round(Math.floor((getLocalMillis(value) - PG_EPOCH_MILLIS) / 1000d));
+					dataOut.writeLong(Double.doubleToLongBits(seconds + value.getNanos() / 1000000000d));
+				}
+				break;
+			}
+			case PG_TYPE_BYTEA:
+			{
+				Blob blob = rs.getBlob(column);
+		    	if (blob != null) {
+		    		try {
+		    			write(ObjectConverterUtil.convertToByteArray(blob.getBinaryStream(), this.maxLobSize));
+		    		} catch(OutOfMemoryError e) {
+		    			throw new StreamCorruptedException("data too big: " + e.getMessage()); //$NON-NLS-1$ 
+		    		}
+		    	}
+		    	break;
+			}
+			case PG_TYPE_TEXTARRAY:
+			case PG_TYPE_OIDARRAY:
+			{
+				Array obj = rs.getArray(column);
+		    	if (obj != null) {
+		    		Object array = obj.getArray();
+		    		int length = java.lang.reflect.Array.getLength(array);
+		    		boolean hasNull = false;
+		    		for (int i = 0; i < length; i++) {
+		    			if (java.lang.reflect.Array.get(array, i) == null) {
+		    				hasNull = true;
+		    				break;
+		    			}
+		    		}
+		    		writeInt(1); //dimensions
+		    		writeInt(hasNull?1:0);
+		    		writeInt(col.type == PG_TYPE_TEXTARRAY?PG_TYPE_TEXT:PG_TYPE_OID);
+		    		writeInt(length);
+		    		writeInt(1); //lower bound
+		    		for (int i = 0; i < length; i++) {
+		    			Object o = java.lang.reflect.Array.get(array, i);
+		    			if (o == null) {
+		    				writeInt(-1);
+		    			} else if (col.type == PG_TYPE_TEXTARRAY) {
+		    				byte[] bytes = o.toString().getBytes(this.encoding);
+		    				writeInt(bytes.length);
+		    				write(bytes);
+		    			} else {
+		    				writeInt(4);
+		    				writeInt(((Number)o).intValue());
+		    			}
+		    		}
+		    	}
+				break;
+			}
+			default:
+				//the text and binary forms are the same
+				getContent(rs, col, column);
+		}
+	}
+	
+	private static long getLocalMillis(java.util.Date value) {
+		long millis = value.getTime();
+		return millis + TimeZone.getDefault().getOffset(millis);
+	}
+	
+	/**
+	 * Write the base 10000 numeric representation
+	 */
+	static void writeNumeric(ChannelBuffer out, BigDecimal value) {
+		int sign = value.signum() < 0 ? 0x4000 : 0;
+		int dscale = Math.max(0, value.scale());
+		String plain = value.abs().toPlainString();
+		int point = plain.indexOf('.');
+		String intPart = point < 0 ? plain : plain.substring(0, point);
+		String fracPart = point < 0 ? "" : plain.substring(point + 1);
+		int intGroups = (intPart.length() + 3) / 4;
+		int fracGroups = (fracPart.length() + 3) / 4;
+		short[] digits = new short[intGroups + fracGroups];
+		int offset = intGroups * 4 - intPart.length();
+		for (int i = 0; i < intPart.length(); i++) {
+			int pos = offset + i;
+			digits[pos / 4] = (short)(digits[pos / 4] * 10 + (intPart.charAt(i) - '0'));
+		}
+		for (int i = 0; i < fracGroups * 4; i++) {
+			int digit = i < fracPart.length() ? fracPart.charAt(i) - '0' : 0;
+			digits[intGroups + i / 4] = (short)(digits[intGroups + i / 4] * 10 + digit);
+		}
+		int weight = intGroups - 1;
+		int start = 0;
+		int end = digits.length;
+		while (start < end && digits[start] == 0) {
+			start++;
+			weight--;
+		}
+		while (end > start && digits[end - 1] == 0) {
+			end--;
+		}
+		if (start == end) {
+			weight = 0;
+			sign = 0;
+		}
+		out.writeShort(end - start);
+		out.writeShort(weight);
+		out.writeShort(sign);
+		out.writeShort(dscale);
+		for (int i = start; i < end; i++) {
+			out.writeShort(digits[i]);
+		}
+	}
+	
 	public static void escapeQuote(Writer sb, String s) throws IOException {
 		sb.append('"');
 		for (int i = 0; i < s.length(); i++) {
@@ -636,8 +853,8 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 			writeShort(getTypeSize(info.type, info.precision));
 			// pg_attribute.atttypmod
 			writeInt(info.mod);
-			// text
-			writeShort(0);
+			// text or binary
+			writeShort(info.format);
 		}
 		sendMessage();
 	}
@@ -805,13 +1022,49 @@ public class PgBackendProtocol implements ChannelDownstreamHandler, ODBCClientRe
 	private void sendMessage() {
 		int pos = this.dataOut.writerIndex();
 		this.dataOut.setInt(1, pos - 1);
-		sendContents();
+		sendContents(!isDeferrable((char)this.dataOut.getByte(0)));
+	}
+	
+	/**
+	 * Responses to the extended query messages may be held until the next 
+	 * ReadyForQuery, Flush, or other response so that pipelined 
+	 * Parse/Bind/Describe/Execute messages are answered with a single write. 
+	 */
+	private static boolean isDeferrable(char messageType) {
+		switch (messageType) {
+		case '1': //parse complete
+		case '2': //bind complete
+		case '3': //close complete
+		case 't': //parameter description
+		case 'T': //row description
+		case 'n': //no data
+		case 'C': //command complete
+		case 's': //portal suspended
+		case 'I': //empty query
+			return true;
+		}
+		return false;
 	}
 	
 	private void sendContents() {
+		sendContents(true);
+	}
+	
+	private void sendContents(boolean flush) {
 		ChannelBuffer cb = this.dataOut;
 		this.dataOut = null;
 		this.writer = null;
+		if (!flush && (this.pending == null || this.pending.readableBytes() + cb.readableBytes() < this.maxBufferSize)) {
+			if (this.pending == null) {
+				this.pending = ChannelBuffers.dynamicBuffer(Math.max(256, cb.readableBytes()));
+			}
+			this.pending.writeBytes(cb);
+			return;
+		}
+		if (this.pending != null) {
+			cb = ChannelBuffers.wrappedBuffer(this.pending, cb);
+			this.pending = null;
+		}
 		Channels.write(this.ctx, this.message.getFuture(), cb, this.message.getRemoteAddress());
 	}
 
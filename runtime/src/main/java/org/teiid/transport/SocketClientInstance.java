@@ -153,6 +153,7 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
 	public void onConnection() throws CommunicationException {
         Handshake handshake = new Handshake();
         handshake.setAuthType(csr.getAuthenticationType());
+        handshake.setCompressResults(true);
         if (usingEncryption) {
             keyGen = new DhKeyGenerator();
             byte[] publicKey;
@@ -185,6 +186,7 @@ public class SocketClientInstance implements ChannelListener, ClientInstance {
 	private void receivedHahdshake(Handshake handshake) throws CommunicationException {
 		String clientVersion = handshake.getVersion();
 		this.workContext.setClientVersion(Version.getVersion(clientVersion));
+		this.workContext.setCompressResults(handshake.isCompressResults());
 		if (usingEncryption) {
             byte[] returnedPublicKey = handshake.getPublicKey();
             
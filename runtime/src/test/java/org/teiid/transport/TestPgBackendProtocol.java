@@ -0,0 +1,230 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright (C) 2008 Red Hat, Inc.
+ * Licensed to Red Hat, Inc. under one or more contributor 
+ * license agreements.  See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.transport;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.MessageEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.teiid.client.util.ResultsFuture;
+import org.teiid.jdbc.ResultSetImpl;
+import org.teiid.net.socket.ServiceInvocationStruct;
+import org.teiid.odbc.ODBCClientRemote;
+import org.teiid.odbc.PGUtil;
+import org.teiid.odbc.PGUtil.PgColInfo;
+
+@SuppressWarnings("nls")
+public class TestPgBackendProtocol {
+	
+	private ChannelHandlerContext ctx;
+	private Channel channel;
+	private PgBackendProtocol protocol;
+	
+	@Before public void setUp() {
+		TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+		ctx = Mockito.mock(ChannelHandlerContext.class);
+		channel = Mockito.mock(Channel.class);
+		Mockito.stub(ctx.getChannel()).toReturn(channel);
+		Mockito.stub(channel.getPipeline()).toReturn(Mockito.mock(ChannelPipeline.class));
+		protocol = new PgBackendProtocol(1 << 20, 1 << 16, null, false);
+	}
+	
+	@After public void tearDown() {
+		TimeZone.setDefault(null);
+	}
+	
+	private void invoke(String method, Object... args) throws Exception {
+		MessageEvent me = Mockito.mock(MessageEvent.class);
+		Mockito.stub(me.getMessage()).toReturn(new ServiceInvocationStruct(args, method, ODBCClientRemote.class));
+		Mockito.stub(me.getFuture()).toReturn(Mockito.mock(ChannelFuture.class));
+		protocol.handleDownstream(ctx, me);
+		Mockito.verify(channel, Mockito.never()).close();
+	}
+	
+	/**
+	 * @return the contents of each write to the context
+	 */
+	private List<ChannelBuffer> getWrites(int count) {
+		ArgumentCaptor<ChannelEvent> events = ArgumentCaptor.forClass(ChannelEvent.class);
+		Mockito.verify(ctx, Mockito.times(count)).sendDownstream(events.capture());
+		List<ChannelBuffer> result = new ArrayList<ChannelBuffer>();
+		for (ChannelEvent event : events.getAllValues()) {
+			result.add((ChannelBuffer)((MessageEvent)event).getMessage());
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the message types in the buffer, skipping over the message bodies
+	 */
+	private static String getMessageTypes(ChannelBuffer buffer) {
+		StringBuilder types = new StringBuilder();
+		while (buffer.readable()) {
+			types.append((char)buffer.readByte());
+			int length = buffer.readInt();
+			buffer.skipBytes(length - 4);
+		}
+		return types.toString();
+	}
+	
+	private static PgColInfo helpBinaryCol(int type) {
+		PgColInfo col = new PgColInfo();
+		col.type = type;
+		col.format = 1;
+		return col;
+	}
+	
+	private static short[] helpWriteNumeric(String value) {
+		ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+		PgBackendProtocol.writeNumeric(buffer, new BigDecimal(value));
+		short[] result = new short[buffer.readableBytes()/2];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = buffer.readShort();
+		}
+		return result;
+	}
+
+	@Test public void testBinaryNumeric() {
+		//ndigits, weight, sign, dscale, digits
+		assertArrayEquals(new short[] {2, 0, 0, 2, 123, 4500}, helpWriteNumeric("123.45"));
+		assertArrayEquals(new short[] {1, -1, 0x4000, 3, 10}, helpWriteNumeric("-0.001"));
+		assertArrayEquals(new short[] {1, 1, 0, 0, 1}, helpWriteNumeric("10000"));
+		assertArrayEquals(new short[] {0, 0, 0, 1}, helpWriteNumeric("0.0"));
+	}
+	
+	@Test public void testResultFormats() {
+		PgColInfo intCol = new PgColInfo();
+		intCol.type = PGUtil.PG_TYPE_INT4;
+		PgColInfo vectorCol = new PgColInfo();
+		vectorCol.type = PGUtil.PG_TYPE_INT2VECTOR;
+		List<PgColInfo> cols = Arrays.asList(intCol, vectorCol);
+		
+		assertSame(cols, PGUtil.applyResultFormats(cols, new int[0]));
+		assertSame(cols, PGUtil.applyResultFormats(cols, new int[] {0, 1}));
+		
+		List<PgColInfo> result = PGUtil.applyResultFormats(cols, new int[] {1});
+		assertEquals(1, result.get(0).format);
+		assertEquals(0, intCol.format);
+		//no binary form
+		assertSame(vectorCol, result.get(1));
+	}
+	
+	@Test public void testDeferredMessagesCoalesced() throws Exception {
+		invoke("prepareCompleted", "x");
+		invoke("bindComplete");
+		//held until a flush
+		getWrites(0);
+		invoke("flush");
+		assertEquals("12", getMessageTypes(getWrites(1).get(0)));
+	}
+	
+	@Test public void testDeferredMessagesSentWithReady() throws Exception {
+		invoke("prepareCompleted", "x");
+		invoke("bindComplete");
+		invoke("ready", false, false);
+		assertEquals("12Z", getMessageTypes(getWrites(1).get(0)));
+		invoke("flush");
+		//nothing more to write
+		getWrites(1);
+	}
+	
+	@Test public void testBinaryRowEncodings() throws Exception {
+		ResultSetImpl rs = Mockito.mock(ResultSetImpl.class);
+		ResultsFuture<Boolean> hasRow = new ResultsFuture<Boolean>();
+		hasRow.getResultsReceiver().receiveResults(true);
+		ResultsFuture<Boolean> noRow = new ResultsFuture<Boolean>();
+		noRow.getResultsReceiver().receiveResults(false);
+		Mockito.when(rs.submitNext()).thenReturn(hasRow, noRow);
+		//2000-01-02
+		Mockito.stub(rs.getDate(1)).toReturn(new Date(946771200000l));
+		//2000-01-01 00:00:01.5
+		Timestamp ts = new Timestamp(946684801000l);
+		ts.setNanos(500000000);
+		Mockito.stub(rs.getTimestamp(2)).toReturn(ts);
+		Mockito.stub(rs.getTime(3)).toReturn(new Time(3600500));
+		Mockito.stub(rs.getBoolean(4)).toReturn(true);
+		Array array = Mockito.mock(Array.class);
+		Mockito.stub(array.getArray()).toReturn(new String[] {"a", null});
+		Mockito.stub(rs.getArray(5)).toReturn(array);
+		List<PgColInfo> cols = Arrays.asList(helpBinaryCol(PGUtil.PG_TYPE_DATE), helpBinaryCol(PGUtil.PG_TYPE_TIMESTAMP_NO_TMZONE), 
+				helpBinaryCol(PGUtil.PG_TYPE_TIME), helpBinaryCol(PGUtil.PG_TYPE_BOOL), helpBinaryCol(PGUtil.PG_TYPE_TEXTARRAY));
+		
+		invoke("sendResults", "SELECT", rs, cols, new ResultsFuture<Integer>(), -1, false);
+		invoke("flush");
+		
+		List<ChannelBuffer> writes = getWrites(2);
+		ChannelBuffer row = writes.get(0);
+		assertEquals('D', row.readByte());
+		row.readInt();
+		assertEquals(5, row.readShort());
+		//date - days since 2000-01-01
+		assertEquals(4, row.readInt());
+		assertEquals(1, row.readInt());
+		//timestamp - float8 seconds since 2000-01-01
+		assertEquals(8, row.readInt());
+		assertEquals(1.5, Double.longBitsToDouble(row.readLong()), 0);
+		//time - float8 seconds since midnight
+		assertEquals(8, row.readInt());
+		assertEquals(3600.5, Double.longBitsToDouble(row.readLong()), 0);
+		//bool
+		assertEquals(1, row.readInt());
+		assertEquals(1, row.readByte());
+		//array - dimensions, has nulls, element type, length, lower bound, elements
+		assertEquals(29, row.readInt());
+		assertEquals(1, row.readInt());
+		assertEquals(1, row.readInt());
+		assertEquals(PGUtil.PG_TYPE_TEXT, row.readInt());
+		assertEquals(2, row.readInt());
+		assertEquals(1, row.readInt());
+		assertEquals(1, row.readInt());
+		assertEquals('a', row.readByte());
+		assertEquals(-1, row.readInt());
+		assertFalse(row.readable());
+		
+		//the command complete is deferred until the flush
+		assertEquals("C", getMessageTypes(writes.get(1)));
+	}
+	
+}
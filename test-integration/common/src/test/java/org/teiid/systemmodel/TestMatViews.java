@@ -28,10 +28,12 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
@@ -316,6 +318,127 @@ public class TestMatViews {
 		assertEquals("base", rs.getString(1));
 	}
 	
+	@Test public void testDeltaRefresh() throws Exception {
+		ModelMetaData mmd2 = new ModelMetaData();
+		mmd2.setName("view1");
+		mmd2.setModelType(Type.PHYSICAL);
+		mmd2.setSchemaSourceType("DDL");
+		mmd2.setSchemaText("create foreign table x (id integer, val string, lm integer, del boolean); "
+				+ "CREATE VIEW v1 ( id integer primary key, val string, lm integer, del boolean ) OPTIONS (MATERIALIZED true, "
+				+ "\"teiid_rel:MATVIEW_DELTA_COLUMN\" 'lm', \"teiid_rel:MATVIEW_DELTA_DELETED_COLUMN\" 'del') AS select * from x");
+		mmd2.addSourceMapping("a", "a", null);
+		HardCodedExecutionFactory hcef = new HardCodedExecutionFactory();
+		hcef.addData("SELECT x.id, x.val, x.lm, x.del FROM x", Arrays.asList(Arrays.asList(1, "a", 1, false), Arrays.asList(2, "b", 2, false)));
+		server.addTranslator("a", hcef);
+		server.deployVDB("delta", mmd2);
+		
+		Connection c = server.getDriver().connect("jdbc:teiid:delta", null);
+		Statement s = c.createStatement();
+		ResultSet rs = s.executeQuery("select id, val from v1 order by id");
+		assertTrue(rs.next());
+		assertEquals("a", rs.getString(2));
+		
+		//only rows at or after the high water mark are merged
+		hcef.addData("SELECT x.id, x.val, x.lm, x.del FROM x", Arrays.asList(Arrays.asList(2, "b2", 3, false), Arrays.asList(3, "c", 3, false), Arrays.asList(4, "d", 0, false)));
+		rs = s.executeQuery("select * from (call refreshMatView('view1.v1', false)) p");
+		assertTrue(rs.next());
+		assertEquals(2, rs.getInt(1));
+		rs = s.executeQuery("select id, val from v1 order by id");
+		assertTrue(rs.next());
+		assertEquals("a", rs.getString(2));
+		assertTrue(rs.next());
+		assertEquals("b2", rs.getString(2));
+		assertTrue(rs.next());
+		assertEquals("c", rs.getString(2));
+		assertFalse(rs.next());
+		
+		hcef.addData("SELECT x.id, x.val, x.lm, x.del FROM x", Arrays.asList(Arrays.asList(3, "c", 4, true)));
+		s.execute("call refreshMatView('view1.v1', false)");
+		rs = s.executeQuery("select count(*) from v1");
+		rs.next();
+		assertEquals(2, rs.getInt(1));
+		
+		//an invalidating refresh performs a full load, which also drops the deleted rows
+		hcef.addData("SELECT x.id, x.val, x.lm, x.del FROM x", Arrays.asList(Arrays.asList(3, "c", 4, true), Arrays.asList(5, "e", 4, false)));
+		s.execute("call refreshMatView('view1.v1', true)");
+		rs = s.executeQuery("select id from v1");
+		assertTrue(rs.next());
+		assertEquals(5, rs.getInt(1));
+		assertFalse(rs.next());
+	}
+
+	@Test public void testPartitionedLoad() throws Exception {
+		ModelMetaData mmd2 = new ModelMetaData();
+		mmd2.setName("view1");
+		mmd2.setModelType(Type.PHYSICAL);
+		mmd2.setSchemaSourceType("DDL");
+		mmd2.setSchemaText("create foreign table x (id integer, val string); "
+				+ "CREATE VIEW v1 ( id integer primary key, val string ) OPTIONS (MATERIALIZED true, "
+				+ "\"teiid_rel:MATVIEW_PARTITION_EXPRESSION\" 'mod(id, 3)', \"teiid_rel:MATVIEW_PARTITION_COUNT\" '3') AS select * from x");
+		mmd2.addSourceMapping("a", "a", null);
+		HardCodedExecutionFactory hcef = new HardCodedExecutionFactory();
+		List<List<?>> rows = new ArrayList<List<?>>();
+		for (int i = 99; i >= 0; i--) {
+			rows.add(Arrays.asList(i, String.valueOf(i)));
+		}
+		hcef.addData("SELECT x.id, x.val FROM x", rows);
+		server.addTranslator("a", hcef);
+		server.deployVDB("partitioned", mmd2);
+
+		Connection c = server.getDriver().connect("jdbc:teiid:partitioned", null);
+		Statement s = c.createStatement();
+		ResultSet rs = s.executeQuery("select id, val from v1");
+		for (int i = 0; i < 100; i++) {
+			assertTrue(rs.next());
+			assertEquals(i, rs.getInt(1));
+			assertEquals(String.valueOf(i), rs.getString(2));
+		}
+		assertFalse(rs.next());
+
+		rs = s.executeQuery("select val from v1 where id = 42");
+		assertTrue(rs.next());
+		assertEquals("42", rs.getString(1));
+	}
+
+	@Test public void testPartitionedLoadOutOfRange() throws Exception {
+		ModelMetaData mmd2 = new ModelMetaData();
+		mmd2.setName("view1");
+		mmd2.setModelType(Type.PHYSICAL);
+		mmd2.setSchemaSourceType("DDL");
+		mmd2.setSchemaText("create foreign table x (id integer, grp integer); "
+				+ "CREATE VIEW v1 ( id integer primary key, grp integer ) OPTIONS (MATERIALIZED true, "
+				+ "\"teiid_rel:MATVIEW_PARTITION_EXPRESSION\" 'mod(grp, 3)', \"teiid_rel:MATVIEW_PARTITION_COUNT\" '3') AS select * from x; "
+				+ "CREATE VIEW v2 ( id integer primary key, grp integer ) OPTIONS (MATERIALIZED true, "
+				+ "\"teiid_rel:MATVIEW_PARTITION_EXPRESSION\" 'mod(grp, 3)', \"teiid_rel:MATVIEW_PARTITION_COUNT\" 'three') AS select * from x");
+		mmd2.addSourceMapping("a", "a", null);
+		HardCodedExecutionFactory hcef = new HardCodedExecutionFactory();
+		List<List<?>> rows = new ArrayList<List<?>>();
+		//negative and null expression values do not match any partition value
+		for (int i = 0; i < 20; i++) {
+			rows.add(Arrays.asList(i, i % 4 == 0 ? null : i - 10));
+		}
+		hcef.addData("SELECT x.id, x.grp FROM x", rows);
+		server.addTranslator("a", hcef);
+		server.deployVDB("partitioned", mmd2);
+
+		Connection c = server.getDriver().connect("jdbc:teiid:partitioned", null);
+		Statement s = c.createStatement();
+		for (String view : Arrays.asList("v1", "v2")) {
+			ResultSet rs = s.executeQuery("select id, grp from " + view);
+			for (int i = 0; i < 20; i++) {
+				assertTrue(rs.next());
+				assertEquals(i, rs.getInt(1));
+				if (i % 4 == 0) {
+					rs.getInt(2);
+					assertTrue(rs.wasNull());
+				} else {
+					assertEquals(i - 10, rs.getInt(2));
+				}
+			}
+			assertFalse(rs.next());
+		}
+	}
+
 	@Test public void testSessionScoping() throws Exception {
 		Statement s = conn.createStatement();
 		s.execute("alter view test.randomview as /*+ cache(scope:session) */ select rand() as x, rand() as y");